@@ -1,15 +1,23 @@
 package com.comptabilite;
 
+import com.comptabilite.dao.CompteurNumerotationDAO;
+import com.comptabilite.util.ChronologieDemarrage;
 import com.comptabilite.util.HibernateUtil;
 import com.comptabilite.service.InitializationService;
+import com.comptabilite.view.ExecuteurTaches;
 import com.comptabilite.view.LoginController;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+
 public class ComptabiliteApplication extends Application {
 
     private static final Logger logger = LoggerFactory.getLogger(ComptabiliteApplication.class);
@@ -18,22 +26,32 @@ public class ComptabiliteApplication extends Application {
     public void start(Stage primaryStage) {
         try {
             logger.info("Démarrage de l'application de comptabilité");
+            ChronologieDemarrage.jalon("Démarrage JavaFX");
 
-            // Initialiser l'application (créer utilisateur admin, etc.)
-            InitializationService initService = new InitializationService();
-            initService.initializeApplication();
+            // Base de données puis initialisation (utilisateur admin, etc.) en arrière-plan :
+            // la fenêtre de connexion s'affiche sans les attendre
+            CompletableFuture<Void> initialisation = HibernateUtil.demarrer()
+                .thenRun(() -> ChronologieDemarrage.mesurerAction("Initialisation de l'application",
+                    new InitializationService()::initializeApplication))
+                .whenComplete((resultat, erreur) -> {
+                    ChronologieDemarrage.jalon(erreur == null ? "Application prête" : "Échec du démarrage");
+                    ChronologieDemarrage.journaliser();
+                });
 
             FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/fxml/login.fxml"));
-            Scene scene = new Scene(fxmlLoader.load(), 400, 300);
+            Scene scene = new Scene(ChronologieDemarrage.mesurer("Chargement de la fenêtre de connexion",
+                () -> charger(fxmlLoader)), 400, 300);
 
             LoginController controller = fxmlLoader.getController();
             controller.setPrimaryStage(primaryStage);
+            controller.setDemarrage(initialisation);
 
             primaryStage.setTitle("Comptabilité Entreprise - Connexion");
             primaryStage.setScene(scene);
             primaryStage.setResizable(false);
             primaryStage.show();
 
+            ChronologieDemarrage.jalon("Fenêtre de connexion affichée");
             logger.info("Interface de connexion affichée");
 
         } catch (Exception e) {
@@ -42,9 +60,19 @@ public class ComptabiliteApplication extends Application {
         }
     }
 
+    private static Parent charger(FXMLLoader fxmlLoader) {
+        try {
+            return fxmlLoader.load();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     @Override
     public void stop() throws Exception {
         logger.info("Arrêt de l'application");
+        ExecuteurTaches.arreter();
+        new CompteurNumerotationDAO().libererBlocs();
         HibernateUtil.shutdown();
         super.stop();
     }
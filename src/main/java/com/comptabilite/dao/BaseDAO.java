@@ -105,6 +105,34 @@ public abstract class BaseDAO<T, ID extends Serializable> {
         }
     }
 
+    /**
+     * Vrai si la table contient au moins une entité : s'arrête à la première ligne trouvée
+     */
+    public boolean existsAny() {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            return session.createQuery("SELECT 1 FROM " + entityClass.getSimpleName(), Integer.class)
+                .setMaxResults(1)
+                .uniqueResult() != null;
+        } catch (Exception e) {
+            logger.error("Erreur lors du test d'existence des entités {}", entityClass.getSimpleName(), e);
+            throw new RuntimeException("Erreur lors du test d'existence", e);
+        }
+    }
+
+    /**
+     * Première entité créée (plus petit identifiant), sans charger les autres
+     */
+    public Optional<T> findFirst() {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            return session.createQuery("FROM " + entityClass.getSimpleName() + " e ORDER BY e.id", entityClass)
+                .setMaxResults(1)
+                .uniqueResultOptional();
+        } catch (Exception e) {
+            logger.error("Erreur lors de la recherche de la première entité {}", entityClass.getSimpleName(), e);
+            throw new RuntimeException("Erreur lors de la recherche", e);
+        }
+    }
+
     public boolean exists(ID id) {
         return findById(id).isPresent();
     }
@@ -5,6 +5,7 @@ import com.comptabilite.util.HibernateUtil;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
 
+import java.util.Collection;
 import java.util.List;
 
 public class ClientDAO extends BaseDAO<Client, Long> {
@@ -14,10 +15,11 @@ public class ClientDAO extends BaseDAO<Client, Long> {
     }
 
     public List<Client> findByEntreprise(Long entrepriseId) {
-        // Temporairement, retourner tous les clients
-        String hql = "FROM Client c ORDER BY c.nom, c.prenom";
+        // Servi par l'index idx_clients_entreprise_nom (entreprise_id, nom, prenom)
+        String hql = "FROM Client c WHERE c.entreprise.id = :entrepriseId ORDER BY c.nom, c.prenom";
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
             Query<Client> query = session.createQuery(hql, Client.class);
+            query.setParameter("entrepriseId", entrepriseId);
             return query.list();
         }
     }
@@ -31,24 +33,56 @@ public class ClientDAO extends BaseDAO<Client, Long> {
         }
     }
 
+    /**
+     * Partenaires d'une entreprise parmi une liste de codes, en une requête (import de factures)
+     */
+    public List<Client> findByCodesClient(Collection<String> codes, Long entrepriseId) {
+        if (codes.isEmpty()) {
+            return List.of();
+        }
+        String hql = "FROM Client c WHERE c.entreprise.id = :entrepriseId AND c.codeClient IN (:codes)";
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Query<Client> query = session.createQuery(hql, Client.class);
+            query.setParameter("entrepriseId", entrepriseId);
+            query.setParameterList("codes", codes);
+            return query.list();
+        }
+    }
+
     public boolean existsByCodeClient(String codeClient) {
         return findByCodeClient(codeClient) != null;
     }
 
     public List<Client> findByStatut(Client.StatutClient statut, Long entrepriseId) {
-        // Temporairement, ignorer l'entreprise
-        String hql = "FROM Client c WHERE c.statutClient = :statut ORDER BY c.nom, c.prenom";
+        String hql = "FROM Client c WHERE c.entreprise.id = :entrepriseId AND c.statutClient = :statut ORDER BY c.nom, c.prenom";
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
             Query<Client> query = session.createQuery(hql, Client.class);
+            query.setParameter("entrepriseId", entrepriseId);
             query.setParameter("statut", statut);
             return query.list();
         }
     }
 
-    public List<Client> searchByNomOrEmail(String terme) {
-        String hql = "FROM Client c WHERE LOWER(c.nom) LIKE LOWER(:terme) OR LOWER(c.prenom) LIKE LOWER(:terme) OR LOWER(c.email) LIKE LOWER(:terme) ORDER BY c.nom, c.prenom";
+    public List<Client> searchByNomOrEmail(String terme, Long entrepriseId) {
+        String requete = RechercheTexte.requeteBooleenne(terme);
+        if (requete != null) {
+            String sql = "SELECT * FROM clients WHERE entreprise_id = :entrepriseId " +
+                        "AND MATCH(" + RechercheTexte.COLONNES_CLIENTS + ") AGAINST (:requete IN BOOLEAN MODE) " +
+                        "ORDER BY nom, prenom";
+            try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+                return session.createNativeQuery(sql, Client.class)
+                    .setParameter("entrepriseId", entrepriseId)
+                    .setParameter("requete", requete)
+                    .list();
+            }
+        }
+
+        String hql = "FROM Client c WHERE c.entreprise.id = :entrepriseId " +
+                    "AND (LOWER(c.nom) LIKE LOWER(:terme) OR LOWER(c.prenom) LIKE LOWER(:terme) OR LOWER(c.email) LIKE LOWER(:terme)) " +
+                    "ORDER BY c.nom, c.prenom";
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
             Query<Client> query = session.createQuery(hql, Client.class);
+            query.setParameter("entrepriseId", entrepriseId);
             query.setParameter("terme", "%" + terme + "%");
             return query.list();
         }
@@ -63,6 +97,17 @@ public class ClientDAO extends BaseDAO<Client, Long> {
         }
     }
 
+    // Codes uniques toutes entreprises confondues : suite du plus grand numéro CLI- existant
+    public String generateNextCodeClient() {
+        String hql = "SELECT MAX(CAST(SUBSTRING(c.codeClient, 5) AS long)) FROM Client c " +
+                    "WHERE c.codeClient LIKE 'CLI-%'";
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Query<Long> query = session.createQuery(hql, Long.class);
+            Long dernier = query.uniqueResult();
+            return String.format("CLI-%04d", (dernier != null ? dernier : 0L) + 1);
+        }
+    }
+
     public long countFacturesByClient(Long clientId) {
         String hql = "SELECT COUNT(f) FROM Facture f WHERE f.client.id = :clientId";
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
@@ -83,9 +128,10 @@ public class ClientDAO extends BaseDAO<Client, Long> {
     }
 
     public List<Client> findClientsWithSoldeNegatif(Long entrepriseId) {
-        String hql = "FROM Client c WHERE c.soldeClient < 0 ORDER BY c.soldeClient ASC";
+        String hql = "FROM Client c WHERE c.soldeClient < 0 AND c.entreprise.id = :entrepriseId ORDER BY c.soldeClient ASC";
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
             Query<Client> query = session.createQuery(hql, Client.class);
+            query.setParameter("entrepriseId", entrepriseId);
             return query.list();
         }
     }
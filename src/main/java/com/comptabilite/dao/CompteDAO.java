@@ -1,6 +1,8 @@
 package com.comptabilite.dao;
 
+import com.comptabilite.dao.LigneEcritureDAO.MouvementCompte;
 import com.comptabilite.model.Compte;
+import com.comptabilite.util.CacheReference;
 import com.comptabilite.util.HibernateUtil;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
@@ -9,13 +11,24 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.Optional;
 
 public class CompteDAO extends BaseDAO<Compte, Long> {
 
     private static final Logger logger = LoggerFactory.getLogger(CompteDAO.class);
 
+    private static final String MOUVEMENT_SOLDES_SQL =
+        "UPDATE compte SET solde_debit = COALESCE(solde_debit, 0) + ?, " +
+        "solde_credit = COALESCE(solde_credit, 0) + ? WHERE id = ?";
+
     public CompteDAO() {
         super(Compte.class);
     }
@@ -25,6 +38,8 @@ public class CompteDAO extends BaseDAO<Compte, Long> {
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
             Query<Compte> query = session.createQuery(hql, Compte.class);
             query.setParameter("numeroCompte", numeroCompte);
+            query.setCacheable(true);
+            query.setCacheRegion(CacheReference.REQUETES_COMPTES);
             return Optional.ofNullable(query.uniqueResult());
         }
     }
@@ -46,6 +61,9 @@ public class CompteDAO extends BaseDAO<Compte, Long> {
             Query<Compte> query = session.createQuery("FROM Compte c WHERE c.numeroCompte = :numeroCompte AND c.entreprise.id = :entrepriseId", Compte.class);
             query.setParameter("numeroCompte", numeroCompte);
             query.setParameter("entrepriseId", entrepriseId);
+            // Résolution numéro -> compte des imputations : servie par le cache après la première lecture
+            query.setCacheable(true);
+            query.setCacheRegion(CacheReference.REQUETES_COMPTES);
             return Optional.ofNullable(query.uniqueResult());
         } catch (Exception e) {
             logger.error("Erreur lors de la recherche de compte {} pour entreprise {}", numeroCompte, entrepriseId, e);
@@ -53,6 +71,21 @@ public class CompteDAO extends BaseDAO<Compte, Long> {
         }
     }
 
+    /**
+     * Charge en une requête les comptes d'une entreprise parmi une liste de numéros
+     */
+    public List<Compte> findByNumerosAndEntreprise(Collection<String> numeros, Long entrepriseId) {
+        if (numeros.isEmpty()) {
+            return List.of();
+        }
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            return session.createQuery("FROM Compte c WHERE c.numeroCompte IN (:numeros) AND c.entreprise.id = :entrepriseId", Compte.class)
+                .setParameterList("numeros", numeros)
+                .setParameter("entrepriseId", entrepriseId)
+                .list();
+        }
+    }
+
     public List<Compte> findByEntreprise(Long entrepriseId) {
         String hql = "FROM Compte c LEFT JOIN FETCH c.sousComptes WHERE c.entreprise.id = :entrepriseId ORDER BY c.numeroCompte";
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
@@ -110,6 +143,19 @@ public class CompteDAO extends BaseDAO<Compte, Long> {
     }
 
     public List<Compte> searchByLibelle(String libelle, Long entrepriseId) {
+        String requete = RechercheTexte.requeteBooleenne(libelle);
+        if (requete != null) {
+            String sql = "SELECT * FROM compte WHERE entreprise_id = :entrepriseId " +
+                        "AND MATCH(" + RechercheTexte.COLONNES_COMPTES + ") AGAINST (:requete IN BOOLEAN MODE) " +
+                        "ORDER BY numero";
+            try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+                return session.createNativeQuery(sql, Compte.class)
+                    .setParameter("entrepriseId", entrepriseId)
+                    .setParameter("requete", requete)
+                    .list();
+            }
+        }
+
         String hql = "FROM Compte c WHERE LOWER(c.libelle) LIKE LOWER(:libelle) AND c.entreprise.id = :entrepriseId ORDER BY c.numeroCompte";
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
             Query<Compte> query = session.createQuery(hql, Compte.class);
@@ -119,6 +165,74 @@ public class CompteDAO extends BaseDAO<Compte, Long> {
         }
     }
 
+    /**
+     * Filtres du plan comptable, appliqués en SQL (null : critère inactif)
+     */
+    public record FiltreComptes(Long entrepriseId, String prefixeNumero, String texte) {
+    }
+
+    /**
+     * Page du plan comptable dans l'ordre des numéros, lue après le dernier compte déjà affiché
+     *
+     * @param apres dernier compte de la page précédente, null pour la première page
+     */
+    public List<Compte> findPage(FiltreComptes filtre, Compte apres, int taille) {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Map<String, Object> parametres = new HashMap<>();
+            String conditions = conditionsFiltre(filtre, parametres);
+            if (apres != null) {
+                conditions += PaginationCle.condition("c.numeroCompte", "c.id", true);
+                parametres.put(PaginationCle.CURSEUR, apres.getNumeroCompte());
+                parametres.put(PaginationCle.CURSEUR_ID, apres.getId());
+            }
+
+            Query<Compte> query = session.createQuery(
+                "FROM Compte c WHERE c.entreprise.id = :entrepriseId " + conditions +
+                PaginationCle.ordre("c.numeroCompte", "c.id", true), Compte.class);
+            PaginationCle.lier(query, parametres);
+            query.setMaxResults(taille);
+            return query.list();
+        }
+    }
+
+    public long compter(FiltreComptes filtre) {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Map<String, Object> parametres = new HashMap<>();
+            String conditions = conditionsFiltre(filtre, parametres);
+            Query<Long> query = session.createQuery(
+                "SELECT COUNT(c) FROM Compte c WHERE c.entreprise.id = :entrepriseId " + conditions, Long.class);
+            PaginationCle.lier(query, parametres);
+            Long result = query.uniqueResult();
+            return result != null ? result : 0L;
+        }
+    }
+
+    /**
+     * Traduit le filtre en conditions HQL (à placer après le critère entreprise)
+     */
+    private String conditionsFiltre(FiltreComptes filtre, Map<String, Object> parametres) {
+        StringBuilder conditions = new StringBuilder();
+        parametres.put("entrepriseId", filtre.entrepriseId());
+
+        if (filtre.prefixeNumero() != null) {
+            conditions.append("AND c.numeroCompte LIKE :prefixe ");
+            parametres.put("prefixe", filtre.prefixeNumero() + "%");
+        }
+
+        String texte = filtre.texte() != null ? filtre.texte().trim() : "";
+        if (!texte.isEmpty()) {
+            String requete = RechercheTexte.requeteBooleenne(texte);
+            if (requete != null) {
+                conditions.append(RechercheTexte.conditionHql("c", "Compte",
+                    RechercheTexte.ATTRIBUTS_COMPTES, requete, null, null, parametres));
+            } else {
+                conditions.append("AND (LOWER(c.numeroCompte) LIKE :texte OR LOWER(c.libelle) LIKE :texte) ");
+                parametres.put("texte", "%" + texte.toLowerCase() + "%");
+            }
+        }
+        return conditions.toString();
+    }
+
     public boolean existsByNumeroCompte(String numeroCompte) {
         return findByNumeroCompte(numeroCompte).isPresent();
     }
@@ -284,6 +398,7 @@ public class CompteDAO extends BaseDAO<Compte, Long> {
                 }
 
                 transaction.commit();
+                CacheReference.evincerCompte(savedCompte.getId());
                 return savedCompte;
             } catch (Exception e) {
                 transaction.rollback();
@@ -362,32 +477,81 @@ public class CompteDAO extends BaseDAO<Compte, Long> {
      * Met à jour uniquement les soldes d'un compte
      */
     public void updateSoldes(Compte compte, BigDecimal nouveauSoldeDebiteur, BigDecimal nouveauSoldeCrediteur) {
+        Transaction transaction = null;
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Transaction transaction = session.beginTransaction();
-            try {
-                Compte compteToUpdate = session.get(Compte.class, compte.getId());
-                if (compteToUpdate != null) {
-                    compteToUpdate.setSoldeDebiteur(nouveauSoldeDebiteur);
-                    compteToUpdate.setSoldeCrediteur(nouveauSoldeCrediteur);
-                    session.merge(compteToUpdate);
-
-                    // Notifier le parent que les soldes ont changé
-                    compteToUpdate.mettreAJourSoldesParent();
-
-                    logger.info("Soldes mis à jour pour {}: Débit={}, Crédit={}",
-                        compteToUpdate.getNumeroCompte(), nouveauSoldeDebiteur, nouveauSoldeCrediteur);
-                }
-                transaction.commit();
-            } catch (Exception e) {
+            transaction = session.beginTransaction();
+            session.createNativeQuery("UPDATE compte SET solde_debit = :debit, solde_credit = :credit WHERE id = :id")
+                .addSynchronizedEntityClass(Compte.class)
+                .setParameter("debit", nouveauSoldeDebiteur)
+                .setParameter("credit", nouveauSoldeCrediteur)
+                .setParameter("id", compte.getId())
+                .executeUpdate();
+            transaction.commit();
+
+            logger.info("Soldes mis à jour pour {}: Débit={}, Crédit={}",
+                compte.getNumeroCompte(), nouveauSoldeDebiteur, nouveauSoldeCrediteur);
+        } catch (Exception e) {
+            if (transaction != null && transaction.isActive()) {
                 transaction.rollback();
-                throw e;
             }
-        } catch (Exception e) {
             logger.error("Erreur lors de la mise à jour des soldes pour {}", compte.getNumeroCompte(), e);
             throw new RuntimeException("Erreur de mise à jour des soldes", e);
         }
     }
 
+    /**
+     * Ajoute des mouvements aux soldes des comptes par des UPDATE relatifs envoyés en un seul batch JDBC.
+     *
+     * La base applique chaque écart sur la valeur courante de la ligne : deux validations simultanées
+     * sur le même compte s'additionnent au lieu de s'écraser, sans verrou applicatif. Les comptes sont
+     * traités dans l'ordre des id pour que des transactions concurrentes prennent leurs verrous de
+     * ligne dans le même ordre et ne puissent pas s'interbloquer.
+     * Doit être appelée dans la transaction qui valide les écritures. Ces UPDATE contournent
+     * Hibernate : les comptes touchés sont évincés du cache de second niveau.
+     */
+    public void appliquerMouvements(Session session, Map<Long, MouvementCompte> mouvements) {
+        if (mouvements.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Long, MouvementCompte>> parId = new ArrayList<>(new TreeMap<>(mouvements).entrySet());
+        CacheReference.evincerComptes(session, new ArrayList<>(mouvements.keySet()));
+        session.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(MOUVEMENT_SOLDES_SQL)) {
+                for (Map.Entry<Long, MouvementCompte> entry : parId) {
+                    statement.setBigDecimal(1, entry.getValue().totalDebit());
+                    statement.setBigDecimal(2, entry.getValue().totalCredit());
+                    statement.setLong(3, entry.getKey());
+                    statement.addBatch();
+                }
+                int[] lignesModifiees = statement.executeBatch();
+                for (int i = 0; i < lignesModifiees.length; i++) {
+                    if (lignesModifiees[i] == 0) {
+                        throw new SQLException("Compte introuvable pour l'imputation: " + parId.get(i).getKey());
+                    }
+                }
+            }
+        });
+        logger.debug("Soldes mis à jour pour {} comptes", parId.size());
+    }
+
+    /**
+     * Corrige les soldes d'un compte d'un écart (saisie manuelle), dans sa propre transaction
+     */
+    public void ajusterSoldes(Long compteId, BigDecimal ecartDebit, BigDecimal ecartCredit) {
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            transaction = session.beginTransaction();
+            appliquerMouvements(session, Map.of(compteId, new MouvementCompte(ecartDebit, ecartCredit)));
+            transaction.commit();
+        } catch (Exception e) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            logger.error("Erreur lors de l'ajustement des soldes du compte {}", compteId, e);
+            throw new RuntimeException("Erreur d'ajustement des soldes", e);
+        }
+    }
+
     /**
      * Vérifie si un compte peut être supprimé (pas d'écritures associées)
      */
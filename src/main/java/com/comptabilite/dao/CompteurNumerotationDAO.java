@@ -0,0 +1,203 @@
+package com.comptabilite.dao;
+
+import com.comptabilite.model.CompteurNumerotation;
+import com.comptabilite.util.HibernateUtil;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Allocation des numéros de pièces (écritures, factures) par compteur
+ * entreprise x journal x année.
+ *
+ * Deux modes d'allocation, qui ne verrouillent que la ligne du compteur :
+ * - numeroSuivant / reserverPlage avec session : le compteur avance dans la transaction de la
+ *   pièce, après ses contrôles. Un échec annule aussi l'avance, la numérotation reste continue ;
+ *   en contrepartie les pièces d'un même compteur sont enregistrées l'une après l'autre.
+ *   Réservé aux pièces dont la numérotation doit être sans trou (factures et leurs écritures).
+ * - prochainNumero : les numéros sont réservés par blocs dans une transaction courte qui leur est
+ *   propre, puis distribués depuis la mémoire. Un numéro distribué n'est jamais rendu si la pièce
+ *   n'est pas enregistrée, et seule la fin non utilisée d'un bloc est rendue à l'arrêt : cette
+ *   numérotation peut avoir des trous, quelle que soit la taille du bloc.
+ */
+public class CompteurNumerotationDAO extends BaseDAO<CompteurNumerotation, Long> {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompteurNumerotationDAO.class);
+
+    // Blocs réservés par ce poste, partagés par toutes les instances du DAO
+    private static final Map<CleCompteur, Bloc> BLOCS = new ConcurrentHashMap<>();
+
+    public CompteurNumerotationDAO() {
+        super(CompteurNumerotation.class);
+    }
+
+    /**
+     * Retourne le prochain numéro du compteur.
+     *
+     * @param amorce dernier numéro déjà utilisé dans les données existantes,
+     *               appelé uniquement à la création du compteur
+     */
+    public long prochainNumero(Long entrepriseId, String journal, int annee, int tailleBloc, LongSupplier amorce) {
+        CleCompteur cle = new CleCompteur(entrepriseId, journal, annee);
+        Bloc bloc = BLOCS.computeIfAbsent(cle, k -> new Bloc());
+        synchronized (bloc) {
+            if (bloc.prochain > bloc.fin) {
+                reserver(cle, bloc, tailleBloc, amorce);
+            }
+            return bloc.prochain++;
+        }
+    }
+
+    /**
+     * Rend au compteur la partie non utilisée des blocs réservés (à appeler à l'arrêt)
+     */
+    public void libererBlocs() {
+        for (Map.Entry<CleCompteur, Bloc> entry : BLOCS.entrySet()) {
+            CleCompteur cle = entry.getKey();
+            Bloc bloc = entry.getValue();
+            synchronized (bloc) {
+                if (bloc.prochain > bloc.fin) {
+                    continue;
+                }
+                try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+                    Transaction transaction = session.beginTransaction();
+                    int rendus = session.createNativeQuery(
+                        "UPDATE compteurs_numerotation SET dernier_numero = :dernierUtilise " +
+                        "WHERE entreprise_id = :entrepriseId AND journal = :journal AND annee = :annee " +
+                        "AND dernier_numero = :fin")
+                        .setParameter("dernierUtilise", bloc.prochain - 1)
+                        .setParameter("entrepriseId", cle.entrepriseId())
+                        .setParameter("journal", cle.journal())
+                        .setParameter("annee", cle.annee())
+                        .setParameter("fin", bloc.fin)
+                        .executeUpdate();
+                    transaction.commit();
+                    if (rendus > 0) {
+                        logger.debug("Numéros {} à {} rendus au compteur {}", bloc.prochain, bloc.fin, cle);
+                    }
+                    bloc.fin = bloc.prochain - 1;
+                } catch (Exception e) {
+                    logger.warn("Impossible de rendre la fin du bloc du compteur {}", cle, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Prochain numéro du compteur, pris dans la transaction de la pièce (session ouverte par l'appelant) :
+     * le compteur reste verrouillé jusqu'à la fin de cette transaction et son annulation rend le numéro.
+     *
+     * @param amorce dernier numéro déjà utilisé dans les données existantes,
+     *               appelé uniquement à la création du compteur
+     */
+    public long numeroSuivant(Session session, Long entrepriseId, String journal, int annee, LongSupplier amorce) {
+        return reserverPlage(session, entrepriseId, journal, annee, 1, amorce);
+    }
+
+    /**
+     * Réserve une plage de numéros consécutifs dans la transaction des pièces (imports de masse),
+     * avec les mêmes garanties que numeroSuivant.
+     *
+     * @return premier numéro de la plage
+     */
+    public long reserverPlage(Session session, Long entrepriseId, String journal, int annee, int nombre,
+                              LongSupplier amorce) {
+        CleCompteur cle = new CleCompteur(entrepriseId, journal, annee);
+        long premier = avancer(session, cle, nombre, amorce) + 1;
+        logger.debug("Numéros {} à {} pris pour {}", premier, premier + nombre - 1, cle);
+        return premier;
+    }
+
+    /**
+     * Réserve d'un coup une plage de numéros consécutifs dans sa propre transaction,
+     * hors des blocs en mémoire (numéros qui ne sont pas des pièces comptables).
+     *
+     * @return premier numéro de la plage
+     */
+    public long reserverPlage(Long entrepriseId, String journal, int annee, int nombre, LongSupplier amorce) {
+        CleCompteur cle = new CleCompteur(entrepriseId, journal, annee);
+        long premier = avancerCompteur(cle, nombre, amorce) + 1;
+        logger.debug("Plage de numéros {} à {} réservée pour {}", premier, premier + nombre - 1, cle);
+        return premier;
+    }
+
+    private void reserver(CleCompteur cle, Bloc bloc, int tailleBloc, LongSupplier amorce) {
+        long dernier = avancerCompteur(cle, tailleBloc, amorce);
+        bloc.prochain = dernier + 1;
+        bloc.fin = dernier + tailleBloc;
+        logger.debug("Bloc de numéros {} à {} réservé pour {}", bloc.prochain, bloc.fin, cle);
+    }
+
+    /**
+     * Avance le compteur de nombre numéros dans une transaction courte et retourne sa valeur précédente
+     */
+    private long avancerCompteur(CleCompteur cle, int nombre, LongSupplier amorce) {
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            transaction = session.beginTransaction();
+            long dernier = avancer(session, cle, nombre, amorce);
+            transaction.commit();
+            return dernier;
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            logger.error("Erreur lors de la réservation de numéros pour {}", cle, e);
+            throw new RuntimeException("Erreur lors de la réservation de numéros", e);
+        }
+    }
+
+    /**
+     * Avance le compteur dans la transaction en cours et retourne sa valeur précédente
+     */
+    private long avancer(Session session, CleCompteur cle, int nombre, LongSupplier amorce) {
+        Long dernier = lireCompteur(session, cle);
+        if (dernier == null) {
+            // Premier usage : démarrer après les numéros déjà présents en base
+            session.createNativeQuery(
+                "INSERT IGNORE INTO compteurs_numerotation (entreprise_id, journal, annee, dernier_numero) " +
+                "VALUES (:entrepriseId, :journal, :annee, :dernier)")
+                .setParameter("entrepriseId", cle.entrepriseId())
+                .setParameter("journal", cle.journal())
+                .setParameter("annee", cle.annee())
+                .setParameter("dernier", amorce.getAsLong())
+                .executeUpdate();
+            dernier = lireCompteur(session, cle);
+        }
+
+        session.createNativeQuery(
+            "UPDATE compteurs_numerotation SET dernier_numero = :fin " +
+            "WHERE entreprise_id = :entrepriseId AND journal = :journal AND annee = :annee")
+            .setParameter("fin", dernier + nombre)
+            .setParameter("entrepriseId", cle.entrepriseId())
+            .setParameter("journal", cle.journal())
+            .setParameter("annee", cle.annee())
+            .executeUpdate();
+        return dernier;
+    }
+
+    private Long lireCompteur(Session session, CleCompteur cle) {
+        // Verrou limité à la ligne du compteur, pas aux pièces de l'entreprise
+        Object resultat = session.createNativeQuery(
+            "SELECT dernier_numero FROM compteurs_numerotation " +
+            "WHERE entreprise_id = :entrepriseId AND journal = :journal AND annee = :annee FOR UPDATE")
+            .setParameter("entrepriseId", cle.entrepriseId())
+            .setParameter("journal", cle.journal())
+            .setParameter("annee", cle.annee())
+            .uniqueResult();
+        return resultat != null ? ((Number) resultat).longValue() : null;
+    }
+
+    private record CleCompteur(Long entrepriseId, String journal, int annee) {
+    }
+
+    private static final class Bloc {
+        private long prochain = 1;
+        private long fin = 0;
+    }
+}
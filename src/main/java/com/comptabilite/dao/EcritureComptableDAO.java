@@ -1,16 +1,28 @@
 package com.comptabilite.dao;
 
+import com.comptabilite.dto.EcritureResume;
 import com.comptabilite.model.EcritureComptable;
 import com.comptabilite.util.HibernateUtil;
 import org.hibernate.Session;
+import org.hibernate.Transaction;
 import org.hibernate.query.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public class EcritureComptableDAO extends BaseDAO<EcritureComptable, Long> {
 
+    private static final Logger logger = LoggerFactory.getLogger(EcritureComptableDAO.class);
+
+    // Taille des blocs d'identifiants, identique à l'allocationSize des @TableGenerator
+    private static final int TAILLE_BLOC_IDS = 50;
+
     public EcritureComptableDAO() {
         super(EcritureComptable.class);
     }
@@ -75,6 +87,19 @@ public class EcritureComptableDAO extends BaseDAO<EcritureComptable, Long> {
     }
 
     public List<EcritureComptable> searchByLibelle(String libelle, Long exerciceId) {
+        String requete = RechercheTexte.requeteBooleenne(libelle);
+        String numeros = RechercheTexte.requeteNumeros(libelle);
+        if (requete != null || numeros != null) {
+            String sql = RechercheTexte.union("SELECT * FROM ecritures_comptables WHERE exercice_id = :exerciceId",
+                        RechercheTexte.COLONNES_ECRITURES, requete, RechercheTexte.COLONNES_NUMEROS_ECRITURES, numeros) +
+                        " ORDER BY dateEcriture DESC";
+            try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+                return RechercheTexte.lier(session.createNativeQuery(sql, EcritureComptable.class), requete, numeros)
+                    .setParameter("exerciceId", exerciceId)
+                    .list();
+            }
+        }
+
         String hql = "FROM EcritureComptable e WHERE LOWER(e.libelle) LIKE LOWER(:libelle) AND e.exercice.id = :exerciceId ORDER BY e.dateEcriture DESC";
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
             Query<EcritureComptable> query = session.createQuery(hql, EcritureComptable.class);
@@ -126,6 +151,163 @@ public class EcritureComptableDAO extends BaseDAO<EcritureComptable, Long> {
         }
     }
 
+    /**
+     * Filtres de la liste des écritures, appliqués en SQL (null : critère inactif)
+     */
+    public record FiltreEcritures(Long entrepriseId, LocalDate dateDebut, LocalDate dateFin,
+                                  EcritureComptable.StatutEcriture statut, String numeroJournal, String texte) {
+    }
+
+    /**
+     * Colonnes de tri de la liste des écritures ; chacune sert de clé de pagination avec l'id
+     */
+    public enum TriEcritures {
+        DATE("e.dateEcriture"),
+        NUMERO("e.numeroEcriture");
+
+        private final String colonne;
+
+        TriEcritures(String colonne) {
+            this.colonne = colonne;
+        }
+
+        private Object valeur(EcritureResume ecriture) {
+            return this == DATE ? ecriture.dateEcriture() : ecriture.numeroEcriture();
+        }
+    }
+
+    public record TotauxEcritures(long nombre, BigDecimal montant) {
+    }
+
+    /**
+     * Page de la liste des écritures, lue après la dernière ligne déjà affichée.
+     *
+     * Le montant est calculé par sous-requête pour les seules lignes de la page : la requête
+     * principale n'a pas de GROUP BY et s'arrête dès que la page est remplie.
+     *
+     * @param apres dernière écriture de la page précédente, null pour la première page
+     */
+    public List<EcritureResume> findResumesPage(FiltreEcritures filtre, TriEcritures tri, boolean croissant,
+                                                EcritureResume apres, int taille) {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Map<String, Object> parametres = new HashMap<>();
+            String conditions = conditionsFiltre(filtre, parametres);
+            if (apres != null) {
+                conditions += PaginationCle.condition(tri.colonne, "e.id", croissant);
+                parametres.put(PaginationCle.CURSEUR, tri.valeur(apres));
+                parametres.put(PaginationCle.CURSEUR_ID, apres.id());
+            }
+
+            String hql = "SELECT new com.comptabilite.dto.EcritureResume(" +
+                        "e.id, e.numeroEcriture, e.dateEcriture, e.numeroJournal, e.libelle, e.referencePiece, e.statut, " +
+                        "(SELECT SUM(l.montantDebit) FROM LigneEcriture l WHERE l.ecritureComptable = e), " +
+                        "CONCAT(u.prenom, ' ', u.nom)) " +
+                        "FROM EcritureComptable e " +
+                        "LEFT JOIN e.utilisateur u " +
+                        "WHERE e.entreprise.id = :entrepriseId " + conditions +
+                        PaginationCle.ordre(tri.colonne, "e.id", croissant);
+            Query<EcritureResume> query = session.createQuery(hql, EcritureResume.class);
+            PaginationCle.lier(query, parametres);
+            query.setMaxResults(taille);
+            return query.list();
+        }
+    }
+
+    /**
+     * Nombre et montant total des écritures répondant au filtre
+     */
+    public TotauxEcritures totaliser(FiltreEcritures filtre) {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Map<String, Object> parametres = new HashMap<>();
+            String conditions = conditionsFiltre(filtre, parametres);
+
+            String hql = "SELECT COUNT(DISTINCT e.id), COALESCE(SUM(l.montantDebit), 0) " +
+                        "FROM EcritureComptable e " +
+                        "LEFT JOIN e.lignes l " +
+                        "WHERE e.entreprise.id = :entrepriseId " + conditions;
+            Query<Object[]> query = session.createQuery(hql, Object[].class);
+            PaginationCle.lier(query, parametres);
+            Object[] resultat = query.uniqueResult();
+            return new TotauxEcritures(((Number) resultat[0]).longValue(), (BigDecimal) resultat[1]);
+        }
+    }
+
+    /**
+     * Journaux utilisés par les écritures de l'entreprise, pour le filtre de la liste
+     */
+    public List<String> findNumerosJournaux(Long entrepriseId) {
+        String hql = "SELECT DISTINCT e.numeroJournal FROM EcritureComptable e " +
+                    "WHERE e.entreprise.id = :entrepriseId AND e.numeroJournal IS NOT NULL " +
+                    "ORDER BY e.numeroJournal";
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Query<String> query = session.createQuery(hql, String.class);
+            query.setParameter("entrepriseId", entrepriseId);
+            return query.list();
+        }
+    }
+
+    /**
+     * Traduit le filtre en conditions HQL (à placer après le critère entreprise)
+     */
+    private String conditionsFiltre(FiltreEcritures filtre, Map<String, Object> parametres) {
+        StringBuilder conditions = new StringBuilder();
+        parametres.put("entrepriseId", filtre.entrepriseId());
+
+        if (filtre.dateDebut() != null) {
+            conditions.append("AND e.dateEcriture >= :dateDebut ");
+            parametres.put("dateDebut", filtre.dateDebut());
+        }
+        if (filtre.dateFin() != null) {
+            conditions.append("AND e.dateEcriture <= :dateFin ");
+            parametres.put("dateFin", filtre.dateFin());
+        }
+        if (filtre.statut() != null) {
+            conditions.append("AND e.statut = :statut ");
+            parametres.put("statut", filtre.statut());
+        }
+        if (filtre.numeroJournal() != null) {
+            conditions.append("AND e.numeroJournal = :numeroJournal ");
+            parametres.put("numeroJournal", filtre.numeroJournal());
+        }
+
+        String texte = filtre.texte() != null ? filtre.texte().trim() : "";
+        if (!texte.isEmpty()) {
+            String requete = RechercheTexte.requeteBooleenne(texte);
+            String numeros = RechercheTexte.requeteNumeros(texte);
+            if (requete != null || numeros != null) {
+                conditions.append(RechercheTexte.conditionHql("e", "EcritureComptable",
+                    RechercheTexte.ATTRIBUTS_ECRITURES, requete, RechercheTexte.ATTRIBUTS_NUMEROS_ECRITURES, numeros,
+                    parametres));
+            } else {
+                String[] mots = texte.toLowerCase().split("\\s+");
+                for (int i = 0; i < mots.length; i++) {
+                    conditions.append("AND (LOWER(e.libelle) LIKE :mot").append(i)
+                              .append(" OR LOWER(e.numeroEcriture) LIKE :mot").append(i)
+                              .append(" OR LOWER(e.referencePiece) LIKE :mot").append(i).append(") ");
+                    parametres.put("mot" + i, "%" + mots[i] + "%");
+                }
+            }
+        }
+        return conditions.toString();
+    }
+
+
+    /**
+     * Plus grand suffixe numérique des numéros d'écriture commençant par le préfixe donné
+     */
+    public long findDernierNumero(Long entrepriseId, String prefixe) {
+        String hql = "SELECT MAX(CAST(SUBSTRING(e.numeroEcriture, " + (prefixe.length() + 1) + ") AS long)) " +
+                    "FROM EcritureComptable e " +
+                    "WHERE e.entreprise.id = :entrepriseId AND e.numeroEcriture LIKE :pattern";
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Query<Long> query = session.createQuery(hql, Long.class);
+            query.setParameter("entrepriseId", entrepriseId);
+            query.setParameter("pattern", prefixe + "%");
+            Long result = query.uniqueResult();
+            return result != null ? result : 0L;
+        }
+    }
+
     public long countByEntrepriseAndYear(Long entrepriseId, int year) {
         String hql = "SELECT COUNT(e) FROM EcritureComptable e WHERE e.entreprise.id = :entrepriseId AND YEAR(e.dateEcriture) = :year";
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
@@ -136,4 +318,37 @@ public class EcritureComptableDAO extends BaseDAO<EcritureComptable, Long> {
             return result != null ? result : 0L;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Place les générateurs d'identifiants des écritures, des factures et de leurs lignes au-delà
+     * des ids existants, comme la migration V4. Nécessaire une fois après le passage de IDENTITY à
+     * des identifiants alloués par blocs.
+     *
+     * Écritures, lignes d'écriture, factures et lignes de facture tirent leurs identifiants par blocs
+     * de la table id_generateurs (et non IDENTITY) : un identifiant attribué par la base à l'insertion
+     * empêcherait Hibernate de regrouper leurs insertions en batch JDBC.
+     */
+    public void alignerGenerateursIdentifiants() {
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            transaction = session.beginTransaction();
+            for (String table : new String[] {"ecritures_comptables", "lignes_ecriture", "factures", "lignes_facture"}) {
+                session.createNativeQuery(
+                    "INSERT INTO id_generateurs (entite, prochaine_valeur) " +
+                    "SELECT :entite, COALESCE(MAX(id), 0) + :bloc FROM " + table + " " +
+                    "ON DUPLICATE KEY UPDATE prochaine_valeur = GREATEST(prochaine_valeur, VALUES(prochaine_valeur))")
+                    .setParameter("entite", table)
+                    .setParameter("bloc", TAILLE_BLOC_IDS + 1)
+                    .executeUpdate();
+            }
+            transaction.commit();
+            logger.debug("Générateurs d'identifiants des écritures et des factures alignés");
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            logger.error("Erreur lors de l'alignement des générateurs d'identifiants", e);
+            throw new RuntimeException("Erreur lors de l'alignement des générateurs d'identifiants", e);
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package com.comptabilite.dao;
 
 import com.comptabilite.model.Exercice;
+import com.comptabilite.util.CacheReference;
 import com.comptabilite.util.HibernateUtil;
 import org.hibernate.Session;
+import org.hibernate.Transaction;
 import org.hibernate.query.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -11,6 +15,8 @@ import java.util.Optional;
 
 public class ExerciceDAO extends BaseDAO<Exercice, Long> {
 
+    private static final Logger logger = LoggerFactory.getLogger(ExerciceDAO.class);
+
     public ExerciceDAO() {
         super(Exercice.class);
     }
@@ -20,6 +26,8 @@ public class ExerciceDAO extends BaseDAO<Exercice, Long> {
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
             Query<Exercice> query = session.createQuery(hql, Exercice.class);
             query.setParameter("entrepriseId", entrepriseId);
+            query.setCacheable(true);
+            query.setCacheRegion(CacheReference.REQUETES_EXERCICES);
             return query.list();
         }
     }
@@ -31,6 +39,8 @@ public class ExerciceDAO extends BaseDAO<Exercice, Long> {
             Query<Exercice> query = session.createQuery(hql, Exercice.class);
             query.setParameter("entrepriseId", entrepriseId);
             query.setParameter("today", today);
+            query.setCacheable(true);
+            query.setCacheRegion(CacheReference.REQUETES_EXERCICES);
             return Optional.ofNullable(query.uniqueResult());
         }
     }
@@ -51,7 +61,54 @@ public class ExerciceDAO extends BaseDAO<Exercice, Long> {
             Query<Exercice> query = session.createQuery(hql, Exercice.class);
             query.setParameter("annee", annee);
             query.setParameter("entrepriseId", entrepriseId);
+            query.setCacheable(true);
+            query.setCacheRegion(CacheReference.REQUETES_EXERCICES);
             return Optional.ofNullable(query.uniqueResult());
         }
     }
+
+    /**
+     * Début de la période dont les soldes ne sont pas encore repris en à-nouveaux à une date :
+     * lendemain de la fin du dernier exercice clôturé avec soldes figés qui se termine avant
+     * cette date, ou null si aucun exercice n'a été clôturé ainsi.
+     */
+    public LocalDate findDebutReport(Long entrepriseId, LocalDate date) {
+        String hql = "SELECT MAX(e.dateFin) FROM Exercice e WHERE e.entreprise.id = :entrepriseId " +
+                    "AND e.statut <> :ouvert AND e.dateFin < :date " +
+                    "AND EXISTS (SELECT s.id FROM SoldeCloture s WHERE s.exercice = e)";
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Query<LocalDate> query = session.createQuery(hql, LocalDate.class);
+            query.setParameter("entrepriseId", entrepriseId);
+            query.setParameter("ouvert", Exercice.StatutExercice.OUVERT);
+            query.setParameter("date", date);
+            LocalDate fin = query.uniqueResult();
+            return fin != null ? fin.plusDays(1) : null;
+        }
+    }
+
+    /**
+     * Passe un exercice au statut clôturé et l'évince du cache de second niveau
+     */
+    public Exercice cloturer(Long exerciceId) {
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            transaction = session.beginTransaction();
+            Exercice exercice = session.get(Exercice.class, exerciceId);
+            if (exercice == null) {
+                throw new IllegalArgumentException("Exercice introuvable: " + exerciceId);
+            }
+            exercice.cloturerExercice();
+            transaction.commit();
+            logger.info("Exercice {} clôturé", exercice.getLibelle());
+            return exercice;
+        } catch (Exception e) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            logger.error("Erreur lors de la clôture de l'exercice {}", exerciceId, e);
+            throw new RuntimeException("Erreur lors de la clôture de l'exercice", e);
+        } finally {
+            CacheReference.evincerExercice(exerciceId);
+        }
+    }
 }
\ No newline at end of file
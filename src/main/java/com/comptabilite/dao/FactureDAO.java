@@ -1,25 +1,37 @@
 package com.comptabilite.dao;
 
+import com.comptabilite.dto.FactureResume;
 import com.comptabilite.model.Facture;
 import com.comptabilite.model.Client;
 import com.comptabilite.model.Fournisseur;
 import org.hibernate.Session;
+import org.hibernate.Transaction;
 import com.comptabilite.util.HibernateUtil;
+import org.hibernate.query.NativeQuery;
 import org.hibernate.query.Query;
+import org.hibernate.type.StandardBasicTypes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 public class FactureDAO extends BaseDAO<Facture, Long> {
 
     private static final Logger logger = LoggerFactory.getLogger(FactureDAO.class);
+    private final CompteurNumerotationDAO compteurDAO;
 
     public FactureDAO() {
         super(Facture.class);
+        this.compteurDAO = new CompteurNumerotationDAO();
     }
 
     // Rechercher par numéro de facture
@@ -83,6 +95,102 @@ public class FactureDAO extends BaseDAO<Facture, Long> {
         }
     }
 
+    /**
+     * Filtres de la liste des factures, appliqués en SQL (null : critère inactif)
+     */
+    public record FiltreFactures(Long entrepriseId, Facture.TypeFacture type, Facture.StatutFacture statut,
+                                 boolean enRetard, LocalDate dateDebut, LocalDate dateFin, String texte) {
+    }
+
+    /**
+     * Colonnes de tri de la liste des factures ; chacune sert de clé de pagination avec l'id
+     */
+    public enum TriFactures {
+        DATE("f.dateFacture"),
+        NUMERO("f.numeroFacture");
+
+        private final String colonne;
+
+        TriFactures(String colonne) {
+            this.colonne = colonne;
+        }
+
+        private Object valeur(FactureResume facture) {
+            return this == DATE ? facture.dateFacture() : facture.numeroFacture();
+        }
+    }
+
+    /**
+     * Page de la liste des factures, lue après la dernière ligne déjà affichée
+     *
+     * @param apres dernière facture de la page précédente, null pour la première page
+     */
+    public List<FactureResume> findResumesPage(FiltreFactures filtre, TriFactures tri, boolean croissant,
+                                               FactureResume apres, int taille) {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Map<String, Object> parametres = new HashMap<>();
+            parametres.put("entrepriseId", filtre.entrepriseId());
+            StringBuilder conditions = new StringBuilder();
+
+            if (filtre.type() != null) {
+                conditions.append("AND f.typeFacture = :type ");
+                parametres.put("type", filtre.type());
+            }
+            if (filtre.statut() != null) {
+                conditions.append("AND f.statut = :statut ");
+                parametres.put("statut", filtre.statut());
+            }
+            if (filtre.enRetard()) {
+                conditions.append("AND f.dateEcheance < :aujourdhui AND f.statut NOT IN (:statutsSoldes) ");
+                parametres.put("aujourdhui", LocalDate.now());
+                parametres.put("statutsSoldes", List.of(Facture.StatutFacture.PAYEE, Facture.StatutFacture.ANNULEE));
+            }
+            if (filtre.dateDebut() != null) {
+                conditions.append("AND f.dateFacture >= :dateDebut ");
+                parametres.put("dateDebut", filtre.dateDebut());
+            }
+            if (filtre.dateFin() != null) {
+                conditions.append("AND f.dateFacture <= :dateFin ");
+                parametres.put("dateFin", filtre.dateFin());
+            }
+
+            String texte = filtre.texte() != null ? filtre.texte().trim() : "";
+            if (!texte.isEmpty()) {
+                String requete = RechercheTexte.requeteBooleenne(texte);
+                String numeros = RechercheTexte.requeteNumeros(texte);
+                if (requete != null || numeros != null) {
+                    conditions.append(RechercheTexte.conditionHql("f", "Facture",
+                        RechercheTexte.ATTRIBUTS_FACTURES, requete, RechercheTexte.ATTRIBUTS_NUMEROS_FACTURES, numeros,
+                        parametres));
+                } else {
+                    conditions.append("AND (LOWER(f.numeroFacture) LIKE :search " +
+                                      "OR LOWER(f.objet) LIKE :search " +
+                                      "OR LOWER(f.commentaires) LIKE :search) ");
+                    parametres.put("search", "%" + texte.toLowerCase() + "%");
+                }
+            }
+
+            if (apres != null) {
+                conditions.append(PaginationCle.condition(tri.colonne, "f.id", croissant));
+                parametres.put(PaginationCle.CURSEUR, tri.valeur(apres));
+                parametres.put(PaginationCle.CURSEUR_ID, apres.id());
+            }
+
+            Query<FactureResume> query = session.createQuery(
+                "SELECT new com.comptabilite.dto.FactureResume(" +
+                "f.id, f.numeroFacture, f.dateFacture, f.dateEcheance, f.typeFacture, f.statut, " +
+                "f.objet, f.montantTTC, c.raisonSociale, fo.raisonSociale) " +
+                "FROM Facture f " +
+                "LEFT JOIN f.client c " +
+                "LEFT JOIN f.fournisseur fo " +
+                "WHERE f.entreprise.id = :entrepriseId " + conditions +
+                PaginationCle.ordre(tri.colonne, "f.id", croissant), FactureResume.class);
+            PaginationCle.lier(query, parametres);
+            query.setMaxResults(taille);
+            return query.list();
+        }
+    }
+
     // Rechercher les factures de vente (clients)
     public List<Facture> findFacturesVente(Long entrepriseId) {
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
@@ -171,6 +279,133 @@ public class FactureDAO extends BaseDAO<Facture, Long> {
         }
     }
 
+    /**
+     * Encours d'un tiers ventilé par ancienneté de l'échéance, avoirs déduits
+     *
+     * @param clientId  client des factures, null pour un fournisseur
+     * @param nonEchu   échéance non atteinte à la date de référence, ou facture sans échéance
+     * @param retard30  échéance dépassée de 1 à 30 jours (retard60, retard90 : tranches suivantes)
+     */
+    public record EncoursTiers(Long clientId, Long fournisseurId, String code, String nom, long factures,
+                               BigDecimal nonEchu, BigDecimal retard30, BigDecimal retard60,
+                               BigDecimal retard90, BigDecimal retardPlus90, LocalDate plusAncienneEcheance) {
+
+        public BigDecimal echu() {
+            return retard30.add(retard60).add(retard90).add(retardPlus90);
+        }
+
+        public BigDecimal total() {
+            return nonEchu.add(echu());
+        }
+    }
+
+    // Montant d'une facture dans l'encours : les avoirs viennent en déduction
+    private static final String MONTANT_ENCOURS =
+        "CASE WHEN f.typeFacture IN ('AVOIR_VENTE', 'AVOIR_ACHAT') THEN -f.montantTTC ELSE f.montantTTC END";
+
+    private static final String NOM_TIERS =
+        "CASE WHEN %1$s.type%2$s = 'PARTICULIER' THEN CONCAT_WS(' ', NULLIF(TRIM(%1$s.prenom), ''), %1$s.nom) " +
+        "ELSE %1$s.nom END";
+
+    /**
+     * Balance âgée des factures ouvertes (envoyées ou en retard) de l'entreprise, par tiers.
+     *
+     * Une seule requête groupée, lue dans idx_factures_balance_agee ; les noms des tiers sont joints
+     * après regroupement, une fois par tiers. Les bornes des tranches sont calculées ici pour que les
+     * comparaisons portent directement sur dateEcheance.
+     *
+     * @param clientIds      restreint aux clients donnés (recalcul partiel), null pour tous les tiers
+     * @param fournisseurIds restreint aux fournisseurs donnés, null pour tous les tiers
+     */
+    public List<EncoursTiers> findBalanceAgee(Long entrepriseId, LocalDate dateReference,
+                                              Collection<Long> clientIds, Collection<Long> fournisseurIds) {
+        String filtre = "";
+        if (clientIds != null || fournisseurIds != null) {
+            List<String> tiers = new ArrayList<>();
+            if (clientIds != null && !clientIds.isEmpty()) {
+                tiers.add("f.client_id IN (:clientIds)");
+            }
+            if (fournisseurIds != null && !fournisseurIds.isEmpty()) {
+                tiers.add("f.fournisseur_id IN (:fournisseurIds)");
+            }
+            if (tiers.isEmpty()) {
+                return List.of();
+            }
+            filtre = "AND (" + String.join(" OR ", tiers) + ") ";
+        }
+
+        String sql = "SELECT a.client_id, a.fournisseur_id, " +
+                    "COALESCE(c.codeClient, fo.codeFournisseur) AS code, " +
+                    "COALESCE(" + String.format(NOM_TIERS, "c", "Client") + ", " +
+                    String.format(NOM_TIERS, "fo", "Fournisseur") + ") AS nom, " +
+                    "a.factures, a.non_echu, a.retard_30, a.retard_60, a.retard_90, a.retard_plus_90, a.plus_ancienne " +
+                    "FROM (SELECT f.client_id, f.fournisseur_id, COUNT(*) AS factures, " +
+                    "SUM(CASE WHEN f.dateEcheance IS NULL OR f.dateEcheance >= :reference " +
+                    "THEN " + MONTANT_ENCOURS + " ELSE 0 END) AS non_echu, " +
+                    "SUM(CASE WHEN f.dateEcheance < :reference AND f.dateEcheance >= :borne30 " +
+                    "THEN " + MONTANT_ENCOURS + " ELSE 0 END) AS retard_30, " +
+                    "SUM(CASE WHEN f.dateEcheance < :borne30 AND f.dateEcheance >= :borne60 " +
+                    "THEN " + MONTANT_ENCOURS + " ELSE 0 END) AS retard_60, " +
+                    "SUM(CASE WHEN f.dateEcheance < :borne60 AND f.dateEcheance >= :borne90 " +
+                    "THEN " + MONTANT_ENCOURS + " ELSE 0 END) AS retard_90, " +
+                    "SUM(CASE WHEN f.dateEcheance < :borne90 " +
+                    "THEN " + MONTANT_ENCOURS + " ELSE 0 END) AS retard_plus_90, " +
+                    "MIN(f.dateEcheance) AS plus_ancienne " +
+                    "FROM factures f " +
+                    "WHERE f.entreprise_id = :entrepriseId AND f.statut IN ('ENVOYEE', 'EN_RETARD') " + filtre +
+                    "GROUP BY f.client_id, f.fournisseur_id) a " +
+                    "LEFT JOIN clients c ON c.id = a.client_id " +
+                    "LEFT JOIN fournisseurs fo ON fo.id = a.fournisseur_id";
+
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            NativeQuery<Object[]> query = session.createNativeQuery(sql, Object[].class)
+                .addScalar("client_id", StandardBasicTypes.LONG)
+                .addScalar("fournisseur_id", StandardBasicTypes.LONG)
+                .addScalar("code", StandardBasicTypes.STRING)
+                .addScalar("nom", StandardBasicTypes.STRING)
+                .addScalar("factures", StandardBasicTypes.LONG)
+                .addScalar("non_echu", StandardBasicTypes.BIG_DECIMAL)
+                .addScalar("retard_30", StandardBasicTypes.BIG_DECIMAL)
+                .addScalar("retard_60", StandardBasicTypes.BIG_DECIMAL)
+                .addScalar("retard_90", StandardBasicTypes.BIG_DECIMAL)
+                .addScalar("retard_plus_90", StandardBasicTypes.BIG_DECIMAL)
+                .addScalar("plus_ancienne", StandardBasicTypes.LOCAL_DATE);
+            query.setParameter("entrepriseId", entrepriseId);
+            query.setParameter("reference", dateReference);
+            query.setParameter("borne30", dateReference.minusDays(30));
+            query.setParameter("borne60", dateReference.minusDays(60));
+            query.setParameter("borne90", dateReference.minusDays(90));
+            if (filtre.contains(":clientIds")) {
+                query.setParameterList("clientIds", clientIds);
+            }
+            if (filtre.contains(":fournisseurIds")) {
+                query.setParameterList("fournisseurIds", fournisseurIds);
+            }
+            query.setReadOnly(true);
+
+            List<EncoursTiers> encours = new ArrayList<>();
+            for (Object[] row : query.list()) {
+                encours.add(new EncoursTiers(
+                    (Long) row[0],
+                    (Long) row[1],
+                    (String) row[2],
+                    (String) row[3],
+                    (Long) row[4],
+                    montant(row[5]),
+                    montant(row[6]),
+                    montant(row[7]),
+                    montant(row[8]),
+                    montant(row[9]),
+                    (LocalDate) row[10]));
+            }
+            return encours;
+        }
+    }
+
+    private static BigDecimal montant(Object valeur) {
+        return valeur != null ? (BigDecimal) valeur : BigDecimal.ZERO;
+    }
+
     // Rechercher par période
     public List<Facture> findByPeriode(LocalDate dateDebut, LocalDate dateFin, Long entrepriseId) {
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
@@ -188,8 +423,24 @@ public class FactureDAO extends BaseDAO<Facture, Long> {
         }
     }
 
-    // Recherche textuelle (numéro, objet, commentaires)
+    // Recherche textuelle (numéro, référence externe, objet, commentaires)
     public List<Facture> searchByText(String searchTerm, Long entrepriseId) {
+        String requete = RechercheTexte.requeteBooleenne(searchTerm);
+        String numeros = RechercheTexte.requeteNumeros(searchTerm);
+        if (requete != null || numeros != null) {
+            try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+                return RechercheTexte.lier(session.createNativeQuery(
+                    RechercheTexte.union("SELECT * FROM factures WHERE entreprise_id = :entrepriseId",
+                        RechercheTexte.COLONNES_FACTURES, requete, RechercheTexte.COLONNES_NUMEROS_FACTURES, numeros) +
+                    " ORDER BY dateFacture DESC", Facture.class), requete, numeros)
+                    .setParameter("entrepriseId", entrepriseId)
+                    .list();
+            } catch (Exception e) {
+                logger.error("Erreur lors de la recherche textuelle de factures", e);
+                return List.of();
+            }
+        }
+
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
             String searchPattern = "%" + searchTerm.toLowerCase() + "%";
             Query<Facture> query = session.createQuery(
@@ -245,36 +496,75 @@ public class FactureDAO extends BaseDAO<Facture, Long> {
         }
     }
 
-    // Générer le prochain numéro de facture
-    public String generateNextNumeroFacture(Facture.TypeFacture typeFacture, Long entrepriseId) {
+    /**
+     * Enregistre une nouvelle facture ; sans numéro, elle reçoit le suivant de sa série dans la même
+     * transaction, et un échec de l'enregistrement rend le numéro au compteur
+     */
+    public Facture saveNumerotee(Facture facture) {
+        Transaction transaction = null;
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            String prefix = typeFacture == Facture.TypeFacture.VENTE ? "VTE" : "ACH";
-            String year = String.valueOf(LocalDate.now().getYear());
-
-            Query<String> query = session.createQuery(
-                "SELECT f.numeroFacture FROM Facture f " +
-                "WHERE f.entreprise.id = :entrepriseId " +
-                "AND f.numeroFacture LIKE :pattern " +
-                "ORDER BY f.numeroFacture DESC", String.class);
-            query.setParameter("entrepriseId", entrepriseId);
-            query.setParameter("pattern", prefix + year + "%");
-            query.setMaxResults(1);
-
-            Optional<String> lastNumber = query.uniqueResultOptional();
-
-            if (lastNumber.isPresent()) {
-                String last = lastNumber.get();
-                String numberPart = last.substring(prefix.length() + 4); // Enlever prefix + année
-                int nextNumber = Integer.parseInt(numberPart) + 1;
-                return String.format("%s%s%04d", prefix, year, nextNumber);
-            } else {
-                return String.format("%s%s0001", prefix, year);
+            transaction = session.beginTransaction();
+            if (facture.getNumeroFacture() == null || facture.getNumeroFacture().isEmpty()) {
+                facture.setNumeroFacture(reserverNumerosFacture(session, facture.getTypeFacture(),
+                    facture.getEntreprise().getId(), facture.getDateFacture().getYear(), 1).get(0));
             }
+            session.persist(facture);
+            transaction.commit();
+            return facture;
         } catch (Exception e) {
-            logger.error("Erreur lors de la génération du numéro de facture", e);
-            String prefix = typeFacture == Facture.TypeFacture.VENTE ? "VTE" : "ACH";
-            String year = String.valueOf(LocalDate.now().getYear());
-            return String.format("%s%s0001", prefix, year);
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            logger.error("Erreur lors de l'enregistrement de la facture", e);
+            throw new RuntimeException("Erreur lors de l'enregistrement de la facture", e);
+        }
+    }
+
+    /**
+     * Prend les numéros d'un lot de factures du même type et de la même année de facturation,
+     * dans la transaction qui les enregistre (série VTE ou ACH de l'année de la facture)
+     */
+    public List<String> reserverNumerosFacture(Session session, Facture.TypeFacture typeFacture, Long entrepriseId,
+                                               int annee, int nombre) {
+        String prefix = typeFacture == Facture.TypeFacture.VENTE ? "VTE" : "ACH";
+        String prefixeAnnee = prefix + annee;
+
+        long premier = compteurDAO.reserverPlage(session, entrepriseId, prefix, annee, nombre,
+            () -> findDernierNumeroFacture(entrepriseId, prefixeAnnee));
+        List<String> numeros = new ArrayList<>(nombre);
+        for (long numero = premier; numero < premier + nombre; numero++) {
+            numeros.add(String.format("%s%04d", prefixeAnnee, numero));
+        }
+        return numeros;
+    }
+
+    /**
+     * Références externes déjà importées parmi celles d'un lot
+     */
+    public Set<String> findReferencesExternes(Long entrepriseId, Collection<String> references) {
+        if (references.isEmpty()) {
+            return Set.of();
+        }
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            return new HashSet<>(session.createQuery(
+                "SELECT f.referenceExterne FROM Facture f " +
+                "WHERE f.entreprise.id = :entrepriseId AND f.referenceExterne IN (:references)", String.class)
+                .setParameter("entrepriseId", entrepriseId)
+                .setParameterList("references", references)
+                .list());
+        }
+    }
+
+    private long findDernierNumeroFacture(Long entrepriseId, String prefixe) {
+        String hql = "SELECT MAX(CAST(SUBSTRING(f.numeroFacture, " + (prefixe.length() + 1) + ") AS long)) " +
+                    "FROM Facture f " +
+                    "WHERE f.entreprise.id = :entrepriseId AND f.numeroFacture LIKE :pattern";
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Query<Long> query = session.createQuery(hql, Long.class);
+            query.setParameter("entrepriseId", entrepriseId);
+            query.setParameter("pattern", prefixe + "%");
+            Long result = query.uniqueResult();
+            return result != null ? result : 0L;
         }
     }
 
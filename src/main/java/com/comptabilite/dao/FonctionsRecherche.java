@@ -0,0 +1,29 @@
+package com.comptabilite.dao;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.BasicType;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Fonctions HQL de recherche plein texte, enregistrées auprès d'Hibernate par
+ * META-INF/services/org.hibernate.boot.model.FunctionContributor.
+ *
+ * texte_integral2(a, b, :requete) et texte_integral3(a, b, c, :requete) deviennent
+ * MATCH(a, b[, c]) AGAINST (:requete IN BOOLEAN MODE) : la recherche par index FULLTEXT
+ * peut ainsi filtrer une requête HQL sans passer par une liste d'identifiants.
+ */
+public class FonctionsRecherche implements FunctionContributor {
+
+    static final String TEXTE_INTEGRAL = "texte_integral";
+
+    @Override
+    public void contributeFunctions(FunctionContributions contributions) {
+        BasicType<Double> pertinence = contributions.getTypeConfiguration()
+            .getBasicTypeRegistry().resolve(StandardBasicTypes.DOUBLE);
+        contributions.getFunctionRegistry().registerPattern(TEXTE_INTEGRAL + 2,
+            "match(?1, ?2) against (?3 in boolean mode)", pertinence);
+        contributions.getFunctionRegistry().registerPattern(TEXTE_INTEGRAL + 3,
+            "match(?1, ?2, ?3) against (?4 in boolean mode)", pertinence);
+    }
+}
@@ -5,6 +5,7 @@ import com.comptabilite.util.HibernateUtil;
 import org.hibernate.Session;
 import org.hibernate.query.Query;
 
+import java.util.Collection;
 import java.util.List;
 
 public class FournisseurDAO extends BaseDAO<Fournisseur, Long> {
@@ -14,9 +15,11 @@ public class FournisseurDAO extends BaseDAO<Fournisseur, Long> {
     }
 
     public List<Fournisseur> findByEntreprise(Long entrepriseId) {
-        String hql = "FROM Fournisseur f ORDER BY f.nom";
+        // Servi par l'index idx_fournisseurs_entreprise_nom (entreprise_id, nom, prenom)
+        String hql = "FROM Fournisseur f WHERE f.entreprise.id = :entrepriseId ORDER BY f.nom";
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
             Query<Fournisseur> query = session.createQuery(hql, Fournisseur.class);
+            query.setParameter("entrepriseId", entrepriseId);
             return query.list();
         }
     }
@@ -30,23 +33,56 @@ public class FournisseurDAO extends BaseDAO<Fournisseur, Long> {
         }
     }
 
+    /**
+     * Partenaires d'une entreprise parmi une liste de codes, en une requête (import de factures)
+     */
+    public List<Fournisseur> findByCodesFournisseur(Collection<String> codes, Long entrepriseId) {
+        if (codes.isEmpty()) {
+            return List.of();
+        }
+        String hql = "FROM Fournisseur f WHERE f.entreprise.id = :entrepriseId AND f.codeFournisseur IN (:codes)";
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Query<Fournisseur> query = session.createQuery(hql, Fournisseur.class);
+            query.setParameter("entrepriseId", entrepriseId);
+            query.setParameterList("codes", codes);
+            return query.list();
+        }
+    }
+
     public boolean existsByCodeFournisseur(String codeFournisseur) {
         return findByCodeFournisseur(codeFournisseur) != null;
     }
 
     public List<Fournisseur> findByStatut(Fournisseur.StatutFournisseur statut, Long entrepriseId) {
-        String hql = "FROM Fournisseur f WHERE f.statutFournisseur = :statut ORDER BY f.nom";
+        String hql = "FROM Fournisseur f WHERE f.entreprise.id = :entrepriseId AND f.statutFournisseur = :statut ORDER BY f.nom";
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
             Query<Fournisseur> query = session.createQuery(hql, Fournisseur.class);
+            query.setParameter("entrepriseId", entrepriseId);
             query.setParameter("statut", statut);
             return query.list();
         }
     }
 
-    public List<Fournisseur> searchByNomOrEmail(String terme) {
-        String hql = "FROM Fournisseur f WHERE LOWER(f.nom) LIKE LOWER(:terme) OR LOWER(f.prenom) LIKE LOWER(:terme) OR LOWER(f.email) LIKE LOWER(:terme) OR LOWER(f.raisonSociale) LIKE LOWER(:terme) ORDER BY f.nom";
+    public List<Fournisseur> searchByNomOrEmail(String terme, Long entrepriseId) {
+        String requete = RechercheTexte.requeteBooleenne(terme);
+        if (requete != null) {
+            String sql = "SELECT * FROM fournisseurs WHERE entreprise_id = :entrepriseId " +
+                        "AND MATCH(" + RechercheTexte.COLONNES_FOURNISSEURS + ") AGAINST (:requete IN BOOLEAN MODE) " +
+                        "ORDER BY nom";
+            try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+                return session.createNativeQuery(sql, Fournisseur.class)
+                    .setParameter("entrepriseId", entrepriseId)
+                    .setParameter("requete", requete)
+                    .list();
+            }
+        }
+
+        String hql = "FROM Fournisseur f WHERE f.entreprise.id = :entrepriseId " +
+                    "AND (LOWER(f.nom) LIKE LOWER(:terme) OR LOWER(f.prenom) LIKE LOWER(:terme) OR LOWER(f.email) LIKE LOWER(:terme) OR LOWER(f.raisonSociale) LIKE LOWER(:terme)) " +
+                    "ORDER BY f.nom";
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
             Query<Fournisseur> query = session.createQuery(hql, Fournisseur.class);
+            query.setParameter("entrepriseId", entrepriseId);
             query.setParameter("terme", "%" + terme + "%");
             return query.list();
         }
@@ -72,46 +108,42 @@ public class FournisseurDAO extends BaseDAO<Fournisseur, Long> {
     }
 
     public List<Fournisseur> findFournisseursWithSoldePositif(Long entrepriseId) {
-        String hql = "FROM Fournisseur f WHERE f.soldeFournisseur > 0 ORDER BY f.soldeFournisseur DESC";
+        String hql = "FROM Fournisseur f WHERE f.soldeFournisseur > 0 AND f.entreprise.id = :entrepriseId ORDER BY f.soldeFournisseur DESC";
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
             Query<Fournisseur> query = session.createQuery(hql, Fournisseur.class);
+            query.setParameter("entrepriseId", entrepriseId);
             return query.list();
         }
     }
 
     public List<Fournisseur> findFournisseursWithSoldeNegatif(Long entrepriseId) {
-        String hql = "FROM Fournisseur f WHERE f.soldeFournisseur < 0 ORDER BY f.soldeFournisseur ASC";
+        String hql = "FROM Fournisseur f WHERE f.soldeFournisseur < 0 AND f.entreprise.id = :entrepriseId ORDER BY f.soldeFournisseur ASC";
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
             Query<Fournisseur> query = session.createQuery(hql, Fournisseur.class);
+            query.setParameter("entrepriseId", entrepriseId);
             return query.list();
         }
     }
 
     public List<Fournisseur> findByType(Fournisseur.TypeFournisseur type, Long entrepriseId) {
-        String hql = "FROM Fournisseur f WHERE f.typeFournisseur = :type ORDER BY f.nom";
+        String hql = "FROM Fournisseur f WHERE f.entreprise.id = :entrepriseId AND f.typeFournisseur = :type ORDER BY f.nom";
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
             Query<Fournisseur> query = session.createQuery(hql, Fournisseur.class);
+            query.setParameter("entrepriseId", entrepriseId);
             query.setParameter("type", type);
             return query.list();
         }
     }
 
+    // Codes uniques toutes entreprises confondues : suite du plus grand numéro existant,
+    // comparé en nombre (F10000 vient après F9999) et insensible aux fournisseurs supprimés
     public String generateNextCodeFournisseur() {
-        String hql = "SELECT MAX(f.codeFournisseur) FROM Fournisseur f WHERE f.codeFournisseur LIKE 'F%'";
+        String hql = "SELECT MAX(CAST(SUBSTRING(f.codeFournisseur, 2) AS long)) FROM Fournisseur f " +
+                    "WHERE f.codeFournisseur LIKE 'F%'";
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Query<String> query = session.createQuery(hql, String.class);
-            String maxCode = query.uniqueResult();
-
-            if (maxCode == null) {
-                return "F0001";
-            }
-
-            try {
-                int numero = Integer.parseInt(maxCode.substring(1));
-                return String.format("F%04d", numero + 1);
-            } catch (NumberFormatException e) {
-                return "F0001";
-            }
+            Query<Long> query = session.createQuery(hql, Long.class);
+            Long dernier = query.uniqueResult();
+            return String.format("F%04d", (dernier != null ? dernier : 0L) + 1);
         }
     }
 }
\ No newline at end of file
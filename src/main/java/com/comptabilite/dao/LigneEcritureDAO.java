@@ -1,15 +1,40 @@
 package com.comptabilite.dao;
 
+import com.comptabilite.model.EcritureComptable;
 import com.comptabilite.model.LigneEcriture;
 import com.comptabilite.util.HibernateUtil;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
+import org.hibernate.Transaction;
 import org.hibernate.query.Query;
 
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class LigneEcritureDAO extends BaseDAO<LigneEcriture, Long> {
 
+    // Référence de la pièce d'une ligne : celle de l'écriture, ou le libellé d'une ligne d'à-nouveaux
+    private static final String REFERENCE_LIGNE =
+        "CASE WHEN ec.numeroJournal = '" + EcritureComptable.JOURNAL_A_NOUVEAUX + "' " +
+        "THEN l.libelle ELSE ec.referencePiece END";
+
+    private static final String LETTRAGE_SQL =
+        "UPDATE lignes_ecriture SET codeLettrage = ?, date_lettrage = ? " +
+        "WHERE id = ? AND compte_id = ? AND codeLettrage IS NULL";
+
+    // Ordres de lettrage envoyés par batch JDBC
+    private static final int TAILLE_LOT_LETTRAGE = 1000;
+
     public LigneEcritureDAO() {
         super(LigneEcriture.class);
     }
@@ -62,6 +87,396 @@ public class LigneEcritureDAO extends BaseDAO<LigneEcriture, Long> {
         }
     }
 
+    /**
+     * Totaux débit/crédit de tous les comptes d'une entreprise sur une période,
+     * calculés en une seule requête agrégée (écritures validées ou clôturées).
+     */
+    public Map<Long, MouvementCompte> sumMouvementsParCompte(Long entrepriseId, LocalDate dateDebut, LocalDate dateFin) {
+        String hql = "SELECT l.compte.id, SUM(l.montantDebit), SUM(l.montantCredit) " +
+                    "FROM LigneEcriture l JOIN l.ecritureComptable ec " +
+                    "WHERE ec.entreprise.id = :entrepriseId " +
+                    "AND ec.dateEcriture BETWEEN :dateDebut AND :dateFin " +
+                    "AND ec.statut <> :brouillon " +
+                    "GROUP BY l.compte.id";
+
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Query<Object[]> query = session.createQuery(hql, Object[].class);
+            query.setParameter("entrepriseId", entrepriseId);
+            query.setParameter("dateDebut", dateDebut);
+            query.setParameter("dateFin", dateFin);
+            query.setParameter("brouillon", EcritureComptable.StatutEcriture.BROUILLON);
+
+            Map<Long, MouvementCompte> mouvements = new HashMap<>();
+            for (Object[] row : query.list()) {
+                mouvements.put((Long) row[0], new MouvementCompte(
+                    row[1] != null ? (BigDecimal) row[1] : BigDecimal.ZERO,
+                    row[2] != null ? (BigDecimal) row[2] : BigDecimal.ZERO));
+            }
+            return mouvements;
+        }
+    }
+
+    /**
+     * Totaux débit/crédit d'un compte sur les écritures validées antérieures à une date
+     * (report à nouveau du grand livre). Avec depuis (null : sans limite), seules les écritures
+     * datées à partir de cette date comptent : les soldes antérieurs sont déjà repris en à-nouveaux.
+     */
+    public MouvementCompte sumMouvementsAvant(Long compteId, LocalDate depuis, LocalDate date) {
+        String hql = "SELECT SUM(l.montantDebit), SUM(l.montantCredit) " +
+                    "FROM LigneEcriture l JOIN l.ecritureComptable ec " +
+                    "WHERE l.compte.id = :compteId " +
+                    (depuis != null ? "AND ec.dateEcriture >= :depuis " : "") +
+                    "AND ec.dateEcriture < :date " +
+                    "AND ec.statut <> :brouillon";
+
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Query<Object[]> query = session.createQuery(hql, Object[].class);
+            query.setParameter("compteId", compteId);
+            if (depuis != null) {
+                query.setParameter("depuis", depuis);
+            }
+            query.setParameter("date", date);
+            query.setParameter("brouillon", EcritureComptable.StatutEcriture.BROUILLON);
+
+            Object[] row = query.uniqueResult();
+            if (row == null) {
+                return MouvementCompte.ZERO;
+            }
+            return new MouvementCompte(
+                row[0] != null ? (BigDecimal) row[0] : BigDecimal.ZERO,
+                row[1] != null ? (BigDecimal) row[1] : BigDecimal.ZERO);
+        }
+    }
+
+    /**
+     * Parcourt les lignes validées d'un compte sur une période, dans l'ordre du grand livre,
+     * avec un curseur en lecture seule : les lignes ne sont jamais toutes en mémoire.
+     */
+    public void parcourirLignesCompte(Long compteId, LocalDate dateDebut, LocalDate dateFin,
+                                      Consumer<LigneMouvement> consumer) {
+        String hql = "SELECT l.id, l.compte.id, ec.dateEcriture, ec.numeroEcriture, ec.numeroJournal, " +
+                    "ec.libelle, l.montantDebit, l.montantCredit " +
+                    "FROM LigneEcriture l JOIN l.ecritureComptable ec " +
+                    "WHERE l.compte.id = :compteId " +
+                    "AND ec.dateEcriture BETWEEN :dateDebut AND :dateFin " +
+                    "AND ec.statut <> :brouillon " +
+                    "ORDER BY ec.dateEcriture, ec.id, l.id";
+
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Query<Object[]> query = session.createQuery(hql, Object[].class);
+            query.setParameter("compteId", compteId);
+            query.setParameter("dateDebut", dateDebut);
+            query.setParameter("dateFin", dateFin);
+            query.setParameter("brouillon", EcritureComptable.StatutEcriture.BROUILLON);
+            parcourir(query, consumer);
+        }
+    }
+
+    /**
+     * Totaux débit/crédit par compte des écritures validées antérieures à une date,
+     * à partir de depuis si non null (voir sumMouvementsAvant)
+     */
+    public Map<Long, MouvementCompte> sumMouvementsAvantParCompte(Long entrepriseId, LocalDate depuis, LocalDate date) {
+        String hql = "SELECT l.compte.id, SUM(l.montantDebit), SUM(l.montantCredit) " +
+                    "FROM LigneEcriture l JOIN l.ecritureComptable ec " +
+                    "WHERE ec.entreprise.id = :entrepriseId " +
+                    (depuis != null ? "AND ec.dateEcriture >= :depuis " : "") +
+                    "AND ec.dateEcriture < :date " +
+                    "AND ec.statut <> :brouillon " +
+                    "GROUP BY l.compte.id";
+
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Query<Object[]> query = session.createQuery(hql, Object[].class);
+            query.setParameter("entrepriseId", entrepriseId);
+            if (depuis != null) {
+                query.setParameter("depuis", depuis);
+            }
+            query.setParameter("date", date);
+            query.setParameter("brouillon", EcritureComptable.StatutEcriture.BROUILLON);
+
+            Map<Long, MouvementCompte> mouvements = new HashMap<>();
+            for (Object[] row : query.list()) {
+                mouvements.put((Long) row[0], new MouvementCompte(
+                    row[1] != null ? (BigDecimal) row[1] : BigDecimal.ZERO,
+                    row[2] != null ? (BigDecimal) row[2] : BigDecimal.ZERO));
+            }
+            return mouvements;
+        }
+    }
+
+    /**
+     * Parcourt en une seule passe les lignes validées d'une entreprise sur une période,
+     * triées par numéro de compte puis date. Les bornes de numéros sont optionnelles (null).
+     */
+    public void parcourirLignesParCompte(Long entrepriseId, LocalDate dateDebut, LocalDate dateFin,
+                                         String numeroCompteDebut, String numeroCompteFin,
+                                         Consumer<LigneMouvement> consumer) {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Query<Object[]> query = requeteLignesParCompte(session,
+                "SELECT l.id, c.id, ec.dateEcriture, ec.numeroEcriture, ec.numeroJournal, " +
+                "ec.libelle, l.montantDebit, l.montantCredit ",
+                "ORDER BY c.numeroCompte, ec.dateEcriture, ec.id, l.id", Object[].class,
+                entrepriseId, dateDebut, dateFin, numeroCompteDebut, numeroCompteFin);
+            parcourir(query, consumer);
+        }
+    }
+
+    /**
+     * Nombre de lignes que parcourirLignesParCompte transmettra (avancement des exports)
+     */
+    public long countLignesParCompte(Long entrepriseId, LocalDate dateDebut, LocalDate dateFin,
+                                     String numeroCompteDebut, String numeroCompteFin) {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            return requeteLignesParCompte(session, "SELECT COUNT(l.id) ", "", Long.class,
+                entrepriseId, dateDebut, dateFin, numeroCompteDebut, numeroCompteFin).uniqueResult();
+        }
+    }
+
+    private <T> Query<T> requeteLignesParCompte(Session session, String select, String orderBy, Class<T> type,
+                                                Long entrepriseId, LocalDate dateDebut, LocalDate dateFin,
+                                                String numeroCompteDebut, String numeroCompteFin) {
+        StringBuilder hql = new StringBuilder(select).append(
+            "FROM LigneEcriture l JOIN l.ecritureComptable ec JOIN l.compte c " +
+            "WHERE ec.entreprise.id = :entrepriseId " +
+            "AND ec.dateEcriture BETWEEN :dateDebut AND :dateFin " +
+            "AND ec.statut <> :brouillon ");
+        if (numeroCompteDebut != null) {
+            hql.append("AND c.numeroCompte >= :numeroDebut ");
+        }
+        if (numeroCompteFin != null) {
+            hql.append("AND c.numeroCompte <= :numeroFin ");
+        }
+        hql.append(orderBy);
+
+        Query<T> query = session.createQuery(hql.toString(), type);
+        query.setParameter("entrepriseId", entrepriseId);
+        query.setParameter("dateDebut", dateDebut);
+        query.setParameter("dateFin", dateFin);
+        query.setParameter("brouillon", EcritureComptable.StatutEcriture.BROUILLON);
+        if (numeroCompteDebut != null) {
+            query.setParameter("numeroDebut", numeroCompteDebut);
+        }
+        if (numeroCompteFin != null) {
+            query.setParameter("numeroFin", numeroCompteFin);
+        }
+        return query;
+    }
+
+    private void parcourir(Query<Object[]> query, Consumer<LigneMouvement> consumer) {
+        // Integer.MIN_VALUE : le pilote MySQL transmet les lignes une à une au lieu de tout charger
+        query.setFetchSize(Integer.MIN_VALUE);
+        query.setReadOnly(true);
+        try (ScrollableResults<Object[]> resultats = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (resultats.next()) {
+                Object[] row = resultats.get();
+                consumer.accept(new LigneMouvement(
+                    (Long) row[0],
+                    (Long) row[1],
+                    (LocalDate) row[2],
+                    (String) row[3],
+                    (String) row[4],
+                    (String) row[5],
+                    row[6] != null ? (BigDecimal) row[6] : BigDecimal.ZERO,
+                    row[7] != null ? (BigDecimal) row[7] : BigDecimal.ZERO));
+            }
+        }
+    }
+
+    /**
+     * Lignes non lettrées d'un compte sur les écritures validées de la période ouverte (les pièces
+     * des exercices clôturés y sont reprises par les lignes d'à-nouveaux), projetées sans entités
+     * (lues par l'index compte + code de lettrage, sans tri côté base)
+     */
+    public List<LigneOuverte> findLignesNonLettrees(Long compteId) {
+        String hql = "SELECT l.id, ec.dateEcriture, " + REFERENCE_LIGNE + ", l.montantDebit, l.montantCredit " +
+                    "FROM LigneEcriture l JOIN l.ecritureComptable ec " +
+                    "WHERE l.compte.id = :compteId " +
+                    "AND l.codeLettrage IS NULL " +
+                    "AND ec.statut = :validee";
+
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Query<Object[]> query = session.createQuery(hql, Object[].class);
+            query.setParameter("compteId", compteId);
+            query.setParameter("validee", EcritureComptable.StatutEcriture.VALIDEE);
+            query.setFetchSize(Integer.MIN_VALUE);
+            query.setReadOnly(true);
+
+            List<LigneOuverte> lignes = new ArrayList<>();
+            try (ScrollableResults<Object[]> resultats = query.scroll(ScrollMode.FORWARD_ONLY)) {
+                while (resultats.next()) {
+                    lignes.add(ligneOuverte(resultats.get(), 0));
+                }
+            }
+            return lignes;
+        }
+    }
+
+    /**
+     * Lignes non lettrées des comptes lettrables sur les exercices donnés, par compte et par date :
+     * pièces ouvertes à reprendre une à une en à-nouveaux.
+     * Doit être appelée dans la transaction de clôture.
+     */
+    public Map<Long, List<LigneOuverte>> findLignesNonLettreesParCompte(Session session, Long entrepriseId,
+                                                                        Collection<Long> exerciceIds) {
+        String hql = "SELECT l.compte.id, l.id, ec.dateEcriture, " + REFERENCE_LIGNE + ", " +
+                    "l.montantDebit, l.montantCredit " +
+                    "FROM LigneEcriture l JOIN l.ecritureComptable ec " +
+                    "WHERE ec.entreprise.id = :entrepriseId AND ec.exercice.id IN (:exerciceIds) " +
+                    "AND l.compte.lettrable = true AND l.codeLettrage IS NULL AND ec.statut <> :brouillon " +
+                    "ORDER BY l.compte.id, ec.dateEcriture, l.id";
+
+        Map<Long, List<LigneOuverte>> lignes = new HashMap<>();
+        session.createQuery(hql, Object[].class)
+            .setParameter("entrepriseId", entrepriseId)
+            .setParameterList("exerciceIds", exerciceIds)
+            .setParameter("brouillon", EcritureComptable.StatutEcriture.BROUILLON)
+            .list()
+            .forEach(row -> lignes.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add(ligneOuverte(row, 1)));
+        return lignes;
+    }
+
+    private static LigneOuverte ligneOuverte(Object[] row, int debut) {
+        return new LigneOuverte(
+            (Long) row[debut],
+            (LocalDate) row[debut + 1],
+            (String) row[debut + 2],
+            row[debut + 3] != null ? (BigDecimal) row[debut + 3] : BigDecimal.ZERO,
+            row[debut + 4] != null ? (BigDecimal) row[debut + 4] : BigDecimal.ZERO);
+    }
+
+    /**
+     * Dernier code de lettrage attribué sur le compte, null si aucun : les codes s'allongent
+     * au fil des attributions, le plus long puis le plus grand est le dernier
+     */
+    public String dernierCodeLettrage(Long compteId) {
+        String hql = "SELECT l.codeLettrage FROM LigneEcriture l " +
+                    "WHERE l.compte.id = :compteId AND l.codeLettrage IS NOT NULL " +
+                    "ORDER BY LENGTH(l.codeLettrage) DESC, l.codeLettrage DESC";
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            return session.createQuery(hql, String.class)
+                .setParameter("compteId", compteId)
+                .setMaxResults(1)
+                .uniqueResult();
+        }
+    }
+
+    /**
+     * Attribue les codes de lettrage par UPDATE envoyés en batch JDBC, dans une seule transaction.
+     *
+     * Seules des lignes encore ouvertes du compte sont lettrées : si l'une d'elles a été lettrée
+     * entre-temps (autre poste), rien n'est enregistré.
+     *
+     * @param groupes identifiants des lignes par code de lettrage
+     * @return nombre de lignes lettrées
+     */
+    public int lettrer(Long compteId, Map<String, List<Long>> groupes, LocalDate dateLettrage) {
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            transaction = session.beginTransaction();
+            int[] total = {0};
+            session.doWork(connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(LETTRAGE_SQL)) {
+                    int enAttente = 0;
+                    for (Map.Entry<String, List<Long>> groupe : groupes.entrySet()) {
+                        for (Long ligneId : groupe.getValue()) {
+                            statement.setString(1, groupe.getKey());
+                            statement.setObject(2, dateLettrage);
+                            statement.setLong(3, ligneId);
+                            statement.setLong(4, compteId);
+                            statement.addBatch();
+                            if (++enAttente == TAILLE_LOT_LETTRAGE) {
+                                total[0] += executerLettrage(statement);
+                                enAttente = 0;
+                            }
+                        }
+                    }
+                    if (enAttente > 0) {
+                        total[0] += executerLettrage(statement);
+                    }
+                }
+            });
+            transaction.commit();
+            return total[0];
+        } catch (Exception e) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            throw new RuntimeException("Erreur lors du lettrage du compte " + compteId + ": " + e.getMessage(), e);
+        }
+    }
+
+    private int executerLettrage(PreparedStatement statement) throws SQLException {
+        int lignes = 0;
+        for (int modifiees : statement.executeBatch()) {
+            if (modifiees == 0) {
+                throw new SQLException("Ligne déjà lettrée ou absente du compte");
+            }
+            // rewriteBatchedStatements : le pilote peut ne pas détailler le nombre de lignes par ordre
+            lignes += modifiees == Statement.SUCCESS_NO_INFO ? 1 : modifiees;
+        }
+        return lignes;
+    }
+
+    /**
+     * Rouvre les lignes d'un code de lettrage
+     *
+     * @return nombre de lignes délettrées
+     */
+    public int delettrer(Long compteId, String codeLettrage) {
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            transaction = session.beginTransaction();
+            int lignes = session.createMutationQuery(
+                    "UPDATE LigneEcriture l SET l.codeLettrage = NULL, l.dateLettrage = NULL " +
+                    "WHERE l.compte.id = :compteId AND l.codeLettrage = :code")
+                .setParameter("compteId", compteId)
+                .setParameter("code", codeLettrage)
+                .executeUpdate();
+            transaction.commit();
+            return lignes;
+        } catch (Exception e) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            throw new RuntimeException("Erreur lors du délettrage " + codeLettrage + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Ligne non lettrée d'un compte, avec la référence de la pièce de son écriture
+     */
+    public record LigneOuverte(Long ligneId, LocalDate dateEcriture, String referencePiece,
+                               BigDecimal montantDebit, BigDecimal montantCredit) {
+    }
+
+    /**
+     * Ligne d'écriture projetée pour le grand livre (sans entités chargées)
+     */
+    public record LigneMouvement(Long ligneId, Long compteId, LocalDate dateEcriture, String numeroEcriture,
+                                 String numeroJournal, String libelle, BigDecimal montantDebit,
+                                 BigDecimal montantCredit) {
+    }
+
+    /**
+     * Mouvements cumulés d'un compte sur une période
+     */
+    public record MouvementCompte(BigDecimal totalDebit, BigDecimal totalCredit) {
+
+        public static final MouvementCompte ZERO = new MouvementCompte(BigDecimal.ZERO, BigDecimal.ZERO);
+
+        public MouvementCompte plus(MouvementCompte autre) {
+            return new MouvementCompte(totalDebit.add(autre.totalDebit), totalCredit.add(autre.totalCredit));
+        }
+
+        public MouvementCompte moins(MouvementCompte autre) {
+            return new MouvementCompte(totalDebit.subtract(autre.totalDebit), totalCredit.subtract(autre.totalCredit));
+        }
+
+        public boolean estNul() {
+            return totalDebit.signum() == 0 && totalCredit.signum() == 0;
+        }
+    }
+
     // Méthode fallback avec requête SQL native
     private List<LigneEcriture> findByCompteAndDateRangeNative(Long compteId, LocalDate dateDebut, LocalDate dateFin) {
         System.out.println("DEBUG: Utilisation de la requête SQL native");
@@ -0,0 +1,53 @@
+package com.comptabilite.dao;
+
+import org.hibernate.query.Query;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Clauses HQL de pagination par clé (« keyset ») : une page reprend juste après la dernière
+ * ligne lue grâce à la condition (tri, id) &lt; (:curseur, :curseurId), au lieu d'un OFFSET
+ * qui relit et jette toutes les lignes des pages précédentes.
+ *
+ * L'identifiant départage les lignes de même valeur de tri, ce qui rend l'ordre total et
+ * garantit qu'aucune ligne n'est sautée ni répétée d'une page à l'autre.
+ */
+final class PaginationCle {
+
+    static final String CURSEUR = "curseur";
+    static final String CURSEUR_ID = "curseurId";
+
+    private PaginationCle() {
+    }
+
+    /**
+     * Condition « après le curseur » dans le sens du tri, à ajouter derrière un WHERE
+     */
+    static String condition(String colonne, String colonneId, boolean croissant) {
+        String operateur = croissant ? " > " : " < ";
+        return "AND (" + colonne + operateur + ":" + CURSEUR + " OR (" + colonne + " = :" + CURSEUR +
+               " AND " + colonneId + operateur + ":" + CURSEUR_ID + ")) ";
+    }
+
+    /**
+     * Tri total correspondant à la condition : colonne de tri puis identifiant
+     */
+    static String ordre(String colonne, String colonneId, boolean croissant) {
+        String sens = croissant ? " ASC" : " DESC";
+        return "ORDER BY " + colonne + sens + ", " + colonneId + sens;
+    }
+
+    /**
+     * Lie les paramètres d'une requête construite par morceaux (listes comprises)
+     */
+    static void lier(Query<?> query, Map<String, Object> parametres) {
+        parametres.forEach((nom, valeur) -> {
+            if (valeur instanceof Collection<?> valeurs) {
+                query.setParameterList(nom, valeurs);
+            } else {
+                query.setParameter(nom, valeur);
+            }
+        });
+    }
+}
@@ -0,0 +1,193 @@
+package com.comptabilite.dao;
+
+import com.comptabilite.util.HibernateUtil;
+import org.hibernate.Session;
+import org.hibernate.query.NativeQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Recherche textuelle par index FULLTEXT MySQL, commune aux écritures, factures, comptes et partenaires.
+ *
+ * Chaque mot saisi devient un préfixe obligatoire (« +vte2024* ») évalué en mode booléen,
+ * ce qui utilise l'index au lieu d'un LIKE '%terme%' qui parcourt toute la table.
+ * Les numéros d'écriture et de facture ont en plus un index ngram, qui retrouve un nombre
+ * saisi au milieu d'un numéro (« 000042 » dans « VT000042 »), ce qu'un préfixe ne peut pas.
+ * L'insensibilité aux accents et à la casse vient de la collation des colonnes.
+ */
+public final class RechercheTexte {
+
+    private static final Logger logger = LoggerFactory.getLogger(RechercheTexte.class);
+
+    // Valeur par défaut de innodb_ft_min_token_size : les mots plus courts ne sont pas indexés
+    public static final int LONGUEUR_MIN_MOT = 3;
+
+    // Valeur par défaut de ngram_token_size : taille des fragments de l'index des numéros
+    public static final int LONGUEUR_MIN_NUMERO = 2;
+
+    // Index FULLTEXT par nom ; les colonnes doivent être reprises à l'identique dans MATCH(...)
+    static final String COLONNES_ECRITURES = "libelle, numeroEcriture, referencePiece";
+    static final String COLONNES_FACTURES = "numeroFacture, objet, commentaires";
+    static final String COLONNES_COMPTES = "numero, libelle";
+    static final String COLONNES_CLIENTS = "nom, prenom, email";
+    static final String COLONNES_FOURNISSEURS = "nom, prenom, email, raisonSociale";
+    static final String COLONNES_NUMEROS_ECRITURES = "numeroEcriture, referencePiece";
+    static final String COLONNES_NUMEROS_FACTURES = "numeroFacture, referenceExterne";
+
+    // Mêmes colonnes vues par leurs attributs d'entité, pour les conditions HQL
+    static final List<String> ATTRIBUTS_ECRITURES = List.of("libelle", "numeroEcriture", "referencePiece");
+    static final List<String> ATTRIBUTS_FACTURES = List.of("numeroFacture", "objet", "commentaires");
+    static final List<String> ATTRIBUTS_COMPTES = List.of("numeroCompte", "libelle");
+    static final List<String> ATTRIBUTS_NUMEROS_ECRITURES = List.of("numeroEcriture", "referencePiece");
+    static final List<String> ATTRIBUTS_NUMEROS_FACTURES = List.of("numeroFacture", "referenceExterne");
+
+    // Tables et colonnes de chaque index, tels que créés par db/schema/V3__index_recherche.sql
+    // et V8__index_recherche_numeros.sql
+    private static final Map<String, String> INDEX = new LinkedHashMap<>();
+    static {
+        INDEX.put("ft_ecritures_recherche", "ecritures_comptables (" + COLONNES_ECRITURES + ")");
+        INDEX.put("ft_factures_recherche", "factures (" + COLONNES_FACTURES + ")");
+        INDEX.put("ft_compte_recherche", "compte (" + COLONNES_COMPTES + ")");
+        INDEX.put("ft_clients_recherche", "clients (" + COLONNES_CLIENTS + ")");
+        INDEX.put("ft_fournisseurs_recherche", "fournisseurs (" + COLONNES_FOURNISSEURS + ")");
+        INDEX.put("ft_ecritures_numeros", "ecritures_comptables (" + COLONNES_NUMEROS_ECRITURES + ")");
+        INDEX.put("ft_factures_numeros", "factures (" + COLONNES_NUMEROS_FACTURES + ")");
+    }
+
+    // Faux tant que la présence des index n'a pas été vérifiée : les DAO gardent alors le LIKE
+    private static volatile boolean indexDisponibles = false;
+
+    private RechercheTexte() {
+    }
+
+    /**
+     * Traduit une saisie libre en requête booléenne FULLTEXT.
+     *
+     * @return null si les index sont absents ou si aucun mot n'est assez long pour l'index
+     *         (l'appelant garde alors un LIKE)
+     */
+    public static String requeteBooleenne(String terme) {
+        if (terme == null || !indexDisponibles) {
+            return null;
+        }
+        List<String> mots = new ArrayList<>();
+        for (String mot : terme.trim().split("[^\\p{L}\\p{N}]+")) {
+            if (mot.length() >= LONGUEUR_MIN_MOT) {
+                mots.add("+" + mot + "*");
+            }
+        }
+        return mots.isEmpty() ? null : String.join(" ", mots);
+    }
+
+    /**
+     * Traduit les nombres d'une saisie libre en requête booléenne sur l'index ngram des numéros :
+     * chaque mot contenant un chiffre devient une phrase obligatoire, trouvée à toute position.
+     *
+     * @return null si les index sont absents ou si la saisie ne contient aucun nombre
+     */
+    public static String requeteNumeros(String terme) {
+        if (terme == null || !indexDisponibles) {
+            return null;
+        }
+        List<String> numeros = new ArrayList<>();
+        for (String mot : terme.trim().split("[^\\p{L}\\p{N}]+")) {
+            if (mot.length() >= LONGUEUR_MIN_NUMERO && mot.chars().anyMatch(Character::isDigit)) {
+                numeros.add("+\"" + mot + "\"");
+            }
+        }
+        return numeros.isEmpty() ? null : String.join(" ", numeros);
+    }
+
+    /**
+     * Requête SQL des lignes trouvées par l'index des mots (paramètre :requete) et, si numeros
+     * n'est pas null, par l'index ngram des numéros (paramètre :numeros). Les deux recherches
+     * sont réunies par UNION : un OR entre deux MATCH ne pourrait utiliser aucun des deux index.
+     *
+     * @param select requête de base, terminée par sa clause WHERE
+     */
+    static String union(String select, String colonnesMots, String requete,
+                        String colonnesNumeros, String numeros) {
+        List<String> recherches = new ArrayList<>();
+        if (requete != null) {
+            recherches.add("(" + select + " AND MATCH(" + colonnesMots + ") AGAINST (:requete IN BOOLEAN MODE))");
+        }
+        if (numeros != null) {
+            recherches.add("(" + select + " AND MATCH(" + colonnesNumeros + ") AGAINST (:numeros IN BOOLEAN MODE))");
+        }
+        return String.join(" UNION ", recherches);
+    }
+
+    /**
+     * Condition HQL qui restreint alias.id aux lignes de l'entreprise trouvées par l'index des mots
+     * (paramètre :requete) ou par l'index ngram des numéros (:numeros), ajoutés à parametres.
+     *
+     * Chaque index est interrogé par sa propre sous-requête IN, que MySQL exécute une fois par
+     * l'index (semi-jointure ou table matérialisée) : toutes les lignes trouvées sont filtrées,
+     * paginées et totalisées, sans liste d'identifiants bornée entre les deux requêtes.
+     */
+    static String conditionHql(String alias, String entite, List<String> attributsMots, String requete,
+                               List<String> attributsNumeros, String numeros, Map<String, Object> parametres) {
+        List<String> recherches = new ArrayList<>();
+        if (requete != null) {
+            recherches.add(sousRequete(alias, entite, attributsMots, "requete"));
+            parametres.put("requete", requete);
+        }
+        if (numeros != null) {
+            recherches.add(sousRequete(alias, entite, attributsNumeros, "numeros"));
+            parametres.put("numeros", numeros);
+        }
+        return "AND (" + String.join(" OR ", recherches) + ") ";
+    }
+
+    private static String sousRequete(String alias, String entite, List<String> attributs, String parametre) {
+        StringBuilder colonnes = new StringBuilder();
+        for (String attribut : attributs) {
+            colonnes.append("r.").append(attribut).append(", ");
+        }
+        return alias + ".id IN (SELECT r.id FROM " + entite + " r WHERE r.entreprise.id = :entrepriseId AND " +
+            FonctionsRecherche.TEXTE_INTEGRAL + attributs.size() + "(" + colonnes + ":" + parametre + ") > 0)";
+    }
+
+    /**
+     * Lie les paramètres présents dans une requête construite par union(...)
+     */
+    static <T> NativeQuery<T> lier(NativeQuery<T> query, String requete, String numeros) {
+        if (requete != null) {
+            query.setParameter("requete", requete);
+        }
+        if (numeros != null) {
+            query.setParameter("numeros", numeros);
+        }
+        return query;
+    }
+
+    /**
+     * Vérifie la présence des index FULLTEXT (créés par les migrations V3 et V8) avant de les utiliser
+     */
+    public static void verifierIndex() {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            @SuppressWarnings("unchecked")
+            List<String> existants = session.createNativeQuery(
+                "SELECT DISTINCT INDEX_NAME FROM information_schema.STATISTICS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND INDEX_TYPE = 'FULLTEXT'")
+                .getResultList();
+            Set<String> absents = new HashSet<>(INDEX.keySet());
+            absents.removeAll(existants);
+
+            if (absents.isEmpty()) {
+                indexDisponibles = true;
+            } else {
+                logger.warn("Index de recherche absents {}, recherche par LIKE", absents);
+            }
+        } catch (Exception e) {
+            logger.warn("Impossible de vérifier les index de recherche: {}", e.getMessage());
+        }
+    }
+}
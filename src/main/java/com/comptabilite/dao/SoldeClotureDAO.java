@@ -0,0 +1,152 @@
+package com.comptabilite.dao;
+
+import com.comptabilite.dao.LigneEcritureDAO.MouvementCompte;
+import com.comptabilite.model.SoldeCloture;
+import com.comptabilite.util.HibernateUtil;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SoldeClotureDAO extends BaseDAO<SoldeCloture, Long> {
+
+    private static final Logger logger = LoggerFactory.getLogger(SoldeClotureDAO.class);
+
+    private static final String FIGER_SQL =
+        "INSERT INTO solde_cloture (exercice_id, compte_id, total_debit, total_credit, cumul_debit, cumul_credit) " +
+        "VALUES (?, ?, ?, ?, ?, ?)";
+
+    public SoldeClotureDAO() {
+        super(SoldeCloture.class);
+    }
+
+    /**
+     * Soldes figés d'un compte : mouvements de l'exercice et cumuls à la clôture
+     */
+    public record SoldeFige(Long compteId, MouvementCompte mouvements, MouvementCompte cumul) {
+    }
+
+    /**
+     * Mouvements d'un compte lus à la clôture, tous rattachés par exercice (exercice_id) :
+     * lignes de l'exercice clôturé, des exercices de la chaîne, de tous les exercices depuis la
+     * dernière clôture reportée, et solde enregistré sur le compte (saisies directes comprises)
+     */
+    public record MouvementsCloture(Long compteId, MouvementCompte exercice, MouvementCompte chaine,
+                                    MouvementCompte periode, MouvementCompte soldeEnregistre) {
+    }
+
+    /**
+     * Lit en une seule agrégation les mouvements de clôture des comptes de l'entreprise qui ont des
+     * lignes validées dans la période ou un solde enregistré non nul.
+     * Doit être appelée dans la transaction de clôture, exercice verrouillé.
+     *
+     * @param chaine  exercices non reportés en à-nouveaux jusqu'à l'exercice clôturé inclus
+     * @param periode exercices depuis la dernière clôture reportée, ceux qui suivent compris
+     */
+    public List<MouvementsCloture> findMouvementsCloture(Session session, Long entrepriseId, Long exerciceId,
+                                                         Collection<Long> chaine, Collection<Long> periode) {
+        List<Object[]> rows = session.createNativeQuery(
+            "SELECT c.id, COALESCE(m.exercice_debit, 0), COALESCE(m.exercice_credit, 0), " +
+            "COALESCE(m.chaine_debit, 0), COALESCE(m.chaine_credit, 0), " +
+            "COALESCE(m.periode_debit, 0), COALESCE(m.periode_credit, 0), " +
+            "COALESCE(c.solde_debit, 0), COALESCE(c.solde_credit, 0) " +
+            "FROM compte c LEFT JOIN (" +
+            "SELECT le.compte_id, " +
+            "SUM(IF(ec.exercice_id = :exerciceId, le.montantDebit, 0)) AS exercice_debit, " +
+            "SUM(IF(ec.exercice_id = :exerciceId, le.montantCredit, 0)) AS exercice_credit, " +
+            "SUM(IF(ec.exercice_id IN (:chaine), le.montantDebit, 0)) AS chaine_debit, " +
+            "SUM(IF(ec.exercice_id IN (:chaine), le.montantCredit, 0)) AS chaine_credit, " +
+            "SUM(le.montantDebit) AS periode_debit, SUM(le.montantCredit) AS periode_credit " +
+            "FROM lignes_ecriture le " +
+            "INNER JOIN ecritures_comptables ec ON le.ecritureComptable_id = ec.id " +
+            "WHERE ec.exercice_id IN (:periode) AND ec.statut <> 'BROUILLON' " +
+            "GROUP BY le.compte_id) m ON m.compte_id = c.id " +
+            "WHERE c.entreprise_id = :entrepriseId AND (m.compte_id IS NOT NULL " +
+            "OR COALESCE(c.solde_debit, 0) <> 0 OR COALESCE(c.solde_credit, 0) <> 0)", Object[].class)
+            .setParameter("entrepriseId", entrepriseId)
+            .setParameter("exerciceId", exerciceId)
+            .setParameterList("chaine", chaine)
+            .setParameterList("periode", periode)
+            .list();
+
+        List<MouvementsCloture> mouvements = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            mouvements.add(new MouvementsCloture(((Number) row[0]).longValue(),
+                mouvement(row[1], row[2]), mouvement(row[3], row[4]),
+                mouvement(row[5], row[6]), mouvement(row[7], row[8])));
+        }
+        return mouvements;
+    }
+
+    private static MouvementCompte mouvement(Object debit, Object credit) {
+        return new MouvementCompte((BigDecimal) debit, (BigDecimal) credit);
+    }
+
+    /**
+     * Enregistre les soldes figés d'un exercice en un seul batch JDBC.
+     * Doit être appelée dans la transaction de clôture.
+     */
+    public void figer(Session session, Long exerciceId, Collection<SoldeFige> soldes) {
+        if (soldes.isEmpty()) {
+            return;
+        }
+        session.doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(FIGER_SQL)) {
+                for (SoldeFige solde : soldes) {
+                    statement.setLong(1, exerciceId);
+                    statement.setLong(2, solde.compteId());
+                    statement.setBigDecimal(3, solde.mouvements().totalDebit());
+                    statement.setBigDecimal(4, solde.mouvements().totalCredit());
+                    statement.setBigDecimal(5, solde.cumul().totalDebit());
+                    statement.setBigDecimal(6, solde.cumul().totalCredit());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+        logger.debug("Soldes figés pour l'exercice {}: {} comptes", exerciceId, soldes.size());
+    }
+
+    /**
+     * Soldes figés d'un exercice clôturé, par compte (vide si l'exercice n'a pas été clôturé)
+     */
+    public Map<Long, SoldeFige> findByExercice(Long exerciceId) {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            return findByExercice(session, exerciceId);
+        }
+    }
+
+    public Map<Long, SoldeFige> findByExercice(Session session, Long exerciceId) {
+        String hql = "SELECT s.compte.id, s.totalDebit, s.totalCredit, s.cumulDebit, s.cumulCredit " +
+                    "FROM SoldeCloture s WHERE s.exercice.id = :exerciceId";
+        Query<Object[]> query = session.createQuery(hql, Object[].class);
+        query.setParameter("exerciceId", exerciceId);
+
+        Map<Long, SoldeFige> soldes = new HashMap<>();
+        for (Object[] row : query.list()) {
+            Long compteId = (Long) row[0];
+            soldes.put(compteId, new SoldeFige(compteId,
+                new MouvementCompte((BigDecimal) row[1], (BigDecimal) row[2]),
+                new MouvementCompte((BigDecimal) row[3], (BigDecimal) row[4])));
+        }
+        return soldes;
+    }
+
+    public boolean existsForExercice(Long exerciceId) {
+        String hql = "SELECT s.id FROM SoldeCloture s WHERE s.exercice.id = :exerciceId";
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Query<Long> query = session.createQuery(hql, Long.class);
+            query.setParameter("exerciceId", exerciceId);
+            query.setMaxResults(1);
+            return query.uniqueResult() != null;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.comptabilite.dao;
+
+import com.comptabilite.dao.LigneEcritureDAO.MouvementCompte;
+import com.comptabilite.model.EcritureComptable;
+import com.comptabilite.model.LigneEcriture;
+import com.comptabilite.model.SoldePeriode;
+import com.comptabilite.util.HibernateUtil;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.query.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SoldePeriodeDAO extends BaseDAO<SoldePeriode, Long> {
+
+    private static final Logger logger = LoggerFactory.getLogger(SoldePeriodeDAO.class);
+
+    private static final String UPSERT_SQL =
+        "INSERT INTO solde_periode (compte_id, exercice_id, annee, mois, total_debit, total_credit) " +
+        "VALUES (:compteId, :exerciceId, :annee, :mois, :debit, :credit) " +
+        "ON DUPLICATE KEY UPDATE total_debit = total_debit + VALUES(total_debit), " +
+        "total_credit = total_credit + VALUES(total_credit)";
+
+    public SoldePeriodeDAO() {
+        super(SoldePeriode.class);
+    }
+
+    /**
+     * Ajoute les mouvements d'une écriture validée aux cumuls mensuels.
+     * Doit être appelée dans la transaction qui valide l'écriture.
+     */
+    public void appliquerEcriture(Session session, EcritureComptable ecriture) {
+        appliquerEcritures(session, List.of(ecriture));
+    }
+
+    /**
+     * Ajoute les mouvements de plusieurs écritures validées, regroupés par compte et par mois :
+     * une seule mise à jour par cumul, quel que soit le nombre d'écritures.
+     */
+    public void appliquerEcritures(Session session, Collection<EcritureComptable> ecritures) {
+        appliquerDifference(session, List.of(), ecritures);
+    }
+
+    /**
+     * Applique la différence entre deux états d'écritures validées (modification d'une écriture
+     * validée) : les mouvements retirés sont soustraits, les ajoutés additionnés, et seuls les
+     * cumuls dont la différence n'est pas nulle sont mis à jour.
+     */
+    public void appliquerDifference(Session session, Collection<EcritureComptable> retirees,
+                                    Collection<EcritureComptable> ajoutees) {
+        Map<CleCumul, MouvementCompte> cumuls = new LinkedHashMap<>();
+        cumuler(cumuls, retirees, true);
+        cumuler(cumuls, ajoutees, false);
+        cumuls.values().removeIf(MouvementCompte::estNul);
+
+        for (Map.Entry<CleCumul, MouvementCompte> entry : cumuls.entrySet()) {
+            CleCumul cle = entry.getKey();
+            session.createNativeQuery(UPSERT_SQL)
+                .setParameter("compteId", cle.compteId())
+                .setParameter("exerciceId", cle.exerciceId())
+                .setParameter("annee", cle.annee())
+                .setParameter("mois", cle.mois())
+                .setParameter("debit", entry.getValue().totalDebit())
+                .setParameter("credit", entry.getValue().totalCredit())
+                .executeUpdate();
+        }
+        logger.debug("Cumuls mensuels mis à jour pour {} écritures ({} cumuls)",
+            retirees.size() + ajoutees.size(), cumuls.size());
+    }
+
+    private static void cumuler(Map<CleCumul, MouvementCompte> cumuls, Collection<EcritureComptable> ecritures,
+                                boolean retirer) {
+        for (EcritureComptable ecriture : ecritures) {
+            for (LigneEcriture ligne : ecriture.getLignes()) {
+                CleCumul cle = new CleCumul(ligne.getCompte().getId(), ecriture.getExercice().getId(),
+                    ecriture.getDateEcriture().getYear(), ecriture.getDateEcriture().getMonthValue());
+                MouvementCompte mouvement = new MouvementCompte(ligne.getMontantDebit(), ligne.getMontantCredit());
+                cumuls.merge(cle, retirer ? MouvementCompte.ZERO.moins(mouvement) : mouvement, MouvementCompte::plus);
+            }
+        }
+    }
+
+    /**
+     * Ajoute aux cumuls mensuels les lignes d'une écriture déjà enregistrée, en une requête
+     * quel que soit le nombre de lignes (écriture d'à-nouveaux de la clôture).
+     * Doit être appelée dans la transaction qui enregistre l'écriture.
+     */
+    public int appliquerEcritureEnregistree(Session session, Long ecritureId) {
+        int cumuls = session.createNativeQuery(
+            "INSERT INTO solde_periode (compte_id, exercice_id, annee, mois, total_debit, total_credit) " +
+            "SELECT * FROM (" +
+            "SELECT le.compte_id, ec.exercice_id, YEAR(ec.dateEcriture) AS annee, MONTH(ec.dateEcriture) AS mois, " +
+            "SUM(le.montantDebit) AS debit, SUM(le.montantCredit) AS credit " +
+            "FROM lignes_ecriture le " +
+            "INNER JOIN ecritures_comptables ec ON le.ecritureComptable_id = ec.id " +
+            "WHERE ec.id = :ecritureId " +
+            "GROUP BY le.compte_id, ec.exercice_id, YEAR(ec.dateEcriture), MONTH(ec.dateEcriture)) AS mouvements " +
+            "ON DUPLICATE KEY UPDATE total_debit = total_debit + VALUES(total_debit), " +
+            "total_credit = total_credit + VALUES(total_credit)")
+            .setParameter("ecritureId", ecritureId)
+            .executeUpdate();
+        logger.debug("Cumuls mensuels mis à jour pour l'écriture {}", ecritureId);
+        return cumuls;
+    }
+
+    /**
+     * Totaux débit/crédit par compte sur l'ensemble des mois d'un exercice
+     */
+    public Map<Long, MouvementCompte> sumMouvementsParCompte(Long exerciceId) {
+        return sumMouvementsParCompte(List.of(exerciceId));
+    }
+
+    /**
+     * Totaux débit/crédit par compte sur l'ensemble des mois de plusieurs exercices
+     */
+    public Map<Long, MouvementCompte> sumMouvementsParCompte(Collection<Long> exerciceIds) {
+        if (exerciceIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        String hql = "SELECT s.compte.id, SUM(s.totalDebit), SUM(s.totalCredit) " +
+                    "FROM SoldePeriode s WHERE s.exercice.id IN (:exerciceIds) " +
+                    "GROUP BY s.compte.id";
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Query<Object[]> query = session.createQuery(hql, Object[].class);
+            query.setParameterList("exerciceIds", exerciceIds);
+
+            Map<Long, MouvementCompte> mouvements = new HashMap<>();
+            for (Object[] row : query.list()) {
+                mouvements.put((Long) row[0], new MouvementCompte(
+                    row[1] != null ? (BigDecimal) row[1] : BigDecimal.ZERO,
+                    row[2] != null ? (BigDecimal) row[2] : BigDecimal.ZERO));
+            }
+            return mouvements;
+        }
+    }
+
+    public List<SoldePeriode> findByCompteAndExercice(Long compteId, Long exerciceId) {
+        String hql = "FROM SoldePeriode s WHERE s.compte.id = :compteId AND s.exercice.id = :exerciceId ORDER BY s.annee, s.mois";
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Query<SoldePeriode> query = session.createQuery(hql, SoldePeriode.class);
+            query.setParameter("compteId", compteId);
+            query.setParameter("exerciceId", exerciceId);
+            return query.list();
+        }
+    }
+
+    public boolean existsForExercice(Long exerciceId) {
+        String hql = "SELECT s.id FROM SoldePeriode s WHERE s.exercice.id = :exerciceId";
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Query<Long> query = session.createQuery(hql, Long.class);
+            query.setParameter("exerciceId", exerciceId);
+            query.setMaxResults(1);
+            return query.uniqueResult() != null;
+        }
+    }
+
+    /**
+     * Reconstruit les cumuls mensuels d'un exercice à partir des lignes d'écriture validées
+     */
+    public int reconstruire(Long exerciceId) {
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            transaction = session.beginTransaction();
+
+            session.createNativeQuery("DELETE FROM solde_periode WHERE exercice_id = :exerciceId")
+                .setParameter("exerciceId", exerciceId)
+                .executeUpdate();
+
+            int lignes = session.createNativeQuery(
+                "INSERT INTO solde_periode (compte_id, exercice_id, annee, mois, total_debit, total_credit) " +
+                "SELECT le.compte_id, ec.exercice_id, YEAR(ec.dateEcriture), MONTH(ec.dateEcriture), " +
+                "SUM(le.montantDebit), SUM(le.montantCredit) " +
+                "FROM lignes_ecriture le " +
+                "INNER JOIN ecritures_comptables ec ON le.ecritureComptable_id = ec.id " +
+                "WHERE ec.exercice_id = :exerciceId AND ec.statut <> 'BROUILLON' " +
+                "GROUP BY le.compte_id, ec.exercice_id, YEAR(ec.dateEcriture), MONTH(ec.dateEcriture)")
+                .setParameter("exerciceId", exerciceId)
+                .executeUpdate();
+
+            transaction.commit();
+            logger.info("Cumuls mensuels reconstruits pour l'exercice {}: {} lignes", exerciceId, lignes);
+            return lignes;
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            logger.error("Erreur lors de la reconstruction des cumuls de l'exercice {}", exerciceId, e);
+            throw new RuntimeException("Erreur lors de la reconstruction des cumuls", e);
+        }
+    }
+
+    private record CleCumul(Long compteId, Long exerciceId, int annee, int mois) {
+    }
+}
@@ -0,0 +1,63 @@
+package com.comptabilite.dto;
+
+import com.comptabilite.model.EcritureComptable.StatutEcriture;
+
+import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Ligne de la liste des écritures : colonnes affichées seulement, montant total calculé en SQL.
+ * L'écriture complète est rechargée par son id pour la modification ou la validation.
+ *
+ * cleRecherche regroupe numéro, libellé et référence sans casse ni accents, calculée une
+ * fois au chargement pour que le filtrage de la liste ne fasse qu'un contains() par ligne.
+ */
+public record EcritureResume(Long id,
+                             String numeroEcriture,
+                             LocalDate dateEcriture,
+                             String numeroJournal,
+                             String libelle,
+                             String reference,
+                             StatutEcriture statut,
+                             BigDecimal montantTotal,
+                             String utilisateur,
+                             String cleRecherche) {
+
+    private static final Pattern DIACRITIQUES = Pattern.compile("\\p{M}+");
+
+    public EcritureResume {
+        if (montantTotal == null) {
+            montantTotal = BigDecimal.ZERO;
+        }
+        if (utilisateur == null) {
+            utilisateur = "";
+        }
+        if (cleRecherche == null) {
+            cleRecherche = normaliser(numeroEcriture) + ' ' + normaliser(libelle) + ' ' + normaliser(reference);
+        }
+    }
+
+    /**
+     * Constructeur utilisé par la projection HQL
+     */
+    public EcritureResume(Long id, String numeroEcriture, LocalDate dateEcriture, String numeroJournal,
+                          String libelle, String reference, StatutEcriture statut, BigDecimal montantTotal,
+                          String utilisateur) {
+        this(id, numeroEcriture, dateEcriture, numeroJournal, libelle, reference, statut, montantTotal,
+            utilisateur, null);
+    }
+
+    /**
+     * Minuscules sans accents, pour comparer une saisie à cleRecherche
+     */
+    public static String normaliser(String texte) {
+        if (texte == null || texte.isEmpty()) {
+            return "";
+        }
+        String decompose = Normalizer.normalize(texte, Normalizer.Form.NFD);
+        return DIACRITIQUES.matcher(decompose).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,41 @@
+package com.comptabilite.dto;
+
+import com.comptabilite.model.Facture.StatutFacture;
+import com.comptabilite.model.Facture.TypeFacture;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Ligne de la liste des factures, sans lignes de facture ni partenaires chargés.
+ * La facture complète est rechargée par son id pour les actions.
+ */
+public record FactureResume(Long id,
+                            String numeroFacture,
+                            LocalDate dateFacture,
+                            LocalDate dateEcheance,
+                            TypeFacture typeFacture,
+                            StatutFacture statut,
+                            String objet,
+                            BigDecimal montantTTC,
+                            String nomPartenaire) {
+
+    /**
+     * Constructeur utilisé par la projection HQL : même choix du partenaire que Facture.getNomPartenaire()
+     */
+    public FactureResume(Long id, String numeroFacture, LocalDate dateFacture, LocalDate dateEcheance,
+                         TypeFacture typeFacture, StatutFacture statut, String objet, BigDecimal montantTTC,
+                         String raisonSocialeClient, String raisonSocialeFournisseur) {
+        this(id, numeroFacture, dateFacture, dateEcheance, typeFacture, statut, objet, montantTTC,
+            typeFacture == TypeFacture.VENTE || typeFacture == TypeFacture.AVOIR_VENTE
+                ? (raisonSocialeClient != null ? raisonSocialeClient : "Client non défini")
+                : (raisonSocialeFournisseur != null ? raisonSocialeFournisseur : "Fournisseur non défini"));
+    }
+
+    public boolean isEnRetard() {
+        return dateEcheance != null &&
+               LocalDate.now().isAfter(dateEcheance) &&
+               statut != StatutFacture.PAYEE &&
+               statut != StatutFacture.ANNULEE;
+    }
+}
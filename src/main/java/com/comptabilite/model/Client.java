@@ -6,7 +6,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "clients")
+@Table(name = "clients", indexes = {
+    @Index(name = "idx_clients_entreprise_nom", columnList = "entreprise_id, nom, prenom"),
+    @Index(name = "idx_clients_entreprise_code", columnList = "entreprise_id, codeClient")
+})
 public class Client {
 
     @Id
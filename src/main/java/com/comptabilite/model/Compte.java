@@ -1,13 +1,19 @@
 package com.comptabilite.model;
 
+import com.comptabilite.util.CacheReference;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "compte")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheReference.PLAN_COMPTABLE)
+@Table(name = "compte", indexes = {
+    @Index(name = "idx_compte_entreprise_numero", columnList = "entreprise_id, numero")
+})
 public class Compte {
 
     @Id
@@ -31,10 +37,12 @@ public class Compte {
     @Column(name = "solde_initial", precision = 15, scale = 2)
     private BigDecimal soldeInitial = BigDecimal.ZERO;
 
-    @Column(name = "solde_debit", precision = 15, scale = 2)
+    // Soldes modifiés uniquement par des UPDATE relatifs (CompteDAO.appliquerMouvements) :
+    // la mise à jour de l'entité ne réécrit jamais une valeur lue avant une validation concurrente
+    @Column(name = "solde_debit", precision = 15, scale = 2, updatable = false)
     private BigDecimal soldeDebiteur = BigDecimal.ZERO;
 
-    @Column(name = "solde_credit", precision = 15, scale = 2)
+    @Column(name = "solde_credit", precision = 15, scale = 2, updatable = false)
     private BigDecimal soldeCrediteur = BigDecimal.ZERO;
 
     @Column(nullable = false)
@@ -0,0 +1,59 @@
+package com.comptabilite.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Dernier numéro attribué pour une entreprise, un journal (ou type de pièce) et une année.
+ * L'année vaut 0 pour les numérotations continues sans remise à zéro annuelle.
+ */
+@Entity
+@Table(name = "compteurs_numerotation",
+       uniqueConstraints = @UniqueConstraint(name = "uk_compteur_numerotation",
+                                             columnNames = {"entreprise_id", "journal", "annee"}))
+public class CompteurNumerotation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "entreprise_id", nullable = false)
+    private Entreprise entreprise;
+
+    @Column(nullable = false, length = 20)
+    private String journal;
+
+    @Column(nullable = false)
+    private Integer annee;
+
+    @Column(name = "dernier_numero", nullable = false)
+    private Long dernierNumero = 0L;
+
+    // Constructeurs
+    public CompteurNumerotation() {}
+
+    // Getters et Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Entreprise getEntreprise() { return entreprise; }
+    public void setEntreprise(Entreprise entreprise) { this.entreprise = entreprise; }
+
+    public String getJournal() { return journal; }
+    public void setJournal(String journal) { this.journal = journal; }
+
+    public Integer getAnnee() { return annee; }
+    public void setAnnee(Integer annee) { this.annee = annee; }
+
+    public Long getDernierNumero() { return dernierNumero; }
+    public void setDernierNumero(Long dernierNumero) { this.dernierNumero = dernierNumero; }
+
+    @Override
+    public String toString() {
+        return "CompteurNumerotation{" +
+                "journal='" + journal + '\'' +
+                ", annee=" + annee +
+                ", dernierNumero=" + dernierNumero +
+                '}';
+    }
+}
@@ -8,11 +8,20 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "ecritures_comptables")
+@Table(name = "ecritures_comptables", indexes = {
+    @Index(name = "idx_ecritures_entreprise_date", columnList = "entreprise_id, dateEcriture"),
+    @Index(name = "idx_ecritures_entreprise_numero", columnList = "entreprise_id, numeroEcriture")
+})
 public class EcritureComptable {
 
+    // Journal des écritures d'à-nouveaux générées à la clôture ; leurs lignes portent en libellé
+    // la référence de la pièce ouverte reprise
+    public static final String JOURNAL_A_NOUVEAUX = "AN";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "ecriture_gen")
+    @TableGenerator(name = "ecriture_gen", table = "id_generateurs", pkColumnName = "entite",
+                    valueColumnName = "prochaine_valeur", pkColumnValue = "ecritures_comptables", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true, length = 20)
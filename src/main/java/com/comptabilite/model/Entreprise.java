@@ -1,11 +1,15 @@
 package com.comptabilite.model;
 
+import com.comptabilite.util.CacheReference;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheReference.ENTREPRISES)
 @Table(name = "entreprises")
 public class Entreprise {
 
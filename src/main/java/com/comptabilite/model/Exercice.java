@@ -1,12 +1,16 @@
 package com.comptabilite.model;
 
+import com.comptabilite.util.CacheReference;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheReference.EXERCICES)
 @Table(name = "exercices")
 public class Exercice {
 
@@ -8,16 +8,26 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "factures")
+@Table(name = "factures", indexes = {
+    @Index(name = "idx_factures_entreprise_date", columnList = "entreprise_id, dateFacture"),
+    @Index(name = "idx_factures_entreprise_numero", columnList = "entreprise_id, numeroFacture")
+}, uniqueConstraints = @UniqueConstraint(name = "uk_factures_entreprise_reference",
+                                         columnNames = {"entreprise_id", "referenceExterne"}))
 public class Facture {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "facture_gen")
+    @TableGenerator(name = "facture_gen", table = "id_generateurs", pkColumnName = "entite",
+                    valueColumnName = "prochaine_valeur", pkColumnValue = "factures", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true, length = 50)
     private String numeroFacture;
 
+    // Numéro de la pièce dans le logiciel de facturation d'origine (factures importées)
+    @Column(length = 50)
+    private String referenceExterne;
+
     @Column(nullable = false)
     private LocalDate dateFacture;
 
@@ -115,6 +125,9 @@ public class Facture {
     public String getNumeroFacture() { return numeroFacture; }
     public void setNumeroFacture(String numeroFacture) { this.numeroFacture = numeroFacture; }
 
+    public String getReferenceExterne() { return referenceExterne; }
+    public void setReferenceExterne(String referenceExterne) { this.referenceExterne = referenceExterne; }
+
     public LocalDate getDateFacture() { return dateFacture; }
     public void setDateFacture(LocalDate dateFacture) { this.dateFacture = dateFacture; }
 
@@ -7,7 +7,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "fournisseurs")
+@Table(name = "fournisseurs", indexes = {
+    @Index(name = "idx_fournisseurs_entreprise_nom", columnList = "entreprise_id, nom, prenom"),
+    @Index(name = "idx_fournisseurs_entreprise_code", columnList = "entreprise_id, codeFournisseur")
+})
 public class Fournisseur {
 
     @Id
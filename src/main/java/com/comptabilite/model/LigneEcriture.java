@@ -2,13 +2,16 @@ package com.comptabilite.model;
 
 import jakarta.persistence.*;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 
 @Entity
 @Table(name = "lignes_ecriture")
 public class LigneEcriture {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "ligne_ecriture_gen")
+    @TableGenerator(name = "ligne_ecriture_gen", table = "id_generateurs", pkColumnName = "entite",
+                    valueColumnName = "prochaine_valeur", pkColumnValue = "lignes_ecriture", allocationSize = 50)
     private Long id;
 
     @Column(precision = 15, scale = 2, nullable = false)
@@ -28,6 +31,13 @@ public class LigneEcriture {
     @JoinColumn(name = "compte_id", nullable = false)
     private Compte compte;
 
+    // Code commun aux lignes rapprochées d'un compte lettrable (null tant que la ligne est ouverte)
+    @Column(length = 10)
+    private String codeLettrage;
+
+    @Column(name = "date_lettrage")
+    private LocalDate dateLettrage;
+
     // Constructeurs
     public LigneEcriture() {}
 
@@ -69,6 +79,16 @@ public class LigneEcriture {
     public Compte getCompte() { return compte; }
     public void setCompte(Compte compte) { this.compte = compte; }
 
+    public String getCodeLettrage() { return codeLettrage; }
+    public void setCodeLettrage(String codeLettrage) { this.codeLettrage = codeLettrage; }
+
+    public LocalDate getDateLettrage() { return dateLettrage; }
+    public void setDateLettrage(LocalDate dateLettrage) { this.dateLettrage = dateLettrage; }
+
+    public boolean isLettree() {
+        return codeLettrage != null;
+    }
+
     public BigDecimal getMontantNet() {
         return montantDebit.subtract(montantCredit);
     }
@@ -8,7 +8,9 @@ import java.math.BigDecimal;
 public class LigneFacture {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "ligne_facture_gen")
+    @TableGenerator(name = "ligne_facture_gen", table = "id_generateurs", pkColumnName = "entite",
+                    valueColumnName = "prochaine_valeur", pkColumnValue = "lignes_facture", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, length = 200)
@@ -0,0 +1,81 @@
+package com.comptabilite.model;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+
+/**
+ * Solde figé d'un compte à la clôture d'un exercice.
+ * Écrit une seule fois par ClotureExerciceService, puis lu par les rapports de l'exercice clôturé.
+ */
+@Entity
+@Table(name = "solde_cloture",
+       uniqueConstraints = @UniqueConstraint(name = "uk_solde_cloture",
+                                             columnNames = {"exercice_id", "compte_id"}))
+public class SoldeCloture {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "exercice_id", nullable = false)
+    private Exercice exercice;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "compte_id", nullable = false)
+    private Compte compte;
+
+    // Mouvements de l'exercice, à-nouveaux d'ouverture compris
+    @Column(name = "total_debit", precision = 15, scale = 2, nullable = false)
+    private BigDecimal totalDebit = BigDecimal.ZERO;
+
+    @Column(name = "total_credit", precision = 15, scale = 2, nullable = false)
+    private BigDecimal totalCredit = BigDecimal.ZERO;
+
+    // Totaux à la clôture depuis la dernière clôture reportée en à-nouveaux
+    @Column(name = "cumul_debit", precision = 15, scale = 2, nullable = false)
+    private BigDecimal cumulDebit = BigDecimal.ZERO;
+
+    @Column(name = "cumul_credit", precision = 15, scale = 2, nullable = false)
+    private BigDecimal cumulCredit = BigDecimal.ZERO;
+
+    // Constructeurs
+    public SoldeCloture() {}
+
+    // Getters et Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Exercice getExercice() { return exercice; }
+    public void setExercice(Exercice exercice) { this.exercice = exercice; }
+
+    public Compte getCompte() { return compte; }
+    public void setCompte(Compte compte) { this.compte = compte; }
+
+    public BigDecimal getTotalDebit() { return totalDebit; }
+    public void setTotalDebit(BigDecimal totalDebit) { this.totalDebit = totalDebit; }
+
+    public BigDecimal getTotalCredit() { return totalCredit; }
+    public void setTotalCredit(BigDecimal totalCredit) { this.totalCredit = totalCredit; }
+
+    public BigDecimal getCumulDebit() { return cumulDebit; }
+    public void setCumulDebit(BigDecimal cumulDebit) { this.cumulDebit = cumulDebit; }
+
+    public BigDecimal getCumulCredit() { return cumulCredit; }
+    public void setCumulCredit(BigDecimal cumulCredit) { this.cumulCredit = cumulCredit; }
+
+    public BigDecimal getSoldeNet() {
+        return cumulDebit.subtract(cumulCredit);
+    }
+
+    @Override
+    public String toString() {
+        return "SoldeCloture{" +
+                "id=" + id +
+                ", totalDebit=" + totalDebit +
+                ", totalCredit=" + totalCredit +
+                ", cumulDebit=" + cumulDebit +
+                ", cumulCredit=" + cumulCredit +
+                '}';
+    }
+}
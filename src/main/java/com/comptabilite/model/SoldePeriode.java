@@ -0,0 +1,79 @@
+package com.comptabilite.model;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+
+/**
+ * Cumul des mouvements validés d'un compte pour un mois d'un exercice.
+ * Mis à jour dans la même transaction que la validation des écritures.
+ */
+@Entity
+@Table(name = "solde_periode",
+       uniqueConstraints = @UniqueConstraint(name = "uk_solde_periode",
+                                             columnNames = {"compte_id", "exercice_id", "annee", "mois"}))
+public class SoldePeriode {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "compte_id", nullable = false)
+    private Compte compte;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "exercice_id", nullable = false)
+    private Exercice exercice;
+
+    @Column(nullable = false)
+    private Integer annee;
+
+    @Column(nullable = false)
+    private Integer mois;
+
+    @Column(name = "total_debit", precision = 15, scale = 2, nullable = false)
+    private BigDecimal totalDebit = BigDecimal.ZERO;
+
+    @Column(name = "total_credit", precision = 15, scale = 2, nullable = false)
+    private BigDecimal totalCredit = BigDecimal.ZERO;
+
+    // Constructeurs
+    public SoldePeriode() {}
+
+    // Getters et Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Compte getCompte() { return compte; }
+    public void setCompte(Compte compte) { this.compte = compte; }
+
+    public Exercice getExercice() { return exercice; }
+    public void setExercice(Exercice exercice) { this.exercice = exercice; }
+
+    public Integer getAnnee() { return annee; }
+    public void setAnnee(Integer annee) { this.annee = annee; }
+
+    public Integer getMois() { return mois; }
+    public void setMois(Integer mois) { this.mois = mois; }
+
+    public BigDecimal getTotalDebit() { return totalDebit; }
+    public void setTotalDebit(BigDecimal totalDebit) { this.totalDebit = totalDebit; }
+
+    public BigDecimal getTotalCredit() { return totalCredit; }
+    public void setTotalCredit(BigDecimal totalCredit) { this.totalCredit = totalCredit; }
+
+    public BigDecimal getSoldeNet() {
+        return totalDebit.subtract(totalCredit);
+    }
+
+    @Override
+    public String toString() {
+        return "SoldePeriode{" +
+                "id=" + id +
+                ", annee=" + annee +
+                ", mois=" + mois +
+                ", totalDebit=" + totalDebit +
+                ", totalCredit=" + totalCredit +
+                '}';
+    }
+}
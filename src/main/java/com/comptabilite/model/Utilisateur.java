@@ -1,9 +1,13 @@
 package com.comptabilite.model;
 
+import com.comptabilite.util.CacheReference;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.time.LocalDateTime;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheReference.UTILISATEURS)
 @Table(name = "utilisateurs")
 public class Utilisateur {
 
@@ -0,0 +1,278 @@
+package com.comptabilite.service;
+
+import com.comptabilite.dao.CompteDAO;
+import com.comptabilite.dao.LigneEcritureDAO.MouvementCompte;
+import com.comptabilite.model.Compte;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index de la hiérarchie du plan comptable d'une entreprise.
+ *
+ * Les liens parent/enfant sont stockés dans des tableaux indexés par position, et les
+ * soldes consolidés sont calculés en un seul parcours postfixe (enfants avant parents),
+ * avec la même règle que Compte.getSoldeDebiteurConsolide() : un compte ayant des
+ * sous-comptes vaut la somme de ses enfants, un compte feuille vaut son solde propre.
+ */
+public final class AccountTree {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountTree.class);
+
+    // Un arbre par entreprise, mis à jour à la validation des écritures
+    private static final Map<Long, AccountTree> CACHE = new ConcurrentHashMap<>();
+
+    private final Map<Long, Integer> indexParId;
+    private final long[] ids;
+    private final int[] parents;
+    private final int[] nbEnfants;
+    private final int[] ordrePostfixe;
+    private final BigDecimal[] soldesDebit;
+    private final BigDecimal[] soldesCredit;
+    private final BigDecimal[] consolidesDebit;
+    private final BigDecimal[] consolidesCredit;
+
+    private AccountTree(List<Compte> comptes, Map<Long, MouvementCompte> soldes) {
+        int n = comptes.size();
+        this.indexParId = new HashMap<>(n * 2);
+        this.ids = new long[n];
+        this.parents = new int[n];
+        this.nbEnfants = new int[n];
+        this.soldesDebit = new BigDecimal[n];
+        this.soldesCredit = new BigDecimal[n];
+        this.consolidesDebit = new BigDecimal[n];
+        this.consolidesCredit = new BigDecimal[n];
+
+        for (int i = 0; i < n; i++) {
+            Compte compte = comptes.get(i);
+            ids[i] = compte.getId();
+            indexParId.put(compte.getId(), i);
+            if (soldes != null) {
+                MouvementCompte solde = soldes.getOrDefault(compte.getId(), MouvementCompte.ZERO);
+                soldesDebit[i] = solde.totalDebit();
+                soldesCredit[i] = solde.totalCredit();
+            } else {
+                soldesDebit[i] = compte.getSoldeDebiteur() != null ? compte.getSoldeDebiteur() : BigDecimal.ZERO;
+                soldesCredit[i] = compte.getSoldeCrediteur() != null ? compte.getSoldeCrediteur() : BigDecimal.ZERO;
+            }
+        }
+
+        // Liens parent -> enfants (un parent hors de la liste fait du compte une racine)
+        Arrays.fill(parents, -1);
+        for (int i = 0; i < n; i++) {
+            Compte parent = comptes.get(i).getCompteParent();
+            if (parent != null) {
+                Integer indexParent = indexParId.get(parent.getId());
+                if (indexParent != null && indexParent != i) {
+                    parents[i] = indexParent;
+                    nbEnfants[indexParent]++;
+                }
+            }
+        }
+
+        this.ordrePostfixe = calculerOrdrePostfixe(n);
+        consolider();
+    }
+
+    /**
+     * Construit l'index à partir d'une liste de comptes déjà chargée
+     */
+    public static AccountTree construire(List<Compte> comptes) {
+        return new AccountTree(comptes, null);
+    }
+
+    /**
+     * Construit l'index avec des soldes fournis par compte au lieu des soldes courants
+     * (soldes de fin d'un exercice donné) ; un compte absent a un solde nul
+     */
+    public static AccountTree construire(List<Compte> comptes, Map<Long, MouvementCompte> soldes) {
+        return new AccountTree(comptes, soldes);
+    }
+
+    /**
+     * Retourne l'index en cache de l'entreprise, construit au premier appel
+     */
+    public static AccountTree pour(Long entrepriseId) {
+        return CACHE.computeIfAbsent(entrepriseId, id -> {
+            logger.debug("Construction de l'arbre des comptes pour l'entreprise {}", id);
+            return construire(new CompteDAO().findByEntreprise(id));
+        });
+    }
+
+    /**
+     * Remplace l'index en cache, par exemple après un rechargement du plan comptable
+     */
+    public static AccountTree rafraichir(Long entrepriseId, List<Compte> comptes) {
+        AccountTree arbre = construire(comptes);
+        CACHE.put(entrepriseId, arbre);
+        return arbre;
+    }
+
+    /**
+     * Invalide l'index d'une entreprise (création, suppression ou déplacement de comptes)
+     */
+    public static void invalider(Long entrepriseId) {
+        CACHE.remove(entrepriseId);
+    }
+
+    /**
+     * Impute un mouvement validé sur l'index en cache, s'il existe
+     */
+    public static void imputer(Long entrepriseId, Long compteId, BigDecimal debit, BigDecimal credit) {
+        AccountTree arbre = CACHE.get(entrepriseId);
+        if (arbre != null && !arbre.appliquerMouvement(compteId, debit, credit)) {
+            // Compte inconnu de l'index : il a été créé depuis sa construction
+            invalider(entrepriseId);
+        }
+    }
+
+    public synchronized BigDecimal getSoldeDebiteurConsolide(Long compteId) {
+        Integer i = indexParId.get(compteId);
+        return i != null ? consolidesDebit[i] : BigDecimal.ZERO;
+    }
+
+    public synchronized BigDecimal getSoldeCrediteurConsolide(Long compteId) {
+        Integer i = indexParId.get(compteId);
+        return i != null ? consolidesCredit[i] : BigDecimal.ZERO;
+    }
+
+    public synchronized BigDecimal getSoldeNetConsolide(Long compteId) {
+        return getSoldeDebiteurConsolide(compteId).subtract(getSoldeCrediteurConsolide(compteId));
+    }
+
+    public boolean contient(Long compteId) {
+        return indexParId.containsKey(compteId);
+    }
+
+    public boolean aSousComptes(Long compteId) {
+        Integer i = indexParId.get(compteId);
+        return i != null && nbEnfants[i] > 0;
+    }
+
+    public int size() {
+        return parents.length;
+    }
+
+    /**
+     * Consolide des mouvements par compte dans la hiérarchie, selon la même règle que les soldes
+     */
+    public Map<Long, MouvementCompte> consolider(Map<Long, MouvementCompte> mouvementsDirects) {
+        int n = parents.length;
+        MouvementCompte[] consolides = new MouvementCompte[n];
+
+        for (int i : ordrePostfixe) {
+            if (nbEnfants[i] == 0) {
+                consolides[i] = mouvementsDirects.getOrDefault(ids[i], MouvementCompte.ZERO);
+            } else if (consolides[i] == null) {
+                consolides[i] = MouvementCompte.ZERO;
+            }
+            int parent = parents[i];
+            if (parent >= 0) {
+                consolides[parent] = consolides[parent] == null ? consolides[i] : consolides[parent].plus(consolides[i]);
+            }
+        }
+
+        Map<Long, MouvementCompte> resultat = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            resultat.put(ids[i], consolides[i]);
+        }
+        return resultat;
+    }
+
+    private synchronized boolean appliquerMouvement(Long compteId, BigDecimal debit, BigDecimal credit) {
+        Integer i = indexParId.get(compteId);
+        if (i == null) {
+            return false;
+        }
+        soldesDebit[i] = soldesDebit[i].add(debit);
+        soldesCredit[i] = soldesCredit[i].add(credit);
+
+        // Un compte regroupement ne reporte pas son solde propre : rien à propager
+        if (nbEnfants[i] > 0) {
+            return true;
+        }
+        for (int j = i; j >= 0; j = parents[j]) {
+            consolidesDebit[j] = consolidesDebit[j].add(debit);
+            consolidesCredit[j] = consolidesCredit[j].add(credit);
+        }
+        return true;
+    }
+
+    private void consolider() {
+        for (int i = 0; i < parents.length; i++) {
+            consolidesDebit[i] = nbEnfants[i] > 0 ? BigDecimal.ZERO : soldesDebit[i];
+            consolidesCredit[i] = nbEnfants[i] > 0 ? BigDecimal.ZERO : soldesCredit[i];
+        }
+        for (int i : ordrePostfixe) {
+            int parent = parents[i];
+            if (parent >= 0) {
+                consolidesDebit[parent] = consolidesDebit[parent].add(consolidesDebit[i]);
+                consolidesCredit[parent] = consolidesCredit[parent].add(consolidesCredit[i]);
+            }
+        }
+    }
+
+    /**
+     * Parcours en largeur depuis les racines, puis inversion : chaque enfant précède son parent
+     */
+    private int[] calculerOrdrePostfixe(int n) {
+        int[] debutEnfants = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            debutEnfants[i + 1] = debutEnfants[i] + nbEnfants[i];
+        }
+        int[] enfants = new int[n];
+        int[] curseur = Arrays.copyOf(debutEnfants, n);
+        for (int i = 0; i < n; i++) {
+            if (parents[i] >= 0) {
+                enfants[curseur[parents[i]]++] = i;
+            }
+        }
+
+        int[] ordre = new int[n];
+        boolean[] visite = new boolean[n];
+        int taille = 0;
+        for (int i = 0; i < n; i++) {
+            if (parents[i] < 0) {
+                ordre[taille++] = i;
+                visite[i] = true;
+            }
+        }
+        for (int tete = 0; tete < taille; tete++) {
+            int courant = ordre[tete];
+            for (int k = debutEnfants[courant]; k < debutEnfants[courant + 1]; k++) {
+                ordre[taille++] = enfants[k];
+                visite[enfants[k]] = true;
+            }
+        }
+
+        // Comptes pris dans un cycle de parenté : traités comme des racines isolées
+        if (taille < n) {
+            logger.warn("Hiérarchie de comptes incohérente: {} comptes hors arborescence", n - taille);
+            for (int i = 0; i < n; i++) {
+                if (!visite[i]) {
+                    if (parents[i] >= 0) {
+                        nbEnfants[parents[i]]--;
+                    }
+                    parents[i] = -1;
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                if (!visite[i]) {
+                    ordre[taille++] = i;
+                }
+            }
+        }
+
+        int[] postfixe = new int[n];
+        for (int k = 0; k < n; k++) {
+            postfixe[k] = ordre[n - 1 - k];
+        }
+        return postfixe;
+    }
+}
@@ -0,0 +1,207 @@
+package com.comptabilite.service;
+
+import com.comptabilite.dao.FactureDAO;
+import com.comptabilite.dao.FactureDAO.EncoursTiers;
+import com.comptabilite.model.Facture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Balance âgée des créances clients et des dettes fournisseurs : encours des factures ouvertes
+ * par tiers, ventilé en non échu, 1-30, 31-60, 61-90 et plus de 90 jours de retard.
+ *
+ * Le premier calcul d'une entreprise est une seule requête groupée (FactureDAO.findBalanceAgee),
+ * conservée en cache. Les opérations sur les factures (création, envoi, paiement, modification,
+ * suppression) marquent leur tiers à recalculer : l'actualisation suivante ne relit que les
+ * factures de ces tiers. Le cache est entièrement recalculé quand la date de référence change,
+ * et après VALIDITE pour prendre en compte les saisies des autres postes.
+ */
+public class BalanceAgeeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BalanceAgeeService.class);
+
+    // Au-delà, les modifications faites depuis d'autres postes sont reprises par un recalcul complet
+    static final Duration VALIDITE = Duration.ofMinutes(15);
+
+    // Une balance par entreprise, à la dernière date de référence demandée
+    private static final Map<Long, Instantane> CACHE = new ConcurrentHashMap<>();
+
+    private final FactureDAO factureDAO;
+
+    public BalanceAgeeService() {
+        this.factureDAO = new FactureDAO();
+    }
+
+    /**
+     * Balance âgée à une date
+     *
+     * @param clients      encours clients, du plus élevé au plus faible
+     * @param fournisseurs encours fournisseurs, du plus élevé au plus faible
+     * @param recalcul     COMPLET, PARTIEL (tiers modifiés seulement) ou AUCUN (cache à jour)
+     */
+    public record BalanceAgee(LocalDate dateReference, List<EncoursTiers> clients, List<EncoursTiers> fournisseurs,
+                              Recalcul recalcul, long duree) {
+
+        public EncoursTiers totalClients() {
+            return cumuler(clients);
+        }
+
+        public EncoursTiers totalFournisseurs() {
+            return cumuler(fournisseurs);
+        }
+    }
+
+    public enum Recalcul {
+        COMPLET, PARTIEL, AUCUN
+    }
+
+    /**
+     * Retourne la balance âgée de l'entreprise, recalculée pour les seuls tiers modifiés depuis
+     * le dernier appel
+     */
+    public BalanceAgee getBalanceAgee(Long entrepriseId, LocalDate dateReference) {
+        long debut = System.currentTimeMillis();
+        Instantane instantane = CACHE.get(entrepriseId);
+        Recalcul recalcul;
+
+        if (instantane == null || !instantane.valide(dateReference)) {
+            instantane = new Instantane(dateReference,
+                factureDAO.findBalanceAgee(entrepriseId, dateReference, null, null));
+            CACHE.put(entrepriseId, instantane);
+            recalcul = Recalcul.COMPLET;
+        } else {
+            recalcul = instantane.actualiser(factureDAO, entrepriseId);
+        }
+
+        BalanceAgee balance = instantane.balance(recalcul, System.currentTimeMillis() - debut);
+        logger.info("Balance âgée de l'entreprise {} au {} ({}) : {} clients, {} fournisseurs en {} ms",
+            entrepriseId, dateReference, recalcul, balance.clients().size(), balance.fournisseurs().size(),
+            balance.duree());
+        return balance;
+    }
+
+    /**
+     * Marque le tiers de la facture à recalculer dans la balance en cache de son entreprise
+     */
+    public static void invalider(Facture facture) {
+        if (facture == null || facture.getEntreprise() == null) {
+            return;
+        }
+        Instantane instantane = CACHE.get(facture.getEntreprise().getId());
+        if (instantane != null) {
+            instantane.marquer(
+                facture.getClient() != null ? facture.getClient().getId() : null,
+                facture.getFournisseur() != null ? facture.getFournisseur().getId() : null);
+        }
+    }
+
+    /**
+     * Abandonne la balance en cache de l'entreprise (import de masse, modifications hors des services)
+     */
+    public static void invaliderEntreprise(Long entrepriseId) {
+        CACHE.remove(entrepriseId);
+    }
+
+    /**
+     * Somme des encours d'une liste de tiers
+     */
+    static EncoursTiers cumuler(List<EncoursTiers> encours) {
+        long factures = 0;
+        BigDecimal[] tranches = {BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO};
+        LocalDate plusAncienne = null;
+        for (EncoursTiers tiers : encours) {
+            factures += tiers.factures();
+            tranches[0] = tranches[0].add(tiers.nonEchu());
+            tranches[1] = tranches[1].add(tiers.retard30());
+            tranches[2] = tranches[2].add(tiers.retard60());
+            tranches[3] = tranches[3].add(tiers.retard90());
+            tranches[4] = tranches[4].add(tiers.retardPlus90());
+            if (tiers.plusAncienneEcheance() != null
+                    && (plusAncienne == null || tiers.plusAncienneEcheance().isBefore(plusAncienne))) {
+                plusAncienne = tiers.plusAncienneEcheance();
+            }
+        }
+        return new EncoursTiers(null, null, null, "Total", factures,
+            tranches[0], tranches[1], tranches[2], tranches[3], tranches[4], plusAncienne);
+    }
+
+    /**
+     * Encours en cache d'une entreprise, indexés par tiers, et tiers modifiés depuis le calcul
+     */
+    static final class Instantane {
+
+        private final LocalDate dateReference;
+        private final long calculeLe;
+        private final Map<Long, EncoursTiers> parClient = new HashMap<>();
+        private final Map<Long, EncoursTiers> parFournisseur = new HashMap<>();
+        private final Set<Long> clientsModifies = new HashSet<>();
+        private final Set<Long> fournisseursModifies = new HashSet<>();
+
+        Instantane(LocalDate dateReference, List<EncoursTiers> encours) {
+            this.dateReference = dateReference;
+            this.calculeLe = System.nanoTime();
+            encours.forEach(this::ranger);
+        }
+
+        synchronized boolean valide(LocalDate date) {
+            return dateReference.equals(date) && System.nanoTime() - calculeLe < VALIDITE.toNanos();
+        }
+
+        synchronized void marquer(Long clientId, Long fournisseurId) {
+            if (clientId != null) {
+                clientsModifies.add(clientId);
+            }
+            if (fournisseurId != null) {
+                fournisseursModifies.add(fournisseurId);
+            }
+        }
+
+        /**
+         * Relit les encours des tiers marqués ; un tiers sans facture ouverte disparaît de la balance
+         */
+        synchronized Recalcul actualiser(FactureDAO factureDAO, Long entrepriseId) {
+            if (clientsModifies.isEmpty() && fournisseursModifies.isEmpty()) {
+                return Recalcul.AUCUN;
+            }
+            List<EncoursTiers> encours = factureDAO.findBalanceAgee(entrepriseId, dateReference,
+                Set.copyOf(clientsModifies), Set.copyOf(fournisseursModifies));
+            clientsModifies.forEach(parClient::remove);
+            fournisseursModifies.forEach(parFournisseur::remove);
+            clientsModifies.clear();
+            fournisseursModifies.clear();
+            encours.forEach(this::ranger);
+            return Recalcul.PARTIEL;
+        }
+
+        synchronized BalanceAgee balance(Recalcul recalcul, long duree) {
+            return new BalanceAgee(dateReference, trier(parClient), trier(parFournisseur), recalcul, duree);
+        }
+
+        private void ranger(EncoursTiers tiers) {
+            // Les factures sans tiers (données reprises) forment une ligne client sans identifiant
+            if (tiers.clientId() == null && tiers.fournisseurId() != null) {
+                parFournisseur.put(tiers.fournisseurId(), tiers);
+            } else {
+                parClient.put(tiers.clientId(), tiers);
+            }
+        }
+
+        private static List<EncoursTiers> trier(Map<Long, EncoursTiers> encours) {
+            List<EncoursTiers> liste = new ArrayList<>(encours.values());
+            liste.sort(Comparator.comparing(EncoursTiers::total).reversed());
+            return liste;
+        }
+    }
+}
@@ -76,16 +76,15 @@ public class ClientService {
 
     public String genererCodeClient() {
         // Format: CLI-NNNN (ex: CLI-0001)
-        long count = clientDAO.countClients();
-        return String.format("CLI-%04d", count + 1);
+        return clientDAO.generateNextCodeClient();
     }
 
     public Client findByCodeClient(String codeClient) {
         return clientDAO.findByCodeClient(codeClient);
     }
 
-    public List<Client> searchClients(String terme) {
-        return clientDAO.searchByNomOrEmail(terme);
+    public List<Client> searchClients(String terme, Long entrepriseId) {
+        return clientDAO.searchByNomOrEmail(terme, entrepriseId);
     }
 
     public List<Client> getClientsActifs(Long entrepriseId) {
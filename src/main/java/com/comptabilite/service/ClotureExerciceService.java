@@ -0,0 +1,466 @@
+package com.comptabilite.service;
+
+import com.comptabilite.dao.CompteDAO;
+import com.comptabilite.dao.CompteurNumerotationDAO;
+import com.comptabilite.dao.EcritureComptableDAO;
+import com.comptabilite.dao.ExerciceDAO;
+import com.comptabilite.dao.LigneEcritureDAO;
+import com.comptabilite.dao.LigneEcritureDAO.LigneOuverte;
+import com.comptabilite.dao.LigneEcritureDAO.MouvementCompte;
+import com.comptabilite.dao.SoldeClotureDAO;
+import com.comptabilite.dao.SoldeClotureDAO.MouvementsCloture;
+import com.comptabilite.dao.SoldeClotureDAO.SoldeFige;
+import com.comptabilite.dao.SoldePeriodeDAO;
+import com.comptabilite.model.Compte;
+import com.comptabilite.model.EcritureComptable;
+import com.comptabilite.model.Exercice;
+import com.comptabilite.model.LigneEcriture;
+import com.comptabilite.model.Utilisateur;
+import com.comptabilite.util.CacheReference;
+import com.comptabilite.util.HibernateUtil;
+import org.hibernate.LockMode;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.hibernate.query.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Clôture des exercices comptables.
+ *
+ * La clôture fige les soldes de l'exercice (table solde_cloture) en une seule agrégation des
+ * lignes validées, génère dans l'exercice suivant l'écriture d'à-nouveaux (comptes de bilan,
+ * classes 1 à 5, et résultat de l'exercice) et passe les écritures de l'exercice au statut
+ * CLOTUREE. Tout est fait dans une transaction : une clôture interrompue ne laisse rien.
+ *
+ * Les écritures sont rattachées à la clôture par leur exercice, jamais par leur date, comme
+ * les cumuls mensuels : soldes figés, à-nouveaux et soldes des comptes reposent sur les mêmes
+ * lignes. Les montants saisis directement sur un compte sont figés et reportés avec ses lignes.
+ * Les comptes lettrables reprennent une ligne d'à-nouveaux par pièce restée ouverte, à lettrer
+ * dans l'exercice suivant : les lignes d'origine, clôturées, ne sont plus proposées au lettrage.
+ *
+ * Les rapports d'un exercice clôturé lisent ensuite les soldes figés au lieu de réagréger ses
+ * écritures, et les soldes des comptes ne portent plus que la période ouverte.
+ */
+public class ClotureExerciceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClotureExerciceService.class);
+
+    // Comptes de résultat par ordre de préférence : OHADA (131/139) puis plan français (120/129)
+    static final List<String> COMPTES_BENEFICE = List.of("131", "120");
+    static final List<String> COMPTES_PERTE = List.of("139", "129");
+
+    private final ExerciceDAO exerciceDAO;
+    private final CompteDAO compteDAO;
+    private final EcritureComptableDAO ecritureDAO;
+    private final LigneEcritureDAO ligneDAO;
+    private final SoldeClotureDAO soldeClotureDAO;
+    private final SoldePeriodeDAO soldePeriodeDAO;
+    private final CompteurNumerotationDAO compteurDAO;
+
+    public ClotureExerciceService() {
+        this.exerciceDAO = new ExerciceDAO();
+        this.compteDAO = new CompteDAO();
+        this.ecritureDAO = new EcritureComptableDAO();
+        this.ligneDAO = new LigneEcritureDAO();
+        this.soldeClotureDAO = new SoldeClotureDAO();
+        this.soldePeriodeDAO = new SoldePeriodeDAO();
+        this.compteurDAO = new CompteurNumerotationDAO();
+    }
+
+    /**
+     * Bilan d'une clôture
+     *
+     * @param comptes         comptes dont les soldes ont été figés
+     * @param lignesANouveaux lignes de l'écriture d'à-nouveaux (0 si tous les soldes sont nuls)
+     * @param resultat        bénéfice (positif) ou perte (négatif) de l'exercice
+     * @param ecrituresFigees écritures passées au statut CLOTUREE
+     */
+    public record RapportCloture(String exercice, String exerciceSuivant, String numeroANouveaux,
+                                 int comptes, int lignesANouveaux, BigDecimal resultat,
+                                 int ecrituresFigees, long duree) {
+    }
+
+    /**
+     * Ligne d'à-nouveaux : montant net (positif au débit), référence de la pièce ouverte reprise
+     * (null pour un solde global)
+     */
+    record LigneANouveau(Long compteId, BigDecimal montant, String reference) {
+    }
+
+    /**
+     * Écriture d'à-nouveaux calculée
+     */
+    record ANouveaux(List<LigneANouveau> lignes, BigDecimal resultat) {
+
+        /**
+         * Solde net repris par compte (positif au débit)
+         */
+        Map<Long, BigDecimal> soldes() {
+            Map<Long, BigDecimal> soldes = new TreeMap<>();
+            lignes.forEach(ligne -> soldes.merge(ligne.compteId(), ligne.montant(), BigDecimal::add));
+            return soldes;
+        }
+    }
+
+    public List<Exercice> getExercices(Long entrepriseId) {
+        return exerciceDAO.findByEntreprise(entrepriseId);
+    }
+
+    /**
+     * Clôture un exercice ouvert et ouvre le suivant (créé s'il n'existe pas) avec ses à-nouveaux
+     */
+    public RapportCloture cloturer(Long exerciceId) {
+        long debut = System.currentTimeMillis();
+        Utilisateur utilisateur = AuthenticationService.getInstance().getUtilisateurConnecte();
+        if (utilisateur == null) {
+            throw new IllegalStateException("Aucun utilisateur connecté pour signer l'écriture d'à-nouveaux");
+        }
+
+        Long entrepriseId = null;
+        Long suivantId = null;
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            transaction = session.beginTransaction();
+
+            // Verrou exclusif : les saisies sur l'exercice attendent la fin de la clôture
+            Exercice exercice = session.get(Exercice.class, exerciceId, LockMode.PESSIMISTIC_WRITE);
+            if (exercice == null) {
+                throw new IllegalArgumentException("Exercice introuvable: " + exerciceId);
+            }
+            entrepriseId = exercice.getEntreprise().getId();
+            verifierCloturable(session, exercice);
+
+            Exercice suivant = exerciceSuivant(session, exercice);
+            suivantId = suivant.getId();
+
+            List<Exercice> periode = periode(session, exercice);
+            List<Long> chaine = periode.stream()
+                .filter(e -> !e.getDateDebut().isAfter(exercice.getDateDebut()))
+                .map(Exercice::getId)
+                .toList();
+            Map<Long, SoldeFige> soldes = new HashMap<>();
+            for (MouvementsCloture mouvements : soldeClotureDAO.findMouvementsCloture(session, entrepriseId,
+                    exerciceId, chaine, periode.stream().map(Exercice::getId).toList())) {
+                SoldeFige solde = soldeFige(mouvements);
+                if (!solde.mouvements().estNul() || !solde.cumul().estNul()) {
+                    soldes.put(solde.compteId(), solde);
+                }
+            }
+            soldeClotureDAO.figer(session, exerciceId, soldes.values());
+            int comptes = soldes.size();
+            Map<Long, String> numeros = numerosComptes(session, entrepriseId);
+            ANouveaux aNouveaux = calculerANouveaux(soldes, numeros,
+                ligneDAO.findLignesNonLettreesParCompte(session, entrepriseId, chaine),
+                compteResultat(numeros, COMPTES_BENEFICE), compteResultat(numeros, COMPTES_PERTE));
+
+            String numeroANouveaux = null;
+            if (!aNouveaux.lignes().isEmpty()) {
+                EcritureComptable ecriture = enregistrerANouveaux(session, exercice, suivant, utilisateur, aNouveaux);
+                numeroANouveaux = ecriture.getNumeroEcriture();
+                soldePeriodeDAO.appliquerEcritureEnregistree(session, ecriture.getId());
+            }
+
+            // Toute la chaîne est reprise en à-nouveaux, exercices clôturés sans report compris
+            int figees = session.createNativeQuery(
+                "UPDATE ecritures_comptables SET statut = 'CLOTUREE' " +
+                "WHERE exercice_id IN (:chaine) AND statut = 'VALIDEE'")
+                .setParameterList("chaine", chaine)
+                .executeUpdate();
+
+            exercice.cloturerExercice();
+            session.flush();
+
+            // Les soldes des comptes ne portent plus que la période ouverte, à-nouveaux compris
+            compteDAO.appliquerMouvements(session, reportSoldes(soldes.values(), aNouveaux));
+
+            transaction.commit();
+
+            RapportCloture rapport = new RapportCloture(exercice.getLibelle(), suivant.getLibelle(), numeroANouveaux,
+                comptes, aNouveaux.lignes().size(), aNouveaux.resultat(), figees,
+                System.currentTimeMillis() - debut);
+            logger.info("Exercice {} clôturé en {} ms: {} comptes figés, {} lignes d'à-nouveaux dans {}, " +
+                "résultat {}, {} écritures clôturées", rapport.exercice(), rapport.duree(), comptes,
+                rapport.lignesANouveaux(), rapport.exerciceSuivant(), rapport.resultat(), figees);
+            return rapport;
+
+        } catch (Exception e) {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            logger.error("Erreur lors de la clôture de l'exercice {}", exerciceId, e);
+            throw new RuntimeException("Erreur lors de la clôture de l'exercice: " + e.getMessage(), e);
+        } finally {
+            CacheReference.evincerExercice(exerciceId);
+            if (suivantId != null) {
+                CacheReference.evincerExercice(suivantId);
+            }
+            if (entrepriseId != null) {
+                AccountTree.invalider(entrepriseId);
+            }
+        }
+    }
+
+    /**
+     * Soldes figés d'un compte : mouvements de l'exercice, et cumul à reprendre en à-nouveaux =
+     * lignes de la chaîne + montants saisis directement sur le compte, c'est-à-dire la part du
+     * solde enregistré que n'expliquent pas les lignes de la période
+     */
+    static SoldeFige soldeFige(MouvementsCloture mouvements) {
+        MouvementCompte saisiesDirectes = mouvements.soldeEnregistre().moins(mouvements.periode());
+        return new SoldeFige(mouvements.compteId(), mouvements.exercice(), mouvements.chaine().plus(saisiesDirectes));
+    }
+
+    /**
+     * Écarts à appliquer aux soldes des comptes à la clôture : le cumul figé en sort, les lignes
+     * d'à-nouveaux y entrent. Les écritures des exercices suivants et les saisies directes
+     * ultérieures restent dans les soldes.
+     */
+    static Map<Long, MouvementCompte> reportSoldes(Collection<SoldeFige> soldes, ANouveaux aNouveaux) {
+        Map<Long, MouvementCompte> ecarts = new TreeMap<>();
+        for (SoldeFige solde : soldes) {
+            ecarts.merge(solde.compteId(), MouvementCompte.ZERO.moins(solde.cumul()), MouvementCompte::plus);
+        }
+        aNouveaux.soldes().forEach((compteId, net) -> ecarts.merge(compteId, new MouvementCompte(
+            net.signum() > 0 ? net : BigDecimal.ZERO, net.signum() < 0 ? net.negate() : BigDecimal.ZERO),
+            MouvementCompte::plus));
+        ecarts.values().removeIf(MouvementCompte::estNul);
+        return ecarts;
+    }
+
+    /**
+     * Calcule l'écriture d'à-nouveaux à partir des cumuls figés : les comptes de bilan (classes
+     * 1 à 5) reprennent leur solde, les comptes de gestion (classes 6 à 8) sont soldés dans le
+     * compte de résultat. L'écriture est équilibrée dès que les écritures de l'exercice le sont.
+     *
+     * Un compte lettrable reprend une ligne par pièce ouverte, et son solde restant (écarts de
+     * lettrage, saisies directes) sur une ligne globale.
+     *
+     * @param ouvertes lignes non lettrées des comptes lettrables, par compte
+     */
+    static ANouveaux calculerANouveaux(Map<Long, SoldeFige> soldes, Map<Long, String> numeros,
+                                       Map<Long, List<LigneOuverte>> ouvertes,
+                                       Long compteBenefice, Long comptePerte) {
+        Map<Long, BigDecimal> aReprendre = new TreeMap<>();
+        BigDecimal resultat = BigDecimal.ZERO;
+
+        for (SoldeFige solde : soldes.values()) {
+            BigDecimal net = solde.cumul().totalDebit().subtract(solde.cumul().totalCredit());
+            if (net.signum() == 0) {
+                continue;
+            }
+            String numero = numeros.get(solde.compteId());
+            if (numero == null || estCompteDeBilan(numero)) {
+                aReprendre.merge(solde.compteId(), net, BigDecimal::add);
+            } else {
+                // Produits au crédit, charges au débit
+                resultat = resultat.subtract(net);
+            }
+        }
+
+        if (resultat.signum() != 0) {
+            Long compteResultat = resultat.signum() > 0
+                ? (compteBenefice != null ? compteBenefice : comptePerte)
+                : (comptePerte != null ? comptePerte : compteBenefice);
+            if (compteResultat == null) {
+                throw new IllegalStateException("Aucun compte de résultat (" + String.join(", ", COMPTES_BENEFICE)
+                    + ", " + String.join(", ", COMPTES_PERTE) + ") dans le plan comptable");
+            }
+            aReprendre.merge(compteResultat, resultat.negate(), BigDecimal::add);
+            aReprendre.values().removeIf(montant -> montant.signum() == 0);
+        }
+
+        // Un compte soldé garde ses pièces ouvertes qui se compensent
+        Set<Long> comptes = new TreeSet<>(aReprendre.keySet());
+        ouvertes.keySet().stream()
+            .filter(compteId -> numeros.get(compteId) == null || estCompteDeBilan(numeros.get(compteId)))
+            .forEach(comptes::add);
+
+        List<LigneANouveau> lignes = new ArrayList<>();
+        for (Long compteId : comptes) {
+            BigDecimal reste = aReprendre.getOrDefault(compteId, BigDecimal.ZERO);
+            for (LigneOuverte ouverte : ouvertes.getOrDefault(compteId, List.of())) {
+                BigDecimal montant = ouverte.montantDebit().subtract(ouverte.montantCredit());
+                if (montant.signum() != 0) {
+                    lignes.add(new LigneANouveau(compteId, montant, ouverte.referencePiece()));
+                    reste = reste.subtract(montant);
+                }
+            }
+            if (reste.signum() != 0) {
+                lignes.add(new LigneANouveau(compteId, reste, null));
+            }
+        }
+        return new ANouveaux(lignes, resultat);
+    }
+
+    /**
+     * Classe d'un compte : premier chiffre, après le préfixe CM des plans OHADA Cameroun
+     */
+    static char classe(String numero) {
+        return numero.startsWith("CM") && numero.length() > 2 ? numero.charAt(2) : numero.charAt(0);
+    }
+
+    static boolean estCompteDeBilan(String numero) {
+        char classe = classe(numero);
+        return classe >= '1' && classe <= '5';
+    }
+
+    /**
+     * Premier compte (par numéro) dont le radical commence par l'un des préfixes, dans l'ordre
+     */
+    static Long compteResultat(Map<Long, String> numeros, List<String> prefixes) {
+        for (String prefixe : prefixes) {
+            Long retenu = null;
+            String numeroRetenu = null;
+            for (Map.Entry<Long, String> entry : numeros.entrySet()) {
+                String numero = entry.getValue();
+                String radical = numero.startsWith("CM") ? numero.substring(2) : numero;
+                if (radical.startsWith(prefixe) && (numeroRetenu == null || numero.compareTo(numeroRetenu) < 0)) {
+                    retenu = entry.getKey();
+                    numeroRetenu = numero;
+                }
+            }
+            if (retenu != null) {
+                return retenu;
+            }
+        }
+        return null;
+    }
+
+    private void verifierCloturable(Session session, Exercice exercice) {
+        if (exercice.getStatut() != Exercice.StatutExercice.OUVERT) {
+            throw new IllegalStateException("L'exercice " + exercice.getLibelle() + " est déjà clôturé");
+        }
+        Long ouvertsAvant = session.createQuery(
+                "SELECT COUNT(e) FROM Exercice e WHERE e.entreprise.id = :entrepriseId " +
+                "AND e.statut = :ouvert AND e.dateDebut < :debut", Long.class)
+            .setParameter("entrepriseId", exercice.getEntreprise().getId())
+            .setParameter("ouvert", Exercice.StatutExercice.OUVERT)
+            .setParameter("debut", exercice.getDateDebut())
+            .uniqueResult();
+        if (ouvertsAvant > 0) {
+            throw new IllegalStateException("Les exercices antérieurs à " + exercice.getLibelle()
+                + " doivent être clôturés d'abord");
+        }
+        Long brouillons = session.createQuery(
+                "SELECT COUNT(e) FROM EcritureComptable e WHERE e.exercice.id = :exerciceId " +
+                "AND e.statut = :brouillon", Long.class)
+            .setParameter("exerciceId", exercice.getId())
+            .setParameter("brouillon", EcritureComptable.StatutEcriture.BROUILLON)
+            .uniqueResult();
+        if (brouillons > 0) {
+            throw new IllegalStateException(brouillons + " écriture(s) en brouillon dans l'exercice "
+                + exercice.getLibelle() + " : à valider ou supprimer avant la clôture");
+        }
+    }
+
+    /**
+     * Exercice qui suit immédiatement, créé sur douze mois s'il n'existe pas encore
+     */
+    private Exercice exerciceSuivant(Session session, Exercice exercice) {
+        Exercice suivant = session.createQuery(
+                "FROM Exercice e WHERE e.entreprise.id = :entrepriseId AND e.dateDebut > :fin " +
+                "ORDER BY e.dateDebut", Exercice.class)
+            .setParameter("entrepriseId", exercice.getEntreprise().getId())
+            .setParameter("fin", exercice.getDateFin())
+            .setMaxResults(1)
+            .uniqueResult();
+        if (suivant != null) {
+            if (suivant.getStatut() != Exercice.StatutExercice.OUVERT) {
+                throw new IllegalStateException("L'exercice suivant " + suivant.getLibelle() + " n'est pas ouvert");
+            }
+            return suivant;
+        }
+
+        LocalDate debut = exercice.getDateFin().plusDays(1);
+        String annee = String.valueOf(exercice.getDateDebut().getYear());
+        String anneeSuivante = String.valueOf(debut.getYear());
+        suivant = new Exercice(
+            exercice.getLibelle().contains(annee) ? exercice.getLibelle().replace(annee, anneeSuivante)
+                : "Exercice " + anneeSuivante,
+            debut, debut.plusYears(1).minusDays(1), exercice.getEntreprise());
+        session.persist(suivant);
+        logger.info("Exercice {} créé pour recevoir les à-nouveaux", suivant.getLibelle());
+        return suivant;
+    }
+
+    /**
+     * Exercices dont les écritures forment les soldes enregistrés des comptes : depuis le dernier
+     * exercice clôturé avec reprise en à-nouveaux (exclu), ou depuis l'origine. Ceux qui commencent
+     * au plus tard avec l'exercice clôturé forment la chaîne reprise en à-nouveaux.
+     */
+    private List<Exercice> periode(Session session, Exercice exercice) {
+        Long entrepriseId = exercice.getEntreprise().getId();
+        LocalDate depuis = exerciceDAO.findDebutReport(entrepriseId, exercice.getDateDebut());
+        Query<Exercice> query = session.createQuery(
+            "FROM Exercice e WHERE e.entreprise.id = :entrepriseId" +
+            (depuis != null ? " AND e.dateDebut >= :depuis" : ""), Exercice.class);
+        query.setParameter("entrepriseId", entrepriseId);
+        if (depuis != null) {
+            query.setParameter("depuis", depuis);
+        }
+        return query.list();
+    }
+
+    private Map<Long, String> numerosComptes(Session session, Long entrepriseId) {
+        Map<Long, String> numeros = new TreeMap<>();
+        session.createQuery("SELECT c.id, c.numeroCompte FROM Compte c WHERE c.entreprise.id = :entrepriseId",
+                Object[].class)
+            .setParameter("entrepriseId", entrepriseId)
+            .list()
+            .forEach(row -> numeros.put((Long) row[0], (String) row[1]));
+        return numeros;
+    }
+
+    /**
+     * Enregistre l'écriture d'à-nouveaux, validée, au premier jour de l'exercice suivant.
+     * Les lignes référencent les comptes sans les charger et partent par le batch JDBC.
+     */
+    private EcritureComptable enregistrerANouveaux(Session session, Exercice exercice, Exercice suivant,
+                                                   Utilisateur utilisateur, ANouveaux aNouveaux) {
+        Long entrepriseId = exercice.getEntreprise().getId();
+        int annee = suivant.getDateDebut().getYear();
+        String prefixe = String.format("%s-%d-", EcritureComptable.JOURNAL_A_NOUVEAUX, annee);
+        long numero = compteurDAO.numeroSuivant(session, entrepriseId, EcritureComptable.JOURNAL_A_NOUVEAUX, annee,
+            () -> ecritureDAO.findDernierNumero(entrepriseId, prefixe));
+
+        EcritureComptable ecriture = new EcritureComptable();
+        ecriture.setNumeroEcriture(String.format("%s%04d", prefixe, numero));
+        ecriture.setDateEcriture(suivant.getDateDebut());
+        ecriture.setNumeroJournal(EcritureComptable.JOURNAL_A_NOUVEAUX);
+        ecriture.setLibelle("À-nouveaux - " + exercice.getLibelle());
+        ecriture.setEntreprise(exercice.getEntreprise());
+        ecriture.setExercice(suivant);
+        ecriture.setUtilisateur(utilisateur);
+        ecriture.setStatut(EcritureComptable.StatutEcriture.VALIDEE);
+        ecriture.setDateValidation(LocalDateTime.now());
+
+        // Le libellé d'une pièce reprise porte sa référence, lue par le lettrage
+        String libelle = "Report à nouveau " + exercice.getLibelle();
+        for (LigneANouveau aNouveau : aNouveaux.lignes()) {
+            BigDecimal net = aNouveau.montant();
+            LigneEcriture ligne = new LigneEcriture();
+            ligne.setCompte(session.getReference(Compte.class, aNouveau.compteId()));
+            ligne.setLibelle(aNouveau.reference() != null && !aNouveau.reference().isBlank()
+                ? aNouveau.reference() : libelle);
+            ligne.setMontantDebit(net.signum() > 0 ? net : BigDecimal.ZERO);
+            ligne.setMontantCredit(net.signum() < 0 ? net.negate() : BigDecimal.ZERO);
+            ecriture.ajouterLigne(ligne);
+        }
+        session.persist(ecriture);
+        session.flush();
+        return ecriture;
+    }
+}
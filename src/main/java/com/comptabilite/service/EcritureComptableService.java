@@ -1,29 +1,62 @@
 package com.comptabilite.service;
 
+import com.comptabilite.dao.CompteDAO;
+import com.comptabilite.dao.CompteurNumerotationDAO;
 import com.comptabilite.dao.EcritureComptableDAO;
+import com.comptabilite.dao.EcritureComptableDAO.FiltreEcritures;
+import com.comptabilite.dao.EcritureComptableDAO.TotauxEcritures;
+import com.comptabilite.dao.EcritureComptableDAO.TriEcritures;
 import com.comptabilite.dao.LigneEcritureDAO;
+import com.comptabilite.dao.LigneEcritureDAO.MouvementCompte;
+import com.comptabilite.dao.SoldePeriodeDAO;
+import com.comptabilite.dto.EcritureResume;
 import com.comptabilite.model.Compte;
 import com.comptabilite.model.EcritureComptable;
+import com.comptabilite.model.Exercice;
 import com.comptabilite.model.LigneEcriture;
 import com.comptabilite.util.HibernateUtil;
+import org.hibernate.LockMode;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class EcritureComptableService {
 
     private static final Logger logger = LoggerFactory.getLogger(EcritureComptableService.class);
+
+    // Nombre d'écritures entre deux flush/clear de la session (aligné sur hibernate.jdbc.batch_size)
+    private static final int TAILLE_LOT = 50;
+
+    // Numéros d'écriture réservés par blocs auprès du compteur
+    private static final int TAILLE_BLOC_NUMEROS = 20;
     private final EcritureComptableDAO ecritureDAO;
     private final LigneEcritureDAO ligneEcritureDAO;
+    private final SoldePeriodeDAO soldePeriodeDAO;
+    private final CompteDAO compteDAO;
+    private final CompteurNumerotationDAO compteurDAO;
 
     public EcritureComptableService() {
         this.ecritureDAO = new EcritureComptableDAO();
         this.ligneEcritureDAO = new LigneEcritureDAO();
+        this.soldePeriodeDAO = new SoldePeriodeDAO();
+        this.compteDAO = new CompteDAO();
+        this.compteurDAO = new CompteurNumerotationDAO();
     }
 
     public List<EcritureComptable> getEcrituresByEntreprise(Long entrepriseId) {
@@ -42,6 +75,19 @@ public class EcritureComptableService {
         }
     }
 
+    public List<EcritureResume> getPageResumes(FiltreEcritures filtre, TriEcritures tri, boolean croissant,
+                                               EcritureResume apres, int taille) {
+        return ecritureDAO.findResumesPage(filtre, tri, croissant, apres, taille);
+    }
+
+    public TotauxEcritures getTotaux(FiltreEcritures filtre) {
+        return ecritureDAO.totaliser(filtre);
+    }
+
+    public List<String> getNumerosJournaux(Long entrepriseId) {
+        return ecritureDAO.findNumerosJournaux(entrepriseId);
+    }
+
     public EcritureComptable getEcritureWithLignes(Long ecritureId) {
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
             String hql = "SELECT e FROM EcritureComptable e " +
@@ -105,17 +151,18 @@ public class EcritureComptableService {
                 }
             }
 
-            // Générer le numéro d'écriture automatiquement
-            if (ecriture.getNumeroEcriture() == null || ecriture.getNumeroEcriture().isEmpty()) {
-                String numeroGenere = genererNumeroEcriture(ecriture.getEntreprise().getId());
-                ecriture.setNumeroEcriture(numeroGenere);
-                logger.debug("Numéro d'écriture généré: {}", numeroGenere);
-            }
-
             // Vérifier l'équilibre débit/crédit
             if (!verifierEquilibre(ecriture)) {
                 throw new RuntimeException("L'écriture n'est pas équilibrée (Débit ≠ Crédit)");
             }
+            verifierExerciceOuvert(session, ecriture.getExercice());
+
+            // Générer le numéro d'écriture automatiquement, une fois l'écriture contrôlée
+            if (ecriture.getNumeroEcriture() == null || ecriture.getNumeroEcriture().isEmpty()) {
+                String numeroGenere = genererNumeroEcriture(ecriture);
+                ecriture.setNumeroEcriture(numeroGenere);
+                logger.debug("Numéro d'écriture généré: {}", numeroGenere);
+            }
 
             // =========================
             // DEBUG: État avant sauvegarde de l'écriture principale
@@ -214,14 +261,18 @@ public class EcritureComptableService {
                 logger.debug("Ligne {} sauvegardée avec succès", i);
             }
 
+            // Si l'écriture est VALIDEE, mettre à jour les soldes dans la même transaction
+            if (ecriture.getStatut() == EcritureComptable.StatutEcriture.VALIDEE) {
+                logger.debug("Mise à jour des soldes pour écriture VALIDEE...");
+                appliquerSoldes(session, ecriture);
+            }
+
             logger.debug("Validation finale de la transaction...");
             transaction.commit();
             logger.info("Écriture créée avec succès: {}", ecriture.getNumeroEcriture());
 
-            // Si l'écriture est VALIDEE, mettre à jour les soldes des comptes
             if (ecriture.getStatut() == EcritureComptable.StatutEcriture.VALIDEE) {
-                logger.debug("Mise à jour des soldes pour écriture VALIDEE...");
-                mettreAJourSoldesComptes(ecriture);
+                imputerArbreComptes(ecriture);
             }
 
             logger.debug("=== FIN DEBUG CRÉATION ÉCRITURE ===");
@@ -255,6 +306,92 @@ public class EcritureComptableService {
         }
     }
 
+    /**
+     * Enregistre un lot d'écritures dans une seule transaction (import de masse).
+     * Les insertions partent par le batch JDBC, la session est vidée tous les TAILLE_LOT
+     * écritures, et les soldes des comptes et cumuls mensuels sont mis à jour une fois pour tout le lot.
+     */
+    public List<EcritureComptable> postAll(List<EcritureComptable> ecritures) {
+        if (ecritures == null || ecritures.isEmpty()) {
+            return ecritures;
+        }
+        return postAll(ecritures, session -> { });
+    }
+
+    /**
+     * Comme postAll, en enregistrant d'abord dans la même transaction les pièces d'origine
+     * des écritures (factures importées) : pièces et écritures sont validées ou annulées ensemble.
+     */
+    public List<EcritureComptable> postAll(List<EcritureComptable> ecritures, Consumer<Session> piecesOrigine) {
+        return postAll(session -> {
+            piecesOrigine.accept(session);
+            return ecritures;
+        });
+    }
+
+    /**
+     * Comme postAll, les pièces d'origine et leurs écritures étant enregistrées, numérotées et construites
+     * dans la transaction par la fonction : un échec rend leurs numéros aux compteurs (numérotation continue).
+     */
+    public List<EcritureComptable> postAll(Function<Session, List<EcritureComptable>> piecesEtEcritures) {
+        List<EcritureComptable> ecritures;
+        List<EcritureComptable> validees = new ArrayList<>();
+        Transaction transaction = null;
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            transaction = session.beginTransaction();
+
+            ecritures = piecesEtEcritures.apply(session);
+            session.flush();
+            session.clear();
+
+            int compteur = 0;
+            Set<Long> exercicesVerifies = new HashSet<>();
+            for (EcritureComptable ecriture : ecritures) {
+                if (!verifierEquilibre(ecriture)) {
+                    throw new RuntimeException("L'écriture " + ecriture.getLibelle() + " n'est pas équilibrée (Débit ≠ Crédit)");
+                }
+                if (ecriture.getExercice() != null && exercicesVerifies.add(ecriture.getExercice().getId())) {
+                    verifierExerciceOuvert(session, ecriture.getExercice());
+                }
+
+                if (ecriture.getNumeroEcriture() == null || ecriture.getNumeroEcriture().isEmpty()) {
+                    ecriture.setNumeroEcriture(genererNumeroEcriture(ecriture));
+                }
+
+                for (LigneEcriture ligne : ecriture.getLignes()) {
+                    ligne.setEcritureComptable(ecriture);
+                }
+                session.persist(ecriture);
+
+                if (ecriture.getStatut() == EcritureComptable.StatutEcriture.VALIDEE) {
+                    validees.add(ecriture);
+                }
+
+                if (++compteur % TAILLE_LOT == 0) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+            session.flush();
+            session.clear();
+
+            appliquerSoldesLot(session, validees);
+
+            transaction.commit();
+            logger.info("{} écritures enregistrées en lot ({} validées)", ecritures.size(), validees.size());
+
+        } catch (Exception e) {
+            if (transaction != null) {
+                transaction.rollback();
+            }
+            logger.error("Erreur lors de l'enregistrement du lot d'écritures", e);
+            throw new RuntimeException("Erreur lors de l'enregistrement du lot d'écritures: " + e.getMessage(), e);
+        }
+
+        validees.forEach(this::imputerArbreComptes);
+        return ecritures;
+    }
+
     public EcritureComptable modifierEcriture(EcritureComptable ecriture) {
         Transaction transaction = null;
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
@@ -267,6 +404,13 @@ public class EcritureComptableService {
 
             // Charger l'écriture existante et la mettre à jour
             EcritureComptable existingEcriture = session.get(EcritureComptable.class, ecriture.getId());
+            if (existingEcriture.getStatut() == EcritureComptable.StatutEcriture.CLOTUREE) {
+                throw new RuntimeException("Une écriture clôturée ne peut pas être modifiée");
+            }
+            verifierExerciceOuvert(session, existingEcriture.getExercice());
+            // Image des mouvements déjà imputés, à retirer des soldes
+            EcritureComptable imputee = existingEcriture.getStatut() == EcritureComptable.StatutEcriture.VALIDEE
+                ? copieImputation(existingEcriture) : null;
 
             // Mettre à jour les propriétés de base
             existingEcriture.setDateEcriture(ecriture.getDateEcriture());
@@ -286,8 +430,15 @@ public class EcritureComptableService {
 
             session.update(existingEcriture);
 
+            // Imputer l'écart entre l'ancien et le nouvel état (validation, dévalidation ou
+            // modification des lignes d'une écriture validée) avec la modification
+            Map<Long, MouvementCompte> ecarts = appliquerDifference(session, imputee,
+                existingEcriture.getStatut() == EcritureComptable.StatutEcriture.VALIDEE ? existingEcriture : null);
+
             transaction.commit();
             logger.info("Écriture modifiée avec succès: {}", ecriture.getNumeroEcriture());
+
+            imputerArbreComptes(existingEcriture.getEntreprise().getId(), ecarts);
             return ecriture;
 
         } catch (Exception e) {
@@ -329,96 +480,121 @@ public class EcritureComptableService {
     }
 
     public void validerEcriture(EcritureComptable ecriture) {
+        ResultatValidation resultat = validerEcritures(List.of(ecriture.getId()), null).resultats().get(0);
+        if (!resultat.validee()) {
+            throw new RuntimeException("Erreur lors de la validation: " + resultat.message());
+        }
+    }
+
+    /**
+     * Valide un lot d'écritures en brouillon dans une seule transaction.
+     *
+     * Les écritures sont relues par paquets de TAILLE_LOT avec leurs lignes, puis leurs
+     * mouvements sont regroupés par compte et par mois avant d'être reportés : une seule
+     * mise à jour par compte quel que soit le nombre d'écritures. Une écriture refusée
+     * (introuvable, déjà validée, déséquilibrée) figure en erreur dans le rapport sans
+     * empêcher la validation des autres.
+     *
+     * @param progression appelée après chaque paquet avec (traitées, total) ; peut être null
+     */
+    public RapportValidation validerEcritures(Collection<Long> ids, BiConsumer<Integer, Integer> progression) {
+        List<Long> aValider = new ArrayList<>(new LinkedHashSet<>(ids));
+        List<ResultatValidation> resultats = new ArrayList<>(aValider.size());
+        List<EcritureComptable> validees = new ArrayList<>();
+
         Transaction transaction = null;
         try (Session session = HibernateUtil.getSessionFactory().openSession()) {
             transaction = session.beginTransaction();
+            LocalDateTime dateValidation = LocalDateTime.now();
+
+            for (int debut = 0; debut < aValider.size(); debut += TAILLE_LOT) {
+                List<Long> paquet = aValider.subList(debut, Math.min(debut + TAILLE_LOT, aValider.size()));
+                Map<Long, EcritureComptable> chargees = new HashMap<>();
+                session.createQuery(
+                    "SELECT DISTINCT e FROM EcritureComptable e " +
+                    "LEFT JOIN FETCH e.lignes " +
+                    "WHERE e.id IN (:ids)", EcritureComptable.class)
+                    .setParameterList("ids", paquet)
+                    .list()
+                    .forEach(ecriture -> chargees.put(ecriture.getId(), ecriture));
+
+                for (Long id : paquet) {
+                    EcritureComptable ecriture = chargees.get(id);
+                    String refus = ecriture == null ? "Écriture introuvable" :
+                        ecriture.getStatut() != EcritureComptable.StatutEcriture.BROUILLON ?
+                            "Seules les écritures en brouillon peuvent être validées" :
+                        ecriture.getExercice().getStatut() != Exercice.StatutExercice.OUVERT ?
+                            "L'exercice " + ecriture.getExercice().getLibelle() + " est clôturé" :
+                        !verifierEquilibre(ecriture) ? "L'écriture n'est pas équilibrée (Débit ≠ Crédit)" : null;
+
+                    if (refus != null) {
+                        resultats.add(new ResultatValidation(id,
+                            ecriture != null ? ecriture.getNumeroEcriture() : null, false, refus));
+                        continue;
+                    }
+                    ecriture.setStatut(EcritureComptable.StatutEcriture.VALIDEE);
+                    ecriture.setDateValidation(dateValidation);
+                    validees.add(ecriture);
+                    resultats.add(new ResultatValidation(id, ecriture.getNumeroEcriture(), true, null));
+                }
 
-            // Recharger l'écriture dans la session courante avec toutes ses lignes
-            EcritureComptable ecritureReloadee = session.createQuery(
-                "SELECT e FROM EcritureComptable e " +
-                "LEFT JOIN FETCH e.lignes l " +
-                "LEFT JOIN FETCH l.compte " +
-                "WHERE e.id = :id", EcritureComptable.class)
-                .setParameter("id", ecriture.getId())
-                .uniqueResult();
-
-            if (ecritureReloadee == null) {
-                throw new RuntimeException("Écriture introuvable avec ID: " + ecriture.getId());
-            }
-
-            // Vérifier à nouveau le statut avec l'entité rechargée
-            if (ecritureReloadee.getStatut() != EcritureComptable.StatutEcriture.BROUILLON) {
-                throw new RuntimeException("Seules les écritures en brouillon peuvent être validées");
-            }
-
-            if (!verifierEquilibre(ecritureReloadee)) {
-                throw new RuntimeException("L'écriture n'est pas équilibrée (Débit ≠ Crédit)");
+                // Les changements de statut partent par le batch JDBC ; les lignes restent lisibles détachées
+                session.flush();
+                session.clear();
+                if (progression != null) {
+                    progression.accept(Math.min(debut + TAILLE_LOT, aValider.size()), aValider.size());
+                }
             }
 
-            ecritureReloadee.setStatut(EcritureComptable.StatutEcriture.VALIDEE);
-            ecritureReloadee.setDateValidation(java.time.LocalDateTime.now());
-            session.saveOrUpdate(ecritureReloadee);
+            appliquerSoldesLot(session, validees);
 
             transaction.commit();
-            logger.info("Écriture validée: {}", ecriture.getNumeroEcriture());
+            logger.info("{} écritures validées en lot sur {} demandées", validees.size(), aValider.size());
 
         } catch (Exception e) {
             if (transaction != null) {
                 transaction.rollback();
             }
-            logger.error("Erreur lors de la validation de l'écriture", e);
-            throw new RuntimeException("Erreur lors de la validation: " + e.getMessage(), e);
+            logger.error("Erreur lors de la validation du lot d'écritures", e);
+            throw new RuntimeException("Erreur lors de la validation des écritures: " + e.getMessage(), e);
         }
 
-        // Mettre à jour les soldes des comptes dans une transaction séparée
-        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-            Transaction transaction2 = session.beginTransaction();
-
-            // Recharger l'écriture validée avec ses lignes
-            EcritureComptable ecritureValidee = session.createQuery(
-                "SELECT e FROM EcritureComptable e " +
-                "LEFT JOIN FETCH e.lignes l " +
-                "LEFT JOIN FETCH l.compte " +
-                "WHERE e.id = :id", EcritureComptable.class)
-                .setParameter("id", ecriture.getId())
-                .uniqueResult();
-
-            if (ecritureValidee != null && ecritureValidee.getStatut() == EcritureComptable.StatutEcriture.VALIDEE) {
-                for (LigneEcriture ligne : ecritureValidee.getLignes()) {
-                    Compte compte = ligne.getCompte();
-
-                    if (ligne.getMontantDebit().compareTo(BigDecimal.ZERO) > 0) {
-                        compte.debiter(ligne.getMontantDebit());
-                    } else if (ligne.getMontantCredit().compareTo(BigDecimal.ZERO) > 0) {
-                        compte.crediter(ligne.getMontantCredit());
-                    }
-                    session.saveOrUpdate(compte);
-
-                    // Mettre à jour les comptes parents dans la hiérarchie
-                    Compte parent = compte.getCompteParent();
-                    while (parent != null) {
-                        // Recharger le parent avec ses sous-comptes
-                        parent = session.createQuery(
-                            "SELECT c FROM Compte c LEFT JOIN FETCH c.sousComptes WHERE c.id = :id",
-                            Compte.class)
-                            .setParameter("id", parent.getId())
-                            .uniqueResult();
-
-                        logger.info("Mise à jour du compte parent: {} après modification de {}",
-                            parent.getNumeroCompte(), compte.getNumeroCompte());
-
-                        // Les soldes consolidés sont calculés dynamiquement
-                        // Pas besoin de modifier les soldes stockés
-                        parent = parent.getCompteParent(); // Remonter vers le grand-parent
-                    }
-                }
-            }
+        validees.forEach(this::imputerArbreComptes);
+        return new RapportValidation(resultats);
+    }
 
-            transaction2.commit();
+    /**
+     * Résultat de la validation d'une écriture du lot
+     */
+    public record ResultatValidation(Long id, String numeroEcriture, boolean validee, String message) {
+    }
 
-        } catch (Exception e) {
-            logger.error("Erreur lors de la mise à jour des soldes", e);
-            // Ne pas lancer d'exception car l'écriture a déjà été validée
+    /**
+     * Rapport d'une validation en lot, dans l'ordre des écritures demandées
+     */
+    public record RapportValidation(List<ResultatValidation> resultats) {
+
+        public long nombreValidees() {
+            return resultats.stream().filter(ResultatValidation::validee).count();
+        }
+
+        public List<ResultatValidation> refusees() {
+            return resultats.stream().filter(resultat -> !resultat.validee()).toList();
+        }
+    }
+
+    /**
+     * Refuse toute écriture dans un exercice qui n'est plus ouvert. Le verrou partagé fait
+     * attendre la fin d'une clôture en cours (ClotureExerciceService verrouille l'exercice).
+     */
+    private void verifierExerciceOuvert(Session session, Exercice exercice) {
+        if (exercice == null || exercice.getId() == null) {
+            return;
+        }
+        Exercice courant = session.get(Exercice.class, exercice.getId(), LockMode.PESSIMISTIC_READ);
+        if (courant != null && courant.getStatut() != Exercice.StatutExercice.OUVERT) {
+            throw new RuntimeException("L'exercice " + courant.getLibelle()
+                + " est clôturé : ses écritures ne peuvent plus être créées ni modifiées");
         }
     }
 
@@ -434,15 +610,18 @@ public class EcritureComptableService {
         return totalDebit.compareTo(totalCredit) == 0;
     }
 
-    private String genererNumeroEcriture(Long entrepriseId) {
-        // Format: EC-YYYY-NNNN (ex: EC-2024-0001)
-        java.time.LocalDate now = java.time.LocalDate.now();
-        int annee = now.getYear();
+    private String genererNumeroEcriture(EcritureComptable ecriture) {
+        // Format: EC-YYYY-NNNN (ex: EC-2024-0001), année de la date de l'écriture
+        Long entrepriseId = ecriture.getEntreprise().getId();
+        int annee = ecriture.getDateEcriture().getYear();
 
-        // Compter les écritures de l'année pour l'entreprise
-        long count = ecritureDAO.countByEntrepriseAndYear(entrepriseId, annee);
+        // Compteur entreprise x année, amorcé sur le plus grand numéro existant ;
+        // numéros pris par blocs : un échec ou un arrêt brutal peut laisser des trous
+        String prefixe = String.format("EC-%d-", annee);
+        long numero = compteurDAO.prochainNumero(entrepriseId, "EC", annee, TAILLE_BLOC_NUMEROS,
+            () -> ecritureDAO.findDernierNumero(entrepriseId, prefixe));
 
-        return String.format("EC-%d-%04d", annee, count + 1);
+        return String.format("EC-%d-%04d", annee, numero);
     }
     
     public void fixEntryNumberingConstraint() {
@@ -540,59 +719,92 @@ public class EcritureComptableService {
         }
     }
 
-    private void mettreAJourSoldesComptes(EcritureComptable ecriture) {
-    try (Session session = HibernateUtil.getSessionFactory().openSession()) {
-        Transaction transaction = session.beginTransaction();
-
-        logger.debug("=== DÉBUT MISE À JOUR SOLDES ===");
-        System.out.println("=== DÉBUT MISE À JOUR SOLDES ===");
-
-        // Recharger l'écriture avec ses lignes
-        EcritureComptable ecritureComplete = session.createQuery(
-            "SELECT e FROM EcritureComptable e " +
-            "LEFT JOIN FETCH e.lignes l " +
-            "LEFT JOIN FETCH l.compte " +
-            "WHERE e.id = :id", EcritureComptable.class)
-            .setParameter("id", ecriture.getId())
-            .uniqueResult();
-
-        if (ecritureComplete != null && ecritureComplete.getStatut() == EcritureComptable.StatutEcriture.VALIDEE) {
-            logger.debug("Mise à jour des soldes pour {} lignes", ecritureComplete.getLignes().size());
-            System.out.println("Nombre de lignes à traiter: " + ecritureComplete.getLignes().size());
-
-            for (LigneEcriture ligne : ecritureComplete.getLignes()) {
-                Compte compte = ligne.getCompte();
-
-                System.out.println("Traitement compte: " + compte.getNumeroCompte() + " (ID: " + compte.getId() + ")");
-                System.out.println("  Avant - Solde débit: " + compte.getSoldeDebiteur() + ", Solde crédit: " + compte.getSoldeCrediteur());
-
-                if (ligne.getMontantDebit().compareTo(BigDecimal.ZERO) > 0) {
-                    logger.debug("Débit de {} sur compte {}", ligne.getMontantDebit(), compte.getNumeroCompte());
-                    System.out.println("  Débit de: " + ligne.getMontantDebit());
-                    compte.debiter(ligne.getMontantDebit());
-                } else if (ligne.getMontantCredit().compareTo(BigDecimal.ZERO) > 0) {
-                    logger.debug("Crédit de {} sur compte {}", ligne.getMontantCredit(), compte.getNumeroCompte());
-                    System.out.println("  Crédit de: " + ligne.getMontantCredit());
-                    compte.crediter(ligne.getMontantCredit());
-                }
+    /**
+     * Impute une écriture validée sur les soldes des comptes et les cumuls mensuels.
+     * Appelée dans la transaction de l'appelant : tout est validé ou annulé ensemble.
+     */
+    private void appliquerSoldes(Session session, EcritureComptable ecriture) {
+        appliquerSoldesLot(session, List.of(ecriture));
+    }
 
-                session.saveOrUpdate(compte);
-                System.out.println("  Après - Solde débit: " + compte.getSoldeDebiteur() + ", Solde crédit: " + compte.getSoldeCrediteur());
+    /**
+     * Impute un lot d'écritures validées : mouvements regroupés par compte puis appliqués par
+     * UPDATE relatifs (une mise à jour atomique par compte pour tout le lot), puis cumuls
+     * mensuels regroupés par compte et par mois.
+     * Appelée dans la transaction de l'appelant.
+     */
+    private void appliquerSoldesLot(Session session, List<EcritureComptable> ecritures) {
+        Map<Long, MouvementCompte> parCompte = new LinkedHashMap<>();
+        for (EcritureComptable ecriture : ecritures) {
+            for (LigneEcriture ligne : ecriture.getLignes()) {
+                parCompte.merge(ligne.getCompte().getId(),
+                    new MouvementCompte(ligne.getMontantDebit(), ligne.getMontantCredit()),
+                    MouvementCompte::plus);
+            }
+        }
+        compteDAO.appliquerMouvements(session, parCompte);
+        soldePeriodeDAO.appliquerEcritures(session, ecritures);
+    }
 
-                logger.debug("Soldes mis à jour pour compte {}: Débit={}, Crédit={}",
-                    compte.getNumeroCompte(), compte.getSoldeDebiteur(), compte.getSoldeCrediteur());
+    /**
+     * Impute la différence entre l'état déjà imputé d'une écriture et son nouvel état validé
+     * (null : rien d'imputé / plus rien à imputer), sur les soldes des comptes et les cumuls
+     * mensuels. Appelée dans la transaction de l'appelant ; retourne les écarts par compte.
+     */
+    private Map<Long, MouvementCompte> appliquerDifference(Session session, EcritureComptable avant,
+                                                           EcritureComptable apres) {
+        Map<Long, MouvementCompte> ecarts = new LinkedHashMap<>();
+        if (avant != null) {
+            for (LigneEcriture ligne : avant.getLignes()) {
+                ecarts.merge(ligne.getCompte().getId(), MouvementCompte.ZERO.moins(
+                    new MouvementCompte(ligne.getMontantDebit(), ligne.getMontantCredit())), MouvementCompte::plus);
             }
         }
+        if (apres != null) {
+            for (LigneEcriture ligne : apres.getLignes()) {
+                ecarts.merge(ligne.getCompte().getId(),
+                    new MouvementCompte(ligne.getMontantDebit(), ligne.getMontantCredit()), MouvementCompte::plus);
+            }
+        }
+        ecarts.values().removeIf(MouvementCompte::estNul);
 
-        transaction.commit();
-        logger.debug("Mise à jour des soldes terminée avec succès");
-        System.out.println("=== FIN MISE À JOUR SOLDES ===");
+        compteDAO.appliquerMouvements(session, ecarts);
+        soldePeriodeDAO.appliquerDifference(session,
+            avant != null ? List.of(avant) : List.of(), apres != null ? List.of(apres) : List.of());
+        return ecarts;
+    }
 
-    } catch (Exception e) {
-        logger.error("Erreur lors de la mise à jour des soldes", e);
-        System.out.println("ERREUR lors de la mise à jour des soldes: " + e.getMessage());
-        // Ne pas lancer d'exception car l'écriture a déjà été créée
+    /**
+     * Copie détachée (jamais persistée) de la date, de l'exercice et des lignes d'une écriture,
+     * avant que sa modification ne remplace ses lignes
+     */
+    private static EcritureComptable copieImputation(EcritureComptable ecriture) {
+        EcritureComptable copie = new EcritureComptable();
+        copie.setDateEcriture(ecriture.getDateEcriture());
+        copie.setExercice(ecriture.getExercice());
+        copie.setEntreprise(ecriture.getEntreprise());
+        for (LigneEcriture ligne : ecriture.getLignes()) {
+            copie.ajouterLigne(new LigneEcriture(ligne.getMontantDebit(), ligne.getMontantCredit(),
+                ligne.getLibelle(), ligne.getCompte()));
+        }
+        return copie;
     }
-}
 
-}
\ No newline at end of file
+    /**
+     * Reporte les mouvements d'une écriture validée sur l'arbre des comptes en cache
+     * (à appeler après le commit)
+     */
+    private void imputerArbreComptes(EcritureComptable ecriture) {
+        Long entrepriseId = ecriture.getEntreprise().getId();
+        for (LigneEcriture ligne : ecriture.getLignes()) {
+            AccountTree.imputer(entrepriseId, ligne.getCompte().getId(),
+                ligne.getMontantDebit(), ligne.getMontantCredit());
+        }
+    }
+
+    private void imputerArbreComptes(Long entrepriseId, Map<Long, MouvementCompte> ecarts) {
+        ecarts.forEach((compteId, ecart) ->
+            AccountTree.imputer(entrepriseId, compteId, ecart.totalDebit(), ecart.totalCredit()));
+    }
+
+}
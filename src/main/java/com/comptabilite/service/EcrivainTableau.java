@@ -0,0 +1,372 @@
+package com.comptabilite.service;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.Element;
+import com.lowagie.text.Font;
+import com.lowagie.text.FontFactory;
+import com.lowagie.text.HeaderFooter;
+import com.lowagie.text.PageSize;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.Phrase;
+import com.lowagie.text.Rectangle;
+import com.lowagie.text.pdf.BaseFont;
+import com.lowagie.text.pdf.PdfPCell;
+import com.lowagie.text.pdf.PdfPTable;
+import com.lowagie.text.pdf.PdfWriter;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Écriture d'un rapport en tableau, ligne par ligne, dans un fichier CSV, Excel ou PDF.
+ *
+ * Aucune implémentation ne garde le tableau en mémoire : le CSV est écrit au fil de l'eau,
+ * le classeur Excel ne conserve qu'une fenêtre de lignes (le reste part dans un fichier temporaire
+ * compressé) et le tableau PDF est vidé dans le document toutes les quelques dizaines de lignes.
+ * La mémoire utilisée ne dépend donc pas du nombre de lignes exportées.
+ *
+ * Les valeurs acceptées sont les chaînes, les dates (LocalDate) et les montants (BigDecimal) ;
+ * null donne une cellule vide.
+ */
+public abstract class EcrivainTableau implements Closeable {
+
+    public enum TypeColonne { TEXTE, DATE, MONTANT }
+
+    /**
+     * @param largeur largeur indicative, en caractères
+     */
+    public record Colonne(String titre, TypeColonne type, int largeur) {
+    }
+
+    protected static final DateTimeFormatter FORMAT_DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    protected final List<Colonne> colonnes;
+
+    protected EcrivainTableau(List<Colonne> colonnes) {
+        this.colonnes = colonnes;
+    }
+
+    /**
+     * Crée le fichier et écrit l'en-tête du tableau
+     */
+    public static EcrivainTableau ouvrir(FormatExport format, Path fichier, String titre,
+                                         List<Colonne> colonnes) throws IOException {
+        return switch (format) {
+            case CSV -> new Csv(fichier, colonnes);
+            case XLSX -> new Xlsx(fichier, titre, colonnes);
+            case PDF -> new Pdf(fichier, titre, colonnes);
+        };
+    }
+
+    public void ligne(Object... valeurs) {
+        ecrire(valeurs, false);
+    }
+
+    /**
+     * Ligne de total ou de sous-total, mise en évidence quand le format le permet
+     */
+    public void total(Object... valeurs) {
+        ecrire(valeurs, true);
+    }
+
+    private void ecrire(Object[] valeurs, boolean total) {
+        if (valeurs.length != colonnes.size()) {
+            throw new IllegalArgumentException(valeurs.length + " valeurs pour " + colonnes.size() + " colonnes");
+        }
+        try {
+            ecrireLigne(valeurs, total);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erreur d'écriture de l'export", e);
+        }
+    }
+
+    protected abstract void ecrireLigne(Object[] valeurs, boolean total) throws IOException;
+
+    /**
+     * Format Excel français : UTF-8 avec BOM, séparateur « ; », virgule décimale
+     */
+    private static final class Csv extends EcrivainTableau {
+
+        private static final char SEPARATEUR = ';';
+
+        private final BufferedWriter writer;
+
+        Csv(Path fichier, List<Colonne> colonnes) throws IOException {
+            super(colonnes);
+            this.writer = Files.newBufferedWriter(fichier, StandardCharsets.UTF_8);
+            writer.write('\uFEFF');
+            ecrireLigne(colonnes.stream().map(Colonne::titre).toArray(), false);
+        }
+
+        @Override
+        protected void ecrireLigne(Object[] valeurs, boolean total) throws IOException {
+            for (int i = 0; i < valeurs.length; i++) {
+                if (i > 0) {
+                    writer.write(SEPARATEUR);
+                }
+                writer.write(echapper(texte(valeurs[i])));
+            }
+            writer.newLine();
+        }
+
+        private static String texte(Object valeur) {
+            if (valeur instanceof BigDecimal montant) {
+                return montant.toPlainString().replace('.', ',');
+            }
+            if (valeur instanceof LocalDate date) {
+                return date.format(FORMAT_DATE);
+            }
+            return valeur != null ? valeur.toString() : "";
+        }
+
+        private static String echapper(String valeur) {
+            if (valeur.indexOf(SEPARATEUR) >= 0 || valeur.indexOf('"') >= 0
+                || valeur.indexOf('\n') >= 0 || valeur.indexOf('\r') >= 0) {
+                return '"' + valeur.replace("\"", "\"\"") + '"';
+            }
+            return valeur;
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    /**
+     * Classeur Excel écrit en flux (SXSSF) : au-delà de la limite de lignes d'une feuille,
+     * le tableau continue sur une nouvelle feuille avec le même en-tête
+     */
+    private static final class Xlsx extends EcrivainTableau {
+
+        // Lignes gardées en mémoire ; les précédentes sont écrites dans le fichier temporaire
+        private static final int FENETRE_LIGNES = 100;
+        private static final int MAX_LIGNES_FEUILLE = SpreadsheetVersion.EXCEL2007.getMaxRows();
+
+        private final Path fichier;
+        private final String titre;
+        private final SXSSFWorkbook classeur;
+        private final CellStyle styleEntete;
+        private final CellStyle[] styles;
+        private final CellStyle[] stylesTotal;
+        private Sheet feuille;
+        private int numeroFeuille;
+        private int prochaineLigne;
+
+        Xlsx(Path fichier, String titre, List<Colonne> colonnes) {
+            super(colonnes);
+            this.fichier = fichier;
+            this.titre = titre;
+            this.classeur = new SXSSFWorkbook(FENETRE_LIGNES);
+            classeur.setCompressTempFiles(true);
+
+            org.apache.poi.ss.usermodel.Font gras = classeur.createFont();
+            gras.setBold(true);
+            styleEntete = classeur.createCellStyle();
+            styleEntete.setFont(gras);
+
+            short formatMontant = classeur.createDataFormat().getFormat("#,##0.00");
+            short formatDate = classeur.createDataFormat().getFormat("dd/mm/yyyy");
+            styles = new CellStyle[TypeColonne.values().length];
+            stylesTotal = new CellStyle[TypeColonne.values().length];
+            for (TypeColonne type : TypeColonne.values()) {
+                for (boolean total : new boolean[] {false, true}) {
+                    CellStyle style = classeur.createCellStyle();
+                    if (type == TypeColonne.MONTANT) {
+                        style.setDataFormat(formatMontant);
+                    } else if (type == TypeColonne.DATE) {
+                        style.setDataFormat(formatDate);
+                    }
+                    if (total) {
+                        style.setFont(gras);
+                        stylesTotal[type.ordinal()] = style;
+                    } else {
+                        styles[type.ordinal()] = style;
+                    }
+                }
+            }
+            nouvelleFeuille();
+        }
+
+        private void nouvelleFeuille() {
+            numeroFeuille++;
+            String nom = numeroFeuille == 1 ? titre : titre + " (" + numeroFeuille + ")";
+            feuille = classeur.createSheet(WorkbookUtil.createSafeSheetName(nom));
+            for (int i = 0; i < colonnes.size(); i++) {
+                feuille.setColumnWidth(i, Math.min(255, colonnes.get(i).largeur() + 2) * 256);
+            }
+            Row entete = feuille.createRow(0);
+            for (int i = 0; i < colonnes.size(); i++) {
+                Cell cellule = entete.createCell(i);
+                cellule.setCellValue(colonnes.get(i).titre());
+                cellule.setCellStyle(styleEntete);
+            }
+            feuille.createFreezePane(0, 1);
+            prochaineLigne = 1;
+        }
+
+        @Override
+        protected void ecrireLigne(Object[] valeurs, boolean total) {
+            if (prochaineLigne == MAX_LIGNES_FEUILLE) {
+                nouvelleFeuille();
+            }
+            Row ligne = feuille.createRow(prochaineLigne++);
+            for (int i = 0; i < valeurs.length; i++) {
+                Object valeur = valeurs[i];
+                if (valeur == null) {
+                    continue;
+                }
+                Cell cellule = ligne.createCell(i);
+                if (valeur instanceof BigDecimal montant) {
+                    cellule.setCellValue(montant.doubleValue());
+                } else if (valeur instanceof LocalDate date) {
+                    cellule.setCellValue(date);
+                } else {
+                    cellule.setCellValue(valeur.toString());
+                }
+                cellule.setCellStyle((total ? stylesTotal : styles)[colonnes.get(i).type().ordinal()]);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (OutputStream sortie = Files.newOutputStream(fichier)) {
+                classeur.write(sortie);
+            } finally {
+                // Supprime les fichiers temporaires des feuilles
+                classeur.dispose();
+                classeur.close();
+            }
+        }
+    }
+
+    /**
+     * Document PDF paysage : le tableau est marqué incomplet et ajouté au document par tranches,
+     * OpenPDF écrit alors les lignes déjà placées et les libère
+     */
+    private static final class Pdf extends EcrivainTableau {
+
+        private static final int TRANCHE_LIGNES = 50;
+
+        private final OutputStream sortie;
+        private final Document document;
+        private final Font police;
+        private final Font policeGras;
+        private final DecimalFormat formatMontant;
+        private PdfPTable tableau;
+        private int lignesEnAttente;
+
+        Pdf(Path fichier, String titre, List<Colonne> colonnes) throws IOException {
+            super(colonnes);
+            this.sortie = Files.newOutputStream(fichier);
+            this.document = new Document(PageSize.A4.rotate(), 28, 28, 28, 28);
+            // Polices standard en Cp1252 : accents français sans embarquer de police
+            this.police = FontFactory.getFont(FontFactory.HELVETICA, BaseFont.CP1252, 8);
+            this.policeGras = FontFactory.getFont(FontFactory.HELVETICA_BOLD, BaseFont.CP1252, 8);
+
+            DecimalFormatSymbols symboles = new DecimalFormatSymbols();
+            symboles.setDecimalSeparator(',');
+            symboles.setGroupingSeparator(' ');
+            this.formatMontant = new DecimalFormat("#,##0.00", symboles);
+
+            try {
+                PdfWriter.getInstance(document, sortie);
+                HeaderFooter piedDePage = new HeaderFooter(new Phrase(titre + " - page ", police), true);
+                piedDePage.setAlignment(Element.ALIGN_CENTER);
+                piedDePage.setBorder(Rectangle.NO_BORDER);
+                document.setFooter(piedDePage);
+                document.open();
+
+                document.add(new Paragraph(titre, FontFactory.getFont(FontFactory.HELVETICA_BOLD, BaseFont.CP1252, 14)));
+                document.add(new Paragraph("Édité le " + LocalDateTime.now().format(
+                    DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")), police));
+                document.add(new Paragraph(" ", police));
+
+                float[] largeurs = new float[colonnes.size()];
+                for (int i = 0; i < largeurs.length; i++) {
+                    largeurs[i] = colonnes.get(i).largeur();
+                }
+                tableau = new PdfPTable(largeurs);
+                tableau.setWidthPercentage(100);
+                tableau.setComplete(false);
+                // L'en-tête est répété en haut de chaque page
+                tableau.setHeaderRows(1);
+                for (Colonne colonne : colonnes) {
+                    PdfPCell cellule = new PdfPCell(new Phrase(colonne.titre(), policeGras));
+                    cellule.setGrayFill(0.85f);
+                    tableau.addCell(cellule);
+                }
+            } catch (DocumentException e) {
+                sortie.close();
+                throw new IOException("Impossible de créer le document PDF", e);
+            }
+        }
+
+        @Override
+        protected void ecrireLigne(Object[] valeurs, boolean total) throws IOException {
+            for (int i = 0; i < valeurs.length; i++) {
+                Object valeur = valeurs[i];
+                String texte;
+                if (valeur instanceof BigDecimal montant) {
+                    texte = formatMontant.format(montant);
+                } else if (valeur instanceof LocalDate date) {
+                    texte = date.format(FORMAT_DATE);
+                } else {
+                    texte = valeur != null ? valeur.toString() : "";
+                }
+                PdfPCell cellule = new PdfPCell(new Phrase(texte, total ? policeGras : police));
+                if (colonnes.get(i).type() == TypeColonne.MONTANT) {
+                    cellule.setHorizontalAlignment(Element.ALIGN_RIGHT);
+                }
+                if (total) {
+                    cellule.setGrayFill(0.95f);
+                }
+                tableau.addCell(cellule);
+            }
+            if (++lignesEnAttente == TRANCHE_LIGNES) {
+                vider();
+            }
+        }
+
+        private void vider() throws IOException {
+            try {
+                document.add(tableau);
+            } catch (DocumentException e) {
+                throw new IOException("Erreur d'écriture du document PDF", e);
+            }
+            lignesEnAttente = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                tableau.setComplete(true);
+                vider();
+                document.close();
+            } finally {
+                sortie.close();
+            }
+        }
+    }
+}
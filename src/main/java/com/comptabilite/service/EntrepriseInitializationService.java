@@ -301,12 +301,7 @@ public class EntrepriseInitializationService {
     }
 
     private boolean isOHADACountry(String pays) {
-        return pays != null && (
-            pays.equals("Cameroun") || pays.equals("Sénégal") || pays.equals("Côte d'Ivoire") ||
-            pays.equals("Mali") || pays.equals("Burkina Faso") || pays.equals("Niger") ||
-            pays.equals("Tchad") || pays.equals("République Centrafricaine") ||
-            pays.equals("Gabon") || pays.equals("Congo")
-        );
+        return ReglesComptabilisation.Referentiel.pour(pays) == ReglesComptabilisation.Referentiel.OHADA;
     }
 
     /**
@@ -0,0 +1,300 @@
+package com.comptabilite.service;
+
+import com.comptabilite.dao.ExerciceDAO;
+import com.comptabilite.dao.FactureDAO.EncoursTiers;
+import com.comptabilite.dao.LigneEcritureDAO;
+import com.comptabilite.model.Compte;
+import com.comptabilite.model.Exercice;
+import com.comptabilite.service.BalanceAgeeService.BalanceAgee;
+import com.comptabilite.service.EcrivainTableau.Colonne;
+import com.comptabilite.service.EcrivainTableau.TypeColonne;
+import com.comptabilite.service.ReportService.BilanData;
+import com.comptabilite.service.ReportService.CompteResultatData;
+import com.comptabilite.service.ReportService.LigneBalance;
+import com.comptabilite.service.ReportService.LigneGrandLivre;
+import com.comptabilite.service.ReportService.PlageComptes;
+import com.comptabilite.service.ReportService.SortieGrandLivre;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Export des rapports (balance, grand livre, bilan, compte de résultat, balance âgée) en CSV, Excel ou PDF.
+ *
+ * Les lignes sont écrites au fur et à mesure qu'elles sont produites par ReportService : le grand
+ * livre complet est lu par curseur et transmis ligne à ligne à l'écrivain, la mémoire utilisée ne
+ * dépend que du nombre de comptes. Un export interrompu (annulation, erreur) supprime le fichier partiel.
+ */
+public class ExportRapportsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportRapportsService.class);
+
+    // Lignes écrites entre deux signalements d'avancement et contrôles d'annulation
+    private static final int PAS_AVANCEMENT = 1000;
+
+    private static final List<Colonne> COLONNES_GRAND_LIVRE = List.of(
+        new Colonne("Compte", TypeColonne.TEXTE, 10),
+        new Colonne("Libellé compte", TypeColonne.TEXTE, 25),
+        new Colonne("Date", TypeColonne.DATE, 10),
+        new Colonne("N° écriture", TypeColonne.TEXTE, 11),
+        new Colonne("Journal", TypeColonne.TEXTE, 7),
+        new Colonne("Libellé", TypeColonne.TEXTE, 35),
+        new Colonne("Débit", TypeColonne.MONTANT, 13),
+        new Colonne("Crédit", TypeColonne.MONTANT, 13),
+        new Colonne("Solde", TypeColonne.MONTANT, 13));
+
+    private static final List<Colonne> COLONNES_BALANCE = List.of(
+        new Colonne("N° compte", TypeColonne.TEXTE, 10),
+        new Colonne("Compte", TypeColonne.TEXTE, 35),
+        new Colonne("Total débit", TypeColonne.MONTANT, 15),
+        new Colonne("Total crédit", TypeColonne.MONTANT, 15),
+        new Colonne("Solde débiteur", TypeColonne.MONTANT, 15),
+        new Colonne("Solde créditeur", TypeColonne.MONTANT, 15));
+
+    private static final List<Colonne> COLONNES_SYNTHESE = List.of(
+        new Colonne("Poste", TypeColonne.TEXTE, 40),
+        new Colonne("Montant", TypeColonne.MONTANT, 18));
+
+    private static final List<Colonne> COLONNES_BALANCE_AGEE = List.of(
+        new Colonne("Code", TypeColonne.TEXTE, 10),
+        new Colonne("Tiers", TypeColonne.TEXTE, 30),
+        new Colonne("Non échu", TypeColonne.MONTANT, 14),
+        new Colonne("1-30 j", TypeColonne.MONTANT, 14),
+        new Colonne("31-60 j", TypeColonne.MONTANT, 14),
+        new Colonne("61-90 j", TypeColonne.MONTANT, 14),
+        new Colonne("+ 90 j", TypeColonne.MONTANT, 14),
+        new Colonne("Total", TypeColonne.MONTANT, 15));
+
+    private final ReportService reportService;
+    private final BalanceAgeeService balanceAgeeService;
+    private final ExerciceDAO exerciceDAO;
+    private final LigneEcritureDAO ligneEcritureDAO;
+
+    public ExportRapportsService() {
+        this.reportService = new ReportService();
+        this.balanceAgeeService = new BalanceAgeeService();
+        this.exerciceDAO = new ExerciceDAO();
+        this.ligneEcritureDAO = new LigneEcritureDAO();
+    }
+
+    /**
+     * Exporte le grand livre de l'exercice, compte par compte (report, lignes, sous-total).
+     *
+     * @param progression appelé avec (lignes d'écriture écrites, lignes à écrire)
+     * @param arret       consulté régulièrement : vrai pour interrompre l'export (CancellationException)
+     * @return nombre de lignes d'écriture exportées
+     */
+    public long exporterGrandLivre(Long exerciceId, PlageComptes plage, FormatExport format, Path fichier,
+                                   BiConsumer<Long, Long> progression, BooleanSupplier arret) {
+        Exercice exercice = exercice(exerciceId);
+        long total = ligneEcritureDAO.countLignesParCompte(exercice.getEntreprise().getId(),
+            exercice.getDateDebut(), exercice.getDateFin(), plage.numeroDebut(), plage.numeroFin());
+
+        return exporter(fichier, "grand livre", () -> {
+            try (EcrivainTableau ecrivain = EcrivainTableau.ouvrir(format, fichier,
+                    "Grand livre " + exercice.getLibelle(), COLONNES_GRAND_LIVRE)) {
+                progression.accept(0L, total);
+                return reportService.getGrandLivreComplet(exerciceId, plage,
+                    new SortieTableau(ecrivain, total, progression, arret));
+            }
+        });
+    }
+
+    public long exporterBalance(Long exerciceId, FormatExport format, Path fichier) {
+        Exercice exercice = exercice(exerciceId);
+        // La balance compte une ligne par compte : elle est calculée en entier avant d'être écrite
+        List<LigneBalance> balance = reportService.getBalance(exerciceId);
+
+        return exporter(fichier, "balance", () -> {
+            try (EcrivainTableau ecrivain = EcrivainTableau.ouvrir(format, fichier,
+                    "Balance " + exercice.getLibelle(), COLONNES_BALANCE)) {
+                BigDecimal totalDebit = BigDecimal.ZERO;
+                BigDecimal totalCredit = BigDecimal.ZERO;
+                for (LigneBalance ligne : balance) {
+                    ecrivain.ligne(ligne.getNumeroCompte(), ligne.getNomCompte(), ligne.getTotalDebit(),
+                        ligne.getTotalCredit(), ligne.getSoldeDebiteur(), ligne.getSoldeCrediteur());
+                    totalDebit = totalDebit.add(ligne.getTotalDebit());
+                    totalCredit = totalCredit.add(ligne.getTotalCredit());
+                }
+                ecrivain.total(null, "Total", totalDebit, totalCredit, null, null);
+                return (long) balance.size();
+            }
+        });
+    }
+
+    public long exporterBilan(Long exerciceId, FormatExport format, Path fichier) {
+        Exercice exercice = exercice(exerciceId);
+        BilanData bilan = reportService.getBilan(exerciceId);
+
+        return exporter(fichier, "bilan", () -> {
+            try (EcrivainTableau ecrivain = EcrivainTableau.ouvrir(format, fichier,
+                    "Bilan " + exercice.getLibelle(), COLONNES_SYNTHESE)) {
+                ecrivain.total("ACTIF", null);
+                ecrivain.ligne("Actif immobilisé", bilan.getActifImmobilise());
+                ecrivain.ligne("Actif circulant", bilan.getActifCirculant());
+                ecrivain.ligne("Créances", bilan.getCreances());
+                ecrivain.ligne("Trésorerie", bilan.getTresorerie());
+                ecrivain.total("Total actif", bilan.getTotalActif());
+                ecrivain.total("PASSIF", null);
+                ecrivain.ligne("Capitaux propres", bilan.getCapitauxPropres());
+                ecrivain.ligne("Dettes financières", bilan.getDettesFinancieres());
+                ecrivain.ligne("Dettes d'exploitation", bilan.getDettesExploitation());
+                ecrivain.total("Total passif", bilan.getTotalPassif());
+                return 11L;
+            }
+        });
+    }
+
+    public long exporterCompteResultat(Long exerciceId, FormatExport format, Path fichier) {
+        Exercice exercice = exercice(exerciceId);
+        CompteResultatData resultat = reportService.getCompteResultat(exerciceId);
+
+        return exporter(fichier, "compte de résultat", () -> {
+            try (EcrivainTableau ecrivain = EcrivainTableau.ouvrir(format, fichier,
+                    "Compte de résultat " + exercice.getLibelle(), COLONNES_SYNTHESE)) {
+                ecrivain.ligne("Chiffre d'affaires", resultat.getChiffresAffaires());
+                ecrivain.ligne("Charges d'exploitation", resultat.getChargesExploitation());
+                ecrivain.total("Résultat d'exploitation", resultat.getResultatExploitation());
+                ecrivain.ligne("Produits financiers", resultat.getProduitsFinanciers());
+                ecrivain.ligne("Charges financières", resultat.getChargesFinancieres());
+                ecrivain.total("Résultat financier", resultat.getResultatFinancier());
+                ecrivain.total("Résultat net", resultat.getResultatNet());
+                return 7L;
+            }
+        });
+    }
+
+    /**
+     * Exporte la balance âgée de l'entreprise : clients puis fournisseurs, avec un total par section
+     */
+    public long exporterBalanceAgee(Long entrepriseId, LocalDate dateReference, FormatExport format, Path fichier) {
+        BalanceAgee balance = balanceAgeeService.getBalanceAgee(entrepriseId, dateReference);
+
+        return exporter(fichier, "balance âgée", () -> {
+            try (EcrivainTableau ecrivain = EcrivainTableau.ouvrir(format, fichier,
+                    "Balance âgée au " + dateReference.format(EcrivainTableau.FORMAT_DATE), COLONNES_BALANCE_AGEE)) {
+                ecrireSection(ecrivain, "CLIENTS", balance.clients(), balance.totalClients());
+                ecrireSection(ecrivain, "FOURNISSEURS", balance.fournisseurs(), balance.totalFournisseurs());
+                return (long) balance.clients().size() + balance.fournisseurs().size();
+            }
+        });
+    }
+
+    private static void ecrireSection(EcrivainTableau ecrivain, String titre, List<EncoursTiers> encours,
+                                      EncoursTiers total) {
+        ecrivain.total(null, titre, null, null, null, null, null, null);
+        for (EncoursTiers tiers : encours) {
+            ecrivain.ligne(tiers.code(), tiers.nom(), tiers.nonEchu(), tiers.retard30(), tiers.retard60(),
+                tiers.retard90(), tiers.retardPlus90(), tiers.total());
+        }
+        ecrivain.total(null, "Total " + titre.toLowerCase(), total.nonEchu(), total.retard30(), total.retard60(),
+            total.retard90(), total.retardPlus90(), total.total());
+    }
+
+    private Exercice exercice(Long exerciceId) {
+        return exerciceDAO.findById(exerciceId)
+            .orElseThrow(() -> new IllegalArgumentException("Exercice non trouvé: " + exerciceId));
+    }
+
+    private interface Export {
+        long ecrire() throws IOException;
+    }
+
+    /**
+     * Exécute l'écriture du fichier ; en cas d'échec ou d'annulation, le fichier partiel est supprimé
+     */
+    private long exporter(Path fichier, String rapport, Export export) {
+        long debut = System.currentTimeMillis();
+        try {
+            long lignes = export.ecrire();
+            logger.info("Export du {} terminé: {} lignes dans {} en {} ms",
+                rapport, lignes, fichier, System.currentTimeMillis() - debut);
+            return lignes;
+        } catch (CancellationException e) {
+            supprimer(fichier);
+            logger.info("Export du {} annulé", rapport);
+            throw e;
+        } catch (Exception e) {
+            supprimer(fichier);
+            logger.error("Erreur lors de l'export du {}", rapport, e);
+            throw new RuntimeException("Erreur lors de l'export du " + rapport + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void supprimer(Path fichier) {
+        try {
+            Files.deleteIfExists(fichier);
+        } catch (IOException e) {
+            logger.warn("Impossible de supprimer l'export incomplet {}", fichier, e);
+        }
+    }
+
+    /**
+     * Écrit chaque section du grand livre dans le tableau, en signalant l'avancement
+     * et en arrêtant la lecture dès que l'export est annulé
+     */
+    private static final class SortieTableau implements SortieGrandLivre {
+
+        private final EcrivainTableau ecrivain;
+        private final long total;
+        private final BiConsumer<Long, Long> progression;
+        private final BooleanSupplier arret;
+        private long nombreLignes;
+
+        SortieTableau(EcrivainTableau ecrivain, long total, BiConsumer<Long, Long> progression,
+                      BooleanSupplier arret) {
+            this.ecrivain = ecrivain;
+            this.total = total;
+            this.progression = progression;
+            this.arret = arret;
+        }
+
+        @Override
+        public void debutCompte(Compte compte, LigneGrandLivre report) {
+            verifierArret();
+            ecrire(compte, report);
+        }
+
+        @Override
+        public void ligne(Compte compte, LigneGrandLivre ligne) {
+            ecrire(compte, ligne);
+            if (++nombreLignes % PAS_AVANCEMENT == 0) {
+                verifierArret();
+                progression.accept(nombreLignes, total);
+            }
+        }
+
+        @Override
+        public void finCompte(Compte compte, BigDecimal totalDebit, BigDecimal totalCredit, BigDecimal soldeFinal) {
+            ecrivain.total(compte.getNumeroCompte(), "Total " + compte.getNumeroCompte(), null, null, null, null,
+                totalDebit, totalCredit, soldeFinal);
+        }
+
+        @Override
+        public void fin(BigDecimal totalDebit, BigDecimal totalCredit) {
+            ecrivain.total(null, "Total général", null, null, null, null, totalDebit, totalCredit, null);
+            progression.accept(nombreLignes, total);
+        }
+
+        private void ecrire(Compte compte, LigneGrandLivre ligne) {
+            ecrivain.ligne(compte.getNumeroCompte(), compte.getLibelle(), ligne.getDate(), ligne.getNumeroEcriture(),
+                ligne.getNumeroJournal(), ligne.getLibelle(), ligne.getDebit(), ligne.getCredit(),
+                ligne.getSoldeCumule());
+        }
+
+        private void verifierArret() {
+            if (arret.getAsBoolean()) {
+                throw new CancellationException("Export du grand livre annulé");
+            }
+        }
+    }
+}
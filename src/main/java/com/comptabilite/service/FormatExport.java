@@ -0,0 +1,42 @@
+package com.comptabilite.service;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Formats de fichier proposés pour l'export des rapports
+ */
+public enum FormatExport {
+    CSV("csv", "Fichiers CSV"),
+    XLSX("xlsx", "Classeurs Excel"),
+    PDF("pdf", "Documents PDF");
+
+    private final String extension;
+    private final String description;
+
+    FormatExport(String extension, String description) {
+        this.extension = extension;
+        this.description = description;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Format correspondant à l'extension du fichier, null si elle n'est pas reconnue
+     */
+    public static FormatExport pour(Path fichier) {
+        String nom = fichier.getFileName().toString().toLowerCase(Locale.ROOT);
+        for (FormatExport format : values()) {
+            if (nom.endsWith("." + format.extension)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
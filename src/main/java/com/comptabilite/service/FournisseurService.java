@@ -100,8 +100,8 @@ public class FournisseurService {
         return fournisseurDAO.findByCodeFournisseur(codeFournisseur);
     }
 
-    public List<Fournisseur> searchFournisseurs(String terme) {
-        return fournisseurDAO.searchByNomOrEmail(terme);
+    public List<Fournisseur> searchFournisseurs(String terme, Long entrepriseId) {
+        return fournisseurDAO.searchByNomOrEmail(terme, entrepriseId);
     }
 
     public List<Fournisseur> getFournisseursActifs(Long entrepriseId) {
@@ -112,6 +112,10 @@ public class FournisseurService {
         return fournisseurDAO.findByType(type, entrepriseId);
     }
 
+    public String genererCodeFournisseur() {
+        return fournisseurDAO.generateNextCodeFournisseur();
+    }
+
     public long getNombreFournisseurs() {
         return fournisseurDAO.countFournisseurs();
     }
@@ -0,0 +1,625 @@
+package com.comptabilite.service;
+
+import com.comptabilite.dao.ClientDAO;
+import com.comptabilite.dao.CompteurNumerotationDAO;
+import com.comptabilite.dao.EcritureComptableDAO;
+import com.comptabilite.dao.EntrepriseDAO;
+import com.comptabilite.dao.ExerciceDAO;
+import com.comptabilite.dao.FactureDAO;
+import com.comptabilite.dao.FournisseurDAO;
+import com.comptabilite.model.Client;
+import com.comptabilite.model.EcritureComptable;
+import com.comptabilite.model.Entreprise;
+import com.comptabilite.model.Exercice;
+import com.comptabilite.model.Facture;
+import com.comptabilite.model.Fournisseur;
+import com.comptabilite.model.LigneFacture;
+import com.comptabilite.service.LecteurFacturesImport.FactureImport;
+import com.comptabilite.service.LecteurFacturesImport.LigneImport;
+import com.comptabilite.service.ReglesComptabilisation.Operation;
+import org.hibernate.Session;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Import de masse des factures du logiciel de facturation, avec génération de leurs écritures.
+ *
+ * Le fichier est lu en flux par le thread appelant et découpé en lots de TAILLE_LOT factures.
+ * Chaque lot est traité par un pool borné de travailleurs : validation (partenaires résolus en
+ * une requête par lot), élimination des factures déjà importées, réservation des numéros de
+ * factures et d'écritures par plages, puis insertion des factures, de leurs lignes et des
+ * écritures VT/AC dans une seule transaction (batch JDBC). La lecture attend dès que
+ * LOTS_EN_COURS lots sont en file ou en traitement : la mémoire reste bornée quelle que soit
+ * la taille du fichier.
+ *
+ * Un point de reprise (fichier « .reprise » à côté du fichier importé) retient le nombre de
+ * factures dont tous les lots sont enregistrés ; un import interrompu repart de là. Chaque facture
+ * garde sa référence d'origine, unique par entreprise : une facture déjà importée est ignorée, ce
+ * qui rend la reprise sûre même pour les lots enregistrés après le point de reprise.
+ */
+public class ImportFacturesService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportFacturesService.class);
+
+    static final int TAILLE_LOT = 500;
+    private static final int NOMBRE_TRAVAILLEURS = 4;
+    private static final int LOTS_EN_COURS = NOMBRE_TRAVAILLEURS * 2;
+
+    // Au-delà, les rejets sont comptés mais pas détaillés dans le rapport
+    private static final int MAX_REJETS_DETAILLES = 1000;
+
+    private static final DateTimeFormatter FORMAT_DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final int DELAI_ECHEANCE_JOURS = 30;
+
+    // Unicité de (entreprise_id, referenceExterne), db/schema/V9__reference_externe_unique.sql
+    private static final String CONTRAINTE_REFERENCE = "uk_factures_entreprise_reference";
+
+    private static final AtomicInteger COMPTEUR_THREADS = new AtomicInteger();
+
+    private final FactureDAO factureDAO;
+    private final ClientDAO clientDAO;
+    private final FournisseurDAO fournisseurDAO;
+    private final EntrepriseDAO entrepriseDAO;
+    private final ExerciceDAO exerciceDAO;
+    private final EcritureComptableDAO ecritureDAO;
+    private final CompteurNumerotationDAO compteurDAO;
+    private final EcritureComptableService ecritureService;
+
+    public ImportFacturesService() {
+        this.factureDAO = new FactureDAO();
+        this.clientDAO = new ClientDAO();
+        this.fournisseurDAO = new FournisseurDAO();
+        this.entrepriseDAO = new EntrepriseDAO();
+        this.exerciceDAO = new ExerciceDAO();
+        this.ecritureDAO = new EcritureComptableDAO();
+        this.compteurDAO = new CompteurNumerotationDAO();
+        this.ecritureService = new EcritureComptableService();
+    }
+
+    public record Rejet(int position, String reference, String motif) {
+    }
+
+    /**
+     * Bilan d'un import ; erreur est renseignée si un lot n'a pas pu être enregistré
+     * (l'import s'arrête alors et reprendra à ce lot)
+     */
+    public record RapportImport(int lues, int importees, int dejaImportees, int rejetees, List<Rejet> rejets,
+                                int reprisesApres, boolean interrompu, String erreur, Duration duree) {
+
+        public boolean complet() {
+            return !interrompu && erreur == null;
+        }
+    }
+
+    private record ResultatLot(int importees, int dejaImportees, List<Rejet> rejets) {
+    }
+
+    /**
+     * Importe un fichier CSV ou JSON de factures pour une entreprise.
+     *
+     * @param progression appelé depuis les travailleurs avec (factures traitées, factures lues)
+     * @param arret       consulté entre deux factures : vrai pour interrompre l'import
+     */
+    public RapportImport importer(Path fichier, Long entrepriseId, BiConsumer<Integer, Integer> progression,
+                                  BooleanSupplier arret) {
+        long debut = System.nanoTime();
+        Entreprise entreprise = entrepriseDAO.findById(entrepriseId)
+            .orElseThrow(() -> new RuntimeException("Entreprise introuvable: " + entrepriseId));
+        List<Exercice> exercices = exerciceDAO.findByEntreprise(entrepriseId);
+
+        PointReprise reprise = new PointReprise(fichier, entrepriseId);
+        int dejaTraitees = reprise.lire();
+        if (dejaTraitees > 0) {
+            logger.info("Reprise de l'import {} après {} factures", fichier.getFileName(), dejaTraitees);
+        }
+        Suivi suivi = new Suivi(reprise, dejaTraitees, progression);
+
+        ExecutorService travailleurs = Executors.newFixedThreadPool(NOMBRE_TRAVAILLEURS, runnable -> {
+            Thread thread = new Thread(runnable, "import-factures-" + COMPTEUR_THREADS.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Semaphore places = new Semaphore(LOTS_EN_COURS);
+        boolean interrompu = false;
+
+        try (LecteurFacturesImport lecteur = LecteurFacturesImport.ouvrir(fichier)) {
+            List<FactureImport> lot = new ArrayList<>(TAILLE_LOT);
+            FactureImport facture;
+            while ((facture = lecteur.suivante()) != null) {
+                if (arret.getAsBoolean() || suivi.enErreur()) {
+                    interrompu = true;
+                    break;
+                }
+                if (facture.position() <= dejaTraitees) {
+                    continue;
+                }
+                lot.add(facture);
+                if (lot.size() == TAILLE_LOT) {
+                    soumettre(lot, entreprise, exercices, suivi, travailleurs, places);
+                    lot = new ArrayList<>(TAILLE_LOT);
+                }
+            }
+            if (!interrompu && !lot.isEmpty()) {
+                soumettre(lot, entreprise, exercices, suivi, travailleurs, places);
+            }
+        } catch (IOException e) {
+            suivi.erreur("Lecture du fichier impossible: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            interrompu = true;
+        } finally {
+            travailleurs.shutdown();
+            try {
+                // Les lots en cours vont jusqu'au commit : le point de reprise reste exact
+                travailleurs.awaitTermination(1, TimeUnit.HOURS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        RapportImport rapport = suivi.rapport(interrompu, Duration.ofNanos(System.nanoTime() - debut));
+        if (rapport.complet()) {
+            reprise.supprimer();
+        }
+        if (rapport.importees() > 0) {
+            BalanceAgeeService.invaliderEntreprise(entrepriseId);
+        }
+        logger.info("Import {} terminé en {} s: {} lues, {} importées, {} déjà importées, {} rejetées{}",
+            fichier.getFileName(), rapport.duree().toSeconds(), rapport.lues(), rapport.importees(),
+            rapport.dejaImportees(), rapport.rejetees(),
+            rapport.erreur() != null ? " (erreur: " + rapport.erreur() + ")" : interrompu ? " (interrompu)" : "");
+        return rapport;
+    }
+
+    /**
+     * Confie un lot aux travailleurs ; bloque tant que LOTS_EN_COURS lots sont déjà en cours
+     */
+    private void soumettre(List<FactureImport> lot, Entreprise entreprise, List<Exercice> exercices, Suivi suivi,
+                           ExecutorService travailleurs, Semaphore places) throws InterruptedException {
+        places.acquire();
+        int numeroLot = suivi.nouveauLot(lot.size());
+        int dernierePosition = lot.get(lot.size() - 1).position();
+        travailleurs.execute(() -> {
+            try {
+                suivi.lotTermine(numeroLot, dernierePosition, traiterLot(lot, entreprise, exercices));
+            } catch (Exception e) {
+                logger.error("Échec de l'enregistrement du lot {} (factures {} à {})",
+                    numeroLot, lot.get(0).position(), dernierePosition, e);
+                suivi.erreur("Lot des factures " + lot.get(0).position() + " à " + dernierePosition
+                    + " non enregistré: " + e.getMessage());
+            } finally {
+                places.release();
+            }
+        });
+    }
+
+    /**
+     * Enregistre un lot. Si une de ses références a été importée entre la vérification et le commit
+     * (autre lot ou autre import en parallèle), la contrainte d'unicité fait échouer la transaction :
+     * le lot est alors repris une fois, et ces références comptent comme déjà importées.
+     */
+    private ResultatLot traiterLot(List<FactureImport> lot, Entreprise entreprise, List<Exercice> exercices) {
+        try {
+            return enregistrerLot(lot, entreprise, exercices);
+        } catch (RuntimeException e) {
+            if (!estDoublonReference(e)) {
+                throw e;
+            }
+            logger.info("Lot des factures {} à {} importé en parallèle, reprise", lot.get(0).position(),
+                lot.get(lot.size() - 1).position());
+            return enregistrerLot(lot, entreprise, exercices);
+        }
+    }
+
+    private static boolean estDoublonReference(Throwable erreur) {
+        for (Throwable cause = erreur; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation
+                && violation.getConstraintName() != null
+                && violation.getConstraintName().contains(CONTRAINTE_REFERENCE)) {
+                return true;
+            }
+            if (cause instanceof SQLIntegrityConstraintViolationException
+                && cause.getMessage() != null && cause.getMessage().contains(CONTRAINTE_REFERENCE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Valide un lot, puis numérote ses factures et ses écritures et enregistre le tout en une transaction.
+     * Chaque écriture est rattachée à l'exercice qui contient la date de sa facture.
+     */
+    private ResultatLot enregistrerLot(List<FactureImport> lot, Entreprise entreprise, List<Exercice> exercices) {
+        Long entrepriseId = entreprise.getId();
+
+        Set<String> references = lot.stream().map(FactureImport::reference).collect(Collectors.toSet());
+        Set<String> dejaImportees = new HashSet<>(factureDAO.findReferencesExternes(entrepriseId, references));
+
+        // Partenaires du lot, en une requête par type
+        Set<String> codesClients = new HashSet<>();
+        Set<String> codesFournisseurs = new HashSet<>();
+        for (FactureImport facture : lot) {
+            Facture.TypeFacture type = type(facture.type());
+            if (type != null && facture.partenaire() != null) {
+                (estVente(type) ? codesClients : codesFournisseurs).add(facture.partenaire());
+            }
+        }
+        Map<String, Client> clients = new HashMap<>();
+        clientDAO.findByCodesClient(codesClients, entrepriseId).forEach(c -> clients.put(c.getCodeClient(), c));
+        Map<String, Fournisseur> fournisseurs = new HashMap<>();
+        fournisseurDAO.findByCodesFournisseur(codesFournisseurs, entrepriseId)
+            .forEach(f -> fournisseurs.put(f.getCodeFournisseur(), f));
+
+        // Validation
+        List<Facture> factures = new ArrayList<>(lot.size());
+        List<Exercice> exercicesFactures = new ArrayList<>(lot.size());
+        List<Rejet> rejets = new ArrayList<>();
+        int ignorees = 0;
+        for (FactureImport source : lot) {
+            if (!dejaImportees.add(source.reference())) {
+                ignorees++;
+                continue;
+            }
+            try {
+                Facture facture = construireFacture(source, entreprise, clients, fournisseurs);
+                exercicesFactures.add(MoteurComptabilisation.exerciceOuvert(exercices, facture.getDateFacture()));
+                factures.add(facture);
+            } catch (IllegalArgumentException e) {
+                logger.warn("Facture {} (n°{}) rejetée: {}", source.reference(), source.position(), e.getMessage());
+                rejets.add(new Rejet(source.position(), source.reference(), e.getMessage()));
+            }
+        }
+        if (factures.isEmpty()) {
+            return new ResultatLot(0, ignorees, rejets);
+        }
+
+        // Factures et écritures numérotées dans la transaction qui les enregistre : un lot annulé
+        // rend ses numéros aux compteurs
+        ecritureService.postAll(session -> {
+            numeroterFactures(session, factures, entrepriseId);
+
+            // Écritures de vente et d'achat, numérotées par plage dans chaque journal
+            Map<Operation, Iterator<String>> numerosEcritures =
+                reserverNumerosEcritures(session, factures, entrepriseId);
+            List<EcritureComptable> ecritures = new ArrayList<>(factures.size());
+            for (int i = 0; i < factures.size(); i++) {
+                Facture facture = factures.get(i);
+                Operation operation = Operation.pour(facture, false);
+                ecritures.add(MoteurComptabilisation.comptabiliser(facture, operation, facture.getDateFacture(),
+                    exercicesFactures.get(i), numerosEcritures.get(operation).next()));
+            }
+
+            factures.forEach(session::persist);
+            return ecritures;
+        });
+        return new ResultatLot(factures.size(), ignorees, rejets);
+    }
+
+    /**
+     * Contrôle une facture lue et construit l'entité, émise (statut envoyée)
+     *
+     * @throws IllegalArgumentException avec le motif du rejet
+     */
+    private Facture construireFacture(FactureImport source, Entreprise entreprise,
+                                      Map<String, Client> clients, Map<String, Fournisseur> fournisseurs) {
+        if (source.reference() == null || source.reference().isBlank() || source.reference().length() > 50) {
+            throw new IllegalArgumentException("Référence absente ou trop longue");
+        }
+        Facture.TypeFacture type = type(source.type());
+        if (type == null) {
+            throw new IllegalArgumentException("Type de facture inconnu: " + source.type());
+        }
+
+        Facture facture = new Facture();
+        facture.setReferenceExterne(source.reference());
+        facture.setTypeFacture(type);
+        facture.setEntreprise(entreprise);
+        facture.setDateFacture(date(source.date(), "Date de facture"));
+        facture.setDateEcheance(estVide(source.echeance())
+            ? facture.getDateFacture().plusDays(DELAI_ECHEANCE_JOURS)
+            : date(source.echeance(), "Date d'échéance"));
+        facture.setObjet(source.objet());
+        if (!estVide(source.tauxTva())) {
+            facture.setTauxTVA(montant(source.tauxTva(), "Taux de TVA"));
+        }
+
+        if (estVente(type)) {
+            Client client = clients.get(source.partenaire());
+            if (client == null) {
+                throw new IllegalArgumentException("Client inconnu: " + source.partenaire());
+            }
+            facture.setClient(client);
+        } else {
+            Fournisseur fournisseur = fournisseurs.get(source.partenaire());
+            if (fournisseur == null) {
+                throw new IllegalArgumentException("Fournisseur inconnu: " + source.partenaire());
+            }
+            facture.setFournisseur(fournisseur);
+        }
+
+        if (source.lignes().isEmpty()) {
+            throw new IllegalArgumentException("Facture sans lignes");
+        }
+        for (LigneImport ligne : source.lignes()) {
+            if (estVide(ligne.designation())) {
+                throw new IllegalArgumentException("Ligne sans désignation");
+            }
+            BigDecimal quantite = montant(ligne.quantite(), "Quantité");
+            if (quantite.signum() <= 0) {
+                throw new IllegalArgumentException("Quantité négative ou nulle: " + ligne.quantite());
+            }
+            BigDecimal prixUnitaire = montant(ligne.prixUnitaire(), "Prix unitaire");
+            facture.ajouterLigne(new LigneFacture(ligne.designation(), quantite, prixUnitaire));
+        }
+
+        // Montants arrondis au centime avant comptabilisation : l'écriture reste équilibrée en base
+        BigDecimal montantHT = facture.getMontantHT().setScale(2, RoundingMode.HALF_UP);
+        BigDecimal montantTVA = facture.getMontantTVA().setScale(2, RoundingMode.HALF_UP);
+        if (montantHT.signum() <= 0) {
+            throw new IllegalArgumentException("Montant hors taxes négatif ou nul");
+        }
+        facture.setMontantHT(montantHT);
+        facture.setMontantTVA(montantTVA);
+        facture.setMontantTTC(montantHT.add(montantTVA));
+
+        facture.envoyer();
+        return facture;
+    }
+
+    private void numeroterFactures(Session session, List<Facture> factures, Long entrepriseId) {
+        // Deux séries : ventes (VTE) et achats ou avoirs (ACH), comme la saisie, chacune par année
+        // de facturation ; compteurs pris dans un ordre fixe
+        Map<Boolean, TreeMap<Integer, List<Facture>>> parSerie = factures.stream()
+            .collect(Collectors.partitioningBy(f -> f.getTypeFacture() == Facture.TypeFacture.VENTE,
+                Collectors.groupingBy(f -> f.getDateFacture().getYear(), TreeMap::new, Collectors.toList())));
+        for (Map.Entry<Boolean, TreeMap<Integer, List<Facture>>> serie : parSerie.entrySet()) {
+            Facture.TypeFacture type = serie.getKey() ? Facture.TypeFacture.VENTE : Facture.TypeFacture.ACHAT;
+            for (Map.Entry<Integer, List<Facture>> annee : serie.getValue().entrySet()) {
+                List<Facture> aNumeroter = annee.getValue();
+                List<String> numeros = factureDAO.reserverNumerosFacture(
+                    session, type, entrepriseId, annee.getKey(), aNumeroter.size());
+                for (int i = 0; i < aNumeroter.size(); i++) {
+                    aNumeroter.get(i).setNumeroFacture(numeros.get(i));
+                }
+            }
+        }
+    }
+
+    private Map<Operation, Iterator<String>> reserverNumerosEcritures(Session session, List<Facture> factures,
+                                                                      Long entrepriseId) {
+        Map<Operation, Integer> nombres = new EnumMap<>(Operation.class);
+        for (Facture facture : factures) {
+            nombres.merge(Operation.pour(facture, false), 1, Integer::sum);
+        }
+        Map<Operation, Iterator<String>> numeros = new EnumMap<>(Operation.class);
+        for (Map.Entry<Operation, Integer> nombre : nombres.entrySet()) {
+            String journal = nombre.getKey().getJournal();
+            // Même compteur que la génération unitaire (FactureService) : continu par journal
+            long premier = compteurDAO.reserverPlage(session, entrepriseId, journal, 0, nombre.getValue(),
+                () -> ecritureDAO.findDernierNumero(entrepriseId, journal));
+            List<String> plage = new ArrayList<>(nombre.getValue());
+            for (long numero = premier; numero < premier + nombre.getValue(); numero++) {
+                plage.add(journal + String.format("%06d", numero));
+            }
+            numeros.put(nombre.getKey(), plage.iterator());
+        }
+        return numeros;
+    }
+
+    private static Facture.TypeFacture type(String valeur) {
+        if (valeur == null) {
+            return null;
+        }
+        try {
+            return Facture.TypeFacture.valueOf(valeur.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static boolean estVente(Facture.TypeFacture type) {
+        return type == Facture.TypeFacture.VENTE || type == Facture.TypeFacture.AVOIR_VENTE;
+    }
+
+    private static boolean estVide(String valeur) {
+        return valeur == null || valeur.isBlank();
+    }
+
+    /**
+     * Date au format français (jj/mm/aaaa) ou ISO (aaaa-mm-jj)
+     */
+    private static LocalDate date(String valeur, String champ) {
+        if (estVide(valeur)) {
+            throw new IllegalArgumentException(champ + " absente");
+        }
+        try {
+            return valeur.contains("/") ? LocalDate.parse(valeur.trim(), FORMAT_DATE) : LocalDate.parse(valeur.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(champ + " invalide: " + valeur);
+        }
+    }
+
+    /**
+     * Nombre avec virgule ou point décimal ; espaces de milliers tolérés
+     */
+    private static BigDecimal montant(String valeur, String champ) {
+        if (estVide(valeur)) {
+            throw new IllegalArgumentException(champ + " absent");
+        }
+        try {
+            return new BigDecimal(valeur.replaceAll("[\\s\\u00A0\\u202F]", "").replace(',', '.'));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(champ + " invalide: " + valeur);
+        }
+    }
+
+    /**
+     * Avancement partagé entre les travailleurs : compteurs, rejets et point de reprise.
+     *
+     * Les lots se terminent dans le désordre ; le point de reprise n'avance que sur la suite
+     * continue des lots terminés depuis le début.
+     */
+    private static final class Suivi {
+
+        private final PointReprise reprise;
+        private final int reprisesApres;
+        private final BiConsumer<Integer, Integer> progression;
+        private final TreeMap<Integer, Integer> lotsTermines = new TreeMap<>();
+        private final List<Rejet> rejets = new ArrayList<>();
+
+        private int prochainLot;
+        private int lotAttendu;
+        private int lues;
+        private int traitees;
+        private int importees;
+        private int dejaImportees;
+        private int rejetees;
+        private volatile String erreur;
+
+        Suivi(PointReprise reprise, int reprisesApres, BiConsumer<Integer, Integer> progression) {
+            this.reprise = reprise;
+            this.reprisesApres = reprisesApres;
+            this.progression = progression;
+        }
+
+        synchronized int nouveauLot(int taille) {
+            lues += taille;
+            return prochainLot++;
+        }
+
+        void lotTermine(int numeroLot, int dernierePosition, ResultatLot resultat) {
+            int faites;
+            int luesAlors;
+            synchronized (this) {
+                importees += resultat.importees();
+                dejaImportees += resultat.dejaImportees();
+                rejetees += resultat.rejets().size();
+                for (Rejet rejet : resultat.rejets()) {
+                    if (rejets.size() < MAX_REJETS_DETAILLES) {
+                        rejets.add(rejet);
+                    }
+                }
+                traitees += resultat.importees() + resultat.dejaImportees() + resultat.rejets().size();
+
+                lotsTermines.put(numeroLot, dernierePosition);
+                Integer position = null;
+                while (lotsTermines.containsKey(lotAttendu)) {
+                    position = lotsTermines.remove(lotAttendu++);
+                }
+                if (position != null) {
+                    reprise.enregistrer(position);
+                }
+                faites = traitees;
+                luesAlors = lues;
+            }
+            progression.accept(faites, luesAlors);
+        }
+
+        boolean enErreur() {
+            return erreur != null;
+        }
+
+        void erreur(String message) {
+            if (erreur == null) {
+                erreur = message;
+            }
+        }
+
+        synchronized RapportImport rapport(boolean interrompu, Duration duree) {
+            return new RapportImport(lues, importees, dejaImportees, rejetees, List.copyOf(rejets),
+                reprisesApres, interrompu, erreur, duree);
+        }
+    }
+
+    /**
+     * Nombre de factures du fichier entièrement traitées, conservé à côté du fichier importé
+     */
+    private static final class PointReprise {
+
+        private final Path chemin;
+        private final Long entrepriseId;
+
+        PointReprise(Path fichier, Long entrepriseId) {
+            this.chemin = fichier.resolveSibling(fichier.getFileName() + ".reprise");
+            this.entrepriseId = entrepriseId;
+        }
+
+        int lire() {
+            if (!Files.exists(chemin)) {
+                return 0;
+            }
+            Properties proprietes = new Properties();
+            try (Reader reader = Files.newBufferedReader(chemin, StandardCharsets.UTF_8)) {
+                proprietes.load(reader);
+                if (!String.valueOf(entrepriseId).equals(proprietes.getProperty("entreprise"))) {
+                    logger.warn("Point de reprise {} établi pour une autre entreprise, ignoré", chemin);
+                    return 0;
+                }
+                return Integer.parseInt(proprietes.getProperty("factures", "0"));
+            } catch (IOException | NumberFormatException e) {
+                logger.warn("Point de reprise {} illisible, import depuis le début", chemin, e);
+                return 0;
+            }
+        }
+
+        void enregistrer(int factures) {
+            Properties proprietes = new Properties();
+            proprietes.setProperty("entreprise", String.valueOf(entrepriseId));
+            proprietes.setProperty("factures", String.valueOf(factures));
+            Path temporaire = chemin.resolveSibling(chemin.getFileName() + ".tmp");
+            try {
+                try (Writer writer = Files.newBufferedWriter(temporaire, StandardCharsets.UTF_8)) {
+                    proprietes.store(writer, "Import de factures : factures entièrement traitées");
+                }
+                Files.move(temporaire, chemin, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // Sans point de reprise, une reprise relit plus de factures mais ignore celles déjà importées
+                logger.warn("Impossible d'enregistrer le point de reprise {}", chemin, e);
+            }
+        }
+
+        void supprimer() {
+            try {
+                Files.deleteIfExists(chemin);
+            } catch (IOException e) {
+                logger.warn("Impossible de supprimer le point de reprise {}", chemin, e);
+            }
+        }
+    }
+}
@@ -1,16 +1,19 @@
 package com.comptabilite.service;
 
+import com.comptabilite.dao.EcritureComptableDAO;
 import com.comptabilite.dao.UtilisateurDAO;
 import com.comptabilite.dao.EntrepriseDAO;
 import com.comptabilite.dao.ExerciceDAO;
+import com.comptabilite.dao.RechercheTexte;
 import com.comptabilite.model.Utilisateur;
 import com.comptabilite.model.Entreprise;
 import com.comptabilite.model.Exercice;
+import com.comptabilite.util.ChronologieDemarrage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDate;
-import java.util.List;
+import java.util.Optional;
 
 public class InitializationService {
 
@@ -18,33 +21,37 @@ public class InitializationService {
     private final UtilisateurDAO utilisateurDAO;
     private final EntrepriseDAO entrepriseDAO;
     private final ExerciceDAO exerciceDAO;
+    private final EcritureComptableDAO ecritureDAO;
 
     public InitializationService() {
         this.utilisateurDAO = new UtilisateurDAO();
         this.entrepriseDAO = new EntrepriseDAO();
         this.exerciceDAO = new ExerciceDAO();
+        this.ecritureDAO = new EcritureComptableDAO();
     }
 
     public void initializeApplication() {
         logger.info("Initialisation de l'application...");
 
         try {
-            // Vérifier s'il existe déjà des utilisateurs
-            List<Utilisateur> utilisateurs = utilisateurDAO.findAll();
-
-            if (utilisateurs.isEmpty()) {
-                logger.info("Aucun utilisateur trouvé, création de l'utilisateur administrateur par défaut");
-                createDefaultAdminUser();
-            } else {
-                logger.info("Utilisateurs existants trouvés: {}", utilisateurs.size());
-            }
-
-            // Vérifier les exercices
-            List<Exercice> exercices = exerciceDAO.findAll();
-            if (exercices.isEmpty()) {
-                logger.info("Création de l'exercice par défaut");
-                createDefaultExercice();
-            }
+            // Les identifiants alloués par blocs doivent démarrer après les ids existants
+            ChronologieDemarrage.mesurerAction("Alignement des générateurs d'identifiants",
+                ecritureDAO::alignerGenerateursIdentifiants);
+
+            // Index FULLTEXT utilisés par les recherches (créés par les migrations du schéma)
+            ChronologieDemarrage.mesurerAction("Index de recherche", RechercheTexte::verifierIndex);
+
+            // Simples tests d'existence : les tables ne sont ni chargées ni comptées
+            ChronologieDemarrage.mesurerAction("Données par défaut", () -> {
+                if (!utilisateurDAO.existsAny()) {
+                    logger.info("Aucun utilisateur trouvé, création de l'utilisateur administrateur par défaut");
+                    createDefaultAdminUser();
+                }
+                if (!exerciceDAO.existsAny()) {
+                    logger.info("Création de l'exercice par défaut");
+                    createDefaultExercice();
+                }
+            });
 
         } catch (Exception e) {
             logger.error("Erreur lors de l'initialisation", e);
@@ -53,13 +60,8 @@ public class InitializationService {
 
     private void createDefaultAdminUser() {
         try {
-            // Récupérer la première entreprise
-            List<Entreprise> entreprises = entrepriseDAO.findAll();
-            Entreprise entreprise = null;
-
-            if (!entreprises.isEmpty()) {
-                entreprise = entreprises.get(0);
-            }
+            // Rattacher l'administrateur à la première entreprise, s'il y en a une
+            Entreprise entreprise = entrepriseDAO.findFirst().orElse(null);
 
             // Créer l'utilisateur administrateur
             Utilisateur admin = new Utilisateur();
@@ -82,9 +84,9 @@ public class InitializationService {
 
     private void createDefaultExercice() {
         try {
-            List<Entreprise> entreprises = entrepriseDAO.findAll();
-            if (!entreprises.isEmpty()) {
-                Entreprise entreprise = entreprises.get(0);
+            Optional<Entreprise> premiere = entrepriseDAO.findFirst();
+            if (premiere.isPresent()) {
+                Entreprise entreprise = premiere.get();
 
                 Exercice exercice = new Exercice();
                 exercice.setLibelle("Exercice " + LocalDate.now().getYear());
@@ -0,0 +1,206 @@
+package com.comptabilite.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Lecture en flux d'un fichier de factures exporté par le logiciel de facturation.
+ *
+ * CSV : format Excel français (UTF-8, BOM toléré, séparateur « ; », virgule décimale), une ligne
+ * du fichier par ligne de facture, les lignes consécutives de même référence formant une facture.
+ * Colonnes, repérées par l'en-tête : reference;type;date;echeance;partenaire;objet;taux_tva;
+ * designation;quantite;prix_unitaire
+ *
+ * JSON : tableau de factures {reference, type, date, echeance, partenaire, objet, tauxTva,
+ * lignes: [{designation, quantite, prixUnitaire}]}.
+ *
+ * Les valeurs restent des chaînes : leur contrôle revient à l'étape de validation, qui rejette
+ * la facture fautive sans interrompre l'import.
+ */
+public abstract class LecteurFacturesImport implements Closeable {
+
+    /**
+     * Facture lue, telle qu'elle figure dans le fichier
+     *
+     * @param position rang de la facture dans le fichier, à partir de 1
+     */
+    public record FactureImport(int position, String reference, String type, String date, String echeance,
+                                String partenaire, String objet, String tauxTva, List<LigneImport> lignes) {
+    }
+
+    public record LigneImport(String designation, String quantite, String prixUnitaire) {
+    }
+
+    /**
+     * Ouvre le lecteur adapté à l'extension du fichier (.json, sinon CSV)
+     */
+    public static LecteurFacturesImport ouvrir(Path fichier) throws IOException {
+        String nom = fichier.getFileName().toString().toLowerCase(Locale.ROOT);
+        return nom.endsWith(".json") ? new Json(fichier) : new Csv(fichier);
+    }
+
+    /**
+     * Facture suivante, null à la fin du fichier
+     */
+    public abstract FactureImport suivante() throws IOException;
+
+    private static final class Csv extends LecteurFacturesImport {
+
+        private static final char SEPARATEUR = ';';
+        private static final String[] COLONNES = {"reference", "type", "date", "echeance", "partenaire",
+            "objet", "taux_tva", "designation", "quantite", "prix_unitaire"};
+
+        private final BufferedReader reader;
+        private final int[] index = new int[COLONNES.length];
+        private String[] enAttente;
+        private int position;
+        private int numeroLigne = 1;
+
+        Csv(Path fichier) throws IOException {
+            this.reader = Files.newBufferedReader(fichier, StandardCharsets.UTF_8);
+            String entete = reader.readLine();
+            if (entete == null) {
+                throw new IOException("Fichier vide: " + fichier);
+            }
+            if (!entete.isEmpty() && entete.charAt(0) == '\uFEFF') {
+                entete = entete.substring(1);
+            }
+
+            Map<String, Integer> parNom = new HashMap<>();
+            List<String> noms = decouper(entete);
+            for (int i = 0; i < noms.size(); i++) {
+                parNom.put(noms.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+            for (int i = 0; i < COLONNES.length; i++) {
+                Integer colonne = parNom.get(COLONNES[i]);
+                if (colonne == null) {
+                    reader.close();
+                    throw new IOException("Colonne absente de l'en-tête: " + COLONNES[i]);
+                }
+                index[i] = colonne;
+            }
+            enAttente = lireLigne();
+        }
+
+        @Override
+        public FactureImport suivante() throws IOException {
+            if (enAttente == null) {
+                return null;
+            }
+            String[] entete = enAttente;
+            List<LigneImport> lignes = new ArrayList<>();
+            String[] ligne = enAttente;
+            // Lignes consécutives de même référence
+            while (ligne != null && ligne[0].equals(entete[0])) {
+                lignes.add(new LigneImport(ligne[7], ligne[8], ligne[9]));
+                ligne = lireLigne();
+            }
+            enAttente = ligne;
+            return new FactureImport(++position, entete[0], entete[1], entete[2], entete[3], entete[4],
+                entete[5], entete[6], lignes);
+        }
+
+        /**
+         * Valeurs de la ligne suivante dans l'ordre de COLONNES (lignes vides ignorées), null à la fin
+         */
+        private String[] lireLigne() throws IOException {
+            String ligne;
+            do {
+                ligne = reader.readLine();
+                numeroLigne++;
+            } while (ligne != null && ligne.isBlank());
+            if (ligne == null) {
+                return null;
+            }
+            List<String> valeurs = decouper(ligne);
+            String[] resultat = new String[COLONNES.length];
+            for (int i = 0; i < COLONNES.length; i++) {
+                resultat[i] = index[i] < valeurs.size() ? valeurs.get(index[i]).trim() : "";
+            }
+            if (resultat[0].isEmpty()) {
+                throw new IOException("Référence de facture absente ligne " + numeroLigne);
+            }
+            return resultat;
+        }
+
+        private static List<String> decouper(String ligne) {
+            List<String> valeurs = new ArrayList<>();
+            StringBuilder valeur = new StringBuilder();
+            boolean entreGuillemets = false;
+            for (int i = 0; i < ligne.length(); i++) {
+                char c = ligne.charAt(i);
+                if (entreGuillemets) {
+                    if (c == '"' && i + 1 < ligne.length() && ligne.charAt(i + 1) == '"') {
+                        valeur.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        entreGuillemets = false;
+                    } else {
+                        valeur.append(c);
+                    }
+                } else if (c == '"') {
+                    entreGuillemets = true;
+                } else if (c == SEPARATEUR) {
+                    valeurs.add(valeur.toString());
+                    valeur.setLength(0);
+                } else {
+                    valeur.append(c);
+                }
+            }
+            valeurs.add(valeur.toString());
+            return valeurs;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private static final class Json extends LecteurFacturesImport {
+
+        private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+        private final MappingIterator<FactureJson> iterateur;
+        private int position;
+
+        Json(Path fichier) throws IOException {
+            // Un tableau racine est parcouru élément par élément, sans être chargé en entier
+            this.iterateur = MAPPER.readerFor(FactureJson.class).readValues(fichier.toFile());
+        }
+
+        @Override
+        public FactureImport suivante() throws IOException {
+            if (!iterateur.hasNextValue()) {
+                return null;
+            }
+            FactureJson facture = iterateur.nextValue();
+            return new FactureImport(++position, facture.reference(), facture.type(), facture.date(),
+                facture.echeance(), facture.partenaire(), facture.objet(), facture.tauxTva(),
+                facture.lignes() != null ? facture.lignes() : List.of());
+        }
+
+        @Override
+        public void close() throws IOException {
+            iterateur.close();
+        }
+
+        private record FactureJson(String reference, String type, String date, String echeance,
+                                   String partenaire, String objet, String tauxTva, List<LigneImport> lignes) {
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.comptabilite.service;
+
+import com.comptabilite.dao.CompteDAO;
+import com.comptabilite.dao.CompteurNumerotationDAO;
+import com.comptabilite.dao.LigneEcritureDAO;
+import com.comptabilite.dao.LigneEcritureDAO.LigneOuverte;
+import com.comptabilite.model.Compte;
+import com.comptabilite.service.MoteurLettrage.Groupe;
+import com.comptabilite.service.MoteurLettrage.Ligne;
+import com.comptabilite.service.MoteurLettrage.Methode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lettrage des comptes de tiers (clients 411, fournisseurs 401...) : les lignes qui se soldent
+ * reçoivent un même code, les lignes sans code restent les pièces ouvertes du compte.
+ *
+ * Le lettrage automatique charge en une requête les lignes ouvertes du compte, les rapproche en
+ * mémoire (MoteurLettrage) et enregistre tous les codes en une transaction.
+ *
+ * Les codes viennent d'un compteur par compte (compteurs_numerotation, ligne verrouillée le temps
+ * de la réservation) : deux lettrages simultanés du même compte reçoivent des codes distincts.
+ */
+public class LettrageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LettrageService.class);
+
+    // Compteur des codes de lettrage d'un compte : journal LET-<id du compte>, sans année
+    private static final String PREFIXE_COMPTEUR = "LET-";
+
+    private final CompteDAO compteDAO;
+    private final LigneEcritureDAO ligneEcritureDAO;
+    private final CompteurNumerotationDAO compteurDAO;
+
+    public LettrageService() {
+        this.compteDAO = new CompteDAO();
+        this.ligneEcritureDAO = new LigneEcritureDAO();
+        this.compteurDAO = new CompteurNumerotationDAO();
+    }
+
+    /**
+     * Bilan d'un lettrage automatique
+     *
+     * @param parMethode nombre de groupes lettrés par chaque passe
+     */
+    public record RapportLettrage(int lignesOuvertes, int lignesLettrees, int groupes,
+                                  Map<Methode, Integer> parMethode, BigDecimal totalEcarts, long duree) {
+
+        public int lignesRestantes() {
+            return lignesOuvertes - lignesLettrees;
+        }
+    }
+
+    /**
+     * Lettre automatiquement les lignes ouvertes d'un compte lettrable
+     *
+     * @param tolerance écart admis sur le total d'un groupe, zéro pour un lettrage exact
+     */
+    public RapportLettrage lettrerAutomatiquement(Long compteId, BigDecimal tolerance) {
+        long debut = System.currentTimeMillis();
+        Compte compte = compteLettrable(compteId);
+
+        List<LigneOuverte> ouvertes = ligneEcritureDAO.findLignesNonLettrees(compteId);
+        List<Ligne> lignes = new ArrayList<>(ouvertes.size());
+        for (LigneOuverte ligne : ouvertes) {
+            lignes.add(new Ligne(ligne.ligneId(), ligne.dateEcriture(), ligne.referencePiece(),
+                ligne.montantDebit().subtract(ligne.montantCredit())));
+        }
+        List<Groupe> groupes = MoteurLettrage.rapprocher(lignes, tolerance);
+
+        Map<String, List<Long>> parCode = new LinkedHashMap<>();
+        Map<Methode, Integer> parMethode = new EnumMap<>(Methode.class);
+        BigDecimal totalEcarts = BigDecimal.ZERO;
+        long rang = groupes.isEmpty() ? 0 : reserverCodes(compte, groupes.size());
+        for (Groupe groupe : groupes) {
+            parCode.put(MoteurLettrage.code(rang++), groupe.lignes());
+            parMethode.merge(groupe.methode(), 1, Integer::sum);
+            totalEcarts = totalEcarts.add(groupe.ecart());
+        }
+        int lettrees = parCode.isEmpty() ? 0 : ligneEcritureDAO.lettrer(compteId, parCode, LocalDate.now());
+
+        RapportLettrage rapport = new RapportLettrage(lignes.size(), lettrees, groupes.size(), parMethode,
+            totalEcarts, System.currentTimeMillis() - debut);
+        logger.info("Lettrage automatique du compte {} : {} lignes lettrées sur {} en {} groupes {} en {} ms",
+            compteId, lettrees, lignes.size(), groupes.size(), parMethode, rapport.duree());
+        return rapport;
+    }
+
+    /**
+     * Lettre manuellement des lignes ouvertes du compte, dont le total doit être nul
+     *
+     * @return code attribué
+     */
+    public String lettrer(Long compteId, List<LigneOuverte> lignes) {
+        Compte compte = compteLettrable(compteId);
+        BigDecimal total = BigDecimal.ZERO;
+        List<Long> ids = new ArrayList<>(lignes.size());
+        for (LigneOuverte ligne : lignes) {
+            total = total.add(ligne.montantDebit()).subtract(ligne.montantCredit());
+            ids.add(ligne.ligneId());
+        }
+        if (ids.size() < 2 || total.signum() != 0) {
+            throw new IllegalArgumentException("Les lignes à lettrer doivent se solder (écart " + total + ")");
+        }
+        String code = MoteurLettrage.code(reserverCodes(compte, 1));
+        ligneEcritureDAO.lettrer(compteId, Map.of(code, ids), LocalDate.now());
+        logger.info("Lettrage manuel {} du compte {} : {} lignes", code, compteId, ids.size());
+        return code;
+    }
+
+    public int delettrer(Long compteId, String codeLettrage) {
+        int lignes = ligneEcritureDAO.delettrer(compteId, codeLettrage);
+        logger.info("Lettrage {} du compte {} annulé : {} lignes rouvertes", codeLettrage, compteId, lignes);
+        return lignes;
+    }
+
+    public List<LigneOuverte> getLignesOuvertes(Long compteId) {
+        return ligneEcritureDAO.findLignesNonLettrees(compteId);
+    }
+
+    /**
+     * Réserve des codes consécutifs sur le compteur du compte, amorcé sur le dernier code attribué
+     *
+     * @return rang du premier code réservé
+     */
+    private long reserverCodes(Compte compte, int nombre) {
+        return compteurDAO.reserverPlage(compte.getEntreprise().getId(), PREFIXE_COMPTEUR + compte.getId(), 0, nombre,
+            () -> MoteurLettrage.rang(ligneEcritureDAO.dernierCodeLettrage(compte.getId())));
+    }
+
+    private Compte compteLettrable(Long compteId) {
+        Compte compte = compteDAO.findById(compteId)
+            .orElseThrow(() -> new IllegalArgumentException("Compte non trouvé: " + compteId));
+        if (!compte.isLettrable()) {
+            throw new IllegalArgumentException("Le compte " + compte.getNumeroCompte() + " n'est pas lettrable");
+        }
+        return compte;
+    }
+}
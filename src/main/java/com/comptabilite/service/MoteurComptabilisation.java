@@ -0,0 +1,198 @@
+package com.comptabilite.service;
+
+import com.comptabilite.dao.CompteDAO;
+import com.comptabilite.dao.EntrepriseDAO;
+import com.comptabilite.model.Compte;
+import com.comptabilite.model.EcritureComptable;
+import com.comptabilite.model.Entreprise;
+import com.comptabilite.model.Exercice;
+import com.comptabilite.model.Facture;
+import com.comptabilite.model.LigneEcriture;
+import com.comptabilite.service.ReglesComptabilisation.Operation;
+import com.comptabilite.service.ReglesComptabilisation.Poste;
+import com.comptabilite.service.ReglesComptabilisation.Referentiel;
+import com.comptabilite.service.ReglesComptabilisation.RegleLigne;
+import com.comptabilite.service.ReglesComptabilisation.Sens;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Règles de comptabilisation compilées pour une entreprise.
+ *
+ * À la compilation, les comptes candidats de tous les postes du référentiel sont chargés en une
+ * seule requête et le compte retenu pour chaque poste est gardé dans une table indexée par poste.
+ * Les écritures des factures sont ensuite construites en mémoire, sans aucune lecture du plan comptable.
+ */
+public final class MoteurComptabilisation {
+
+    private static final Logger logger = LoggerFactory.getLogger(MoteurComptabilisation.class);
+
+    private static final DateTimeFormatter FORMAT_DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    // Une table de comptes par entreprise, compilée à la première facture comptabilisée
+    private static final Map<Long, MoteurComptabilisation> CACHE = new ConcurrentHashMap<>();
+
+    private final Referentiel referentiel;
+    private final Map<Poste, Compte> comptes;
+
+    private MoteurComptabilisation(Referentiel referentiel, Map<Poste, Compte> comptes) {
+        this.referentiel = referentiel;
+        this.comptes = comptes;
+    }
+
+    /**
+     * Résout les postes du référentiel sur une liste de comptes déjà chargée
+     */
+    static MoteurComptabilisation compiler(Referentiel referentiel, List<Compte> plan) {
+        Map<String, Compte> parNumero = new HashMap<>();
+        for (Compte compte : plan) {
+            parNumero.put(compte.getNumeroCompte(), compte);
+        }
+        Map<Poste, Compte> comptes = new EnumMap<>(Poste.class);
+        for (Map.Entry<Poste, List<String>> poste : ReglesComptabilisation.comptes(referentiel).entrySet()) {
+            for (String numero : poste.getValue()) {
+                Compte compte = parNumero.get(numero);
+                if (compte != null) {
+                    comptes.put(poste.getKey(), compte);
+                    break;
+                }
+            }
+        }
+        return new MoteurComptabilisation(referentiel, comptes);
+    }
+
+    /**
+     * Retourne les règles compilées de l'entreprise, compilées au premier appel
+     */
+    public static MoteurComptabilisation pour(Long entrepriseId) {
+        return CACHE.computeIfAbsent(entrepriseId, MoteurComptabilisation::charger);
+    }
+
+    /**
+     * Invalide les règles compilées d'une entreprise (création, renumérotation ou suppression de comptes)
+     */
+    public static void invalider(Long entrepriseId) {
+        CACHE.remove(entrepriseId);
+    }
+
+    private static MoteurComptabilisation charger(Long entrepriseId) {
+        Entreprise entreprise = new EntrepriseDAO().findById(entrepriseId)
+            .orElseThrow(() -> new RuntimeException("Entreprise introuvable: " + entrepriseId));
+        Referentiel referentiel = Referentiel.pour(entreprise.getPays());
+
+        Set<String> numeros = new LinkedHashSet<>();
+        ReglesComptabilisation.comptes(referentiel).values().forEach(numeros::addAll);
+        MoteurComptabilisation moteur = compiler(referentiel,
+            new CompteDAO().findByNumerosAndEntreprise(numeros, entrepriseId));
+
+        logger.info("Règles de comptabilisation compilées pour l'entreprise {} ({}): {} postes sur {} résolus",
+            entrepriseId, referentiel, moteur.comptes.size(), Poste.values().length);
+        return moteur;
+    }
+
+    /**
+     * Construit l'écriture validée d'une facture, en mémoire.
+     *
+     * Si un compte requis manque, les règles sont recompilées une fois (le compte a pu être créé
+     * depuis la compilation) avant de signaler l'erreur.
+     */
+    public static EcritureComptable comptabiliser(Facture facture, Operation operation, LocalDate date,
+                                                  Exercice exercice, String numeroEcriture) {
+        Long entrepriseId = facture.getEntreprise().getId();
+        MoteurComptabilisation moteur = pour(entrepriseId);
+        if (moteur.posteManquant(operation, facture) != null) {
+            invalider(entrepriseId);
+            moteur = pour(entrepriseId);
+        }
+        return moteur.construireEcriture(facture, operation, date, exercice, numeroEcriture);
+    }
+
+    /**
+     * Exercice ouvert qui contient la date d'une pièce : l'écriture d'une facture ou d'un
+     * règlement est rattachée à l'exercice de sa date, jamais au dernier exercice ouvert
+     *
+     * @throws IllegalArgumentException si aucun exercice ne la contient ou s'il est clôturé
+     */
+    static Exercice exerciceOuvert(List<Exercice> exercices, LocalDate date) {
+        for (Exercice exercice : exercices) {
+            if (!date.isBefore(exercice.getDateDebut()) && !date.isAfter(exercice.getDateFin())) {
+                if (exercice.getStatut() != Exercice.StatutExercice.OUVERT) {
+                    throw new IllegalArgumentException("Exercice " + exercice.getLibelle() + " clôturé");
+                }
+                return exercice;
+            }
+        }
+        throw new IllegalArgumentException("Aucun exercice ne couvre le " + date.format(FORMAT_DATE));
+    }
+
+    /**
+     * Premier poste requis par l'opération (montant non nul) sans compte résolu, null si aucun
+     */
+    Poste posteManquant(Operation operation, Facture facture) {
+        for (RegleLigne regle : operation.getLignes()) {
+            if (regle.assiette().montant(facture).signum() != 0 && !comptes.containsKey(regle.poste())) {
+                return regle.poste();
+            }
+        }
+        return null;
+    }
+
+    EcritureComptable construireEcriture(Facture facture, Operation operation, LocalDate date,
+                                         Exercice exercice, String numeroEcriture) {
+        Poste manquant = posteManquant(operation, facture);
+        if (manquant != null) {
+            throw new RuntimeException("Compte " + manquant.getLibelle() + " introuvable ("
+                + String.join(", ", ReglesComptabilisation.comptes(referentiel).get(manquant)) + ")");
+        }
+
+        EcritureComptable ecriture = new EcritureComptable();
+        ecriture.setDateEcriture(date);
+        ecriture.setNumeroJournal(operation.getJournal());
+        ecriture.setNumeroEcriture(numeroEcriture);
+        ecriture.setLibelle(operation.libelle(facture));
+        ecriture.setReferencePiece(facture.getNumeroFacture());
+        ecriture.setEntreprise(facture.getEntreprise());
+        ecriture.setExercice(exercice);
+        ecriture.setUtilisateur(AuthenticationService.getInstance().getUtilisateurConnecte());
+        ecriture.setStatut(EcritureComptable.StatutEcriture.VALIDEE);
+        ecriture.setDateValidation(LocalDateTime.now());
+
+        for (RegleLigne regle : operation.getLignes()) {
+            BigDecimal montant = regle.assiette().montant(facture);
+            if (montant.signum() == 0) {
+                continue;
+            }
+            LigneEcriture ligne = new LigneEcriture();
+            ligne.setCompte(comptes.get(regle.poste()));
+            ligne.setLibelle(regle.libelle().apply(facture));
+            ligne.setMontantDebit(regle.sens() == Sens.DEBIT ? montant : BigDecimal.ZERO);
+            ligne.setMontantCredit(regle.sens() == Sens.CREDIT ? montant : BigDecimal.ZERO);
+            ligne.setEcritureComptable(ecriture);
+            ecriture.getLignes().add(ligne);
+        }
+        return ecriture;
+    }
+
+    public Referentiel getReferentiel() {
+        return referentiel;
+    }
+
+    /**
+     * Compte retenu pour un poste, null si aucun compte candidat n'existe dans le plan
+     */
+    public Compte getCompte(Poste poste) {
+        return comptes.get(poste);
+    }
+}
@@ -0,0 +1,355 @@
+package com.comptabilite.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Rapprochement automatique des lignes ouvertes d'un compte lettrable : débits contre crédits.
+ *
+ * Quatre passes, chacune sur les lignes laissées ouvertes par la précédente :
+ * 1. pièce : lignes de même référence de pièce dont le total s'annule ;
+ * 2. montant : un débit et un crédit de même montant, le plus ancien d'abord ;
+ * 3. combinaison : une ligne soldée par deux ou trois lignes de sens opposé, cherchées parmi
+ *    les lignes ouvertes les plus proches en date ;
+ * 4. FIFO : suites de lignes consécutives (par date) dont le cumul s'annule.
+ *
+ * Les montants sont comparés en centimes. Les recherches par montant passent par des tables de
+ * hachage : seaux de largeur tolérance + 1, si bien qu'un montant proche d'une cible à la tolérance
+ * près est dans le seau de la cible ou dans un seau voisin. Le coût reste linéaire en nombre de
+ * lignes (borné par la fenêtre pour les combinaisons), sans comparer chaque débit à chaque crédit.
+ */
+public final class MoteurLettrage {
+
+    // Lignes candidates examinées autour de chaque ligne à solder, pour les paires puis les triplets
+    static final int FENETRE_PAIRES = 100;
+    static final int FENETRE_TRIPLETS = 20;
+
+    // Codes de lettrage : quatre lettres au moins, dix au plus (taille de la colonne)
+    static final int LONGUEUR_CODE = 4;
+    static final int LONGUEUR_CODE_MAX = 10;
+
+    public enum Methode {
+        REFERENCE, MONTANT, COMBINAISON, FIFO
+    }
+
+    /**
+     * Ligne ouverte du compte
+     *
+     * @param montant débit moins crédit
+     */
+    public record Ligne(Long id, LocalDate date, String reference, BigDecimal montant) {
+    }
+
+    /**
+     * Lignes à lettrer ensemble
+     *
+     * @param ecart total des lignes, non nul seulement dans la limite de la tolérance
+     */
+    public record Groupe(Methode methode, List<Long> lignes, BigDecimal ecart) {
+    }
+
+    private static final class Element {
+        final Long id;
+        final LocalDate date;
+        final String reference;
+        final long montant;
+        boolean lettre;
+
+        Element(Ligne ligne) {
+            this.id = ligne.id();
+            this.date = ligne.date();
+            this.reference = ligne.reference() == null || ligne.reference().isBlank()
+                ? null : ligne.reference().strip().toUpperCase(Locale.ROOT);
+            this.montant = ligne.montant().movePointRight(2).longValueExact();
+        }
+    }
+
+    private final long tolerance;
+    private final long largeurSeau;
+    private final List<Groupe> groupes = new ArrayList<>();
+
+    private MoteurLettrage(BigDecimal tolerance) {
+        this.tolerance = tolerance.movePointRight(2).longValue();
+        if (this.tolerance < 0) {
+            throw new IllegalArgumentException("Tolérance négative: " + tolerance);
+        }
+        this.largeurSeau = this.tolerance + 1;
+    }
+
+    /**
+     * Rapproche les lignes ouvertes d'un compte
+     *
+     * @param tolerance écart admis sur le total d'un groupe (passes combinaison et FIFO) ; zéro pour un lettrage exact
+     */
+    public static List<Groupe> rapprocher(List<Ligne> lignes, BigDecimal tolerance) {
+        List<Element> elements = new ArrayList<>(lignes.size());
+        for (Ligne ligne : lignes) {
+            if (ligne.montant().signum() != 0) {
+                elements.add(new Element(ligne));
+            }
+        }
+        elements.sort(Comparator.comparing((Element e) -> e.date).thenComparing(e -> e.id));
+
+        MoteurLettrage moteur = new MoteurLettrage(tolerance);
+        moteur.parReference(elements);
+        moteur.parMontant(elements);
+        moteur.parCombinaison(ouverts(elements, 1), ouverts(elements, -1));
+        moteur.parCombinaison(ouverts(elements, -1), ouverts(elements, 1));
+        moteur.parCumul(ouverts(elements, 0));
+        return moteur.groupes;
+    }
+
+    private void parReference(List<Element> elements) {
+        Map<String, List<Element>> parReference = new LinkedHashMap<>();
+        for (Element element : elements) {
+            if (element.reference != null) {
+                parReference.computeIfAbsent(element.reference, r -> new ArrayList<>()).add(element);
+            }
+        }
+        for (List<Element> piece : parReference.values()) {
+            if (piece.size() > 1 && somme(piece) == 0 && deuxSens(piece)) {
+                lettrer(Methode.REFERENCE, piece);
+            }
+        }
+    }
+
+    private void parMontant(List<Element> elements) {
+        // Débits ouverts par montant, du plus ancien au plus récent
+        Map<Long, ArrayDeque<Element>> debits = new HashMap<>();
+        for (Element element : elements) {
+            if (!element.lettre && element.montant > 0) {
+                debits.computeIfAbsent(element.montant, m -> new ArrayDeque<>()).add(element);
+            }
+        }
+        for (Element credit : elements) {
+            if (credit.lettre || credit.montant > 0) {
+                continue;
+            }
+            ArrayDeque<Element> memeMontant = debits.get(-credit.montant);
+            if (memeMontant != null && !memeMontant.isEmpty()) {
+                lettrer(Methode.MONTANT, List.of(memeMontant.poll(), credit));
+            }
+        }
+    }
+
+    /**
+     * Solde chaque cible par une paire, sinon un triplet, de candidats de sens opposé
+     */
+    private void parCombinaison(List<Element> cibles, List<Element> candidats) {
+        for (Element cible : cibles) {
+            if (cible.lettre) {
+                continue;
+            }
+            List<Element> fenetre = fenetre(candidats, cible.date);
+            if (fenetre.size() < 2) {
+                continue;
+            }
+            List<Element> solution = paire(fenetre, -cible.montant);
+            if (solution == null) {
+                solution = triplet(fenetre, -cible.montant);
+            }
+            if (solution != null) {
+                List<Element> groupe = new ArrayList<>(solution);
+                groupe.add(cible);
+                lettrer(Methode.COMBINAISON, groupe);
+            }
+        }
+    }
+
+    private List<Element> paire(List<Element> fenetre, long cible) {
+        Map<Long, List<Integer>> seaux = seaux(fenetre);
+        for (int i = 0; i < fenetre.size(); i++) {
+            int j = chercher(fenetre, seaux, cible - fenetre.get(i).montant, i);
+            if (j >= 0) {
+                return List.of(fenetre.get(i), fenetre.get(j));
+            }
+        }
+        return null;
+    }
+
+    private List<Element> triplet(List<Element> fenetre, long cible) {
+        List<Element> proches = fenetre.subList(0, Math.min(FENETRE_TRIPLETS, fenetre.size()));
+        Map<Long, List<Integer>> seaux = seaux(proches);
+        for (int i = 0; i < proches.size(); i++) {
+            for (int j = i + 1; j < proches.size(); j++) {
+                int k = chercher(proches, seaux, cible - proches.get(i).montant - proches.get(j).montant, j);
+                if (k >= 0) {
+                    return List.of(proches.get(i), proches.get(j), proches.get(k));
+                }
+            }
+        }
+        return null;
+    }
+
+    private Map<Long, List<Integer>> seaux(List<Element> fenetre) {
+        Map<Long, List<Integer>> seaux = new HashMap<>();
+        for (int i = 0; i < fenetre.size(); i++) {
+            seaux.computeIfAbsent(Math.floorDiv(fenetre.get(i).montant, largeurSeau), s -> new ArrayList<>(1)).add(i);
+        }
+        return seaux;
+    }
+
+    /**
+     * Position d'un élément situé après apres dont le montant est à la tolérance près de reste, -1 sinon
+     */
+    private int chercher(List<Element> fenetre, Map<Long, List<Integer>> seaux, long reste, int apres) {
+        long seau = Math.floorDiv(reste, largeurSeau);
+        for (long voisin = seau - 1; voisin <= seau + 1; voisin++) {
+            List<Integer> positions = seaux.get(voisin);
+            if (positions == null) {
+                continue;
+            }
+            for (int position : positions) {
+                if (position > apres && Math.abs(fenetre.get(position).montant - reste) <= tolerance) {
+                    return position;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Candidats ouverts les plus proches de la date : les plus récents jusqu'à cette date, complétés
+     * par les suivants
+     */
+    private static List<Element> fenetre(List<Element> candidats, LocalDate date) {
+        int debut = 0;
+        int fin = candidats.size();
+        while (debut < fin) {
+            int milieu = (debut + fin) >>> 1;
+            if (candidats.get(milieu).date.isAfter(date)) {
+                fin = milieu;
+            } else {
+                debut = milieu + 1;
+            }
+        }
+        List<Element> fenetre = new ArrayList<>(FENETRE_PAIRES);
+        // Les lignes déjà lettrées sont sautées, dans la limite de quelques fenêtres de lecture
+        int limite = 4 * FENETRE_PAIRES;
+        for (int i = debut - 1; i >= 0 && fenetre.size() < FENETRE_PAIRES && limite-- > 0; i--) {
+            if (!candidats.get(i).lettre) {
+                fenetre.add(candidats.get(i));
+            }
+        }
+        for (int i = debut; i < candidats.size() && fenetre.size() < FENETRE_PAIRES && limite-- > 0; i++) {
+            if (!candidats.get(i).lettre) {
+                fenetre.add(candidats.get(i));
+            }
+        }
+        return fenetre;
+    }
+
+    /**
+     * Découpe la suite des lignes restantes en tronçons consécutifs de total nul : le cumul depuis
+     * le dernier tronçon retrouve une valeur déjà vue, ou revient à zéro à la tolérance près
+     */
+    private void parCumul(List<Element> restants) {
+        Map<Long, Integer> premiereOccurrence = new HashMap<>();
+        int debut = 0;
+        long cumul = 0;
+        premiereOccurrence.put(0L, 0);
+        for (int i = 0; i < restants.size(); i++) {
+            cumul += restants.get(i).montant;
+            Integer depuis = premiereOccurrence.get(cumul);
+            if (depuis == null && Math.abs(cumul) <= tolerance && i > debut) {
+                depuis = debut;
+            }
+            if (depuis != null) {
+                List<Element> troncon = restants.subList(depuis, i + 1);
+                if (deuxSens(troncon)) {
+                    lettrer(Methode.FIFO, troncon);
+                    premiereOccurrence = new HashMap<>();
+                    debut = i + 1;
+                    cumul = 0;
+                    premiereOccurrence.put(0L, debut);
+                    continue;
+                }
+            }
+            premiereOccurrence.putIfAbsent(cumul, i + 1);
+        }
+    }
+
+    private void lettrer(Methode methode, List<Element> elements) {
+        List<Long> ids = new ArrayList<>(elements.size());
+        for (Element element : elements) {
+            element.lettre = true;
+            ids.add(element.id);
+        }
+        groupes.add(new Groupe(methode, ids, BigDecimal.valueOf(somme(elements), 2)));
+    }
+
+    /**
+     * Éléments ouverts du sens demandé (1 débits, -1 crédits, 0 tous), dans l'ordre des dates
+     */
+    private static List<Element> ouverts(List<Element> elements, int sens) {
+        List<Element> ouverts = new ArrayList<>();
+        for (Element element : elements) {
+            if (!element.lettre && (sens == 0 || Long.signum(element.montant) == sens)) {
+                ouverts.add(element);
+            }
+        }
+        return ouverts;
+    }
+
+    private static long somme(List<Element> elements) {
+        long somme = 0;
+        for (Element element : elements) {
+            somme += element.montant;
+        }
+        return somme;
+    }
+
+    private static boolean deuxSens(List<Element> elements) {
+        boolean debit = false;
+        boolean credit = false;
+        for (Element element : elements) {
+            debit |= element.montant > 0;
+            credit |= element.montant < 0;
+        }
+        return debit && credit;
+    }
+
+    /**
+     * Code de lettrage de rang donné (à partir de 1) : AAAA, AAAB, ..., ZZZZ, puis BAAAA, BAAAB...
+     * Les codes sont des nombres en base 26 (A = 0) d'au moins LONGUEUR_CODE lettres : ils
+     * s'allongent au-delà de ZZZZ, jusqu'à la taille de la colonne.
+     */
+    public static String code(long rang) {
+        if (rang < 1) {
+            throw new IllegalArgumentException("Rang de code de lettrage invalide: " + rang);
+        }
+        StringBuilder lettres = new StringBuilder();
+        for (long reste = rang - 1; reste > 0; reste /= 26) {
+            lettres.append((char) ('A' + reste % 26));
+        }
+        while (lettres.length() < LONGUEUR_CODE) {
+            lettres.append('A');
+        }
+        if (lettres.length() > LONGUEUR_CODE_MAX) {
+            throw new IllegalStateException("Plus aucun code de lettrage disponible au rang " + rang);
+        }
+        return lettres.reverse().toString();
+    }
+
+    /**
+     * Rang d'un code de lettrage, 0 pour null (aucun code attribué)
+     */
+    public static long rang(String code) {
+        if (code == null) {
+            return 0;
+        }
+        long valeur = 0;
+        for (char lettre : code.toCharArray()) {
+            valeur = valeur * 26 + (lettre - 'A');
+        }
+        return valeur + 1;
+    }
+}
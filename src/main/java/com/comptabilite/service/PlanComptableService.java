@@ -1,6 +1,7 @@
 package com.comptabilite.service;
 
 import com.comptabilite.dao.CompteDAO;
+import com.comptabilite.dao.CompteDAO.FiltreComptes;
 import com.comptabilite.dao.EntrepriseDAO;
 import com.comptabilite.model.Compte;
 import com.comptabilite.model.Entreprise;
@@ -70,7 +71,18 @@ public class PlanComptableService {
         return compteDAO.findByEntreprise(entrepriseId);
     }
 
+    public List<Compte> getPageComptes(FiltreComptes filtre, Compte apres, int taille) {
+        return compteDAO.findPage(filtre, apres, taille);
+    }
+
+    public long compterComptes(FiltreComptes filtre) {
+        return compteDAO.compter(filtre);
+    }
+
     public void supprimerCompte(Compte compte) {
         compteDAO.delete(compte);
+        if (compte.getEntreprise() != null) {
+            MoteurComptabilisation.invalider(compte.getEntreprise().getId());
+        }
     }
 }
\ No newline at end of file
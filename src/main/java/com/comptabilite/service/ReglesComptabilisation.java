@@ -0,0 +1,212 @@
+package com.comptabilite.service;
+
+import com.comptabilite.model.Facture;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Règles de comptabilisation des factures : pour chaque opération, les lignes à passer
+ * (poste, sens, montant repris, libellé) ; pour chaque référentiel, les numéros de compte
+ * qui portent chaque poste.
+ *
+ * Les règles ne désignent que des postes : le même schéma sert au plan comptable français
+ * (PCG) et au plan SYSCOHADA des entreprises de la zone OHADA, dont les comptes sont préfixés « CM ».
+ * Un poste peut avoir plusieurs comptes candidats, par ordre de préférence : le premier présent
+ * dans le plan de l'entreprise est retenu (compte détaillé, sinon compte de regroupement).
+ */
+public final class ReglesComptabilisation {
+
+    /**
+     * Plan comptable de référence, déterminé par le pays de l'entreprise
+     */
+    public enum Referentiel {
+        PCG, OHADA;
+
+        private static final Set<String> PAYS_OHADA = Set.of(
+            "Cameroun", "Sénégal", "Côte d'Ivoire", "Mali", "Burkina Faso", "Niger",
+            "Tchad", "République Centrafricaine", "Gabon", "Congo");
+
+        public static Referentiel pour(String pays) {
+            return pays != null && PAYS_OHADA.contains(pays) ? OHADA : PCG;
+        }
+    }
+
+    /**
+     * Rôle d'un compte dans les schémas d'écriture, indépendant du référentiel
+     */
+    public enum Poste {
+        CLIENTS("clients"),
+        FOURNISSEURS("fournisseurs"),
+        VENTES("ventes"),
+        ACHATS("achats"),
+        TVA_COLLECTEE("TVA collectée"),
+        TVA_DEDUCTIBLE("TVA déductible"),
+        BANQUE("banque");
+
+        private final String libelle;
+
+        Poste(String libelle) {
+            this.libelle = libelle;
+        }
+
+        public String getLibelle() {
+            return libelle;
+        }
+    }
+
+    public enum Sens { DEBIT, CREDIT }
+
+    /**
+     * Montant de la facture repris sur une ligne
+     */
+    public enum Assiette {
+        HT, TVA, TTC;
+
+        public BigDecimal montant(Facture facture) {
+            BigDecimal montant = switch (this) {
+                case HT -> facture.getMontantHT();
+                case TVA -> facture.getMontantTVA();
+                case TTC -> facture.getMontantTTC();
+            };
+            return montant != null ? montant : BigDecimal.ZERO;
+        }
+    }
+
+    /**
+     * Une ligne du schéma ; les lignes de montant nul (TVA d'une facture exonérée) ne sont pas passées
+     */
+    public record RegleLigne(Poste poste, Sens sens, Assiette assiette, Function<Facture, String> libelle) {
+    }
+
+    /**
+     * Opérations comptabilisées à partir d'une facture, avec leur journal et leur schéma
+     */
+    public enum Operation {
+        VENTE("VT", facture -> "Facture de vente " + facture.getNumeroFacture(), List.of(
+            new RegleLigne(Poste.CLIENTS, Sens.DEBIT, Assiette.TTC,
+                facture -> "Client " + facture.getNomPartenaire()),
+            new RegleLigne(Poste.VENTES, Sens.CREDIT, Assiette.HT,
+                facture -> "Vente de prestations - " + facture.getObjet()),
+            new RegleLigne(Poste.TVA_COLLECTEE, Sens.CREDIT, Assiette.TVA,
+                facture -> "TVA collectée " + facture.getTauxTVA() + "%"))),
+
+        ACHAT("AC", facture -> "Facture d'achat " + facture.getNumeroFacture(), List.of(
+            new RegleLigne(Poste.ACHATS, Sens.DEBIT, Assiette.HT,
+                facture -> "Achat - " + facture.getObjet()),
+            new RegleLigne(Poste.TVA_DEDUCTIBLE, Sens.DEBIT, Assiette.TVA,
+                facture -> "TVA déductible " + facture.getTauxTVA() + "%"),
+            new RegleLigne(Poste.FOURNISSEURS, Sens.CREDIT, Assiette.TTC,
+                facture -> "Fournisseur " + facture.getNomPartenaire()))),
+
+        // Avoirs : schéma de la facture correspondante en sens inverse, dans le même journal
+        AVOIR_VENTE("VT", facture -> "Avoir de vente " + facture.getNumeroFacture(), List.of(
+            new RegleLigne(Poste.VENTES, Sens.DEBIT, Assiette.HT,
+                facture -> "Avoir sur prestations - " + facture.getObjet()),
+            new RegleLigne(Poste.TVA_COLLECTEE, Sens.DEBIT, Assiette.TVA,
+                facture -> "TVA collectée sur avoir " + facture.getTauxTVA() + "%"),
+            new RegleLigne(Poste.CLIENTS, Sens.CREDIT, Assiette.TTC,
+                facture -> "Client " + facture.getNomPartenaire()))),
+
+        AVOIR_ACHAT("AC", facture -> "Avoir d'achat " + facture.getNumeroFacture(), List.of(
+            new RegleLigne(Poste.FOURNISSEURS, Sens.DEBIT, Assiette.TTC,
+                facture -> "Fournisseur " + facture.getNomPartenaire()),
+            new RegleLigne(Poste.ACHATS, Sens.CREDIT, Assiette.HT,
+                facture -> "Avoir sur achat - " + facture.getObjet()),
+            new RegleLigne(Poste.TVA_DEDUCTIBLE, Sens.CREDIT, Assiette.TVA,
+                facture -> "TVA déductible sur avoir " + facture.getTauxTVA() + "%"))),
+
+        ENCAISSEMENT("BQ", facture -> "Paiement facture " + facture.getNumeroFacture(), List.of(
+            new RegleLigne(Poste.BANQUE, Sens.DEBIT, Assiette.TTC, facture -> "Encaissement client"),
+            new RegleLigne(Poste.CLIENTS, Sens.CREDIT, Assiette.TTC,
+                facture -> "Client " + facture.getNomPartenaire()))),
+
+        DECAISSEMENT("BQ", facture -> "Paiement facture " + facture.getNumeroFacture(), List.of(
+            new RegleLigne(Poste.FOURNISSEURS, Sens.DEBIT, Assiette.TTC,
+                facture -> "Fournisseur " + facture.getNomPartenaire()),
+            new RegleLigne(Poste.BANQUE, Sens.CREDIT, Assiette.TTC, facture -> "Paiement fournisseur"))),
+
+        // Règlement d'un avoir : remboursement du client, ou par le fournisseur
+        REMBOURSEMENT_CLIENT("BQ", facture -> "Remboursement avoir " + facture.getNumeroFacture(), List.of(
+            new RegleLigne(Poste.CLIENTS, Sens.DEBIT, Assiette.TTC,
+                facture -> "Client " + facture.getNomPartenaire()),
+            new RegleLigne(Poste.BANQUE, Sens.CREDIT, Assiette.TTC, facture -> "Remboursement client"))),
+
+        REMBOURSEMENT_FOURNISSEUR("BQ", facture -> "Remboursement avoir " + facture.getNumeroFacture(), List.of(
+            new RegleLigne(Poste.BANQUE, Sens.DEBIT, Assiette.TTC, facture -> "Remboursement fournisseur"),
+            new RegleLigne(Poste.FOURNISSEURS, Sens.CREDIT, Assiette.TTC,
+                facture -> "Fournisseur " + facture.getNomPartenaire())));
+
+        private final String journal;
+        private final Function<Facture, String> libelle;
+        private final List<RegleLigne> lignes;
+
+        Operation(String journal, Function<Facture, String> libelle, List<RegleLigne> lignes) {
+            this.journal = journal;
+            this.libelle = libelle;
+            this.lignes = lignes;
+        }
+
+        public String getJournal() {
+            return journal;
+        }
+
+        public String libelle(Facture facture) {
+            return libelle.apply(facture);
+        }
+
+        public List<RegleLigne> getLignes() {
+            return lignes;
+        }
+
+        /**
+         * Opération à passer à l'émission d'une facture ou à son règlement
+         */
+        public static Operation pour(Facture facture, boolean reglement) {
+            return switch (facture.getTypeFacture()) {
+                case VENTE -> reglement ? ENCAISSEMENT : VENTE;
+                case ACHAT -> reglement ? DECAISSEMENT : ACHAT;
+                case AVOIR_VENTE -> reglement ? REMBOURSEMENT_CLIENT : AVOIR_VENTE;
+                case AVOIR_ACHAT -> reglement ? REMBOURSEMENT_FOURNISSEUR : AVOIR_ACHAT;
+            };
+        }
+    }
+
+    private static final Map<Referentiel, Map<Poste, List<String>>> COMPTES = new EnumMap<>(Referentiel.class);
+    static {
+        Map<Poste, List<String>> pcg = new EnumMap<>(Poste.class);
+        pcg.put(Poste.CLIENTS, List.of("411000"));
+        pcg.put(Poste.FOURNISSEURS, List.of("401000"));
+        pcg.put(Poste.VENTES, List.of("707000"));
+        pcg.put(Poste.ACHATS, List.of("607000"));
+        pcg.put(Poste.TVA_COLLECTEE, List.of("445710"));
+        pcg.put(Poste.TVA_DEDUCTIBLE, List.of("445660"));
+        pcg.put(Poste.BANQUE, List.of("512000"));
+        COMPTES.put(Referentiel.PCG, pcg);
+
+        // SYSCOHADA : 706 prestations de services, 443 TVA facturée, 445 TVA récupérable, 521 banques
+        Map<Poste, List<String>> ohada = new EnumMap<>(Poste.class);
+        ohada.put(Poste.CLIENTS, List.of("CM411000"));
+        ohada.put(Poste.FOURNISSEURS, List.of("CM401000"));
+        ohada.put(Poste.VENTES, List.of("CM706000", "CM700000"));
+        ohada.put(Poste.ACHATS, List.of("CM601000", "CM600000"));
+        ohada.put(Poste.TVA_COLLECTEE, List.of("CM443100", "CM445000"));
+        ohada.put(Poste.TVA_DEDUCTIBLE, List.of("CM445200", "CM445000"));
+        ohada.put(Poste.BANQUE, List.of("CM521000", "CM520000"));
+        COMPTES.put(Referentiel.OHADA, ohada);
+    }
+
+    private ReglesComptabilisation() {
+    }
+
+    /**
+     * Numéros de compte candidats pour un poste, par ordre de préférence
+     */
+    public static Map<Poste, List<String>> comptes(Referentiel referentiel) {
+        return COMPTES.get(referentiel);
+    }
+}
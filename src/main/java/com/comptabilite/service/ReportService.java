@@ -1,6 +1,8 @@
 package com.comptabilite.service;
 
 import com.comptabilite.dao.*;
+import com.comptabilite.dao.LigneEcritureDAO.MouvementCompte;
+import com.comptabilite.dao.SoldeClotureDAO.SoldeFige;
 import com.comptabilite.model.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -8,6 +10,8 @@ import org.slf4j.LoggerFactory;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class ReportService {
@@ -18,15 +22,33 @@ public class ReportService {
     private final EcritureComptableDAO ecritureDAO;
     private final LigneEcritureDAO ligneEcritureDAO;
     private final ExerciceDAO exerciceDAO;
+    private final SoldePeriodeDAO soldePeriodeDAO;
+    private final SoldeClotureDAO soldeClotureDAO;
 
     public ReportService() {
         this.compteDAO = new CompteDAO();
         this.ecritureDAO = new EcritureComptableDAO();
         this.ligneEcritureDAO = new LigneEcritureDAO();
         this.exerciceDAO = new ExerciceDAO();
+        this.soldePeriodeDAO = new SoldePeriodeDAO();
+        this.soldeClotureDAO = new SoldeClotureDAO();
     }
 
     public List<LigneGrandLivre> getGrandLivre(Long compteId, LocalDate dateDebut, LocalDate dateFin) {
+        List<LigneGrandLivre> grandLivre = new ArrayList<>();
+        parcourirGrandLivre(compteId, dateDebut, dateFin, grandLivre::add);
+        logger.info("Grand livre généré avec {} lignes", grandLivre.size());
+        return grandLivre;
+    }
+
+    /**
+     * Grand livre d'un compte transmis ligne par ligne au consommateur (table, export fichier).
+     * La première ligne est le report à nouveau : solde des écritures validées avant dateDebut,
+     * depuis la dernière clôture reprise en à-nouveaux, obtenu par une seule requête agrégée.
+     * Les lignes de la période sont lues par curseur.
+     */
+    public void parcourirGrandLivre(Long compteId, LocalDate dateDebut, LocalDate dateFin,
+                                    Consumer<LigneGrandLivre> consumer) {
         logger.info("Génération du Grand Livre pour le compte {} du {} au {}", compteId, dateDebut, dateFin);
 
         if (compteId == null) {
@@ -40,54 +62,66 @@ public class ReportService {
             }
             logger.info("Compte trouvé: {} - {}", compte.getNumeroCompte(), compte.getLibelle());
 
-            List<LigneEcriture> lignes = ligneEcritureDAO.findByCompteAndDateRange(compteId, dateDebut, dateFin);
-            logger.info("Nombre de lignes d'écriture trouvées: {}", lignes.size());
+            LocalDate depuis = exerciceDAO.findDebutReport(compte.getEntreprise().getId(), dateDebut);
+            CumulGrandLivre cumul = new CumulGrandLivre(compte,
+                ligneEcritureDAO.sumMouvementsAvant(compteId, depuis, dateDebut));
+            consumer.accept(cumul.ligneReport(dateDebut));
 
-            List<LigneGrandLivre> grandLivre = new ArrayList<>();
-            BigDecimal soldeCumulé = BigDecimal.ZERO;
+            ligneEcritureDAO.parcourirLignesCompte(compteId, dateDebut, dateFin,
+                mouvement -> consumer.accept(cumul.appliquer(mouvement)));
 
-            for (LigneEcriture ligne : lignes) {
-                try {
-                    LigneGrandLivre ligneGL = new LigneGrandLivre();
+        } catch (Exception e) {
+            logger.error("Erreur lors de la génération du grand livre", e);
+            throw new RuntimeException("Erreur lors de la génération du grand livre: " + e.getMessage(), e);
+        }
+    }
 
-                    // Vérification sécurisée des données
-                    if (ligne.getEcritureComptable() != null) {
-                        ligneGL.setDate(ligne.getEcritureComptable().getDateEcriture());
-                        ligneGL.setLibelle(ligne.getEcritureComptable().getLibelle() != null ?
-                            ligne.getEcritureComptable().getLibelle() : "");
-                        ligneGL.setNumeroJournal(ligne.getEcritureComptable().getNumeroJournal() != null ?
-                            ligne.getEcritureComptable().getNumeroJournal() : "");
-                    } else {
-                        logger.warn("Écriture comptable null pour la ligne {}", ligne.getId());
-                        continue;
-                    }
+    /**
+     * Grand livre de tous les comptes d'un exercice (ou d'une plage de comptes) en une seule
+     * lecture des lignes, triées par compte puis date. Chaque compte forme une section :
+     * report à nouveau, lignes, puis sous-total. Les comptes sans mouvement mais avec un
+     * report non nul ont aussi leur section. La mémoire utilisée ne dépend que du nombre de comptes.
+     *
+     * @return nombre de lignes d'écriture transmises
+     */
+    public long getGrandLivreComplet(Long exerciceId, PlageComptes plage, SortieGrandLivre sortie) {
+        logger.info("Génération du Grand Livre complet pour l'exercice {} ({})", exerciceId, plage);
 
-                    ligneGL.setDebit(ligne.getMontantDebit() != null ? ligne.getMontantDebit() : BigDecimal.ZERO);
-                    ligneGL.setCredit(ligne.getMontantCredit() != null ? ligne.getMontantCredit() : BigDecimal.ZERO);
+        Exercice exercice = exerciceDAO.findById(exerciceId).orElse(null);
+        if (exercice == null) {
+            throw new IllegalArgumentException("Exercice non trouvé: " + exerciceId);
+        }
+        Long entrepriseId = exercice.getEntreprise().getId();
 
-                    // Calcul du solde cumulé selon le type de compte
-                    if (compte.getTypeCompte() == Compte.TypeCompte.ACTIF) {
-                        // Comptes d'actif : Débit augmente, Crédit diminue
-                        soldeCumulé = soldeCumulé.add(ligneGL.getDebit()).subtract(ligneGL.getCredit());
-                    } else {
-                        // Comptes de passif, capital, produits : Crédit augmente, Débit diminue
-                        soldeCumulé = soldeCumulé.subtract(ligneGL.getDebit()).add(ligneGL.getCredit());
+        try {
+            List<Compte> comptes = compteDAO.findByEntreprise(entrepriseId).stream()
+                .filter(plage::contient)
+                .sorted(Comparator.comparing(Compte::getNumeroCompte))
+                .collect(Collectors.toList());
+            Map<Long, Compte> comptesParId = comptes.stream()
+                .collect(Collectors.toMap(Compte::getId, c -> c));
+            Map<Long, MouvementCompte> reports = ligneEcritureDAO.sumMouvementsAvantParCompte(entrepriseId,
+                exerciceDAO.findDebutReport(entrepriseId, exercice.getDateDebut()), exercice.getDateDebut());
+
+            ParcoursGrandLivre parcours = new ParcoursGrandLivre(comptes, reports, exercice.getDateDebut(), sortie);
+            ligneEcritureDAO.parcourirLignesParCompte(entrepriseId, exercice.getDateDebut(), exercice.getDateFin(),
+                plage.numeroDebut(), plage.numeroFin(), mouvement -> {
+                    Compte compte = comptesParId.get(mouvement.compteId());
+                    if (compte != null) {
+                        parcours.ligne(compte, mouvement);
                     }
-                    ligneGL.setSoldeCumule(soldeCumulé);
+                });
+            parcours.terminer();
 
-                    grandLivre.add(ligneGL);
-
-                } catch (Exception e) {
-                    logger.error("Erreur lors du traitement de la ligne {}: {}", ligne.getId(), e.getMessage());
-                }
-            }
-
-            logger.info("Grand livre généré avec {} lignes", grandLivre.size());
-            return grandLivre;
+            logger.info("Grand livre complet généré: {} comptes, {} lignes", parcours.nombreComptes, parcours.nombreLignes);
+            return parcours.nombreLignes;
 
+        } catch (CancellationException e) {
+            // Arrêt demandé par la sortie (export annulé) : transmis tel quel
+            throw e;
         } catch (Exception e) {
-            logger.error("Erreur lors de la génération du grand livre", e);
-            throw new RuntimeException("Erreur lors de la génération du grand livre: " + e.getMessage(), e);
+            logger.error("Erreur lors de la génération du grand livre complet", e);
+            throw new RuntimeException("Erreur lors de la génération du grand livre complet: " + e.getMessage(), e);
         }
     }
 
@@ -99,54 +133,39 @@ public class ReportService {
             throw new IllegalArgumentException("Exercice non trouvé: " + exerciceId);
         }
 
-        List<Compte> comptes = compteDAO.findByEntreprise(exercice.getEntreprise().getId());
+        Long entrepriseId = exercice.getEntreprise().getId();
+        List<Compte> comptes = compteDAO.findByEntreprise(entrepriseId);
+
+        AccountTree arbre;
+        Map<Long, MouvementCompte> mouvements;
+        Map<Long, SoldeFige> figes = soldesFiges(exercice);
+        if (!figes.isEmpty()) {
+            // Exercice clôturé : soldes figés à la clôture, ses écritures ne sont pas relues
+            arbre = AccountTree.construire(comptes, cumuls(figes));
+            Map<Long, MouvementCompte> mouvementsFiges = new HashMap<>();
+            figes.forEach((compteId, solde) -> mouvementsFiges.put(compteId, solde.mouvements()));
+            mouvements = arbre.consolider(mouvementsFiges);
+        } else {
+            // Cumuls mensuels pré-agrégés (alimentés à la validation), puis consolidation en mémoire
+            arbre = AccountTree.construire(comptes, soldesOuverts(exercice, comptes));
+            mouvements = arbre.consolider(soldePeriodeDAO.sumMouvementsParCompte(exerciceId));
+        }
+
         List<LigneBalance> balance = new ArrayList<>();
 
         for (Compte compte : comptes) {
-            List<LigneEcriture> lignes = ligneEcritureDAO.findByCompteAndDateRange(
-                compte.getId(),
-                exercice.getDateDebut(),
-                exercice.getDateFin()
-            );
-
             LigneBalance ligneBalance = new LigneBalance();
             ligneBalance.setNumeroCompte(compte.getNumeroCompte());
             ligneBalance.setNomCompte(compte.getLibelle());
 
-            // Calculer les mouvements par écritures comptables
-            BigDecimal mouvementEcritureDebit = lignes.stream()
-                .map(LigneEcriture::getMontantDebit)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            BigDecimal mouvementEcritureCredit = lignes.stream()
-                .map(LigneEcriture::getMontantCredit)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+            // Mouvements de l'exercice (consolidés pour les comptes parents)
+            MouvementCompte mouvement = mouvements.getOrDefault(compte.getId(), MouvementCompte.ZERO);
+            BigDecimal totalDebit = mouvement.totalDebit();
+            BigDecimal totalCredit = mouvement.totalCredit();
 
             // Récupérer les soldes finaux consolidés (incluant les sous-comptes)
-            BigDecimal soldeDebiteurFinal = compte.getSoldeDebiteurConsolide() != null ?
-                compte.getSoldeDebiteurConsolide() : BigDecimal.ZERO;
-            BigDecimal soldeCrediteurFinal = compte.getSoldeCrediteurConsolide() != null ?
-                compte.getSoldeCrediteurConsolide() : BigDecimal.ZERO;
-
-            // Récupérer le solde initial (début d'exercice)
-            BigDecimal soldeInitial = compte.getSoldeInitial() != null ?
-                compte.getSoldeInitial() : BigDecimal.ZERO;
-
-            // CALCUL CORRECT DES MOUVEMENTS TOTAUX :
-            // Mouvements = Solde final - Solde initial
-            // Cela inclut TOUTES les modifications : saisies directes + écritures
-            BigDecimal soldeFinalNet = soldeDebiteurFinal.subtract(soldeCrediteurFinal);
-            BigDecimal mouvementTotal = soldeFinalNet.subtract(soldeInitial);
-
-            // Séparer en débit/crédit selon le signe
-            BigDecimal totalDebit, totalCredit;
-            if (mouvementTotal.compareTo(BigDecimal.ZERO) >= 0) {
-                totalDebit = mouvementTotal;
-                totalCredit = BigDecimal.ZERO;
-            } else {
-                totalDebit = BigDecimal.ZERO;
-                totalCredit = mouvementTotal.abs();
-            }
+            BigDecimal soldeDebiteurFinal = arbre.getSoldeDebiteurConsolide(compte.getId());
+            BigDecimal soldeCrediteurFinal = arbre.getSoldeCrediteurConsolide(compte.getId());
 
             ligneBalance.setTotalDebit(totalDebit);
             ligneBalance.setTotalCredit(totalCredit);
@@ -166,6 +185,16 @@ public class ReportService {
             .collect(Collectors.toList());
     }
 
+    /**
+     * Reconstruit les cumuls mensuels d'un exercice depuis les lignes d'écriture.
+     * À utiliser après une correction manuelle des données en base : les rapports lisent les
+     * cumuls tels quels (alimentés par V4 puis par chaque validation) et ne les reconstruisent jamais.
+     */
+    public int reconstruireSoldesPeriode(Long exerciceId) {
+        logger.info("Reconstruction des cumuls mensuels pour l'exercice {}", exerciceId);
+        return soldePeriodeDAO.reconstruire(exerciceId);
+    }
+
     public BilanData getBilan(Long exerciceId) {
         logger.info("Génération du Bilan pour l'exercice {}", exerciceId);
 
@@ -184,6 +213,11 @@ public class ReportService {
 
         List<Compte> comptes = compteDAO.findByEntreprise(exercice.getEntreprise().getId());
         logger.info("Nombre de comptes pour le bilan: {}", comptes.size());
+        Map<Long, MouvementCompte> soldes = cumuls(soldesFiges(exercice));
+        if (soldes.isEmpty()) {
+            soldes = soldesOuverts(exercice, comptes);
+        }
+        AccountTree arbre = AccountTree.construire(comptes, soldes);
 
         BilanData bilan = new BilanData();
 
@@ -200,8 +234,8 @@ public class ReportService {
             String numeroCompte = compte.getNumeroCompte();
 
             // Utiliser les soldes consolidés finaux
-            BigDecimal soldeDebiteur = compte.getSoldeDebiteurConsolide();
-            BigDecimal soldeCrediteur = compte.getSoldeCrediteurConsolide();
+            BigDecimal soldeDebiteur = arbre.getSoldeDebiteurConsolide(compte.getId());
+            BigDecimal soldeCrediteur = arbre.getSoldeCrediteurConsolide(compte.getId());
             BigDecimal soldeNet = soldeDebiteur.subtract(soldeCrediteur);
 
             logger.info("=== BILAN DEBUG === Compte {}: Débit={}, Crédit={}, Net={}",
@@ -230,10 +264,10 @@ public class ReportService {
                         // Compte capital principal - traitement spécial
                         // ÉVITER LE DOUBLE COMPTAGE : ne traiter que si pas de sous-comptes
                         // Utiliser le solde débiteur réel du compte CM101000 (capital souscrit total)
-                        BigDecimal capitalSouscrit = compte.getSoldeDebiteur();
+                        BigDecimal capitalSouscrit = soldes.getOrDefault(compte.getId(), MouvementCompte.ZERO).totalDebit();
                         if (capitalSouscrit == null || capitalSouscrit.compareTo(BigDecimal.ZERO) == 0) {
                             // Si le solde direct est vide, utiliser le solde consolidé
-                            capitalSouscrit = compte.getSoldeDebiteurConsolide();
+                            capitalSouscrit = arbre.getSoldeDebiteurConsolide(compte.getId());
                         }
                         capitauxPropres = capitauxPropres.add(capitalSouscrit);
                         capitalTotalCalcule = capitalSouscrit; // Stocker pour l'équilibrage
@@ -242,7 +276,7 @@ public class ReportService {
                     } else if (numeroCompte.startsWith("CM101") && !numeroCompte.equals("CM101000")) {
                         // Sous-comptes actionnaires (CM101001, CM101002, etc.)
                         // LOGIQUE CORRECTE : traiter chaque actionnaire individuellement
-                        boolean hasSubAccounts = compte.getSousComptes() != null && !compte.getSousComptes().isEmpty();
+                        boolean hasSubAccounts = arbre.aSousComptes(compte.getId());
                         if (!hasSubAccounts) {
                             if (soldeNet.compareTo(BigDecimal.ZERO) > 0) {
                                 // Solde débiteur = actionnaire doit encore payer (CRÉANCE)
@@ -323,7 +357,7 @@ public class ReportService {
                         numeroCompte.startsWith("CM53") || numeroCompte.startsWith("CM57")) {
                         // Comptes de banque (CM52x) et caisse (CM57x) - Actif si débiteurs
                         // ÉVITER LE DOUBLE COMPTAGE : exclure les comptes parents qui ont des sous-comptes
-                        boolean hasSubAccounts = compte.getSousComptes() != null && !compte.getSousComptes().isEmpty();
+                        boolean hasSubAccounts = arbre.aSousComptes(compte.getId());
                         if (soldeNet.compareTo(BigDecimal.ZERO) > 0 && !hasSubAccounts) {
                             logger.info("AJOUT TRÉSORERIE: {} += {} = {} (compte sans sous-comptes)",
                                 tresorerie, soldeNet, tresorerie.add(soldeNet));
@@ -372,8 +406,8 @@ public class ReportService {
 
         for (Compte compte : comptes) {
             String numeroCompte = compte.getNumeroCompte();
-            BigDecimal soldeDebiteur = compte.getSoldeDebiteurConsolide();
-            BigDecimal soldeCrediteur = compte.getSoldeCrediteurConsolide();
+            BigDecimal soldeDebiteur = arbre.getSoldeDebiteurConsolide(compte.getId());
+            BigDecimal soldeCrediteur = arbre.getSoldeCrediteurConsolide(compte.getId());
             BigDecimal soldeNet = soldeDebiteur.subtract(soldeCrediteur);
 
             // Classification selon le plan comptable (français ou OHADA/Cameroun)
@@ -460,6 +494,63 @@ public class ReportService {
         return bilan;
     }
 
+    /**
+     * Soldes figés d'un exercice clôturé par ClotureExerciceService ; vide pour un exercice
+     * ouvert, dont les rapports partent des soldes courants des comptes
+     */
+    private Map<Long, SoldeFige> soldesFiges(Exercice exercice) {
+        if (exercice.getStatut() == Exercice.StatutExercice.OUVERT) {
+            return Map.of();
+        }
+        return soldeClotureDAO.findByExercice(exercice.getId());
+    }
+
+    /**
+     * Soldes de fin d'un exercice non figé, tirés des cumuls mensuels : mouvements des exercices
+     * depuis la dernière clôture reportée jusqu'à celui-ci, plus les montants saisis directement
+     * sur les comptes (solde enregistré moins ce qu'expliquent les cumuls de tous les exercices
+     * depuis cette clôture). Les mouvements des exercices suivants ne sont donc pas repris.
+     */
+    private Map<Long, MouvementCompte> soldesOuverts(Exercice exercice, List<Compte> comptes) {
+        Long entrepriseId = exercice.getEntreprise().getId();
+        LocalDate depuis = exerciceDAO.findDebutReport(entrepriseId, exercice.getDateDebut());
+        List<Long> jusquAExercice = new ArrayList<>();
+        List<Long> depuisReport = new ArrayList<>();
+        for (Exercice autre : exerciceDAO.findByEntreprise(entrepriseId)) {
+            if (depuis != null && autre.getDateDebut().isBefore(depuis)) {
+                continue;
+            }
+            depuisReport.add(autre.getId());
+            if (!autre.getDateDebut().isAfter(exercice.getDateDebut())) {
+                jusquAExercice.add(autre.getId());
+            }
+        }
+        Map<Long, MouvementCompte> cumulsExercice = soldePeriodeDAO.sumMouvementsParCompte(jusquAExercice);
+        Map<Long, MouvementCompte> cumulsReport = depuisReport.size() == jusquAExercice.size()
+            ? cumulsExercice : soldePeriodeDAO.sumMouvementsParCompte(depuisReport);
+
+        Map<Long, MouvementCompte> soldes = new HashMap<>();
+        for (Compte compte : comptes) {
+            MouvementCompte enregistre = new MouvementCompte(
+                compte.getSoldeDebiteur() != null ? compte.getSoldeDebiteur() : BigDecimal.ZERO,
+                compte.getSoldeCrediteur() != null ? compte.getSoldeCrediteur() : BigDecimal.ZERO);
+            MouvementCompte saisieDirecte = enregistre.moins(
+                cumulsReport.getOrDefault(compte.getId(), MouvementCompte.ZERO));
+            MouvementCompte solde = cumulsExercice.getOrDefault(compte.getId(), MouvementCompte.ZERO)
+                .plus(saisieDirecte);
+            if (!solde.estNul()) {
+                soldes.put(compte.getId(), solde);
+            }
+        }
+        return soldes;
+    }
+
+    private static Map<Long, MouvementCompte> cumuls(Map<Long, SoldeFige> figes) {
+        Map<Long, MouvementCompte> cumuls = new HashMap<>();
+        figes.forEach((compteId, solde) -> cumuls.put(compteId, solde.cumul()));
+        return cumuls;
+    }
+
     public CompteResultatData getCompteResultat(Long exerciceId) {
         logger.info("Génération du Compte de Résultat pour l'exercice {}", exerciceId);
 
@@ -516,8 +607,161 @@ public class ReportService {
             .reduce(BigDecimal.ZERO, BigDecimal::add);
     }
 
+    /**
+     * Solde cumulé d'un compte au fil du grand livre, à partir du report à nouveau
+     */
+    private static class CumulGrandLivre {
+        private final boolean sensDebiteur;
+        private BigDecimal solde;
+        private BigDecimal totalDebit = BigDecimal.ZERO;
+        private BigDecimal totalCredit = BigDecimal.ZERO;
+
+        CumulGrandLivre(Compte compte, MouvementCompte report) {
+            // Comptes d'actif : Débit augmente, Crédit diminue ; autres comptes : l'inverse
+            this.sensDebiteur = compte.getTypeCompte() == Compte.TypeCompte.ACTIF;
+            this.solde = sens(report.totalDebit(), report.totalCredit());
+        }
+
+        LigneGrandLivre ligneReport(LocalDate date) {
+            LigneGrandLivre ligne = new LigneGrandLivre();
+            ligne.setDate(date);
+            ligne.setLibelle("Report à nouveau");
+            ligne.setNumeroJournal("");
+            ligne.setDebit(BigDecimal.ZERO);
+            ligne.setCredit(BigDecimal.ZERO);
+            ligne.setSoldeCumule(solde);
+            return ligne;
+        }
+
+        LigneGrandLivre appliquer(LigneEcritureDAO.LigneMouvement mouvement) {
+            totalDebit = totalDebit.add(mouvement.montantDebit());
+            totalCredit = totalCredit.add(mouvement.montantCredit());
+            solde = solde.add(sens(mouvement.montantDebit(), mouvement.montantCredit()));
+
+            LigneGrandLivre ligne = new LigneGrandLivre();
+            ligne.setDate(mouvement.dateEcriture());
+            ligne.setNumeroEcriture(mouvement.numeroEcriture());
+            ligne.setLibelle(mouvement.libelle() != null ? mouvement.libelle() : "");
+            ligne.setNumeroJournal(mouvement.numeroJournal() != null ? mouvement.numeroJournal() : "");
+            ligne.setDebit(mouvement.montantDebit());
+            ligne.setCredit(mouvement.montantCredit());
+            ligne.setSoldeCumule(solde);
+            return ligne;
+        }
+
+        private BigDecimal sens(BigDecimal debit, BigDecimal credit) {
+            return sensDebiteur ? debit.subtract(credit) : credit.subtract(debit);
+        }
+    }
+
+    /**
+     * Fusionne le flux de lignes trié par compte avec la liste triée des comptes,
+     * pour émettre les sections dans l'ordre du plan comptable
+     */
+    private static class ParcoursGrandLivre {
+        private final List<Compte> comptes;
+        private final Map<Long, MouvementCompte> reports;
+        private final LocalDate dateDebut;
+        private final SortieGrandLivre sortie;
+
+        private int prochainCompte = 0;
+        private Compte compteCourant;
+        private CumulGrandLivre cumulCourant;
+        private BigDecimal totalDebit = BigDecimal.ZERO;
+        private BigDecimal totalCredit = BigDecimal.ZERO;
+        private long nombreLignes = 0;
+        private int nombreComptes = 0;
+
+        ParcoursGrandLivre(List<Compte> comptes, Map<Long, MouvementCompte> reports,
+                           LocalDate dateDebut, SortieGrandLivre sortie) {
+            this.comptes = comptes;
+            this.reports = reports;
+            this.dateDebut = dateDebut;
+            this.sortie = sortie;
+        }
+
+        void ligne(Compte compte, LigneEcritureDAO.LigneMouvement mouvement) {
+            if (compteCourant == null || !compteCourant.getId().equals(compte.getId())) {
+                fermerSection();
+                // Comptes précédents sans mouvement sur la période : section de report seule
+                while (prochainCompte < comptes.size()
+                       && comptes.get(prochainCompte).getNumeroCompte().compareTo(compte.getNumeroCompte()) < 0) {
+                    sectionReportSeul(comptes.get(prochainCompte++));
+                }
+                if (prochainCompte < comptes.size() && comptes.get(prochainCompte).getId().equals(compte.getId())) {
+                    prochainCompte++;
+                }
+                ouvrirSection(compte);
+            }
+            sortie.ligne(compte, cumulCourant.appliquer(mouvement));
+            nombreLignes++;
+        }
+
+        void terminer() {
+            fermerSection();
+            while (prochainCompte < comptes.size()) {
+                sectionReportSeul(comptes.get(prochainCompte++));
+            }
+            sortie.fin(totalDebit, totalCredit);
+        }
+
+        private void ouvrirSection(Compte compte) {
+            compteCourant = compte;
+            cumulCourant = new CumulGrandLivre(compte, reports.getOrDefault(compte.getId(), MouvementCompte.ZERO));
+            sortie.debutCompte(compte, cumulCourant.ligneReport(dateDebut));
+            nombreComptes++;
+        }
+
+        private void fermerSection() {
+            if (compteCourant != null) {
+                sortie.finCompte(compteCourant, cumulCourant.totalDebit, cumulCourant.totalCredit, cumulCourant.solde);
+                totalDebit = totalDebit.add(cumulCourant.totalDebit);
+                totalCredit = totalCredit.add(cumulCourant.totalCredit);
+                compteCourant = null;
+                cumulCourant = null;
+            }
+        }
+
+        private void sectionReportSeul(Compte compte) {
+            MouvementCompte report = reports.get(compte.getId());
+            if (report != null && report.totalDebit().compareTo(report.totalCredit()) != 0) {
+                ouvrirSection(compte);
+                fermerSection();
+            }
+        }
+    }
+
+    /**
+     * Bornes (incluses) de numéros de compte ; null pour ne pas borner
+     */
+    public record PlageComptes(String numeroDebut, String numeroFin) {
+
+        public static final PlageComptes TOUS = new PlageComptes(null, null);
+
+        public boolean contient(Compte compte) {
+            String numero = compte.getNumeroCompte();
+            return (numeroDebut == null || numero.compareTo(numeroDebut) >= 0)
+                && (numeroFin == null || numero.compareTo(numeroFin) <= 0);
+        }
+    }
+
+    /**
+     * Destination du grand livre complet, alimentée au fil de la lecture (table, fichier...)
+     */
+    public interface SortieGrandLivre {
+        void debutCompte(Compte compte, LigneGrandLivre report);
+
+        void ligne(Compte compte, LigneGrandLivre ligne);
+
+        void finCompte(Compte compte, BigDecimal totalDebit, BigDecimal totalCredit, BigDecimal soldeFinal);
+
+        default void fin(BigDecimal totalDebit, BigDecimal totalCredit) {
+        }
+    }
+
     public static class LigneGrandLivre {
         private LocalDate date;
+        private String numeroEcriture;
         private String libelle;
         private String numeroJournal;
         private BigDecimal debit;
@@ -526,6 +770,8 @@ public class ReportService {
 
         public LocalDate getDate() { return date; }
         public void setDate(LocalDate date) { this.date = date; }
+        public String getNumeroEcriture() { return numeroEcriture; }
+        public void setNumeroEcriture(String numeroEcriture) { this.numeroEcriture = numeroEcriture; }
         public String getLibelle() { return libelle; }
         public void setLibelle(String libelle) { this.libelle = libelle; }
         public String getNumeroJournal() { return numeroJournal; }
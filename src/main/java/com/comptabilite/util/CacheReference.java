@@ -0,0 +1,145 @@
+package com.comptabilite.util;
+
+import com.comptabilite.model.Compte;
+import com.comptabilite.model.Exercice;
+import org.hibernate.Cache;
+import org.hibernate.Session;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.transaction.Synchronization;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Cache de second niveau des données de référence (plan comptable, exercices, entreprises, utilisateurs).
+ *
+ * Les régions sont dimensionnées dans application.conf (Caffeine). Hibernate tient le cache à jour
+ * pour tout ce qui passe par la session ; les écritures faites en SQL direct (soldes des comptes,
+ * clôture d'un exercice) doivent évincer explicitement les entrées concernées.
+ */
+public final class CacheReference {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheReference.class);
+
+    // Régions d'entités
+    public static final String PLAN_COMPTABLE = "plan-comptable";
+    public static final String EXERCICES = "exercices";
+    public static final String ENTREPRISES = "entreprises";
+    public static final String UTILISATEURS = "utilisateurs";
+
+    // Régions des requêtes de recherche mises en cache
+    public static final String REQUETES_COMPTES = "requetes-comptes";
+    public static final String REQUETES_EXERCICES = "requetes-exercices";
+
+    private static final List<String> REGIONS_ENTITES = List.of(PLAN_COMPTABLE, EXERCICES, ENTREPRISES, UTILISATEURS);
+    private static final List<String> REGIONS_REQUETES = List.of(REQUETES_COMPTES, REQUETES_EXERCICES);
+
+    private CacheReference() {
+    }
+
+    /**
+     * Évince des comptes dont les soldes viennent d'être modifiés en SQL direct.
+     *
+     * L'éviction est faite tout de suite puis refaite à la fin de la transaction : une autre session
+     * qui relirait le compte entre-temps remettrait sinon en cache l'ancien solde.
+     */
+    public static void evincerComptes(Session session, Collection<Long> compteIds) {
+        if (compteIds.isEmpty()) {
+            return;
+        }
+        evincerComptes(compteIds);
+        session.getTransaction().registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                evincerComptes(compteIds);
+            }
+        });
+    }
+
+    private static void evincerComptes(Collection<Long> compteIds) {
+        Cache cache = HibernateUtil.getSessionFactory().getCache();
+        for (Long id : compteIds) {
+            cache.evictEntityData(Compte.class, id);
+        }
+    }
+
+    /**
+     * Évince un compte et les recherches de comptes (création ou modification d'un compte)
+     */
+    public static void evincerCompte(Long compteId) {
+        Cache cache = HibernateUtil.getSessionFactory().getCache();
+        cache.evictEntityData(Compte.class, compteId);
+        cache.evictQueryRegion(REQUETES_COMPTES);
+        logger.debug("Compte {} évincé du cache", compteId);
+    }
+
+    /**
+     * Évince un exercice et les recherches d'exercices (clôture, réouverture)
+     */
+    public static void evincerExercice(Long exerciceId) {
+        Cache cache = HibernateUtil.getSessionFactory().getCache();
+        cache.evictEntityData(Exercice.class, exerciceId);
+        cache.evictQueryRegion(REQUETES_EXERCICES);
+        logger.debug("Exercice {} évincé du cache", exerciceId);
+    }
+
+    /**
+     * Compteurs cumulés depuis le démarrage, ou null si les statistiques Hibernate sont désactivées
+     */
+    public static StatistiquesCache getStatistiques() {
+        Statistics statistiques = HibernateUtil.getSessionFactory().getStatistics();
+        if (!statistiques.isStatisticsEnabled()) {
+            return null;
+        }
+        return new StatistiquesCache(
+            statistiques.getSecondLevelCacheHitCount(),
+            statistiques.getSecondLevelCacheMissCount(),
+            statistiques.getSecondLevelCachePutCount(),
+            statistiques.getQueryCacheHitCount(),
+            statistiques.getQueryCacheMissCount());
+    }
+
+    /**
+     * Trace les compteurs de chaque région de référence
+     */
+    public static void journaliserRegions() {
+        Statistics statistiques = HibernateUtil.getSessionFactory().getStatistics();
+        if (!statistiques.isStatisticsEnabled()) {
+            return;
+        }
+        for (String region : REGIONS_ENTITES) {
+            journaliserRegion(region, statistiques.getDomainDataRegionStatistics(region));
+        }
+        for (String region : REGIONS_REQUETES) {
+            // Une région de requêtes n'existe qu'après sa première utilisation
+            journaliserRegion(region, statistiques.getQueryRegionStatistics(region));
+        }
+    }
+
+    private static void journaliserRegion(String region, CacheRegionStatistics statistiques) {
+        if (statistiques != null) {
+            logger.info("Région {}: {} succès, {} échecs, {} ajouts, {} éléments en mémoire", region,
+                statistiques.getHitCount(), statistiques.getMissCount(), statistiques.getPutCount(),
+                statistiques.getElementCountInMemory());
+        }
+    }
+
+    public record StatistiquesCache(long succes, long echecs, long ajouts,
+                                    long succesRequetes, long echecsRequetes) {
+
+        /**
+         * Part des lectures d'entités servies par le cache, entre 0 et 1
+         */
+        public double tauxSucces() {
+            long lectures = succes + echecs;
+            return lectures == 0 ? 0 : (double) succes / lectures;
+        }
+    }
+}
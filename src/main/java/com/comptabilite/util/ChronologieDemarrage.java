@@ -0,0 +1,70 @@
+package com.comptabilite.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * Relevé des étapes du démarrage (thread, début et durée depuis le lancement de la JVM),
+ * journalisé en une fois quand l'application est prête
+ */
+public final class ChronologieDemarrage {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChronologieDemarrage.class);
+
+    private static final long LANCEMENT_JVM = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private static final List<Etape> ETAPES = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param debut millisecondes écoulées depuis le lancement de la JVM
+     * @param duree -1 pour un simple jalon
+     */
+    public record Etape(String nom, String thread, long debut, long duree) {
+    }
+
+    private ChronologieDemarrage() {
+    }
+
+    public static <T> T mesurer(String nom, Supplier<T> action) {
+        long debut = System.currentTimeMillis();
+        try {
+            return action.get();
+        } finally {
+            ETAPES.add(new Etape(nom, Thread.currentThread().getName(), debut - LANCEMENT_JVM,
+                System.currentTimeMillis() - debut));
+        }
+    }
+
+    public static void mesurerAction(String nom, Runnable action) {
+        mesurer(nom, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Note l'instant où une étape est atteinte
+     */
+    public static void jalon(String nom) {
+        ETAPES.add(new Etape(nom, Thread.currentThread().getName(),
+            System.currentTimeMillis() - LANCEMENT_JVM, -1));
+    }
+
+    public static List<Etape> getEtapes() {
+        return List.copyOf(ETAPES);
+    }
+
+    public static void journaliser() {
+        StringBuilder detail = new StringBuilder();
+        for (Etape etape : ETAPES) {
+            detail.append(String.format("%n  %6d ms  %-45s %8s  [%s]", etape.debut(), etape.nom(),
+                etape.duree() >= 0 ? etape.duree() + " ms" : "", etape.thread()));
+        }
+        logger.info("Démarrage en {} ms depuis le lancement de la JVM :{}",
+            System.currentTimeMillis() - LANCEMENT_JVM, detail);
+    }
+}
@@ -1,33 +1,168 @@
 package com.comptabilite.util;
 
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import org.hibernate.SessionFactory;
 import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Accès à la SessionFactory, construite une seule fois en arrière-plan.
+ *
+ * demarrer() lance la construction sans attendre (au démarrage, pendant que la fenêtre de connexion
+ * s'affiche) ; getSessionFactory() attend la fin de la construction si elle est encore en cours.
+ * Le schéma appartient aux migrations versionnées (MigrationsSchema), appliquées juste avant ;
+ * Hibernate ne fait que le valider.
+ */
 public class HibernateUtil {
 
     private static final Logger logger = LoggerFactory.getLogger(HibernateUtil.class);
-    private static SessionFactory sessionFactory;
+    private static final String PREFIXE_POOL = "hibernate.hikari.";
+    private static final String MODE_SCHEMA = "hibernate.hbm2ddl.auto";
+    // Valeur par défaut de HikariCP
+    private static final int TAILLE_POOL_DEFAUT = 10;
+
+    // Réglages surchargeables par des propriétés système, en plus de ceux du pool
+    private static final Set<String> PROPRIETES_SURCHARGEABLES = Set.of(MODE_SCHEMA, "hibernate.show_sql");
+
+    private static CompletableFuture<SessionFactory> demarrage;
+
+    /**
+     * Lance la construction de la SessionFactory sur un thread dédié ; sans effet si elle est déjà lancée
+     */
+    public static synchronized CompletableFuture<SessionFactory> demarrer() {
+        if (demarrage == null) {
+            demarrage = CompletableFuture.supplyAsync(HibernateUtil::construire, tache -> {
+                Thread thread = new Thread(tache, "demarrage-hibernate");
+                thread.setDaemon(true);
+                thread.start();
+            });
+        }
+        return demarrage;
+    }
+
+    public static SessionFactory getSessionFactory() {
+        try {
+            return demarrer().join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("SessionFactory indisponible: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
 
-    static {
+    private static SessionFactory construire() {
         try {
-            sessionFactory = new Configuration().configure().buildSessionFactory();
-            logger.info("SessionFactory Hibernate créée avec succès");
+            Configuration configuration = ChronologieDemarrage.mesurer("Lecture de la configuration Hibernate",
+                HibernateUtil::configuration);
+            ChronologieDemarrage.mesurerAction("Migrations du schéma",
+                () -> MigrationsSchema.migrer(configuration, HibernateUtil::mettreANiveauBaseExistante));
+            SessionFactory sessionFactory = ChronologieDemarrage.mesurer("Construction de la SessionFactory",
+                configuration::buildSessionFactory);
+            logger.info("SessionFactory Hibernate créée avec succès (schéma: {})",
+                configuration.getProperty(MODE_SCHEMA));
+            return sessionFactory;
         } catch (Throwable ex) {
             logger.error("Erreur lors de la création de la SessionFactory", ex);
-            throw new ExceptionInInitializerError(ex);
+            throw ex;
         }
     }
 
-    public static SessionFactory getSessionFactory() {
-        return sessionFactory;
+    /**
+     * Dernière mise à jour du schéma par Hibernate, pour une base créée avant les migrations versionnées
+     */
+    private static void mettreANiveauBaseExistante() {
+        configuration().setProperty(MODE_SCHEMA, "update").buildSessionFactory().close();
+    }
+
+    private static Configuration configuration() {
+        Configuration configuration = new Configuration().configure();
+
+        // Les réglages du pool et du schéma peuvent être surchargés par des propriétés système
+        System.getProperties().stringPropertyNames().stream()
+            .filter(nom -> nom.startsWith(PREFIXE_POOL) || PROPRIETES_SURCHARGEABLES.contains(nom))
+            .forEach(nom -> configuration.setProperty(nom, System.getProperty(nom)));
+        return configuration;
+    }
+
+    /**
+     * Taille maximale du pool de connexions configurée (surcharges système comprises), lue sans
+     * construire la SessionFactory
+     */
+    public static int getTailleMaximalePool() {
+        String taille = configuration().getProperty(PREFIXE_POOL + "maximumPoolSize");
+        try {
+            return taille != null ? Integer.parseInt(taille.trim()) : TAILLE_POOL_DEFAUT;
+        } catch (NumberFormatException e) {
+            logger.warn("Taille de pool invalide: {}", taille);
+            return TAILLE_POOL_DEFAUT;
+        }
+    }
+
+    /**
+     * SessionFactory si sa construction a abouti, sans l'attendre ni la déclencher ; null sinon
+     */
+    private static synchronized SessionFactory sessionFactoryDisponible() {
+        if (demarrage == null || !demarrage.isDone() || demarrage.isCompletedExceptionally()) {
+            return null;
+        }
+        return demarrage.join();
+    }
+
+    /**
+     * Photographie de l'état du pool de connexions, ou null si le pool n'est pas HikariCP
+     */
+    public static StatistiquesPool getStatistiquesPool() {
+        HikariDataSource dataSource = getDataSource();
+        if (dataSource == null || dataSource.getHikariPoolMXBean() == null) {
+            return null;
+        }
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        return new StatistiquesPool(
+            pool.getActiveConnections(),
+            pool.getIdleConnections(),
+            pool.getTotalConnections(),
+            pool.getThreadsAwaitingConnection(),
+            dataSource.getMaximumPoolSize());
+    }
+
+    private static HikariDataSource getDataSource() {
+        SessionFactory sessionFactory = sessionFactoryDisponible();
+        if (sessionFactory == null) {
+            return null;
+        }
+        ConnectionProvider provider = ((SessionFactoryImplementor) sessionFactory)
+            .getServiceRegistry().getService(ConnectionProvider.class);
+        if (provider != null && provider.isUnwrappableAs(HikariDataSource.class)) {
+            return provider.unwrap(HikariDataSource.class);
+        }
+        return null;
     }
 
     public static void shutdown() {
+        SessionFactory sessionFactory = sessionFactoryDisponible();
         if (sessionFactory != null) {
+            StatistiquesPool statistiques = getStatistiquesPool();
+            if (statistiques != null) {
+                logger.info("Pool de connexions à l'arrêt: {}", statistiques);
+            }
+            CacheReference.StatistiquesCache cache = CacheReference.getStatistiques();
+            if (cache != null) {
+                logger.info("Cache de second niveau à l'arrêt: {} (taux de succès {} %)",
+                    cache, Math.round(cache.tauxSucces() * 100));
+                CacheReference.journaliserRegions();
+            }
             sessionFactory.close();
             logger.info("SessionFactory Hibernate fermée");
         }
     }
-}
\ No newline at end of file
+
+    public record StatistiquesPool(int connexionsActives, int connexionsInactives, int connexionsTotales,
+                                   int threadsEnAttente, int tailleMaximale) {
+    }
+}
@@ -0,0 +1,349 @@
+package com.comptabilite.util;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Migrations versionnées du schéma, appliquées au démarrage avant la construction de la SessionFactory.
+ *
+ * Les scripts db/schema/V&lt;version&gt;__&lt;description&gt;.sql sont exécutés une seule fois, dans l'ordre
+ * des versions, et enregistrés dans la table schema_version avec l'empreinte SHA-256 de leur contenu.
+ * Un script déjà appliqué ne doit plus être modifié : une empreinte différente arrête le démarrage,
+ * comme une base dont la version est plus récente que l'application. Hibernate ne fait ensuite que
+ * valider le schéma.
+ *
+ * Une base créée avant les migrations (tables présentes, pas de schema_version) est mise à niveau
+ * une dernière fois par Hibernate, puis la version 1 est enregistrée comme référence sans être exécutée.
+ */
+public final class MigrationsSchema {
+
+    private static final Logger logger = LoggerFactory.getLogger(MigrationsSchema.class);
+
+    static final String EMPLACEMENT = "db/schema";
+    private static final Pattern NOM_SCRIPT = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+    // Sérialise les migrations entre plusieurs postes démarrés en même temps sur la même base
+    private static final String VERROU = "comptabilite_migrations";
+    private static final int ATTENTE_VERROU_SECONDES = 120;
+
+    // Objet déjà créé ou déjà supprimé (table, colonne, index, clé) : les scripts DDL de MySQL ne sont pas
+    // transactionnels, un script interrompu est repris depuis le début et ces erreurs sont alors ignorées
+    private static final Set<Integer> ERREURS_DEJA_APPLIQUE = Set.of(1050, 1060, 1061, 1091);
+
+    // Table témoin d'une base créée par Hibernate avant les migrations versionnées
+    private static final String TABLE_EXISTANTE = "ecritures_comptables";
+
+    public record Migration(int version, String description, String contenu) {
+
+        public String empreinte() {
+            return MigrationsSchema.empreinte(contenu);
+        }
+
+        public String script() {
+            return "V" + version + "__" + description + ".sql";
+        }
+    }
+
+    private MigrationsSchema() {
+    }
+
+    /**
+     * Amène la base décrite par la configuration Hibernate à la dernière version des scripts
+     *
+     * @param miseANiveauExistante met à niveau par Hibernate une base antérieure aux migrations
+     */
+    public static void migrer(Configuration configuration, Runnable miseANiveauExistante) {
+        List<Migration> migrations = lireMigrations();
+        try (Connection connexion = DriverManager.getConnection(
+                configuration.getProperty(AvailableSettings.URL),
+                configuration.getProperty(AvailableSettings.USER),
+                configuration.getProperty(AvailableSettings.PASS))) {
+            verrouiller(connexion);
+            try {
+                migrer(connexion, migrations, miseANiveauExistante);
+            } finally {
+                deverrouiller(connexion);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Migration du schéma impossible: " + e.getMessage(), e);
+        }
+    }
+
+    public static void migrer(Connection connexion, List<Migration> migrations, Runnable miseANiveauExistante)
+            throws SQLException {
+        boolean suiviExistant = tableExiste(connexion, "schema_version");
+        if (!suiviExistant) {
+            boolean baseExistante = tableExiste(connexion, TABLE_EXISTANTE);
+            creerTableVersions(connexion);
+            if (baseExistante && !migrations.isEmpty()) {
+                Migration reference = migrations.get(0);
+                logger.warn("Base créée avant les migrations versionnées : mise à niveau par Hibernate, "
+                    + "puis {} enregistré comme référence", reference.script());
+                miseANiveauExistante.run();
+                enregistrer(connexion, reference, 0);
+            }
+        }
+
+        Map<Integer, String> appliquees = versionsAppliquees(connexion);
+        verifier(migrations, appliquees);
+
+        int nombre = 0;
+        for (Migration migration : migrations) {
+            if (!appliquees.containsKey(migration.version())) {
+                appliquer(connexion, migration);
+                nombre++;
+            }
+        }
+        int version = migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).version();
+        if (nombre > 0) {
+            logger.info("Schéma migré en version {} ({} script(s) appliqué(s))", version, nombre);
+        } else {
+            logger.info("Schéma à jour (version {})", version);
+        }
+    }
+
+    /**
+     * Contrôle les scripts déjà appliqués : ils doivent exister et être restés identiques
+     */
+    static void verifier(List<Migration> migrations, Map<Integer, String> appliquees) {
+        Map<Integer, Migration> parVersion = new TreeMap<>();
+        migrations.forEach(migration -> parVersion.put(migration.version(), migration));
+
+        for (Map.Entry<Integer, String> appliquee : appliquees.entrySet()) {
+            Migration migration = parVersion.get(appliquee.getKey());
+            if (migration == null) {
+                throw new IllegalStateException("La base est en version " + appliquee.getKey()
+                    + ", inconnue de cette version de l'application");
+            }
+            if (!migration.empreinte().equals(appliquee.getValue())) {
+                throw new IllegalStateException("Le script " + migration.script()
+                    + " a été modifié après son application (empreinte " + appliquee.getValue()
+                    + " en base) : ajouter une nouvelle version au lieu de le modifier");
+            }
+        }
+    }
+
+    private static void appliquer(Connection connexion, Migration migration) throws SQLException {
+        logger.info("Application de {}", migration.script());
+        long debut = System.currentTimeMillis();
+        try (Statement statement = connexion.createStatement()) {
+            for (String instruction : decouper(migration.contenu())) {
+                try {
+                    statement.execute(instruction);
+                } catch (SQLException e) {
+                    if (!ERREURS_DEJA_APPLIQUE.contains(e.getErrorCode())) {
+                        throw new SQLException("Échec de " + migration.script() + " sur : " + instruction
+                            + " (" + e.getMessage() + ")", e.getSQLState(), e.getErrorCode(), e);
+                    }
+                    logger.warn("{} : instruction déjà appliquée, ignorée ({})", migration.script(), e.getMessage());
+                }
+            }
+        }
+        enregistrer(connexion, migration, System.currentTimeMillis() - debut);
+    }
+
+    private static void creerTableVersions(Connection connexion) throws SQLException {
+        try (Statement statement = connexion.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                "version INT NOT NULL, " +
+                "description VARCHAR(200) NOT NULL, " +
+                "empreinte CHAR(64) NOT NULL, " +
+                "installee_le DATETIME NOT NULL, " +
+                "duree_ms BIGINT NOT NULL, " +
+                "PRIMARY KEY (version))");
+        }
+    }
+
+    private static void enregistrer(Connection connexion, Migration migration, long duree) throws SQLException {
+        try (PreparedStatement insertion = connexion.prepareStatement(
+                "INSERT INTO schema_version (version, description, empreinte, installee_le, duree_ms) " +
+                "VALUES (?, ?, ?, ?, ?)")) {
+            insertion.setInt(1, migration.version());
+            insertion.setString(2, migration.description());
+            insertion.setString(3, migration.empreinte());
+            insertion.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+            insertion.setLong(5, duree);
+            insertion.executeUpdate();
+        }
+    }
+
+    private static Map<Integer, String> versionsAppliquees(Connection connexion) throws SQLException {
+        Map<Integer, String> versions = new TreeMap<>();
+        try (Statement statement = connexion.createStatement();
+             ResultSet resultat = statement.executeQuery("SELECT version, empreinte FROM schema_version")) {
+            while (resultat.next()) {
+                versions.put(resultat.getInt(1), resultat.getString(2));
+            }
+        }
+        return versions;
+    }
+
+    private static boolean tableExiste(Connection connexion, String table) throws SQLException {
+        try (PreparedStatement requete = connexion.prepareStatement(
+                "SELECT 1 FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?")) {
+            requete.setString(1, table);
+            try (ResultSet resultat = requete.executeQuery()) {
+                return resultat.next();
+            }
+        }
+    }
+
+    private static void verrouiller(Connection connexion) throws SQLException {
+        try (PreparedStatement requete = connexion.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            requete.setString(1, VERROU);
+            requete.setInt(2, ATTENTE_VERROU_SECONDES);
+            try (ResultSet resultat = requete.executeQuery()) {
+                if (!resultat.next() || resultat.getInt(1) != 1) {
+                    throw new SQLException("Migration déjà en cours sur un autre poste");
+                }
+            }
+        }
+    }
+
+    private static void deverrouiller(Connection connexion) {
+        try (PreparedStatement requete = connexion.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            requete.setString(1, VERROU);
+            requete.executeQuery().close();
+        } catch (SQLException e) {
+            logger.warn("Impossible de libérer le verrou des migrations: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Scripts du classpath triés par version ; deux scripts de même version sont refusés
+     */
+    public static List<Migration> lireMigrations() {
+        URL emplacement = MigrationsSchema.class.getClassLoader().getResource(EMPLACEMENT);
+        if (emplacement == null) {
+            throw new IllegalStateException("Scripts de migration introuvables (" + EMPLACEMENT + ")");
+        }
+        try {
+            URI uri = emplacement.toURI();
+            if ("jar".equals(uri.getScheme())) {
+                try (FileSystem jar = FileSystems.newFileSystem(uri, Map.of())) {
+                    return lireMigrations(jar.getPath(EMPLACEMENT));
+                }
+            }
+            return lireMigrations(Path.of(uri));
+        } catch (IOException | URISyntaxException e) {
+            throw new IllegalStateException("Lecture des scripts de migration impossible: " + e.getMessage(), e);
+        }
+    }
+
+    static List<Migration> lireMigrations(Path dossier) throws IOException {
+        List<Migration> migrations = new ArrayList<>();
+        try (Stream<Path> fichiers = Files.list(dossier)) {
+            for (Path fichier : (Iterable<Path>) fichiers::iterator) {
+                String nom = fichier.getFileName().toString();
+                Matcher matcher = NOM_SCRIPT.matcher(nom);
+                if (!matcher.matches()) {
+                    logger.warn("Fichier ignoré dans {} : {}", EMPLACEMENT, nom);
+                    continue;
+                }
+                migrations.add(new Migration(Integer.parseInt(matcher.group(1)), matcher.group(2),
+                    Files.readString(fichier, StandardCharsets.UTF_8)));
+            }
+        }
+        migrations.sort(Comparator.comparingInt(Migration::version));
+        for (int i = 1; i < migrations.size(); i++) {
+            if (migrations.get(i).version() == migrations.get(i - 1).version()) {
+                throw new IllegalStateException("Deux scripts de migration en version " + migrations.get(i).version());
+            }
+        }
+        return migrations;
+    }
+
+    /**
+     * Empreinte SHA-256 du script, indépendante des fins de ligne (Windows ou Unix)
+     */
+    static String empreinte(String contenu) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            byte[] octets = contenu.replace("\r\n", "\n").getBytes(StandardCharsets.UTF_8);
+            return HexFormat.of().formatHex(sha256.digest(octets));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Découpe un script en instructions séparées par des points-virgules, sans tenir compte
+     * de ceux des commentaires et des chaînes
+     */
+    static List<String> decouper(String script) {
+        List<String> instructions = new ArrayList<>();
+        StringBuilder courante = new StringBuilder();
+        char delimiteur = 0;
+        int i = 0;
+        while (i < script.length()) {
+            char c = script.charAt(i);
+            if (delimiteur != 0) {
+                courante.append(c);
+                if (c == '\\' && delimiteur != '`' && i + 1 < script.length()) {
+                    courante.append(script.charAt(++i));
+                } else if (c == delimiteur) {
+                    delimiteur = 0;
+                }
+            } else if (c == '-' && script.startsWith("--", i)) {
+                int fin = script.indexOf('\n', i);
+                i = fin < 0 ? script.length() : fin;
+                continue;
+            } else if (c == '/' && script.startsWith("/*", i)) {
+                int fin = script.indexOf("*/", i + 2);
+                i = fin < 0 ? script.length() : fin + 2;
+                courante.append(' ');
+                continue;
+            } else if (c == ';') {
+                ajouter(instructions, courante);
+            } else {
+                if (c == '\'' || c == '"' || c == '`') {
+                    delimiteur = c;
+                }
+                courante.append(c);
+            }
+            i++;
+        }
+        ajouter(instructions, courante);
+        return instructions;
+    }
+
+    private static void ajouter(List<String> instructions, StringBuilder courante) {
+        String instruction = courante.toString().strip();
+        if (!instruction.isEmpty()) {
+            instructions.add(instruction);
+        }
+        courante.setLength(0);
+    }
+}
@@ -4,6 +4,7 @@ import com.comptabilite.dao.CompteDAO;
 import com.comptabilite.model.Compte;
 import com.comptabilite.service.AuthenticationService;
 import com.comptabilite.service.CurrencyService;
+import com.comptabilite.service.MoteurComptabilisation;
 import javafx.collections.FXCollections;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -477,7 +478,9 @@ public class CompteDialogController implements Initializable {
             compte.setCompteParent(compteParentCombo.getValue());
             compte.setAccepteSousComptes(accepteSousComptesCheck.isSelected());
 
-            // Soldes
+            // Soldes : pour un compte existant, seul l'écart saisi est appliqué (cf. CompteDAO.ajusterSoldes)
+            BigDecimal ancienDebit = compte.getSoldeDebiteur() != null ? compte.getSoldeDebiteur() : BigDecimal.ZERO;
+            BigDecimal ancienCredit = compte.getSoldeCrediteur() != null ? compte.getSoldeCrediteur() : BigDecimal.ZERO;
             compte.setSoldeDebiteur(parseAmount(soldeDebiteurField.getText()));
             compte.setSoldeCrediteur(parseAmount(soldeCrediteurField.getText()));
 
@@ -493,8 +496,17 @@ public class CompteDialogController implements Initializable {
                 logger.info("Nouveau compte créé: {}", compte.getNumeroEtLibelle());
             } else {
                 compteDAO.update(compte);
+                BigDecimal ecartDebit = compte.getSoldeDebiteur().subtract(ancienDebit);
+                BigDecimal ecartCredit = compte.getSoldeCrediteur().subtract(ancienCredit);
+                if (ecartDebit.signum() != 0 || ecartCredit.signum() != 0) {
+                    compteDAO.ajusterSoldes(compte.getId(), ecartDebit, ecartCredit);
+                }
                 logger.info("Compte modifié: {}", compte.getNumeroEtLibelle());
             }
+            // Un numéro créé ou modifié peut changer les comptes retenus pour la comptabilisation des factures
+            if (compte.getEntreprise() != null) {
+                MoteurComptabilisation.invalider(compte.getEntreprise().getId());
+            }
 
             validated = true;
             dialogStage.close();
@@ -1,12 +1,20 @@
 package com.comptabilite.view;
 
 import com.comptabilite.dao.EcritureComptableDAO;
+import com.comptabilite.dao.EcritureComptableDAO.FiltreEcritures;
+import com.comptabilite.dao.EcritureComptableDAO.TotauxEcritures;
+import com.comptabilite.dao.EcritureComptableDAO.TriEcritures;
+import com.comptabilite.dto.EcritureResume;
 import com.comptabilite.model.EcritureComptable;
 import com.comptabilite.service.AuthenticationService;
 import com.comptabilite.service.EcritureComptableService;
+import com.comptabilite.service.EcritureComptableService.RapportValidation;
+import com.comptabilite.service.EcritureComptableService.ResultatValidation;
 import com.comptabilite.service.CurrencyService;
-import javafx.collections.FXCollections;
+import javafx.animation.PauseTransition;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -14,8 +22,8 @@ import javafx.fxml.Initializable;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.input.KeyEvent;
+import javafx.util.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,28 +31,40 @@ import java.math.BigDecimal;
 import java.net.URL;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.function.Predicate;
 
 public class EcrituresComptablesController implements Initializable {
 
     private static final Logger logger = LoggerFactory.getLogger(EcrituresComptablesController.class);
+    private static final String TOUS_LES_STATUTS = "Tous les statuts";
+    private static final String TOUS_LES_JOURNAUX = "Tous les journaux";
+
+    // Lignes lues par requête, et marge sous la zone visible qui déclenche la page suivante
+    private static final int TAILLE_PAGE = 200;
+    private static final int PRECHARGEMENT = 50;
 
     @FXML private DatePicker dateDebutPicker;
     @FXML private DatePicker dateFinPicker;
     @FXML private TextField rechercheField;
     @FXML private ComboBox<String> filtreStatutCombo;
-    @FXML private TableView<EcritureComptable> ecrituresTable;
-    @FXML private TableColumn<EcritureComptable, LocalDate> dateColumn;
-    @FXML private TableColumn<EcritureComptable, String> numeroColumn;
-    @FXML private TableColumn<EcritureComptable, String> libelleColumn;
-    @FXML private TableColumn<EcritureComptable, String> referenceColumn;
-    @FXML private TableColumn<EcritureComptable, BigDecimal> montantColumn;
-    @FXML private TableColumn<EcritureComptable, String> statutColumn;
-    @FXML private TableColumn<EcritureComptable, String> utilisateurColumn;
+    @FXML private ComboBox<String> filtreJournalCombo;
+    @FXML private TableView<EcritureResume> ecrituresTable;
+    @FXML private TableColumn<EcritureResume, LocalDate> dateColumn;
+    @FXML private TableColumn<EcritureResume, String> numeroColumn;
+    @FXML private TableColumn<EcritureResume, String> libelleColumn;
+    @FXML private TableColumn<EcritureResume, String> referenceColumn;
+    @FXML private TableColumn<EcritureResume, BigDecimal> montantColumn;
+    @FXML private TableColumn<EcritureResume, String> statutColumn;
+    @FXML private TableColumn<EcritureResume, String> utilisateurColumn;
     @FXML private Button ajouterButton;
     @FXML private Button modifierButton;
     @FXML private Button supprimerButton;
+    @FXML private Button validerButton;
+    @FXML private ProgressBar progressValidation;
     @FXML private Label totalEcrituresLabel;
     @FXML private Label totalMontantLabel;
 
@@ -52,7 +72,18 @@ public class EcrituresComptablesController implements Initializable {
     private final AuthenticationService authService;
     private final EcritureComptableService ecritureService;
     private final CurrencyService currencyService;
-    private ObservableList<EcritureComptable> ecritures;
+    private PagineurTable<EcritureResume> pagineur;
+    private FilteredList<EcritureResume> ecrituresFiltrees;
+    private Task<TotauxEcritures> tacheTotaux;
+    private Task<List<String>> tacheJournaux;
+
+    // Filtre courant, conservé d'un rechargement à l'autre : le prédicat s'applique aussitôt
+    // aux lignes déjà chargées, le filtre SQL aux pages relues ensuite
+    private Predicate<EcritureResume> filtreCourant = ecriture -> true;
+    private FiltreEcritures filtreBase;
+
+    // La recherche n'est appliquée qu'après une courte pause dans la frappe
+    private final PauseTransition delaiRecherche = new PauseTransition(Duration.millis(200));
 
     public EcrituresComptablesController() {
         this.ecritureDAO = new EcritureComptableDAO();
@@ -63,9 +94,11 @@ public class EcrituresComptablesController implements Initializable {
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
-        setupTable();
+        // Les combos déclenchent le filtrage dès leur sélection initiale : la table vient après
         setupComboBoxes();
         setupDatePickers();
+        setupTable();
+        delaiRecherche.setOnFinished(e -> filtrerEcritures());
         loadEcritures();
 
         // Activer/désactiver les boutons selon les droits
@@ -76,8 +109,9 @@ public class EcrituresComptablesController implements Initializable {
     }
 
     private void setupTable() {
-        dateColumn.setCellValueFactory(new PropertyValueFactory<>("dateEcriture"));
-        dateColumn.setCellFactory(col -> new TableCell<EcritureComptable, LocalDate>() {
+        dateColumn.setCellValueFactory(cellData ->
+            new javafx.beans.property.SimpleObjectProperty<>(cellData.getValue().dateEcriture()));
+        dateColumn.setCellFactory(col -> new TableCell<EcritureResume, LocalDate>() {
             @Override
             protected void updateItem(LocalDate item, boolean empty) {
                 super.updateItem(item, empty);
@@ -89,13 +123,16 @@ public class EcrituresComptablesController implements Initializable {
             }
         });
 
-        numeroColumn.setCellValueFactory(new PropertyValueFactory<>("numeroEcriture"));
-        libelleColumn.setCellValueFactory(new PropertyValueFactory<>("libelle"));
-        referenceColumn.setCellValueFactory(new PropertyValueFactory<>("reference"));
+        numeroColumn.setCellValueFactory(cellData ->
+            new javafx.beans.property.SimpleStringProperty(cellData.getValue().numeroEcriture()));
+        libelleColumn.setCellValueFactory(cellData ->
+            new javafx.beans.property.SimpleStringProperty(cellData.getValue().libelle()));
+        referenceColumn.setCellValueFactory(cellData ->
+            new javafx.beans.property.SimpleStringProperty(cellData.getValue().reference()));
 
         montantColumn.setCellValueFactory(cellData ->
-            new javafx.beans.property.SimpleObjectProperty<>(cellData.getValue().getMontantTotal()));
-        montantColumn.setCellFactory(col -> new TableCell<EcritureComptable, BigDecimal>() {
+            new javafx.beans.property.SimpleObjectProperty<>(cellData.getValue().montantTotal()));
+        montantColumn.setCellFactory(col -> new TableCell<EcritureResume, BigDecimal>() {
             @Override
             protected void updateItem(BigDecimal item, boolean empty) {
                 super.updateItem(item, empty);
@@ -109,18 +146,25 @@ public class EcrituresComptablesController implements Initializable {
 
         statutColumn.setCellValueFactory(cellData ->
             new javafx.beans.property.SimpleStringProperty(
-                cellData.getValue().getStatut().toString()));
+                cellData.getValue().statut().toString()));
 
         utilisateurColumn.setCellValueFactory(cellData ->
-            new javafx.beans.property.SimpleStringProperty(
-                cellData.getValue().getUtilisateur().getNomComplet()));
+            new javafx.beans.property.SimpleStringProperty(cellData.getValue().utilisateur()));
+
+        // Lignes chargées page par page au défilement, triées par la base (date ou numéro)
+        pagineur = new PagineurTable<>(ecrituresTable, "Chargement des écritures", TAILLE_PAGE, PRECHARGEMENT);
+        pagineur.setApresChargement(() -> ecrituresTable.setPlaceholder(new Label("Aucune écriture")));
+        pagineur.setSurErreur(e -> showError("Erreur lors du chargement des écritures: " + e.getMessage()));
+        pagineur.trierEnBase(Set.of(dateColumn, numeroColumn), this::rechargerEcritures);
+        ecrituresFiltrees = new FilteredList<>(pagineur.getLignes(), filtreCourant);
+        ecrituresTable.setItems(ecrituresFiltrees);
 
         // Activer la sélection multiple
         ecrituresTable.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
 
         // Double-clic pour modifier
         ecrituresTable.setRowFactory(tv -> {
-            TableRow<EcritureComptable> row = new TableRow<>();
+            TableRow<EcritureResume> row = new TableRow<>();
             row.setOnMouseClicked(event -> {
                 if (event.getClickCount() == 2 && !row.isEmpty()) {
                     modifierEcriture(null);
@@ -132,12 +176,15 @@ public class EcrituresComptablesController implements Initializable {
 
     private void setupComboBoxes() {
         filtreStatutCombo.getItems().addAll(
-            "Tous les statuts",
+            TOUS_LES_STATUTS,
             "BROUILLON",
             "VALIDEE",
             "CLOTUREE"
         );
         filtreStatutCombo.getSelectionModel().selectFirst();
+
+        filtreJournalCombo.getItems().add(TOUS_LES_JOURNAUX);
+        filtreJournalCombo.getSelectionModel().selectFirst();
     }
 
     private void setupDatePickers() {
@@ -148,85 +195,133 @@ public class EcrituresComptablesController implements Initializable {
     }
 
     private void loadEcritures() {
-        try {
-            if (authService.isUserLoggedIn()) {
-                // Utiliser l'entreprise de l'utilisateur connecté
-                Long entrepriseId = authService.getUtilisateurConnecte().getEntreprise().getId();
-                List<EcritureComptable> ecrituresList = ecritureService.getEcrituresByEntreprise(entrepriseId);
-                ecritures = FXCollections.observableArrayList(ecrituresList);
-                ecrituresTable.setItems(ecritures);
-
-                updateStatistics();
+        if (authService.isUserLoggedIn()) {
+            // Utiliser l'entreprise de l'utilisateur connecté
+            Long entrepriseId = authService.getUtilisateurConnecte().getEntreprise().getId();
+            ExecuteurTaches.annuler(tacheJournaux);
+            tacheJournaux = ExecuteurTaches.lancer("Chargement des journaux",
+                avancement -> ecritureService.getNumerosJournaux(entrepriseId),
+                this::mettreAJourJournaux,
+                e -> logger.warn("Journaux indisponibles pour le filtre: {}", e.getMessage()));
+
+            // Premier affichage : filtres par défaut de l'écran (période du mois courant)
+            if (filtreBase == null) {
+                filtrerEcritures();
+            } else {
+                rechargerEcritures();
             }
-        } catch (Exception e) {
-            logger.error("Erreur lors du chargement des écritures", e);
-            showError("Erreur lors du chargement des écritures: " + e.getMessage());
         }
     }
 
-    private void updateStatistics() {
-        if (ecritures == null) return;
+    /**
+     * Relit la première page et les totaux selon le filtre et le tri courants
+     */
+    private void rechargerEcritures() {
+        if (filtreBase == null) return;
 
-        int count = ecrituresTable.getItems().size();
-        BigDecimal total = ecrituresTable.getItems().stream()
-            .map(EcritureComptable::getMontantTotal)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        FiltreEcritures filtre = filtreBase;
+        TriEcritures tri = pagineur.getColonneTri() == numeroColumn ? TriEcritures.NUMERO : TriEcritures.DATE;
+        boolean croissant = pagineur.isTriCroissant();
 
-        totalEcrituresLabel.setText("Total: " + count + " écritures");
-        totalMontantLabel.setText("Montant total: " + currencyService.formatAmount(total));
+        if (pagineur.getLignes().isEmpty()) {
+            ecrituresTable.setPlaceholder(new Label("Chargement des écritures..."));
+        }
+        pagineur.recharger((derniere, taille) ->
+            ecritureService.getPageResumes(filtre, tri, croissant, derniere, taille));
+
+        ExecuteurTaches.annuler(tacheTotaux);
+        tacheTotaux = ExecuteurTaches.lancer("Totaux des écritures",
+            avancement -> ecritureService.getTotaux(filtre),
+            this::updateStatistics,
+            e -> logger.warn("Totaux des écritures indisponibles: {}", e.getMessage()));
+    }
+
+    private void updateStatistics(TotauxEcritures totaux) {
+        totalEcrituresLabel.setText("Total: " + totaux.nombre() + " écritures");
+        totalMontantLabel.setText("Montant total: " + currencyService.formatAmount(totaux.montant()));
     }
 
     @FXML
     private void rechercher(KeyEvent event) {
-        filtrerEcritures();
+        delaiRecherche.playFromStart();
     }
 
     @FXML
     private void rechercher(ActionEvent event) {
+        delaiRecherche.stop();
         filtrerEcritures();
     }
 
+    @FXML
+    private void filtrerParStatut(ActionEvent event) {
+        filtrerEcritures();
+    }
+
+    @FXML
+    private void filtrerParJournal(ActionEvent event) {
+        filtrerEcritures();
+    }
+
+    /**
+     * Combine les filtres actifs (texte, période, statut, journal) en un seul prédicat
+     * appliqué aussitôt aux lignes chargées, puis relit les pages filtrées par la base
+     */
     private void filtrerEcritures() {
-        String terme = rechercheField.getText().toLowerCase();
+        Predicate<EcritureResume> filtre = ecriture -> true;
+
+        // Chaque mot saisi doit figurer dans le numéro, le libellé ou la référence
+        String[] mots = EcritureResume.normaliser(rechercheField.getText()).trim().split("\\s+");
+        for (String mot : mots) {
+            if (!mot.isEmpty()) {
+                filtre = filtre.and(ecriture -> ecriture.cleRecherche().contains(mot));
+            }
+        }
+
         LocalDate dateDebut = dateDebutPicker.getValue();
+        if (dateDebut != null) {
+            filtre = filtre.and(ecriture -> !ecriture.dateEcriture().isBefore(dateDebut));
+        }
         LocalDate dateFin = dateFinPicker.getValue();
+        if (dateFin != null) {
+            filtre = filtre.and(ecriture -> !ecriture.dateEcriture().isAfter(dateFin));
+        }
 
-        if (ecritures == null) return;
-
-        ObservableList<EcritureComptable> filtered = ecritures.filtered(ecriture -> {
-            // Filtre par terme de recherche
-            boolean matchTerme = terme.isEmpty() ||
-                ecriture.getLibelle().toLowerCase().contains(terme) ||
-                ecriture.getReference().toLowerCase().contains(terme) ||
-                ecriture.getNumeroEcriture().toLowerCase().contains(terme);
+        String statut = filtreStatutCombo.getSelectionModel().getSelectedItem();
+        EcritureComptable.StatutEcriture statutFiltre = null;
+        if (statut != null && !statut.equals(TOUS_LES_STATUTS)) {
+            EcritureComptable.StatutEcriture statutSelectionne = EcritureComptable.StatutEcriture.valueOf(statut);
+            filtre = filtre.and(ecriture -> ecriture.statut() == statutSelectionne);
+            statutFiltre = statutSelectionne;
+        }
 
-            // Filtre par période
-            boolean matchPeriode = true;
-            if (dateDebut != null) {
-                matchPeriode = !ecriture.getDateEcriture().isBefore(dateDebut);
-            }
-            if (dateFin != null && matchPeriode) {
-                matchPeriode = !ecriture.getDateEcriture().isAfter(dateFin);
-            }
+        String journal = filtreJournalCombo.getSelectionModel().getSelectedItem();
+        String journalFiltre = null;
+        if (journal != null && !journal.equals(TOUS_LES_JOURNAUX)) {
+            filtre = filtre.and(ecriture -> journal.equals(ecriture.numeroJournal()));
+            journalFiltre = journal;
+        }
 
-            return matchTerme && matchPeriode;
-        });
+        filtreCourant = filtre;
+        if (ecrituresFiltrees == null) {
+            return;
+        }
+        ecrituresFiltrees.setPredicate(filtre);
 
-        ecrituresTable.setItems(filtered);
-        updateStatistics();
+        if (authService.isUserLoggedIn()) {
+            Long entrepriseId = authService.getUtilisateurConnecte().getEntreprise().getId();
+            filtreBase = new FiltreEcritures(entrepriseId, dateDebut, dateFin, statutFiltre, journalFiltre,
+                rechercheField.getText());
+            rechargerEcritures();
+        }
     }
 
-    @FXML
-    private void filtrerParStatut(ActionEvent event) {
-        String statutSelectionne = filtreStatutCombo.getSelectionModel().getSelectedItem();
-        if (statutSelectionne == null || statutSelectionne.equals("Tous les statuts")) {
-            ecrituresTable.setItems(ecritures);
-        } else {
-            ObservableList<EcritureComptable> filtered = ecritures.filtered(ecriture ->
-                ecriture.getStatut().toString().equals(statutSelectionne));
-            ecrituresTable.setItems(filtered);
-        }
-        updateStatistics();
+    private void mettreAJourJournaux(List<String> numerosJournaux) {
+        String selection = filtreJournalCombo.getSelectionModel().getSelectedItem();
+        List<String> journaux = new ArrayList<>();
+        journaux.add(TOUS_LES_JOURNAUX);
+        journaux.addAll(numerosJournaux);
+        filtreJournalCombo.getItems().setAll(journaux);
+        filtreJournalCombo.getSelectionModel().select(journaux.contains(selection) ? selection : TOUS_LES_JOURNAUX);
     }
 
     @FXML
@@ -261,13 +356,13 @@ public class EcrituresComptablesController implements Initializable {
 
     @FXML
     private void modifierEcriture(ActionEvent event) {
-        EcritureComptable selectedEcriture = ecrituresTable.getSelectionModel().getSelectedItem();
+        EcritureResume selectedEcriture = ecrituresTable.getSelectionModel().getSelectedItem();
         if (selectedEcriture == null) {
             showWarning("Veuillez sélectionner une écriture à modifier");
             return;
         }
 
-        if (selectedEcriture.getStatut() == EcritureComptable.StatutEcriture.CLOTUREE) {
+        if (selectedEcriture.statut() == EcritureComptable.StatutEcriture.CLOTUREE) {
             showWarning("Les écritures clôturées ne peuvent pas être modifiées");
             return;
         }
@@ -277,7 +372,7 @@ public class EcrituresComptablesController implements Initializable {
             Scene scene = new Scene(loader.load());
 
             Stage dialog = new Stage();
-            dialog.setTitle("Modifier Écriture - " + selectedEcriture.getNumeroEcriture());
+            dialog.setTitle("Modifier Écriture - " + selectedEcriture.numeroEcriture());
             dialog.initModality(javafx.stage.Modality.APPLICATION_MODAL);
             dialog.setScene(scene);
             dialog.setResizable(true);
@@ -288,7 +383,7 @@ public class EcrituresComptablesController implements Initializable {
             controller.setDialogStage(dialog);
 
             // Charger l'écriture avec toutes ses lignes
-            EcritureComptable ecritureWithLignes = ecritureService.getEcritureWithLignes(selectedEcriture.getId());
+            EcritureComptable ecritureWithLignes = ecritureService.getEcritureWithLignes(selectedEcriture.id());
             controller.setEcriture(ecritureWithLignes); // Pré-remplir avec les données existantes
 
             dialog.showAndWait();
@@ -306,13 +401,13 @@ public class EcrituresComptablesController implements Initializable {
 
     @FXML
     private void supprimerEcriture(ActionEvent event) {
-        EcritureComptable selectedEcriture = ecrituresTable.getSelectionModel().getSelectedItem();
+        EcritureResume selectedEcriture = ecrituresTable.getSelectionModel().getSelectedItem();
         if (selectedEcriture == null) {
             showWarning("Veuillez sélectionner une écriture à supprimer");
             return;
         }
 
-        if (selectedEcriture.getStatut() != EcritureComptable.StatutEcriture.BROUILLON) {
+        if (selectedEcriture.statut() != EcritureComptable.StatutEcriture.BROUILLON) {
             showWarning("Seules les écritures en brouillon peuvent être supprimées");
             return;
         }
@@ -321,11 +416,11 @@ public class EcrituresComptablesController implements Initializable {
         confirmation.setTitle("Confirmation");
         confirmation.setHeaderText("Supprimer l'écriture");
         confirmation.setContentText("Êtes-vous sûr de vouloir supprimer l'écriture " +
-                                   selectedEcriture.getNumeroEcriture() + " ?");
+                                   selectedEcriture.numeroEcriture() + " ?");
 
         if (confirmation.showAndWait().orElse(ButtonType.CANCEL) == ButtonType.OK) {
             try {
-                ecritureService.supprimerEcriture(selectedEcriture);
+                ecritureService.supprimerEcriture(ecritureService.getEcritureWithLignes(selectedEcriture.id()));
                 loadEcritures();
                 showInfo("Écriture supprimée avec succès");
             } catch (Exception e) {
@@ -343,7 +438,7 @@ public class EcrituresComptablesController implements Initializable {
     @FXML
     private void validerEcritures(ActionEvent event) {
         // Récupérer les écritures sélectionnées
-        ObservableList<EcritureComptable> ecrituresSelectionnees = ecrituresTable.getSelectionModel().getSelectedItems();
+        ObservableList<EcritureResume> ecrituresSelectionnees = ecrituresTable.getSelectionModel().getSelectedItems();
 
         if (ecrituresSelectionnees.isEmpty()) {
             showWarning("Veuillez sélectionner au moins une écriture à valider.");
@@ -351,8 +446,8 @@ public class EcrituresComptablesController implements Initializable {
         }
 
         // Filtrer les écritures en brouillon
-        List<EcritureComptable> ecrituresAValider = ecrituresSelectionnees.stream()
-            .filter(e -> e.getStatut() == EcritureComptable.StatutEcriture.BROUILLON)
+        List<EcritureResume> ecrituresAValider = ecrituresSelectionnees.stream()
+            .filter(e -> e.statut() == EcritureComptable.StatutEcriture.BROUILLON)
             .toList();
 
         if (ecrituresAValider.isEmpty()) {
@@ -370,33 +465,46 @@ public class EcrituresComptablesController implements Initializable {
             return;
         }
 
-        // Valider les écritures
-        int validees = 0;
-        int erreurs = 0;
-        StringBuilder messageErreurs = new StringBuilder();
+        // Valider le lot en arrière-plan, en une seule transaction
+        List<Long> ids = ecrituresAValider.stream().map(EcritureResume::id).toList();
+        validerButton.setDisable(true);
+        Task<RapportValidation> tache = ExecuteurTaches.lancer("Validation des écritures",
+            avancement -> ecritureService.validerEcritures(ids, avancement::progression),
+            rapport -> {
+                finValidation();
+                afficherRapportValidation(rapport);
+                loadEcritures();
+            },
+            e -> {
+                finValidation();
+                showError("Erreur lors de la validation des écritures: " + e.getMessage());
+            });
+        progressValidation.progressProperty().bind(tache.progressProperty());
+        progressValidation.setManaged(true);
+        progressValidation.setVisible(true);
+    }
 
-        for (EcritureComptable ecriture : ecrituresAValider) {
-            try {
-                ecritureService.validerEcriture(ecriture);
-                validees++;
-                logger.info("Écriture {} validée avec succès", ecriture.getNumeroEcriture());
-            } catch (Exception e) {
-                erreurs++;
-                logger.error("Erreur lors de la validation de l'écriture {}: {}", ecriture.getNumeroEcriture(), e.getMessage());
-                messageErreurs.append(String.format("- Écriture %s : %s\n", ecriture.getNumeroEcriture(), e.getMessage()));
-            }
-        }
+    private void finValidation() {
+        progressValidation.progressProperty().unbind();
+        progressValidation.setManaged(false);
+        progressValidation.setVisible(false);
+        validerButton.setDisable(false);
+    }
 
-        // Afficher le résultat
-        if (erreurs == 0) {
-            showInfo(String.format("%d écriture(s) validée(s) avec succès.", validees));
-        } else {
-            showWarning(String.format("Validation terminée : %d succès, %d erreur(s).\n\nErreurs :\n%s",
-                        validees, erreurs, messageErreurs.toString()));
+    private void afficherRapportValidation(RapportValidation rapport) {
+        List<ResultatValidation> refusees = rapport.refusees();
+        if (refusees.isEmpty()) {
+            showInfo(String.format("%d écriture(s) validée(s) avec succès.", rapport.nombreValidees()));
+            return;
         }
 
-        // Rafraîchir la liste
-        loadEcritures();
+        StringBuilder messageErreurs = new StringBuilder();
+        for (ResultatValidation refus : refusees) {
+            messageErreurs.append(String.format("- Écriture %s : %s\n",
+                refus.numeroEcriture() != null ? refus.numeroEcriture() : refus.id(), refus.message()));
+        }
+        showWarning(String.format("Validation terminée : %d succès, %d erreur(s).\n\nErreurs :\n%s",
+                    rapport.nombreValidees(), refusees.size(), messageErreurs));
     }
 
     private void showInfo(String message) {
@@ -0,0 +1,124 @@
+package com.comptabilite.view;
+
+import com.comptabilite.util.HibernateUtil;
+import javafx.concurrent.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Exécute les chargements et les calculs de rapports hors du thread JavaFX.
+ *
+ * Le travail tourne sur un thread du pool ; le résultat ou l'erreur est remis au
+ * thread JavaFX (événements du Task), la fenêtre restant utilisable pendant le calcul.
+ * Une tâche annulée ne livre rien : un résultat périmé n'écrase jamais un plus récent.
+ *
+ * Chaque tâche tient une session Hibernate, donc une connexion : le pool de threads est borné à
+ * la taille du pool de connexions, les tâches en surnombre attendent leur tour dans la file.
+ */
+public final class ExecuteurTaches {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecuteurTaches.class);
+
+    private static final AtomicInteger COMPTEUR = new AtomicInteger();
+
+    private static final ExecutorService EXECUTEUR = creerExecuteur(HibernateUtil.getTailleMaximalePool());
+
+    private ExecuteurTaches() {
+    }
+
+    private static ExecutorService creerExecuteur(int threads) {
+        ThreadPoolExecutor executeur = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "comptabilite-tache-" + COMPTEUR.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        // Les threads inutilisés s'arrêtent comme ceux d'un pool à la demande
+        executeur.allowCoreThreadTimeOut(true);
+        return executeur;
+    }
+
+    /**
+     * Travail exécuté en arrière-plan ; ne doit pas toucher aux composants graphiques
+     */
+    @FunctionalInterface
+    public interface Travail<T> {
+        T executer(Avancement avancement) throws Exception;
+    }
+
+    /**
+     * Permet au travail de signaler sa progression et de détecter une annulation
+     */
+    public interface Avancement {
+        void progression(long fait, long total);
+
+        void message(String message);
+
+        boolean estAnnule();
+    }
+
+    /**
+     * Lance un travail en arrière-plan.
+     *
+     * @param succes appelé sur le thread JavaFX avec le résultat
+     * @param echec  appelé sur le thread JavaFX avec l'exception levée
+     */
+    public static <T> Task<T> lancer(String description, Travail<T> travail,
+                                     Consumer<T> succes, Consumer<Throwable> echec) {
+        Task<T> tache = new Task<>() {
+            @Override
+            protected T call() throws Exception {
+                updateMessage(description);
+                return travail.executer(new Avancement() {
+                    @Override
+                    public void progression(long fait, long total) {
+                        updateProgress(fait, total);
+                    }
+
+                    @Override
+                    public void message(String message) {
+                        updateMessage(message);
+                    }
+
+                    @Override
+                    public boolean estAnnule() {
+                        return isCancelled();
+                    }
+                });
+            }
+        };
+
+        tache.setOnSucceeded(e -> succes.accept(tache.getValue()));
+        tache.setOnFailed(e -> {
+            logger.error("Échec de la tâche '{}'", description, tache.getException());
+            echec.accept(tache.getException());
+        });
+        tache.setOnCancelled(e -> logger.debug("Tâche '{}' annulée", description));
+
+        EXECUTEUR.execute(tache);
+        return tache;
+    }
+
+    /**
+     * Annule une tâche, en file d'attente ou en cours (sans effet sur null ou une tâche terminée)
+     */
+    public static void annuler(Task<?> tache) {
+        if (tache != null) {
+            tache.cancel();
+        }
+    }
+
+    /**
+     * Interrompt les tâches en cours, à l'arrêt de l'application
+     */
+    public static void arreter() {
+        EXECUTEUR.shutdownNow();
+    }
+}
@@ -0,0 +1,169 @@
+package com.comptabilite.view;
+
+import com.comptabilite.model.Exercice;
+import com.comptabilite.service.AuthenticationService;
+import com.comptabilite.service.ClotureExerciceService;
+import com.comptabilite.service.ClotureExerciceService.RapportCloture;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.scene.control.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URL;
+import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+import java.util.ResourceBundle;
+
+public class ExercicesController implements Initializable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExercicesController.class);
+
+    private static final DateTimeFormatter FORMAT_DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final DateTimeFormatter FORMAT_DATE_HEURE = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    @FXML private Label statusLabel;
+    @FXML private Button cloturerBtn;
+    @FXML private ProgressIndicator progressCloture;
+
+    @FXML private TableView<Exercice> exercicesTable;
+    @FXML private TableColumn<Exercice, String> libelleColumn;
+    @FXML private TableColumn<Exercice, String> debutColumn;
+    @FXML private TableColumn<Exercice, String> finColumn;
+    @FXML private TableColumn<Exercice, String> statutColumn;
+    @FXML private TableColumn<Exercice, String> clotureColumn;
+
+    private final ClotureExerciceService clotureService;
+    private final AuthenticationService authService;
+    private final ObservableList<Exercice> exercicesList;
+    private boolean clotureEnCours;
+
+    public ExercicesController() {
+        this.clotureService = new ClotureExerciceService();
+        this.authService = AuthenticationService.getInstance();
+        this.exercicesList = FXCollections.observableArrayList();
+    }
+
+    @Override
+    public void initialize(URL location, ResourceBundle resources) {
+        libelleColumn.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getLibelle()));
+        debutColumn.setCellValueFactory(cellData ->
+            new SimpleStringProperty(cellData.getValue().getDateDebut().format(FORMAT_DATE)));
+        finColumn.setCellValueFactory(cellData ->
+            new SimpleStringProperty(cellData.getValue().getDateFin().format(FORMAT_DATE)));
+        statutColumn.setCellValueFactory(cellData ->
+            new SimpleStringProperty(traduireStatut(cellData.getValue().getStatut())));
+        clotureColumn.setCellValueFactory(cellData -> {
+            var dateCloture = cellData.getValue().getDateCloture();
+            return new SimpleStringProperty(dateCloture != null ? dateCloture.format(FORMAT_DATE_HEURE) : "");
+        });
+        exercicesTable.setItems(exercicesList);
+
+        exercicesTable.getSelectionModel().selectedItemProperty()
+            .addListener((obs, ancien, nouveau) -> majBoutons());
+
+        loadExercices();
+    }
+
+    @FXML
+    private void handleRefresh() {
+        loadExercices();
+    }
+
+    @FXML
+    private void handleCloturer() {
+        Exercice exercice = exercicesTable.getSelectionModel().getSelectedItem();
+        if (exercice == null || exercice.getStatut() != Exercice.StatutExercice.OUVERT) {
+            return;
+        }
+
+        Alert confirmation = new Alert(Alert.AlertType.CONFIRMATION);
+        confirmation.setTitle("Confirmation");
+        confirmation.setHeaderText("Clôturer " + exercice.getLibelle());
+        confirmation.setContentText("Les écritures de l'exercice seront figées et les à-nouveaux générés "
+            + "dans l'exercice suivant.\n\nCette opération est définitive. Continuer ?");
+        Optional<ButtonType> reponse = confirmation.showAndWait();
+        if (reponse.isEmpty() || reponse.get() != ButtonType.OK) {
+            return;
+        }
+
+        debutCloture(true);
+        statusLabel.setText("Clôture de " + exercice.getLibelle() + " en cours...");
+        ExecuteurTaches.lancer("Clôture de l'exercice " + exercice.getLibelle(),
+            avancement -> clotureService.cloturer(exercice.getId()),
+            rapport -> {
+                debutCloture(false);
+                loadExercices();
+                afficherRapport(rapport);
+            },
+            e -> {
+                debutCloture(false);
+                statusLabel.setText("Échec de la clôture");
+                showError("Clôture impossible : " + e.getMessage());
+            });
+    }
+
+    private void loadExercices() {
+        try {
+            Long entrepriseId = authService.getUtilisateurConnecte().getEntreprise().getId();
+            exercicesList.setAll(clotureService.getExercices(entrepriseId));
+            statusLabel.setText(exercicesList.size() + " exercice(s)");
+        } catch (Exception e) {
+            logger.error("Erreur lors du chargement des exercices", e);
+            statusLabel.setText("Erreur lors du chargement des exercices");
+        }
+        majBoutons();
+    }
+
+    private void debutCloture(boolean enCours) {
+        clotureEnCours = enCours;
+        progressCloture.setManaged(enCours);
+        progressCloture.setVisible(enCours);
+        majBoutons();
+    }
+
+    private void majBoutons() {
+        Exercice selection = exercicesTable.getSelectionModel().getSelectedItem();
+        cloturerBtn.setDisable(clotureEnCours || selection == null
+            || selection.getStatut() != Exercice.StatutExercice.OUVERT || !authService.canModifyData());
+    }
+
+    private void afficherRapport(RapportCloture rapport) {
+        StringBuilder message = new StringBuilder(String.format(
+            "%s clôturé en %d ms.\n\n%d compte(s) figé(s), %d écriture(s) clôturée(s).\n",
+            rapport.exercice(), rapport.duree(), rapport.comptes(), rapport.ecrituresFigees()));
+        if (rapport.numeroANouveaux() != null) {
+            message.append(String.format("À-nouveaux %s : %d ligne(s) dans %s.\n",
+                rapport.numeroANouveaux(), rapport.lignesANouveaux(), rapport.exerciceSuivant()));
+        } else {
+            message.append("Aucun solde à reporter dans ").append(rapport.exerciceSuivant()).append(".\n");
+        }
+        message.append(String.format("Résultat de l'exercice : %,.2f", rapport.resultat()));
+
+        statusLabel.setText(rapport.exercice() + " clôturé");
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle("Clôture de l'exercice");
+        alert.setHeaderText(null);
+        alert.setContentText(message.toString());
+        alert.showAndWait();
+    }
+
+    private String traduireStatut(Exercice.StatutExercice statut) {
+        return switch (statut) {
+            case OUVERT -> "Ouvert";
+            case CLOTURE -> "Clôturé";
+            case ARCHIVE -> "Archivé";
+        };
+    }
+
+    private void showError(String message) {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle("Erreur");
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.showAndWait();
+    }
+}
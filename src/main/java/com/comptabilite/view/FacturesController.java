@@ -1,5 +1,8 @@
 package com.comptabilite.view;
 
+import com.comptabilite.dao.FactureDAO.FiltreFactures;
+import com.comptabilite.dao.FactureDAO.TriFactures;
+import com.comptabilite.dto.FactureResume;
 import com.comptabilite.model.Facture;
 import com.comptabilite.model.Client;
 import com.comptabilite.model.Fournisseur;
@@ -7,50 +10,59 @@ import com.comptabilite.service.FactureService;
 import com.comptabilite.service.ClientService;
 import com.comptabilite.service.FournisseurService;
 import com.comptabilite.service.AuthenticationService;
+import com.comptabilite.service.ImportFacturesService;
+import com.comptabilite.service.ImportFacturesService.RapportImport;
+import com.comptabilite.service.ImportFacturesService.Rejet;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.net.URL;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.Set;
 
 public class FacturesController implements Initializable {
 
     private static final Logger logger = LoggerFactory.getLogger(FacturesController.class);
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
 
+    // Lignes lues par requête, et marge sous la zone visible qui déclenche la page suivante
+    private static final int TAILLE_PAGE = 200;
+    private static final int PRECHARGEMENT = 50;
+
     @FXML private TextField rechercheField;
     @FXML private ComboBox<String> typeCombo;
     @FXML private ComboBox<String> statutCombo;
     @FXML private DatePicker dateDebutPicker;
     @FXML private DatePicker dateFinPicker;
 
-    @FXML private TableView<Facture> facturesTable;
-    @FXML private TableColumn<Facture, String> numeroColumn;
-    @FXML private TableColumn<Facture, String> dateColumn;
-    @FXML private TableColumn<Facture, String> typeColumn;
-    @FXML private TableColumn<Facture, String> partenaireColumn;
-    @FXML private TableColumn<Facture, String> objetColumn;
-    @FXML private TableColumn<Facture, BigDecimal> montantColumn;
-    @FXML private TableColumn<Facture, String> statutColumn;
-    @FXML private TableColumn<Facture, String> echeanceColumn;
+    @FXML private TableView<FactureResume> facturesTable;
+    @FXML private TableColumn<FactureResume, String> numeroColumn;
+    @FXML private TableColumn<FactureResume, String> dateColumn;
+    @FXML private TableColumn<FactureResume, String> typeColumn;
+    @FXML private TableColumn<FactureResume, String> partenaireColumn;
+    @FXML private TableColumn<FactureResume, String> objetColumn;
+    @FXML private TableColumn<FactureResume, BigDecimal> montantColumn;
+    @FXML private TableColumn<FactureResume, String> statutColumn;
+    @FXML private TableColumn<FactureResume, String> echeanceColumn;
 
     @FXML private Button nouvelleFactureButton;
     @FXML private Button modifierButton;
@@ -58,18 +70,21 @@ public class FacturesController implements Initializable {
     @FXML private Button envoyerButton;
     @FXML private Button marquerPayeeButton;
     @FXML private Button voirEcrituresButton;
+    @FXML private Button importerButton;
+    @FXML private ProgressBar progressImport;
 
     private FactureService factureService;
+    private ImportFacturesService importService;
     private ClientService clientService;
     private FournisseurService fournisseurService;
-    private ObservableList<Facture> facturesData;
+    private PagineurTable<FactureResume> pagineur;
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         factureService = new FactureService();
+        importService = new ImportFacturesService();
         clientService = new ClientService();
         fournisseurService = new FournisseurService();
-        facturesData = FXCollections.observableArrayList();
 
         setupTable();
         setupFilters();
@@ -78,40 +93,47 @@ public class FacturesController implements Initializable {
     }
 
     private void setupTable() {
-        facturesTable.setItems(facturesData);
+        // Factures chargées page par page au défilement, triées par la base (date ou numéro)
+        pagineur = new PagineurTable<>(facturesTable, "Chargement des factures", TAILLE_PAGE, PRECHARGEMENT);
+        pagineur.setSurErreur(e -> showError("Erreur lors du chargement: " + e.getMessage()));
+        pagineur.trierEnBase(Set.of(numeroColumn, dateColumn), this::filterFactures);
+        facturesTable.setItems(pagineur.getLignes());
 
-        numeroColumn.setCellValueFactory(new PropertyValueFactory<>("numeroFacture"));
+        numeroColumn.setCellValueFactory(cellData ->
+            new SimpleStringProperty(cellData.getValue().numeroFacture()));
 
         dateColumn.setCellValueFactory(cellData ->
-            new SimpleStringProperty(cellData.getValue().getDateFacture().format(DATE_FORMATTER)));
+            new SimpleStringProperty(cellData.getValue().dateFacture().format(DATE_FORMATTER)));
 
         typeColumn.setCellValueFactory(cellData ->
-            new SimpleStringProperty(getTypeDisplayName(cellData.getValue().getTypeFacture())));
+            new SimpleStringProperty(getTypeDisplayName(cellData.getValue().typeFacture())));
 
         partenaireColumn.setCellValueFactory(cellData ->
-            new SimpleStringProperty(cellData.getValue().getNomPartenaire()));
+            new SimpleStringProperty(cellData.getValue().nomPartenaire()));
 
-        objetColumn.setCellValueFactory(new PropertyValueFactory<>("objet"));
-        montantColumn.setCellValueFactory(new PropertyValueFactory<>("montantTTC"));
+        objetColumn.setCellValueFactory(cellData ->
+            new SimpleStringProperty(cellData.getValue().objet()));
+        montantColumn.setCellValueFactory(cellData ->
+            new SimpleObjectProperty<>(cellData.getValue().montantTTC()));
 
         statutColumn.setCellValueFactory(cellData ->
-            new SimpleStringProperty(getStatutDisplayName(cellData.getValue().getStatut())));
+            new SimpleStringProperty(getStatutDisplayName(cellData.getValue().statut())));
 
         echeanceColumn.setCellValueFactory(cellData -> {
-            LocalDate echeance = cellData.getValue().getDateEcheance();
+            LocalDate echeance = cellData.getValue().dateEcheance();
             return new SimpleStringProperty(echeance != null ? echeance.format(DATE_FORMATTER) : "-");
         });
 
         // Style conditionnel pour les factures en retard
-        facturesTable.setRowFactory(tv -> new TableRow<Facture>() {
+        facturesTable.setRowFactory(tv -> new TableRow<FactureResume>() {
             @Override
-            protected void updateItem(Facture facture, boolean empty) {
+            protected void updateItem(FactureResume facture, boolean empty) {
                 super.updateItem(facture, empty);
                 if (empty || facture == null) {
                     setStyle("");
                 } else if (facture.isEnRetard()) {
                     setStyle("-fx-background-color: #ffebee;");
-                } else if (facture.getStatut() == Facture.StatutFacture.PAYEE) {
+                } else if (facture.statut() == Facture.StatutFacture.PAYEE) {
                     setStyle("-fx-background-color: #e8f5e8;");
                 } else {
                     setStyle("");
@@ -146,16 +168,16 @@ public class FacturesController implements Initializable {
     }
 
     private void updateButtonStates() {
-        Facture selectedFacture = facturesTable.getSelectionModel().getSelectedItem();
+        FactureResume selectedFacture = facturesTable.getSelectionModel().getSelectedItem();
         boolean hasSelection = selectedFacture != null;
 
         modifierButton.setDisable(!hasSelection);
         supprimerButton.setDisable(!hasSelection ||
-            (hasSelection && selectedFacture.getStatut() != Facture.StatutFacture.BROUILLON));
+            (hasSelection && selectedFacture.statut() != Facture.StatutFacture.BROUILLON));
         envoyerButton.setDisable(!hasSelection ||
-            (hasSelection && selectedFacture.getStatut() != Facture.StatutFacture.BROUILLON));
+            (hasSelection && selectedFacture.statut() != Facture.StatutFacture.BROUILLON));
         marquerPayeeButton.setDisable(!hasSelection ||
-            (hasSelection && selectedFacture.getStatut() != Facture.StatutFacture.ENVOYEE));
+            (hasSelection && selectedFacture.statut() != Facture.StatutFacture.ENVOYEE));
         voirEcrituresButton.setDisable(!hasSelection);
     }
 
@@ -183,7 +205,7 @@ public class FacturesController implements Initializable {
 
     @FXML
     private void modifierFacture(ActionEvent event) {
-        Facture selectedFacture = facturesTable.getSelectionModel().getSelectedItem();
+        Facture selectedFacture = getFactureSelectionnee();
         if (selectedFacture != null) {
             ouvrirDialogFacture(selectedFacture, selectedFacture.getTypeFacture());
         }
@@ -191,7 +213,7 @@ public class FacturesController implements Initializable {
 
     @FXML
     private void supprimerFacture(ActionEvent event) {
-        Facture selectedFacture = facturesTable.getSelectionModel().getSelectedItem();
+        Facture selectedFacture = getFactureSelectionnee();
         if (selectedFacture != null) {
             Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
             alert.setTitle("Confirmation");
@@ -215,7 +237,7 @@ public class FacturesController implements Initializable {
 
     @FXML
     private void envoyerFacture(ActionEvent event) {
-        Facture selectedFacture = facturesTable.getSelectionModel().getSelectedItem();
+        Facture selectedFacture = getFactureSelectionnee();
         if (selectedFacture != null) {
             Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
             alert.setTitle("Confirmation");
@@ -239,7 +261,7 @@ public class FacturesController implements Initializable {
 
     @FXML
     private void marquerPayee(ActionEvent event) {
-        Facture selectedFacture = facturesTable.getSelectionModel().getSelectedItem();
+        Facture selectedFacture = getFactureSelectionnee();
         if (selectedFacture != null) {
             // Dialog pour saisir la date de paiement
             Dialog<LocalDate> dialog = new Dialog<>();
@@ -275,13 +297,97 @@ public class FacturesController implements Initializable {
 
     @FXML
     private void voirEcritures(ActionEvent event) {
-        Facture selectedFacture = facturesTable.getSelectionModel().getSelectedItem();
+        Facture selectedFacture = getFactureSelectionnee();
         if (selectedFacture != null) {
             // TODO: Ouvrir la vue des écritures comptables liées à cette facture
             showInfo("Fonctionnalité 'Voir les écritures' en cours de développement.");
         }
     }
 
+    @FXML
+    private void importerFactures(ActionEvent event) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Importer des factures");
+        fileChooser.getExtensionFilters().addAll(
+            new FileChooser.ExtensionFilter("Fichiers de factures (CSV, JSON)", "*.csv", "*.json"),
+            new FileChooser.ExtensionFilter("Fichiers CSV", "*.csv"),
+            new FileChooser.ExtensionFilter("Fichiers JSON", "*.json"));
+        File fichier = fileChooser.showOpenDialog(facturesTable.getScene().getWindow());
+        if (fichier == null) {
+            return;
+        }
+
+        // Import en arrière-plan ; un import interrompu reprend là où il s'était arrêté
+        Long entrepriseId = AuthenticationService.getInstance().getUtilisateurConnecte().getEntreprise().getId();
+        importerButton.setDisable(true);
+        Task<RapportImport> tache = ExecuteurTaches.lancer("Import des factures",
+            avancement -> importService.importer(fichier.toPath(), entrepriseId,
+                avancement::progression, avancement::estAnnule),
+            rapport -> {
+                finImport();
+                afficherRapportImport(rapport);
+                loadFactures();
+            },
+            e -> {
+                finImport();
+                showError("Erreur lors de l'import des factures: " + e.getMessage());
+            });
+        progressImport.progressProperty().bind(tache.progressProperty());
+        progressImport.setManaged(true);
+        progressImport.setVisible(true);
+    }
+
+    private void finImport() {
+        progressImport.progressProperty().unbind();
+        progressImport.setManaged(false);
+        progressImport.setVisible(false);
+        importerButton.setDisable(false);
+    }
+
+    private void afficherRapportImport(RapportImport rapport) {
+        StringBuilder message = new StringBuilder(String.format(
+            "%d facture(s) importée(s), %d déjà importée(s), %d rejetée(s) en %d s.",
+            rapport.importees(), rapport.dejaImportees(), rapport.rejetees(), rapport.duree().toSeconds()));
+        if (rapport.reprisesApres() > 0) {
+            message.append(String.format("\nImport repris après la facture n°%d du fichier.", rapport.reprisesApres()));
+        }
+        if (rapport.erreur() != null) {
+            message.append("\n\nImport arrêté : ").append(rapport.erreur())
+                .append("\nRelancez l'import du même fichier pour reprendre.");
+        }
+        if (!rapport.rejets().isEmpty()) {
+            message.append("\n\nRejets :\n");
+            for (Rejet rejet : rapport.rejets().subList(0, Math.min(20, rapport.rejets().size()))) {
+                message.append(String.format("- Facture %s (n°%d) : %s\n", rejet.reference(), rejet.position(), rejet.motif()));
+            }
+            if (rapport.rejetees() > 20) {
+                message.append(String.format("... et %d autre(s), voir le journal de l'application.", rapport.rejetees() - 20));
+            }
+        }
+        if (rapport.complet() && rapport.rejetees() == 0) {
+            showInfo(message.toString());
+        } else {
+            showError(message.toString());
+        }
+    }
+
+    /**
+     * Recharge la facture sélectionnée avec ses lignes et partenaires, la liste n'en gardant qu'un résumé
+     */
+    private Facture getFactureSelectionnee() {
+        FactureResume resume = facturesTable.getSelectionModel().getSelectedItem();
+        if (resume == null) {
+            return null;
+        }
+        Optional<Facture> facture = factureService.getFactureComplete(resume.id());
+        if (facture.isEmpty()) {
+            showError("La facture " + resume.numeroFacture() + " n'existe plus.");
+            loadFactures();
+            return null;
+        }
+        return facture.get();
+    }
+
     private void ouvrirDialogFacture(Facture facture, Facture.TypeFacture typeFacture) {
         try {
             FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/fxml/facture-dialog.fxml"));
@@ -314,96 +420,52 @@ public class FacturesController implements Initializable {
     }
 
     private void loadFactures() {
-        try {
-            Long entrepriseId = AuthenticationService.getInstance().getUtilisateurConnecte().getEntreprise().getId();
-            List<Facture> factures = factureService.getFacturesByEntreprise(entrepriseId);
-            facturesData.clear();
-            facturesData.addAll(factures);
-            filterFactures();
-        } catch (Exception e) {
-            logger.error("Erreur lors du chargement des factures", e);
-            showError("Erreur lors du chargement: " + e.getMessage());
-        }
+        filterFactures();
     }
 
+    /**
+     * Relit la première page selon les filtres et le tri ; une nouvelle saisie annule
+     * la lecture précédente, les pages suivantes arrivent au défilement
+     */
     private void filterFactures() {
-        try {
-            Long entrepriseId = AuthenticationService.getInstance().getUtilisateurConnecte().getEntreprise().getId();
-            List<Facture> factures;
-
-            // Appliquer les filtres
-            String searchText = rechercheField.getText();
-            if (searchText != null && !searchText.trim().isEmpty()) {
-                factures = factureService.rechercherFactures(searchText.trim(), entrepriseId);
-            } else {
-                factures = factureService.getFacturesByEntreprise(entrepriseId);
-            }
-
-            // Filtrer par type
-            String typeFilter = typeCombo.getValue();
-            if (!"Tous".equals(typeFilter)) {
-                factures = factures.stream()
-                    .filter(f -> matchesTypeFilter(f, typeFilter))
-                    .toList();
-            }
-
-            // Filtrer par statut
-            String statutFilter = statutCombo.getValue();
-            if (!"Tous".equals(statutFilter)) {
-                factures = factures.stream()
-                    .filter(f -> matchesStatutFilter(f, statutFilter))
-                    .toList();
-            }
-
-            // Filtrer par période
-            LocalDate dateDebut = dateDebutPicker.getValue();
-            LocalDate dateFin = dateFinPicker.getValue();
-            if (dateDebut != null || dateFin != null) {
-                factures = factures.stream()
-                    .filter(f -> matchesDateFilter(f, dateDebut, dateFin))
-                    .toList();
-            }
-
-            facturesData.clear();
-            facturesData.addAll(factures);
-
-        } catch (Exception e) {
-            logger.error("Erreur lors du filtrage", e);
-        }
+        Long entrepriseId = AuthenticationService.getInstance().getUtilisateurConnecte().getEntreprise().getId();
+
+        // Lire les filtres sur le thread JavaFX avant de lancer la requête
+        String statutFilter = statutCombo.getValue();
+        FiltreFactures filtre = new FiltreFactures(entrepriseId,
+            typeFilter(typeCombo.getValue()),
+            statutFilter(statutFilter),
+            "En retard".equals(statutFilter),
+            dateDebutPicker.getValue(),
+            dateFinPicker.getValue(),
+            rechercheField.getText());
+        TriFactures tri = pagineur.getColonneTri() == numeroColumn ? TriFactures.NUMERO : TriFactures.DATE;
+        boolean croissant = pagineur.isTriCroissant();
+
+        pagineur.recharger((derniere, taille) ->
+            factureService.getPageResumes(filtre, tri, croissant, derniere, taille));
     }
 
-    private boolean matchesTypeFilter(Facture facture, String typeFilter) {
-        return switch (typeFilter) {
-            case "Ventes" -> facture.getTypeFacture() == Facture.TypeFacture.VENTE;
-            case "Achats" -> facture.getTypeFacture() == Facture.TypeFacture.ACHAT;
-            case "Avoirs vente" -> facture.getTypeFacture() == Facture.TypeFacture.AVOIR_VENTE;
-            case "Avoirs achat" -> facture.getTypeFacture() == Facture.TypeFacture.AVOIR_ACHAT;
-            default -> true;
+    private Facture.TypeFacture typeFilter(String typeFilter) {
+        return switch (typeFilter != null ? typeFilter : "Tous") {
+            case "Ventes" -> Facture.TypeFacture.VENTE;
+            case "Achats" -> Facture.TypeFacture.ACHAT;
+            case "Avoirs vente" -> Facture.TypeFacture.AVOIR_VENTE;
+            case "Avoirs achat" -> Facture.TypeFacture.AVOIR_ACHAT;
+            default -> null;
         };
     }
 
-    private boolean matchesStatutFilter(Facture facture, String statutFilter) {
-        return switch (statutFilter) {
-            case "Brouillon" -> facture.getStatut() == Facture.StatutFacture.BROUILLON;
-            case "Envoyées" -> facture.getStatut() == Facture.StatutFacture.ENVOYEE;
-            case "Payées" -> facture.getStatut() == Facture.StatutFacture.PAYEE;
-            case "Annulées" -> facture.getStatut() == Facture.StatutFacture.ANNULEE;
-            case "En retard" -> facture.isEnRetard();
-            default -> true;
+    private Facture.StatutFacture statutFilter(String statutFilter) {
+        return switch (statutFilter != null ? statutFilter : "Tous") {
+            case "Brouillon" -> Facture.StatutFacture.BROUILLON;
+            case "Envoyées" -> Facture.StatutFacture.ENVOYEE;
+            case "Payées" -> Facture.StatutFacture.PAYEE;
+            case "Annulées" -> Facture.StatutFacture.ANNULEE;
+            default -> null;
         };
     }
 
-    private boolean matchesDateFilter(Facture facture, LocalDate dateDebut, LocalDate dateFin) {
-        LocalDate dateFacture = facture.getDateFacture();
-        if (dateDebut != null && dateFacture.isBefore(dateDebut)) {
-            return false;
-        }
-        if (dateFin != null && dateFacture.isAfter(dateFin)) {
-            return false;
-        }
-        return true;
-    }
-
     private String getTypeDisplayName(Facture.TypeFacture type) {
         return switch (type) {
             case VENTE -> "Vente";
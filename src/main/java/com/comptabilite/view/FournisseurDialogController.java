@@ -121,8 +121,7 @@ public class FournisseurDialogController implements Initializable {
             // Nouveau fournisseur - générer le code automatiquement
             if (fournisseurService != null) {
                 try {
-                    String codeGenere = fournisseurService.getFournisseursByEntreprise(1L).size() > 0 ?
-                        String.format("F%04d", fournisseurService.getNombreFournisseurs() + 1) : "F0001";
+                    String codeGenere = fournisseurService.genererCodeFournisseur();
                     codeField.setText(codeGenere);
                 } catch (Exception e) {
                     logger.warn("Impossible de générer le code fournisseur", e);
@@ -3,6 +3,7 @@ package com.comptabilite.view;
 import com.comptabilite.dao.UtilisateurDAO;
 import com.comptabilite.model.Utilisateur;
 import com.comptabilite.service.AuthenticationService;
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -17,6 +18,8 @@ import java.io.IOException;
 import java.net.URL;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class LoginController implements Initializable {
 
@@ -27,8 +30,10 @@ public class LoginController implements Initializable {
     @FXML private Button loginButton;
     @FXML private Button cancelButton;
     @FXML private Label errorLabel;
+    @FXML private Label statutLabel;
 
     private Stage primaryStage;
+    private volatile boolean pret = true;
     private final AuthenticationService authenticationService;
 
     public LoginController() {
@@ -38,6 +43,7 @@ public class LoginController implements Initializable {
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         loginButton.setDefaultButton(true);
+        statutLabel.managedProperty().bind(statutLabel.visibleProperty());
         usernameField.requestFocus();
 
         usernameField.setOnKeyPressed(event -> {
@@ -53,8 +59,37 @@ public class LoginController implements Initializable {
         });
     }
 
+    /**
+     * Bloque la connexion tant que la base de données n'est pas prête ; la saisie reste possible
+     */
+    public void setDemarrage(CompletableFuture<?> demarrage) {
+        if (demarrage.isDone() && !demarrage.isCompletedExceptionally()) {
+            return;
+        }
+        pret = false;
+        loginButton.setDisable(true);
+        statutLabel.setText("Connexion à la base de données...");
+        statutLabel.setVisible(true);
+
+        demarrage.whenComplete((resultat, erreur) -> Platform.runLater(() -> {
+            if (erreur != null) {
+                Throwable cause = erreur instanceof CompletionException && erreur.getCause() != null
+                    ? erreur.getCause() : erreur;
+                statutLabel.setVisible(false);
+                showError("Base de données indisponible: " + cause.getMessage());
+                return;
+            }
+            pret = true;
+            statutLabel.setVisible(false);
+            loginButton.setDisable(false);
+        }));
+    }
+
     @FXML
     private void handleLogin(ActionEvent event) {
+        if (!pret) {
+            return;
+        }
         String username = usernameField.getText().trim();
         String password = passwordField.getText();
 
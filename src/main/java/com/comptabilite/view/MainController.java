@@ -294,7 +294,21 @@ public class MainController implements Initializable {
 
     @FXML
     private void showExercices(ActionEvent event) {
-        showInfo("Gestion exercices en cours de développement");
+        try {
+            FXMLLoader fxmlLoader = new FXMLLoader(getClass().getResource("/fxml/exercices.fxml"));
+
+            Alert exercicesDialog = new Alert(Alert.AlertType.NONE);
+            exercicesDialog.setTitle("Exercices Comptables");
+            exercicesDialog.setHeaderText(null);
+            exercicesDialog.getDialogPane().setContent(fxmlLoader.load());
+            exercicesDialog.getDialogPane().setPrefSize(900, 500);
+            exercicesDialog.getButtonTypes().add(ButtonType.CLOSE);
+            exercicesDialog.showAndWait();
+
+        } catch (IOException e) {
+            logger.error("Erreur lors de l'ouverture des exercices", e);
+            statusLabel.setText("Erreur lors de l'ouverture des exercices");
+        }
     }
 
     @FXML
@@ -0,0 +1,201 @@
+package com.comptabilite.view;
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.scene.control.IndexedCell;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.skin.VirtualFlow;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Alimente une TableView page par page, au fil du défilement.
+ *
+ * Chaque page est lue en arrière-plan par pagination sur clé : la source reçoit la dernière
+ * ligne déjà chargée et renvoie les lignes qui la suivent dans l'ordre de tri. La page suivante
+ * est demandée dès que la dernière ligne visible entre dans la fenêtre de préchargement ;
+ * seules les lignes effectivement parcourues sont gardées en mémoire.
+ *
+ * Le tri par colonne est délégué à la base : changer de tri recharge la première page.
+ */
+public class PagineurTable<T> {
+
+    /**
+     * Lecture d'une page ; appelée hors du thread JavaFX
+     */
+    @FunctionalInterface
+    public interface SourcePages<T> {
+        /**
+         * @param derniere dernière ligne déjà chargée, null pour la première page
+         */
+        List<T> lirePage(T derniere, int taille) throws Exception;
+    }
+
+    private final TableView<T> table;
+    private final String description;
+    private final int taillePage;
+    private final int prechargement;
+    private final ObservableList<T> lignes = FXCollections.observableArrayList();
+
+    private SourcePages<T> source;
+    private Task<List<T>> tacheEnCours;
+    // Numéro du dernier chargement lancé : seule sa tâche peut toucher aux lignes
+    private long chargements;
+    private VirtualFlow<?> flow;
+    private boolean complet = true;
+    private TableColumn<T, ?> colonneTriAppliquee;
+    private TableColumn.SortType sensTriApplique;
+    private Runnable apresChargement = () -> { };
+    private Consumer<Throwable> surErreur = e -> { };
+
+    /**
+     * @param taillePage    nombre de lignes lues par requête
+     * @param prechargement nombre de lignes restant sous la zone visible en deçà duquel la page
+     *                      suivante est demandée
+     */
+    public PagineurTable(TableView<T> table, String description, int taillePage, int prechargement) {
+        this.table = table;
+        this.description = description;
+        this.taillePage = taillePage;
+        this.prechargement = prechargement;
+
+        // Le VirtualFlow n'existe qu'une fois le skin de la table créé
+        table.skinProperty().addListener((obs, ancien, skin) -> Platform.runLater(this::surveillerDefilement));
+        if (table.getSkin() != null) {
+            surveillerDefilement();
+        }
+    }
+
+    /**
+     * Lignes chargées jusqu'ici, à placer (éventuellement filtrées) dans la table
+     */
+    public ObservableList<T> getLignes() {
+        return lignes;
+    }
+
+    public void setApresChargement(Runnable apresChargement) {
+        this.apresChargement = apresChargement;
+    }
+
+    public void setSurErreur(Consumer<Throwable> surErreur) {
+        this.surErreur = surErreur;
+    }
+
+    /**
+     * Toutes les lignes répondant à la source ont-elles été chargées ?
+     */
+    public boolean estComplet() {
+        return complet;
+    }
+
+    /**
+     * Repart de la première page avec une nouvelle source (filtres ou tri modifiés).
+     * Les lignes déjà affichées restent visibles jusqu'à l'arrivée de la nouvelle page.
+     */
+    public void recharger(SourcePages<T> nouvelleSource) {
+        ExecuteurTaches.annuler(tacheEnCours);
+        source = nouvelleSource;
+        complet = false;
+        chargerPage(null);
+    }
+
+    /**
+     * Délègue le tri des colonnes indiquées à la base ; les autres colonnes ne sont plus triables.
+     * Le rechargement n'est lancé que si la colonne ou le sens du tri change réellement.
+     */
+    public void trierEnBase(Set<TableColumn<T, ?>> colonnesTriables, Runnable rechargement) {
+        for (TableColumn<T, ?> colonne : table.getColumns()) {
+            colonne.setSortable(colonnesTriables.contains(colonne));
+        }
+        table.setSortPolicy(t -> {
+            TableColumn<T, ?> colonne = getColonneTri();
+            TableColumn.SortType sens = colonne != null ? colonne.getSortType() : null;
+            if (colonne != colonneTriAppliquee || sens != sensTriApplique) {
+                colonneTriAppliquee = colonne;
+                sensTriApplique = sens;
+                rechargement.run();
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Colonne de tri choisie par l'utilisateur, null pour l'ordre par défaut
+     */
+    public TableColumn<T, ?> getColonneTri() {
+        return table.getSortOrder().isEmpty() ? null : table.getSortOrder().get(0);
+    }
+
+    public boolean isTriCroissant() {
+        TableColumn<T, ?> colonne = getColonneTri();
+        return colonne != null && colonne.getSortType() == TableColumn.SortType.ASCENDING;
+    }
+
+    private void surveillerDefilement() {
+        if (flow == null && table.lookup(".virtual-flow") instanceof VirtualFlow<?> virtualFlow) {
+            flow = virtualFlow;
+            flow.positionProperty().addListener((obs, ancienne, nouvelle) -> verifierPrechargement());
+            verifierPrechargement();
+        }
+    }
+
+    /**
+     * Demande la page suivante si la fin des lignes chargées approche de la zone visible
+     */
+    private void verifierPrechargement() {
+        if (complet || enCours() || flow == null) {
+            return;
+        }
+        IndexedCell<?> derniereVisible = flow.getLastVisibleCell();
+        int affichees = table.getItems() != null ? table.getItems().size() : 0;
+        boolean finProche = derniereVisible == null ? affichees == 0
+            : derniereVisible.getIndex() >= affichees - prechargement;
+        if (finProche) {
+            chargerPage(lignes.isEmpty() ? null : lignes.get(lignes.size() - 1));
+        }
+    }
+
+    private void chargerPage(T derniere) {
+        SourcePages<T> sourcePage = source;
+        boolean premiere = derniere == null;
+        long chargement = ++chargements;
+        tacheEnCours = ExecuteurTaches.lancer(description,
+            avancement -> sourcePage.lirePage(derniere, taillePage),
+            page -> {
+                // Une page d'une source remplacée depuis ne touche plus aux lignes
+                if (chargement != chargements) {
+                    return;
+                }
+                tacheEnCours = null;
+                complet = page.size() < taillePage;
+                if (premiere) {
+                    lignes.setAll(page);
+                } else {
+                    lignes.addAll(page);
+                }
+                apresChargement.run();
+                // Une page qui ne remplit pas la zone visible appelle la suivante après mise en page
+                Platform.runLater(this::verifierPrechargement);
+            },
+            e -> {
+                if (chargement != chargements) {
+                    return;
+                }
+                tacheEnCours = null;
+                complet = true;
+                surErreur.accept(e);
+            });
+    }
+
+    /**
+     * Une tâche en file d'attente compte comme en cours : isRunning() n'est vrai qu'une fois lancée
+     */
+    private boolean enCours() {
+        return tacheEnCours != null && !tacheEnCours.isDone();
+    }
+}
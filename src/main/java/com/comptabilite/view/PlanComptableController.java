@@ -1,13 +1,16 @@
 package com.comptabilite.view;
 
 import com.comptabilite.dao.CompteDAO;
+import com.comptabilite.dao.CompteDAO.FiltreComptes;
 import com.comptabilite.model.Compte;
+import com.comptabilite.service.AccountTree;
 import com.comptabilite.service.AuthenticationService;
 import com.comptabilite.service.PlanComptableService;
 import com.comptabilite.service.CurrencyService;
+import com.comptabilite.service.LettrageService;
+import com.comptabilite.service.MoteurLettrage.Methode;
 import javafx.application.Platform;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -26,12 +29,17 @@ import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
 import java.net.URL;
-import java.util.List;
 import java.util.ResourceBundle;
+import java.util.Set;
 
 public class PlanComptableController implements Initializable {
 
     private static final Logger logger = LoggerFactory.getLogger(PlanComptableController.class);
+    private static final String TOUTES_LES_CLASSES = "Toutes les classes";
+
+    // Lignes lues par requête, et marge sous la zone visible qui déclenche la page suivante
+    private static final int TAILLE_PAGE = 200;
+    private static final int PRECHARGEMENT = 50;
 
     @FXML private TextField rechercheField;
     @FXML private ComboBox<String> filtreClasseCombo;
@@ -47,35 +55,42 @@ public class PlanComptableController implements Initializable {
     @FXML private Button modifierButton;
     @FXML private Button supprimerButton;
     @FXML private Button initialiserPlanButton;
+    @FXML private Button lettrageButton;
     @FXML private Label totalComptesLabel;
 
     private final CompteDAO compteDAO;
     private final AuthenticationService authService;
     private final PlanComptableService planComptableService;
     private final CurrencyService currencyService;
-    private ObservableList<Compte> comptes;
+    private final LettrageService lettrageService;
+    private PagineurTable<Compte> pagineur;
+    private AccountTree arbreComptes;
+    private Task<AccountTree> tacheArbre;
+    private Task<Long> tacheComptage;
+    private Compte compteASelectionner;
+    private long totalComptes;
 
     public PlanComptableController() {
         this.compteDAO = new CompteDAO();
         this.authService = AuthenticationService.getInstance();
         this.planComptableService = new PlanComptableService();
         this.currencyService = CurrencyService.getInstance();
+        this.lettrageService = new LettrageService();
     }
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
-        setupTable();
+        // Sélection par défaut du filtre avant que la table ne soit prête : pas de chargement en double
         setupComboBox();
+        setupTable();
         loadComptes();
 
-        // Sélection par défaut du filtre
-        filtreClasseCombo.getSelectionModel().selectFirst();
-
         // Activer/désactiver les boutons selon les droits
         boolean canModify = authService.canModifyData();
         ajouterButton.setDisable(!canModify);
         modifierButton.setDisable(!canModify);
         supprimerButton.setDisable(!canModify);
+        lettrageButton.setDisable(!canModify);
 
         // Adapter le bouton d'initialisation selon l'entreprise
         setupInitializationButton();
@@ -92,6 +107,7 @@ public class PlanComptableController implements Initializable {
             "Classe 6 - Comptes de charges",
             "Classe 7 - Comptes de produits"
         );
+        filtreClasseCombo.getSelectionModel().selectFirst();
     }
 
     private void setupTable() {
@@ -103,18 +119,18 @@ public class PlanComptableController implements Initializable {
         classeColumn.setCellValueFactory(cellData ->
             new javafx.beans.property.SimpleStringProperty(
                 cellData.getValue().getClasseCompte().toString()));
-        // Utiliser les soldes consolidés pour les comptes parents
+        // Utiliser les soldes consolidés pour les comptes parents (lus dans l'index, sans récursion)
         soldeDebiteurColumn.setCellValueFactory(cellData -> {
             Compte compte = cellData.getValue();
-            BigDecimal solde = compte.getAccepteSousComptes() ?
-                compte.getSoldeDebiteurConsolide() : compte.getSoldeDebiteur();
+            BigDecimal solde = compte.getAccepteSousComptes() && arbreComptes != null ?
+                arbreComptes.getSoldeDebiteurConsolide(compte.getId()) : compte.getSoldeDebiteur();
             return new javafx.beans.property.SimpleObjectProperty<>(solde);
         });
 
         soldeCrediteurColumn.setCellValueFactory(cellData -> {
             Compte compte = cellData.getValue();
-            BigDecimal solde = compte.getAccepteSousComptes() ?
-                compte.getSoldeCrediteurConsolide() : compte.getSoldeCrediteur();
+            BigDecimal solde = compte.getAccepteSousComptes() && arbreComptes != null ?
+                arbreComptes.getSoldeCrediteurConsolide(compte.getId()) : compte.getSoldeCrediteur();
             return new javafx.beans.property.SimpleObjectProperty<>(solde);
         });
 
@@ -132,7 +148,7 @@ public class PlanComptableController implements Initializable {
                     Compte compte = getTableView().getItems().get(getIndex());
                     String formattedAmount = currencyService.formatAmountForTable(item);
 
-                    if (compte.getAccepteSousComptes() && !compte.getSousComptes().isEmpty()) {
+                    if (compte.getAccepteSousComptes() && arbreComptes != null && arbreComptes.aSousComptes(compte.getId())) {
                         setText(formattedAmount + " (C)"); // (C) = Consolidé
                         setStyle("-fx-font-weight: bold; -fx-text-fill: #2E8B57;");
                     } else {
@@ -154,7 +170,7 @@ public class PlanComptableController implements Initializable {
                     Compte compte = getTableView().getItems().get(getIndex());
                     String formattedAmount = currencyService.formatAmountForTable(item);
 
-                    if (compte.getAccepteSousComptes() && !compte.getSousComptes().isEmpty()) {
+                    if (compte.getAccepteSousComptes() && arbreComptes != null && arbreComptes.aSousComptes(compte.getId())) {
                         setText(formattedAmount + " (C)"); // (C) = Consolidé
                         setStyle("-fx-font-weight: bold; -fx-text-fill: #2E8B57;");
                     } else {
@@ -165,6 +181,13 @@ public class PlanComptableController implements Initializable {
             }
         });
 
+        // Comptes chargés page par page au défilement, dans l'ordre des numéros
+        pagineur = new PagineurTable<>(comptesTable, "Chargement des comptes", TAILLE_PAGE, PRECHARGEMENT);
+        pagineur.setApresChargement(this::apresChargementPage);
+        pagineur.setSurErreur(e -> showError("Erreur lors du chargement des comptes: " + e.getMessage()));
+        pagineur.trierEnBase(Set.of(), () -> { });
+        comptesTable.setItems(pagineur.getLignes());
+
         // Double-clic pour modifier
         comptesTable.setRowFactory(tv -> {
             TableRow<Compte> row = new TableRow<>();
@@ -178,26 +201,35 @@ public class PlanComptableController implements Initializable {
     }
 
     private void loadComptes() {
-        try {
-            if (authService.isUserLoggedIn()) {
-                // Utiliser l'entreprise de l'utilisateur connecté
-                Long entrepriseId = authService.getUtilisateurConnecte().getEntreprise().getId();
-                logger.info("Chargement des comptes pour l'entreprise ID: {}", entrepriseId);
-
-                // Recalculer les soldes consolidés avant le chargement
-                logger.info("Recalcul des soldes consolidés...");
-                compteDAO.recalculerTousLesSoldesConsolides(entrepriseId);
-
-                List<Compte> comptesList = planComptableService.getComptesByEntreprise(entrepriseId);
-                comptes = FXCollections.observableArrayList(comptesList);
-                comptesTable.setItems(comptes);
+        loadComptes(null);
+    }
 
-                totalComptesLabel.setText("Total: " + comptes.size() + " comptes");
-                logger.info("Comptes chargés avec soldes consolidés actualisés");
-            }
-        } catch (Exception e) {
-            logger.error("Erreur lors du chargement des comptes", e);
-            showError("Erreur lors du chargement des comptes: " + e.getMessage());
+    /**
+     * Recharge le plan comptable en arrière-plan puis sélectionne le compte indiqué (peut être null)
+     */
+    private void loadComptes(Compte aSelectionner) {
+        if (authService.isUserLoggedIn()) {
+            // Utiliser l'entreprise de l'utilisateur connecté
+            Long entrepriseId = authService.getUtilisateurConnecte().getEntreprise().getId();
+            logger.info("Chargement des comptes pour l'entreprise ID: {}", entrepriseId);
+
+            // Soldes consolidés : index compact du plan entier, reconstruit à côté des pages affichées
+            ExecuteurTaches.annuler(tacheArbre);
+            tacheArbre = ExecuteurTaches.lancer("Calcul des soldes consolidés",
+                avancement -> {
+                    AccountTree.invalider(entrepriseId);
+                    return AccountTree.pour(entrepriseId);
+                },
+                arbre -> {
+                    arbreComptes = arbre;
+                    totalComptes = arbre.size();
+                    comptesTable.refresh();
+                    logger.info("Comptes chargés avec soldes consolidés actualisés");
+                },
+                e -> showError("Erreur lors du calcul des soldes consolidés: " + e.getMessage()));
+
+            compteASelectionner = aSelectionner;
+            filtrerComptes();
         }
     }
 
@@ -213,45 +245,65 @@ public class PlanComptableController implements Initializable {
 
     @FXML
     private void rechercher(KeyEvent event) {
-        String terme = rechercheField.getText().toLowerCase();
-        if (terme.isEmpty()) {
-            comptesTable.setItems(comptes);
-        } else {
-            ObservableList<Compte> filtered = comptes.filtered(compte ->
-                compte.getNumeroCompte().toLowerCase().contains(terme) ||
-                compte.getLibelle().toLowerCase().contains(terme));
-            comptesTable.setItems(filtered);
-        }
-        totalComptesLabel.setText("Affichés: " + comptesTable.getItems().size() + " / " + comptes.size() + " comptes");
+        filtrerComptes();
     }
 
     @FXML
     private void filtrerParClasse(ActionEvent event) {
+        filtrerComptes();
+    }
+
+    /**
+     * Relit la première page avec la recherche et la classe sélectionnée, filtrées par la base
+     */
+    private void filtrerComptes() {
+        if (pagineur == null || !authService.isUserLoggedIn()) {
+            return;
+        }
+        Long entrepriseId = authService.getUtilisateurConnecte().getEntreprise().getId();
+
+        String prefixe = null;
         String classeSelectionnee = filtreClasseCombo.getSelectionModel().getSelectedItem();
-        if (classeSelectionnee == null || classeSelectionnee.equals("Toutes les classes")) {
-            comptesTable.setItems(comptes);
-        } else {
+        if (classeSelectionnee != null && !classeSelectionnee.equals(TOUTES_LES_CLASSES)) {
             // Extraire le numéro de classe
             String numeroClasse = classeSelectionnee.substring(7, 8); // "Classe X"
 
-            // Déterminer si on travaille avec des comptes CM (Cameroun) ou français
-            boolean isOHADA = authService.isUserLoggedIn() &&
-                             authService.getUtilisateurConnecte().getEntreprise() != null &&
-                             "Cameroun".equals(authService.getUtilisateurConnecte().getEntreprise().getPays());
+            // Pour les comptes OHADA (Cameroun), les numéros portent le préfixe CM
+            boolean isOHADA = "Cameroun".equals(authService.getUtilisateurConnecte().getEntreprise().getPays());
+            prefixe = isOHADA ? "CM" + numeroClasse : numeroClasse;
+        }
 
-            ObservableList<Compte> filtered = comptes.filtered(compte -> {
-                String numCompte = compte.getNumeroCompte();
-                if (isOHADA) {
-                    // Pour les comptes OHADA avec préfixe CM
-                    return numCompte.startsWith("CM" + numeroClasse);
-                } else {
-                    // Pour les comptes français traditionnels
-                    return numCompte.startsWith(numeroClasse);
-                }
-            });
-            comptesTable.setItems(filtered);
+        FiltreComptes filtre = new FiltreComptes(entrepriseId, prefixe, rechercheField.getText());
+        if (pagineur.getLignes().isEmpty()) {
+            comptesTable.setPlaceholder(new Label("Chargement du plan comptable..."));
+        }
+        pagineur.recharger((dernier, taille) -> planComptableService.getPageComptes(filtre, dernier, taille));
+
+        ExecuteurTaches.annuler(tacheComptage);
+        tacheComptage = ExecuteurTaches.lancer("Comptage des comptes",
+            avancement -> planComptableService.compterComptes(filtre),
+            nombre -> {
+                boolean filtreActif = filtre.prefixeNumero() != null || !rechercheField.getText().isBlank();
+                totalComptesLabel.setText(filtreActif && totalComptes > 0 ?
+                    "Affichés: " + nombre + " / " + totalComptes + " comptes" :
+                    "Total: " + nombre + " comptes");
+            },
+            e -> logger.warn("Comptage des comptes impossible: {}", e.getMessage()));
+    }
+
+    private void apresChargementPage() {
+        comptesTable.setPlaceholder(new Label("Aucun compte"));
+        if (compteASelectionner != null && compteASelectionner.getId() != null) {
+            Long id = compteASelectionner.getId();
+            pagineur.getLignes().stream()
+                .filter(compte -> id.equals(compte.getId()))
+                .findFirst()
+                .ifPresent(compte -> {
+                    comptesTable.getSelectionModel().select(compte);
+                    comptesTable.scrollTo(compte);
+                    compteASelectionner = null;
+                });
         }
-        totalComptesLabel.setText("Affichés: " + comptesTable.getItems().size() + " / " + comptes.size() + " comptes");
     }
 
     @FXML
@@ -302,6 +354,55 @@ public class PlanComptableController implements Initializable {
         }
     }
 
+    @FXML
+    private void lettrerCompte(ActionEvent event) {
+        Compte compte = comptesTable.getSelectionModel().getSelectedItem();
+        if (compte == null) {
+            showWarning("Veuillez sélectionner un compte à lettrer");
+            return;
+        }
+        if (!compte.isLettrable()) {
+            showWarning("Le compte " + compte.getNumeroEtLibelle() + " n'est pas lettrable");
+            return;
+        }
+
+        TextInputDialog dialogue = new TextInputDialog("0.00");
+        dialogue.setTitle("Lettrage automatique");
+        dialogue.setHeaderText("Lettrage automatique du compte " + compte.getNumeroEtLibelle());
+        dialogue.setContentText("Écart toléré par lettrage :");
+        Optional<String> saisie = dialogue.showAndWait();
+        if (saisie.isEmpty()) {
+            return;
+        }
+        BigDecimal tolerance;
+        try {
+            tolerance = new BigDecimal(saisie.get().trim().replace(',', '.'));
+        } catch (NumberFormatException e) {
+            showWarning("Écart toléré invalide: " + saisie.get());
+            return;
+        }
+
+        lettrageButton.setDisable(true);
+        ExecuteurTaches.lancer("Lettrage du compte " + compte.getNumeroCompte(),
+            avancement -> lettrageService.lettrerAutomatiquement(compte.getId(), tolerance),
+            rapport -> {
+                lettrageButton.setDisable(false);
+                showInfo(String.format("Compte %s : %d lignes lettrées en %d groupes, %d lignes restent ouvertes.%n%n" +
+                        "Par pièce : %d, par montant : %d, par combinaison : %d, par cumul : %d%nÉcarts tolérés : %s",
+                    compte.getNumeroCompte(), rapport.lignesLettrees(), rapport.groupes(), rapport.lignesRestantes(),
+                    rapport.parMethode().getOrDefault(Methode.REFERENCE, 0),
+                    rapport.parMethode().getOrDefault(Methode.MONTANT, 0),
+                    rapport.parMethode().getOrDefault(Methode.COMBINAISON, 0),
+                    rapport.parMethode().getOrDefault(Methode.FIFO, 0),
+                    currencyService.formatAmount(rapport.totalEcarts())));
+            },
+            e -> {
+                lettrageButton.setDisable(false);
+                logger.error("Erreur lors du lettrage du compte {}", compte.getNumeroCompte(), e);
+                showError("Erreur lors du lettrage: " + e.getMessage());
+            });
+    }
+
     @FXML
     private void exporterPlan(ActionEvent event) {
         showInfo("Export CSV en cours de développement");
@@ -388,14 +489,8 @@ public class PlanComptableController implements Initializable {
 
             // Si validé, recharger la liste
             if (controller.isValidated()) {
-                loadComptes();
-
-                // Sélectionner le compte créé/modifié
-                Compte savedCompte = controller.getCompte();
-                if (savedCompte != null) {
-                    comptesTable.getSelectionModel().select(savedCompte);
-                    comptesTable.scrollTo(savedCompte);
-                }
+                // Recharger puis sélectionner le compte créé/modifié
+                loadComptes(controller.getCompte());
 
                 showInfo(compte == null ?
                     "Compte créé avec succès !" :
@@ -407,4 +502,4 @@ public class PlanComptableController implements Initializable {
             showError("Erreur lors de l'ouverture du formulaire: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+}
@@ -2,26 +2,42 @@ package com.comptabilite.view;
 
 import com.comptabilite.dao.CompteDAO;
 import com.comptabilite.dao.ExerciceDAO;
+import com.comptabilite.dao.FactureDAO.EncoursTiers;
 import com.comptabilite.model.Compte;
 import com.comptabilite.model.Exercice;
 import com.comptabilite.service.ReportService;
 import com.comptabilite.service.ReportService.*;
 import com.comptabilite.service.AuthenticationService;
+import com.comptabilite.service.BalanceAgeeService;
+import com.comptabilite.service.BalanceAgeeService.BalanceAgee;
 import com.comptabilite.service.CurrencyService;
+import com.comptabilite.service.ExportRapportsService;
+import com.comptabilite.service.FormatExport;
+import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.collections.FXCollections;
+import javafx.concurrent.Task;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.layout.HBox;
+import javafx.stage.FileChooser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
+import java.io.File;
+import java.nio.file.Path;
 import java.net.URL;
 import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class RapportsController implements Initializable {
 
@@ -70,7 +86,28 @@ public class RapportsController implements Initializable {
     @FXML private Label lblResultatFinancier;
     @FXML private Label lblResultatNet;
 
+    @FXML private ComboBox<String> cbTiersBalanceAgee;
+    @FXML private DatePicker dpDateBalanceAgee;
+    @FXML private TableView<EncoursTiers> tableBalanceAgee;
+    @FXML private TableColumn<EncoursTiers, String> colCodeTiersBA;
+    @FXML private TableColumn<EncoursTiers, String> colNomTiersBA;
+    @FXML private TableColumn<EncoursTiers, BigDecimal> colNonEchuBA;
+    @FXML private TableColumn<EncoursTiers, BigDecimal> colRetard30BA;
+    @FXML private TableColumn<EncoursTiers, BigDecimal> colRetard60BA;
+    @FXML private TableColumn<EncoursTiers, BigDecimal> colRetard90BA;
+    @FXML private TableColumn<EncoursTiers, BigDecimal> colRetardPlus90BA;
+    @FXML private TableColumn<EncoursTiers, BigDecimal> colTotalBA;
+
+    @FXML private HBox barreStatutRapport;
+    @FXML private ProgressBar progressRapport;
+    @FXML private Label lblStatutRapport;
+
+    private static final String TIERS_CLIENTS = "Clients";
+    private static final String TIERS_FOURNISSEURS = "Fournisseurs";
+
     private ReportService reportService;
+    private BalanceAgeeService balanceAgeeService;
+    private ExportRapportsService exportService;
     private ExerciceDAO exerciceDAO;
     private CompteDAO compteDAO;
     private AuthenticationService authService;
@@ -78,10 +115,16 @@ public class RapportsController implements Initializable {
 
     private ObservableList<LigneBalance> balanceData;
     private ObservableList<LigneGrandLivre> grandLivreData;
+    private ObservableList<EncoursTiers> balanceAgeeData;
+
+    // Une tâche au plus par rapport : relancer un rapport annule le calcul précédent
+    private final Map<String, Task<?>> tachesEnCours = new HashMap<>();
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         reportService = new ReportService();
+        balanceAgeeService = new BalanceAgeeService();
+        exportService = new ExportRapportsService();
         exerciceDAO = new ExerciceDAO();
         compteDAO = new CompteDAO();
         authService = AuthenticationService.getInstance();
@@ -89,6 +132,7 @@ public class RapportsController implements Initializable {
 
         balanceData = FXCollections.observableArrayList();
         grandLivreData = FXCollections.observableArrayList();
+        balanceAgeeData = FXCollections.observableArrayList();
 
         initializeComponents();
         loadData();
@@ -97,6 +141,7 @@ public class RapportsController implements Initializable {
     private void initializeComponents() {
         initializeBalanceTable();
         initializeGrandLivreTable();
+        initializeBalanceAgeeTable();
         setupEventHandlers();
     }
 
@@ -163,6 +208,40 @@ public class RapportsController implements Initializable {
         tableBalance.setItems(balanceData);
     }
 
+    private void initializeBalanceAgeeTable() {
+        colCodeTiersBA.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().code()));
+        colNomTiersBA.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().nom()));
+        colonneMontant(colNonEchuBA, EncoursTiers::nonEchu);
+        colonneMontant(colRetard30BA, EncoursTiers::retard30);
+        colonneMontant(colRetard60BA, EncoursTiers::retard60);
+        colonneMontant(colRetard90BA, EncoursTiers::retard90);
+        colonneMontant(colRetardPlus90BA, EncoursTiers::retardPlus90);
+        colonneMontant(colTotalBA, EncoursTiers::total);
+
+        tableBalanceAgee.setItems(balanceAgeeData);
+
+        // Valeurs initiales posées avant les gestionnaires : la balance âgée n'est calculée qu'à la demande
+        cbTiersBalanceAgee.setItems(FXCollections.observableArrayList(TIERS_CLIENTS, TIERS_FOURNISSEURS));
+        cbTiersBalanceAgee.setValue(TIERS_CLIENTS);
+        dpDateBalanceAgee.setValue(LocalDate.now());
+    }
+
+    private void colonneMontant(TableColumn<EncoursTiers, BigDecimal> colonne, Function<EncoursTiers, BigDecimal> montant) {
+        colonne.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(montant.apply(cell.getValue())));
+        colonne.setCellFactory(tc -> new TableCell<EncoursTiers, BigDecimal>() {
+            @Override
+            protected void updateItem(BigDecimal item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || item == null) {
+                    setText(null);
+                } else {
+                    setText(currencyService.formatAmountForTable(item));
+                    setStyle("-fx-alignment: CENTER-RIGHT;");
+                }
+            }
+        });
+    }
+
     private void initializeGrandLivreTable() {
         colDateGL.setCellValueFactory(new PropertyValueFactory<>("date"));
         colLibelleGL.setCellValueFactory(new PropertyValueFactory<>("libelle"));
@@ -222,6 +301,8 @@ public class RapportsController implements Initializable {
         dpDateFinGL.setOnAction(e -> genererGrandLivre());
         cbExerciceBilan.setOnAction(e -> genererBilan());
         cbExerciceResultat.setOnAction(e -> genererCompteResultat());
+        cbTiersBalanceAgee.setOnAction(e -> genererBalanceAgee());
+        dpDateBalanceAgee.setOnAction(e -> genererBalanceAgee());
     }
 
     private void loadData() {
@@ -257,26 +338,19 @@ public class RapportsController implements Initializable {
         logger.info("Chargement des comptes pour Grand Livre. Exercice: {}", exercice);
 
         if (exercice != null) {
-            try {
-                Long entrepriseId = exercice.getEntreprise().getId();
-                logger.info("ID Entreprise: {}", entrepriseId);
-
-                List<Compte> comptes = compteDAO.findByEntreprise(entrepriseId);
-                logger.info("Nombre de comptes trouvés: {}", comptes.size());
-
-                if (!comptes.isEmpty()) {
-                    logger.info("Premier compte: {}", comptes.get(0));
-                }
-
-                cbCompteGrandLivre.setItems(FXCollections.observableArrayList(comptes));
-
-                dpDateDebutGL.setValue(exercice.getDateDebut());
-                dpDateFinGL.setValue(exercice.getDateFin());
-
-            } catch (Exception e) {
-                logger.error("Erreur lors du chargement des comptes", e);
-                showError("Erreur", "Impossible de charger les comptes: " + e.getMessage());
-            }
+            Long entrepriseId = exercice.getEntreprise().getId();
+            logger.info("ID Entreprise: {}", entrepriseId);
+
+            executerRapport("comptesGrandLivre", "Chargement des comptes...",
+                avancement -> compteDAO.findByEntreprise(entrepriseId),
+                comptes -> {
+                    logger.info("Nombre de comptes trouvés: {}", comptes.size());
+                    cbCompteGrandLivre.setItems(FXCollections.observableArrayList(comptes));
+
+                    dpDateDebutGL.setValue(exercice.getDateDebut());
+                    dpDateFinGL.setValue(exercice.getDateFin());
+                },
+                "Impossible de charger les comptes: ");
         } else {
             logger.warn("Aucun exercice sélectionné pour le chargement des comptes");
         }
@@ -290,15 +364,10 @@ public class RapportsController implements Initializable {
             return;
         }
 
-        try {
-            List<LigneBalance> balance = reportService.getBalance(exercice.getId());
-            balanceData.clear();
-            balanceData.addAll(balance);
-
-        } catch (Exception e) {
-            logger.error("Erreur lors de la génération de la balance", e);
-            showError("Erreur", "Impossible de générer la balance: " + e.getMessage());
-        }
+        executerRapport("balance", "Calcul de la balance...",
+            avancement -> reportService.getBalance(exercice.getId()),
+            balance -> balanceData.setAll(balance),
+            "Impossible de générer la balance: ");
     }
 
     @FXML
@@ -316,55 +385,195 @@ public class RapportsController implements Initializable {
             return;
         }
 
-        try {
-            logger.info("Génération Grand Livre pour compte ID: {}, du {} au {}",
-                compte.getId(), dateDebut, dateFin);
+        logger.info("Génération Grand Livre pour compte ID: {}, du {} au {}",
+            compte.getId(), dateDebut, dateFin);
 
-            List<LigneGrandLivre> grandLivre = reportService.getGrandLivre(
-                compte.getId(), dateDebut, dateFin);
+        executerRapport("grandLivre", "Génération du grand livre " + compte.getNumeroCompte() + "...",
+            avancement -> reportService.getGrandLivre(compte.getId(), dateDebut, dateFin),
+            grandLivre -> {
+                logger.info("Nombre de lignes trouvées: {}", grandLivre.size());
+                grandLivreData.setAll(grandLivre);
 
-            logger.info("Nombre de lignes trouvées: {}", grandLivre.size());
+                // La première ligne est toujours le report à nouveau
+                if (grandLivre.size() <= 1) {
+                    showWarning("Information", "Aucune écriture trouvée pour ce compte sur cette période");
+                }
+            },
+            "Impossible de générer le grand livre: ");
+    }
 
-            grandLivreData.clear();
-            grandLivreData.addAll(grandLivre);
+    @FXML
+    private void exporterGrandLivreComplet() {
+        Exercice exercice = cbExerciceGrandLivre.getValue();
+        if (exercice == null) {
+            showWarning("Attention", "Veuillez sélectionner un exercice");
+            return;
+        }
+        Export export = choisirFichierExport("Exporter le Grand Livre complet", "grand-livre", exercice);
+        if (export == null) {
+            return;
+        }
 
-            if (grandLivre.isEmpty()) {
-                showWarning("Information", "Aucune écriture trouvée pour ce compte sur cette période");
-            }
+        executerRapport("grandLivreComplet", "Export du grand livre complet...",
+            avancement -> exportService.exporterGrandLivre(exercice.getId(), PlageComptes.TOUS,
+                export.format(), export.fichier(), avancement::progression, avancement::estAnnule),
+            nombreLignes -> showInfo("Export terminé", nombreLignes + " lignes exportées dans " + export.fichier().getFileName()),
+            "Impossible d'exporter le grand livre: ");
+    }
 
-        } catch (Exception e) {
-            logger.error("Erreur lors de la génération du grand livre", e);
-            showError("Erreur", "Impossible de générer le grand livre: " + e.getMessage() +
-                "\nCause: " + (e.getCause() != null ? e.getCause().getMessage() : "Inconnue"));
+    @FXML
+    private void exporterBalance() {
+        Exercice exercice = cbExerciceBalance.getValue();
+        if (exercice == null) {
+            showWarning("Attention", "Veuillez sélectionner un exercice");
+            return;
+        }
+        Export export = choisirFichierExport("Exporter la Balance", "balance", exercice);
+        if (export == null) {
+            return;
         }
+
+        executerRapport("exportBalance", "Export de la balance...",
+            avancement -> exportService.exporterBalance(exercice.getId(), export.format(), export.fichier()),
+            nombreLignes -> showInfo("Export terminé", "Balance exportée dans " + export.fichier().getFileName()),
+            "Impossible d'exporter la balance: ");
     }
 
     @FXML
-    private void genererBilan() {
+    private void exporterBilan() {
         Exercice exercice = cbExerciceBilan.getValue();
         if (exercice == null) {
             showWarning("Attention", "Veuillez sélectionner un exercice");
             return;
         }
+        Export export = choisirFichierExport("Exporter le Bilan", "bilan", exercice);
+        if (export == null) {
+            return;
+        }
 
-        try {
-            BilanData bilan = reportService.getBilan(exercice.getId());
+        executerRapport("exportBilan", "Export du bilan...",
+            avancement -> exportService.exporterBilan(exercice.getId(), export.format(), export.fichier()),
+            nombreLignes -> showInfo("Export terminé", "Bilan exporté dans " + export.fichier().getFileName()),
+            "Impossible d'exporter le bilan: ");
+    }
 
-            lblActifImmobilise.setText(formatCurrency(bilan.getActifImmobilise()));
-            lblActifCirculant.setText(formatCurrency(bilan.getActifCirculant()));
-            lblCreances.setText(formatCurrency(bilan.getCreances()));
-            lblTresorerie.setText(formatCurrency(bilan.getTresorerie()));
-            lblTotalActif.setText(formatCurrency(bilan.getTotalActif()));
+    @FXML
+    private void exporterCompteResultat() {
+        Exercice exercice = cbExerciceResultat.getValue();
+        if (exercice == null) {
+            showWarning("Attention", "Veuillez sélectionner un exercice");
+            return;
+        }
+        Export export = choisirFichierExport("Exporter le Compte de Résultat", "compte-resultat", exercice);
+        if (export == null) {
+            return;
+        }
 
-            lblCapitauxPropres.setText(formatCurrency(bilan.getCapitauxPropres()));
-            lblDettesFinancieres.setText(formatCurrency(bilan.getDettesFinancieres()));
-            lblDettesExploitation.setText(formatCurrency(bilan.getDettesExploitation()));
-            lblTotalPassif.setText(formatCurrency(bilan.getTotalPassif()));
+        executerRapport("exportCompteResultat", "Export du compte de résultat...",
+            avancement -> exportService.exporterCompteResultat(exercice.getId(), export.format(), export.fichier()),
+            nombreLignes -> showInfo("Export terminé", "Compte de résultat exporté dans " + export.fichier().getFileName()),
+            "Impossible d'exporter le compte de résultat: ");
+    }
 
-        } catch (Exception e) {
-            logger.error("Erreur lors de la génération du bilan", e);
-            showError("Erreur", "Impossible de générer le bilan: " + e.getMessage());
+    @FXML
+    private void genererBalanceAgee() {
+        LocalDate date = dpDateBalanceAgee.getValue();
+        if (date == null) {
+            showWarning("Attention", "Veuillez sélectionner une date");
+            return;
+        }
+        Long entrepriseId = authService.getUtilisateurConnecte().getEntreprise().getId();
+
+        // Le service ne relit que les tiers modifiés depuis le calcul précédent
+        executerRapport("balanceAgee", "Calcul de la balance âgée...",
+            avancement -> balanceAgeeService.getBalanceAgee(entrepriseId, date),
+            this::afficherBalanceAgee,
+            "Impossible de générer la balance âgée: ");
+    }
+
+    private void afficherBalanceAgee(BalanceAgee balance) {
+        boolean fournisseurs = TIERS_FOURNISSEURS.equals(cbTiersBalanceAgee.getValue());
+        balanceAgeeData.setAll(fournisseurs ? balance.fournisseurs() : balance.clients());
+        balanceAgeeData.add(fournisseurs ? balance.totalFournisseurs() : balance.totalClients());
+    }
+
+    @FXML
+    private void exporterBalanceAgee() {
+        LocalDate date = dpDateBalanceAgee.getValue();
+        if (date == null) {
+            showWarning("Attention", "Veuillez sélectionner une date");
+            return;
+        }
+        Export export = choisirFichierExport("Exporter la Balance âgée", "balance-agee-" + date);
+        if (export == null) {
+            return;
+        }
+        Long entrepriseId = authService.getUtilisateurConnecte().getEntreprise().getId();
+
+        executerRapport("exportBalanceAgee", "Export de la balance âgée...",
+            avancement -> exportService.exporterBalanceAgee(entrepriseId, date, export.format(), export.fichier()),
+            nombreLignes -> showInfo("Export terminé", "Balance âgée exportée dans " + export.fichier().getFileName()),
+            "Impossible d'exporter la balance âgée: ");
+    }
+
+    private record Export(Path fichier, FormatExport format) {
+    }
+
+    /**
+     * Demande le fichier de destination ; le format suit l'extension saisie, sinon le filtre choisi
+     */
+    private Export choisirFichierExport(String titre, String prefixe, Exercice exercice) {
+        return choisirFichierExport(titre, prefixe + "-" + exercice.getLibelle().replaceAll("[^\\w-]", "_"));
+    }
+
+    private Export choisirFichierExport(String titre, String nomInitial) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle(titre);
+        fileChooser.setInitialFileName(nomInitial);
+        for (FormatExport format : FormatExport.values()) {
+            fileChooser.getExtensionFilters().add(
+                new FileChooser.ExtensionFilter(format.getDescription(), "*." + format.getExtension()));
+        }
+        File fichier = fileChooser.showSaveDialog(tabPaneRapports.getScene().getWindow());
+        if (fichier == null) {
+            return null;
+        }
+
+        Path chemin = fichier.toPath();
+        FormatExport format = FormatExport.pour(chemin);
+        if (format == null) {
+            FileChooser.ExtensionFilter filtre = fileChooser.getSelectedExtensionFilter();
+            format = FormatExport.values()[Math.max(0, fileChooser.getExtensionFilters().indexOf(filtre))];
+            chemin = chemin.resolveSibling(chemin.getFileName() + "." + format.getExtension());
         }
+        return new Export(chemin, format);
+    }
+
+    @FXML
+    private void genererBilan() {
+        Exercice exercice = cbExerciceBilan.getValue();
+        if (exercice == null) {
+            showWarning("Attention", "Veuillez sélectionner un exercice");
+            return;
+        }
+
+        executerRapport("bilan", "Calcul du bilan...",
+            avancement -> reportService.getBilan(exercice.getId()),
+            this::afficherBilan,
+            "Impossible de générer le bilan: ");
+    }
+
+    private void afficherBilan(BilanData bilan) {
+        lblActifImmobilise.setText(formatCurrency(bilan.getActifImmobilise()));
+        lblActifCirculant.setText(formatCurrency(bilan.getActifCirculant()));
+        lblCreances.setText(formatCurrency(bilan.getCreances()));
+        lblTresorerie.setText(formatCurrency(bilan.getTresorerie()));
+        lblTotalActif.setText(formatCurrency(bilan.getTotalActif()));
+
+        lblCapitauxPropres.setText(formatCurrency(bilan.getCapitauxPropres()));
+        lblDettesFinancieres.setText(formatCurrency(bilan.getDettesFinancieres()));
+        lblDettesExploitation.setText(formatCurrency(bilan.getDettesExploitation()));
+        lblTotalPassif.setText(formatCurrency(bilan.getTotalPassif()));
     }
 
     @FXML
@@ -375,21 +584,61 @@ public class RapportsController implements Initializable {
             return;
         }
 
-        try {
-            CompteResultatData resultat = reportService.getCompteResultat(exercice.getId());
+        executerRapport("compteResultat", "Calcul du compte de résultat...",
+            avancement -> reportService.getCompteResultat(exercice.getId()),
+            this::afficherCompteResultat,
+            "Impossible de générer le compte de résultat: ");
+    }
 
-            lblChiffresAffaires.setText(formatCurrency(resultat.getChiffresAffaires()));
-            lblChargesExploitation.setText(formatCurrency(resultat.getChargesExploitation()));
-            lblResultatExploitation.setText(formatCurrency(resultat.getResultatExploitation()));
-            lblChargesFinancieres.setText(formatCurrency(resultat.getChargesFinancieres()));
-            lblProduitsFinanciers.setText(formatCurrency(resultat.getProduitsFinanciers()));
-            lblResultatFinancier.setText(formatCurrency(resultat.getResultatFinancier()));
-            lblResultatNet.setText(formatCurrency(resultat.getResultatNet()));
+    private void afficherCompteResultat(CompteResultatData resultat) {
+        lblChiffresAffaires.setText(formatCurrency(resultat.getChiffresAffaires()));
+        lblChargesExploitation.setText(formatCurrency(resultat.getChargesExploitation()));
+        lblResultatExploitation.setText(formatCurrency(resultat.getResultatExploitation()));
+        lblChargesFinancieres.setText(formatCurrency(resultat.getChargesFinancieres()));
+        lblProduitsFinanciers.setText(formatCurrency(resultat.getProduitsFinanciers()));
+        lblResultatFinancier.setText(formatCurrency(resultat.getResultatFinancier()));
+        lblResultatNet.setText(formatCurrency(resultat.getResultatNet()));
+    }
 
-        } catch (Exception e) {
-            logger.error("Erreur lors de la génération du compte de résultat", e);
-            showError("Erreur", "Impossible de générer le compte de résultat: " + e.getMessage());
+    @FXML
+    private void annulerRapports() {
+        tachesEnCours.values().forEach(ExecuteurTaches::annuler);
+    }
+
+    /**
+     * Lance le calcul d'un rapport en arrière-plan, en annulant le calcul précédent du même rapport
+     */
+    private <T> void executerRapport(String cle, String description, ExecuteurTaches.Travail<T> travail,
+                                     Consumer<T> affichage, String messageErreur) {
+        ExecuteurTaches.annuler(tachesEnCours.get(cle));
+
+        Task<T> tache = ExecuteurTaches.lancer(description, travail, affichage, erreur -> {
+            if (!(erreur instanceof CancellationException)) {
+                showError("Erreur", messageErreur + erreur.getMessage());
+            }
+        });
+        tachesEnCours.put(cle, tache);
+        tache.stateProperty().addListener((obs, ancien, etat) -> mettreAJourStatut());
+        mettreAJourStatut();
+    }
+
+    /**
+     * Affiche la progression de la dernière tâche encore en cours, ou masque la barre de statut
+     */
+    private void mettreAJourStatut() {
+        Task<?> active = tachesEnCours.values().stream()
+            .filter(Task::isRunning)
+            .reduce((premiere, suivante) -> suivante)
+            .orElse(null);
+
+        progressRapport.progressProperty().unbind();
+        lblStatutRapport.textProperty().unbind();
+        if (active != null) {
+            progressRapport.progressProperty().bind(active.progressProperty());
+            lblStatutRapport.textProperty().bind(active.messageProperty());
         }
+        barreStatutRapport.setVisible(active != null);
+        barreStatutRapport.setManaged(active != null);
     }
 
     private String formatCurrency(BigDecimal amount) {
@@ -404,6 +653,13 @@ public class RapportsController implements Initializable {
         alert.showAndWait();
     }
 
+    private void showInfo(String title, String message) {
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle(title);
+        alert.setContentText(message);
+        alert.showAndWait();
+    }
+
     private void showWarning(String title, String message) {
         Alert alert = new Alert(Alert.AlertType.WARNING);
         alert.setTitle(title);
@@ -0,0 +1,289 @@
+-- Schéma initial
+-- Description: Tables, contraintes et index tels que déclarés par les entités.
+-- Sur une base créée avant l'introduction des migrations versionnées, cette version est
+-- enregistrée sans être exécutée, après une mise à niveau unique par Hibernate (MigrationsSchema).
+
+CREATE TABLE clients (
+    actif BIT NOT NULL,
+    soldeClient DECIMAL(15,2),
+    date_creation DATETIME(6) NOT NULL,
+    entreprise_id BIGINT NOT NULL,
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    codePostal VARCHAR(10),
+    codeClient VARCHAR(20) NOT NULL,
+    siret VARCHAR(20),
+    telephone VARCHAR(20),
+    numeroTVA VARCHAR(30),
+    pays VARCHAR(100),
+    personneContact VARCHAR(100),
+    prenom VARCHAR(100),
+    ville VARCHAR(100),
+    email VARCHAR(150),
+    adresse VARCHAR(200),
+    nom VARCHAR(200) NOT NULL,
+    raisonSociale VARCHAR(200) NOT NULL,
+    notes VARCHAR(500),
+    statutClient ENUM ('ACTIF','INACTIF','SUSPENDU') NOT NULL,
+    typeClient ENUM ('ADMINISTRATION','ASSOCIATION','ENTREPRISE','PARTICULIER') NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE compte (
+    accepte_sous_comptes BIT NOT NULL,
+    actif BIT NOT NULL,
+    auxiliaire BIT NOT NULL,
+    lettrable BIT NOT NULL,
+    solde_credit DECIMAL(15,2),
+    solde_debit DECIMAL(15,2),
+    solde_initial DECIMAL(15,2),
+    date_creation DATETIME(6) NOT NULL,
+    entreprise_id BIGINT NOT NULL,
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    parent_id BIGINT,
+    numero VARCHAR(20) NOT NULL,
+    libelle VARCHAR(200) NOT NULL,
+    description VARCHAR(500),
+    classe_compte ENUM ('CLASSE_1','CLASSE_2','CLASSE_3','CLASSE_4','CLASSE_5','CLASSE_6','CLASSE_7','CLASSE_8') NOT NULL,
+    type_compte ENUM ('ACTIF','ACTIF_PASSIF','CHARGE','PASSIF','PRODUIT') NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE compteurs_numerotation (
+    annee INTEGER NOT NULL,
+    dernier_numero BIGINT NOT NULL,
+    entreprise_id BIGINT NOT NULL,
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    journal VARCHAR(20) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE ecritures_comptables (
+    dateEcriture DATE NOT NULL,
+    date_creation DATETIME(6) NOT NULL,
+    date_validation DATETIME(6),
+    entreprise_id BIGINT NOT NULL,
+    exercice_id BIGINT NOT NULL,
+    id BIGINT NOT NULL,
+    utilisateur_id BIGINT NOT NULL,
+    numeroEcriture VARCHAR(20) NOT NULL,
+    numeroJournal VARCHAR(50),
+    referencePiece VARCHAR(50),
+    libelle VARCHAR(500),
+    statut ENUM ('BROUILLON','CLOTUREE','VALIDEE') NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE entreprises (
+    active BIT NOT NULL,
+    capitalSocial FLOAT(53) NOT NULL,
+    date_creation DATETIME(6) NOT NULL,
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    codePostal VARCHAR(10),
+    siren VARCHAR(20),
+    siret VARCHAR(20),
+    telephone VARCHAR(20),
+    numeroTVA VARCHAR(30),
+    pays VARCHAR(100),
+    siteWeb VARCHAR(100),
+    ville VARCHAR(100),
+    email VARCHAR(150),
+    adresse VARCHAR(200),
+    raisonSociale VARCHAR(200) NOT NULL,
+    formeJuridique ENUM ('ASSOCIATION','AUTRE','EIRL','EURL','MICRO_ENTREPRISE','SA','SARL','SAS','SNC') NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE exercices (
+    date_debut DATE NOT NULL,
+    date_fin DATE NOT NULL,
+    date_cloture DATETIME(6),
+    date_creation DATETIME(6) NOT NULL,
+    entreprise_id BIGINT NOT NULL,
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    libelle VARCHAR(255) NOT NULL,
+    statut ENUM ('ARCHIVE','CLOTURE','OUVERT') NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE factures (
+    dateEcheance DATE,
+    dateFacture DATE NOT NULL,
+    date_paiement DATE,
+    montantHT DECIMAL(15,2) NOT NULL,
+    montantTTC DECIMAL(15,2) NOT NULL,
+    montantTVA DECIMAL(15,2) NOT NULL,
+    tauxTVA DECIMAL(5,2) NOT NULL,
+    client_id BIGINT,
+    date_creation DATETIME(6) NOT NULL,
+    date_envoi DATETIME(6),
+    entreprise_id BIGINT NOT NULL,
+    fournisseur_id BIGINT,
+    id BIGINT NOT NULL,
+    numeroFacture VARCHAR(50) NOT NULL,
+    referenceExterne VARCHAR(50),
+    objet VARCHAR(500),
+    commentaires TEXT,
+    statut ENUM ('ANNULEE','BROUILLON','ENVOYEE','EN_RETARD','PAYEE') NOT NULL,
+    typeFacture ENUM ('ACHAT','AVOIR_ACHAT','AVOIR_VENTE','VENTE') NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE fournisseurs (
+    actif BIT NOT NULL,
+    soldeFournisseur DECIMAL(15,2),
+    date_creation DATETIME(6) NOT NULL,
+    entreprise_id BIGINT NOT NULL,
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    codePostal VARCHAR(10),
+    codeFournisseur VARCHAR(20) NOT NULL,
+    siret VARCHAR(20),
+    telephone VARCHAR(20),
+    numeroTVA VARCHAR(30),
+    numeroCompteFournisseur VARCHAR(50),
+    pays VARCHAR(100),
+    personneContact VARCHAR(100),
+    prenom VARCHAR(100),
+    ville VARCHAR(100),
+    email VARCHAR(150),
+    adresse VARCHAR(200),
+    nom VARCHAR(200) NOT NULL,
+    raisonSociale VARCHAR(200),
+    notes VARCHAR(500),
+    statutFournisseur ENUM ('ACTIF','INACTIF','SUSPENDU') NOT NULL,
+    typeFournisseur ENUM ('ADMINISTRATION','ASSOCIATION','ENTREPRISE','FREELANCE','PARTICULIER') NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE id_generateurs (
+    prochaine_valeur BIGINT,
+    entite VARCHAR(255) NOT NULL,
+    PRIMARY KEY (entite)
+) ENGINE=InnoDB;
+
+INSERT IGNORE INTO id_generateurs (entite, prochaine_valeur) VALUES ('lignes_facture',0);
+
+INSERT IGNORE INTO id_generateurs (entite, prochaine_valeur) VALUES ('ecritures_comptables',0);
+
+INSERT IGNORE INTO id_generateurs (entite, prochaine_valeur) VALUES ('lignes_ecriture',0);
+
+INSERT IGNORE INTO id_generateurs (entite, prochaine_valeur) VALUES ('factures',0);
+
+CREATE TABLE lignes_ecriture (
+    montantCredit DECIMAL(15,2) NOT NULL,
+    montantDebit DECIMAL(15,2) NOT NULL,
+    compte_id BIGINT NOT NULL,
+    ecritureComptable_id BIGINT NOT NULL,
+    id BIGINT NOT NULL,
+    libelle VARCHAR(500),
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE lignes_facture (
+    montantHT DECIMAL(15,2) NOT NULL,
+    prixUnitaire DECIMAL(15,2) NOT NULL,
+    quantite DECIMAL(10,2) NOT NULL,
+    facture_id BIGINT NOT NULL,
+    id BIGINT NOT NULL,
+    designation VARCHAR(200) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE solde_periode (
+    annee INTEGER NOT NULL,
+    mois INTEGER NOT NULL,
+    total_credit DECIMAL(15,2) NOT NULL,
+    total_debit DECIMAL(15,2) NOT NULL,
+    compte_id BIGINT NOT NULL,
+    exercice_id BIGINT NOT NULL,
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE utilisateurs (
+    actif BIT NOT NULL,
+    dateCreation DATETIME(6) NOT NULL,
+    derniereConnexion DATETIME(6),
+    entreprise_id BIGINT,
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    nomUtilisateur VARCHAR(50) NOT NULL,
+    nom VARCHAR(100) NOT NULL,
+    prenom VARCHAR(100) NOT NULL,
+    email VARCHAR(150) NOT NULL,
+    motDePasse VARCHAR(255) NOT NULL,
+    role ENUM ('ADMINISTRATEUR','ASSISTANT_COMPTABLE','COMPTABLE','CONSULTANT') NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE INDEX idx_clients_entreprise_nom ON clients (entreprise_id, nom, prenom);
+
+CREATE INDEX idx_clients_entreprise_code ON clients (entreprise_id, codeClient);
+
+ALTER TABLE clients ADD CONSTRAINT UK_7ti034xvcmrkit6apauy5c5ds UNIQUE (codeClient);
+
+CREATE INDEX idx_compte_entreprise_numero ON compte (entreprise_id, numero);
+
+ALTER TABLE compteurs_numerotation ADD CONSTRAINT uk_compteur_numerotation UNIQUE (entreprise_id, journal, annee);
+
+CREATE INDEX idx_ecritures_entreprise_date ON ecritures_comptables (entreprise_id, dateEcriture);
+
+CREATE INDEX idx_ecritures_entreprise_numero ON ecritures_comptables (entreprise_id, numeroEcriture);
+
+ALTER TABLE ecritures_comptables ADD CONSTRAINT UK_ld1iedp121muy2bxvkyhmunlg UNIQUE (numeroEcriture);
+
+ALTER TABLE entreprises ADD CONSTRAINT UK_rgxkwkg4800o2wrfp95d33910 UNIQUE (siret);
+
+CREATE INDEX idx_factures_entreprise_date ON factures (entreprise_id, dateFacture);
+
+CREATE INDEX idx_factures_entreprise_numero ON factures (entreprise_id, numeroFacture);
+
+CREATE INDEX idx_factures_entreprise_reference ON factures (entreprise_id, referenceExterne);
+
+ALTER TABLE factures ADD CONSTRAINT UK_s9u2oycvbsai6ab22jf28bptx UNIQUE (numeroFacture);
+
+CREATE INDEX idx_fournisseurs_entreprise_nom ON fournisseurs (entreprise_id, nom, prenom);
+
+CREATE INDEX idx_fournisseurs_entreprise_code ON fournisseurs (entreprise_id, codeFournisseur);
+
+ALTER TABLE fournisseurs ADD CONSTRAINT UK_8od8mhs37dxmxjch4d6f42e60 UNIQUE (codeFournisseur);
+
+ALTER TABLE solde_periode ADD CONSTRAINT uk_solde_periode UNIQUE (compte_id, exercice_id, annee, mois);
+
+ALTER TABLE utilisateurs ADD CONSTRAINT UK_677sn10qco66trcgq3fulbp6a UNIQUE (nomUtilisateur);
+
+ALTER TABLE utilisateurs ADD CONSTRAINT UK_6ldvumu3hqvnmmxy1b6lsxwqy UNIQUE (email);
+
+ALTER TABLE clients ADD CONSTRAINT FKtao5i8j0vrhq73sa09nud6xk7 FOREIGN KEY (entreprise_id) REFERENCES entreprises (id);
+
+ALTER TABLE compte ADD CONSTRAINT FK67rkjoy3o62a1x7d888bqot6x FOREIGN KEY (parent_id) REFERENCES compte (id);
+
+ALTER TABLE compte ADD CONSTRAINT FKdabl4qldkmpcfv271to1xwtxi FOREIGN KEY (entreprise_id) REFERENCES entreprises (id);
+
+ALTER TABLE compteurs_numerotation ADD CONSTRAINT FK30ob2rkb1jdfwrf7rrbedkmmc FOREIGN KEY (entreprise_id) REFERENCES entreprises (id);
+
+ALTER TABLE ecritures_comptables ADD CONSTRAINT FKeiderr3j43hrb5h2wadl7b6na FOREIGN KEY (entreprise_id) REFERENCES entreprises (id);
+
+ALTER TABLE ecritures_comptables ADD CONSTRAINT FKo6l37jkvj1yrdbx5g78eusu2d FOREIGN KEY (exercice_id) REFERENCES exercices (id);
+
+ALTER TABLE ecritures_comptables ADD CONSTRAINT FKcbrpv168g3k3pe0jxkei1smkc FOREIGN KEY (utilisateur_id) REFERENCES utilisateurs (id);
+
+ALTER TABLE exercices ADD CONSTRAINT FKaajgyiykclygpwjwnp1kgp7px FOREIGN KEY (entreprise_id) REFERENCES entreprises (id);
+
+ALTER TABLE factures ADD CONSTRAINT FKakoqi8cpfxab6j16clvdjuldi FOREIGN KEY (client_id) REFERENCES clients (id);
+
+ALTER TABLE factures ADD CONSTRAINT FKpakjr3ushoktpoi6smgatwod2 FOREIGN KEY (entreprise_id) REFERENCES entreprises (id);
+
+ALTER TABLE factures ADD CONSTRAINT FKcstw4letgt1qpjs3t7agx7saf FOREIGN KEY (fournisseur_id) REFERENCES fournisseurs (id);
+
+ALTER TABLE fournisseurs ADD CONSTRAINT FKl3r6jrigstvlobxsky3sr377c FOREIGN KEY (entreprise_id) REFERENCES entreprises (id);
+
+ALTER TABLE lignes_ecriture ADD CONSTRAINT FK6s4y7s1w6kdv1krs6ha7we70n FOREIGN KEY (compte_id) REFERENCES compte (id);
+
+ALTER TABLE lignes_ecriture ADD CONSTRAINT FKg8k6k2js2dng8xxh23acckn95 FOREIGN KEY (ecritureComptable_id) REFERENCES ecritures_comptables (id);
+
+ALTER TABLE lignes_facture ADD CONSTRAINT FKp2ih5jcnrycex0g56t1wkw8o6 FOREIGN KEY (facture_id) REFERENCES factures (id);
+
+ALTER TABLE solde_periode ADD CONSTRAINT FK94l69jjnv5qjktmrjcjhxa25y FOREIGN KEY (compte_id) REFERENCES compte (id);
+
+ALTER TABLE solde_periode ADD CONSTRAINT FKp9w8cm5ox0n9l3w39uvlgrov0 FOREIGN KEY (exercice_id) REFERENCES exercices (id);
+
+ALTER TABLE utilisateurs ADD CONSTRAINT FKq5gclyjupg1me040fbbm7efaw FOREIGN KEY (entreprise_id) REFERENCES entreprises (id);
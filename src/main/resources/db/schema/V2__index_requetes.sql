@@ -0,0 +1,30 @@
+-- Index des requêtes fréquentes
+-- Description: Un index par forme de requête des DAO sur les grosses tables. Les colonnes lues
+-- (montants, statut) sont ajoutées en fin d'index pour que MySQL réponde sans relire les lignes ;
+-- l'id, clé primaire, est implicitement inclus dans chaque index InnoDB.
+-- La couverture est vérifiée par PlansRequetesTest (EXPLAIN, sans parcours complet).
+
+-- Grand livre, solde d'un compte à une date, nombre de mouvements d'un compte :
+-- lignes d'un compte, puis l'écriture par sa clé primaire
+CREATE INDEX idx_lignes_compte_ecriture ON lignes_ecriture (compte_id, ecritureComptable_id, montantDebit, montantCredit);
+
+-- Balance, soldes d'ouverture, cumuls mensuels : écritures de la période, puis leurs lignes
+CREATE INDEX idx_lignes_ecriture_compte ON lignes_ecriture (ecritureComptable_id, compte_id, montantDebit, montantCredit);
+
+-- Écritures d'une entreprise sur une période, hors brouillons (balance, grand livre, rapports)
+CREATE INDEX idx_ecritures_entreprise_date_statut ON ecritures_comptables (entreprise_id, dateEcriture, statut);
+
+-- Écritures d'un exercice triées par date, plus grand numéro de l'exercice, cumuls mensuels
+CREATE INDEX idx_ecritures_exercice_date ON ecritures_comptables (exercice_id, dateEcriture, statut);
+
+-- Filtre et liste des journaux, numérotation d'un journal
+CREATE INDEX idx_ecritures_entreprise_journal ON ecritures_comptables (entreprise_id, numeroJournal, numeroEcriture);
+
+-- Factures par statut (en retard, impayées) triées par échéance
+CREATE INDEX idx_factures_entreprise_statut_echeance ON factures (entreprise_id, statut, dateEcheance);
+
+-- Exercice ouvert de l'entreprise, exercices par statut
+CREATE INDEX idx_exercices_entreprise_statut ON exercices (entreprise_id, statut, date_debut, date_fin);
+
+-- Soldes d'un exercice regroupés par compte
+CREATE INDEX idx_solde_periode_exercice_compte ON solde_periode (exercice_id, compte_id, total_debit, total_credit);
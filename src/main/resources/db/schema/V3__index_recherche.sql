@@ -0,0 +1,9 @@
+-- Index de recherche textuelle
+-- Description: Index FULLTEXT interrogés par MATCH ... AGAINST en mode booléen (RechercheTexte).
+-- Les colonnes doivent rester identiques à celles utilisées dans les requêtes MATCH(...).
+
+ALTER TABLE ecritures_comptables ADD FULLTEXT INDEX ft_ecritures_recherche (libelle, numeroEcriture, referencePiece);
+ALTER TABLE factures ADD FULLTEXT INDEX ft_factures_recherche (numeroFacture, objet, commentaires);
+ALTER TABLE compte ADD FULLTEXT INDEX ft_compte_recherche (numero, libelle);
+ALTER TABLE clients ADD FULLTEXT INDEX ft_clients_recherche (nom, prenom, email);
+ALTER TABLE fournisseurs ADD FULLTEXT INDEX ft_fournisseurs_recherche (nom, prenom, email, raisonSociale);
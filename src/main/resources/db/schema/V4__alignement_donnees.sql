@@ -0,0 +1,28 @@
+-- Alignement des données dérivées
+-- Description: Générateurs d'identifiants (blocs de 50) placés au-delà des ids existants et
+-- cumuls mensuels par compte recalculés à partir des écritures validées. Sans effet sur une base vide.
+
+INSERT INTO id_generateurs (entite, prochaine_valeur)
+SELECT 'ecritures_comptables', COALESCE(MAX(id), 0) + 51 FROM ecritures_comptables
+ON DUPLICATE KEY UPDATE prochaine_valeur = GREATEST(prochaine_valeur, VALUES(prochaine_valeur));
+
+INSERT INTO id_generateurs (entite, prochaine_valeur)
+SELECT 'lignes_ecriture', COALESCE(MAX(id), 0) + 51 FROM lignes_ecriture
+ON DUPLICATE KEY UPDATE prochaine_valeur = GREATEST(prochaine_valeur, VALUES(prochaine_valeur));
+
+INSERT INTO id_generateurs (entite, prochaine_valeur)
+SELECT 'factures', COALESCE(MAX(id), 0) + 51 FROM factures
+ON DUPLICATE KEY UPDATE prochaine_valeur = GREATEST(prochaine_valeur, VALUES(prochaine_valeur));
+
+INSERT INTO id_generateurs (entite, prochaine_valeur)
+SELECT 'lignes_facture', COALESCE(MAX(id), 0) + 51 FROM lignes_facture
+ON DUPLICATE KEY UPDATE prochaine_valeur = GREATEST(prochaine_valeur, VALUES(prochaine_valeur));
+
+INSERT INTO solde_periode (compte_id, exercice_id, annee, mois, total_debit, total_credit)
+SELECT le.compte_id, ec.exercice_id, YEAR(ec.dateEcriture), MONTH(ec.dateEcriture),
+       SUM(le.montantDebit), SUM(le.montantCredit)
+FROM lignes_ecriture le
+INNER JOIN ecritures_comptables ec ON le.ecritureComptable_id = ec.id
+WHERE ec.statut <> 'BROUILLON'
+GROUP BY le.compte_id, ec.exercice_id, YEAR(ec.dateEcriture), MONTH(ec.dateEcriture)
+ON DUPLICATE KEY UPDATE total_debit = VALUES(total_debit), total_credit = VALUES(total_credit);
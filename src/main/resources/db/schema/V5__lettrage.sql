@@ -0,0 +1,13 @@
+-- Lettrage des comptes de tiers
+-- Description: Code de lettrage et date de lettrage des lignes d'écriture.
+-- Les lignes ouvertes d'un compte (codeLettrage IS NULL) sont lues par le début de l'index
+-- (compte_id, codeLettrage), qui remplace idx_lignes_compte_ecriture pour toutes les requêtes
+-- par compte : même préfixe, mêmes colonnes couvertes.
+
+ALTER TABLE lignes_ecriture
+    ADD COLUMN codeLettrage VARCHAR(10) NULL,
+    ADD COLUMN date_lettrage DATE NULL;
+
+CREATE INDEX idx_lignes_compte_lettrage ON lignes_ecriture (compte_id, codeLettrage, ecritureComptable_id, montantDebit, montantCredit);
+
+DROP INDEX idx_lignes_compte_ecriture ON lignes_ecriture;
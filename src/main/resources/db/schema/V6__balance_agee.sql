@@ -0,0 +1,9 @@
+-- Balance âgée des clients et fournisseurs
+-- Description: La balance âgée lit les factures ouvertes (ENVOYEE, EN_RETARD) d'une entreprise et
+-- les regroupe par tiers et tranche d'échéance. L'index couvre toutes les colonnes lues : la
+-- requête groupée ne relit pas la table, même sur plusieurs centaines de milliers de factures.
+-- Il remplace idx_factures_entreprise_statut_echeance, dont il reprend le préfixe.
+
+CREATE INDEX idx_factures_balance_agee ON factures (entreprise_id, statut, dateEcheance, client_id, fournisseur_id, typeFacture, montantTTC);
+
+DROP INDEX idx_factures_entreprise_statut_echeance ON factures;
@@ -0,0 +1,22 @@
+-- Clôture des exercices
+-- Description: Soldes figés d'un exercice clôturé, un enregistrement par compte mouvementé.
+-- total_* : mouvements de l'exercice (à-nouveaux d'ouverture compris) ; cumul_* : totaux depuis
+-- la dernière clôture reportée, dont le solde est repris en à-nouveaux dans l'exercice suivant.
+-- Les rapports d'un exercice clôturé lisent cette table au lieu de réagréger ses écritures.
+
+CREATE TABLE solde_cloture (
+    cumul_credit DECIMAL(15,2) NOT NULL,
+    cumul_debit DECIMAL(15,2) NOT NULL,
+    total_credit DECIMAL(15,2) NOT NULL,
+    total_debit DECIMAL(15,2) NOT NULL,
+    compte_id BIGINT NOT NULL,
+    exercice_id BIGINT NOT NULL,
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+ALTER TABLE solde_cloture ADD CONSTRAINT uk_solde_cloture UNIQUE (exercice_id, compte_id);
+
+ALTER TABLE solde_cloture ADD CONSTRAINT fk_solde_cloture_compte FOREIGN KEY (compte_id) REFERENCES compte (id);
+
+ALTER TABLE solde_cloture ADD CONSTRAINT fk_solde_cloture_exercice FOREIGN KEY (exercice_id) REFERENCES exercices (id);
@@ -0,0 +1,8 @@
+-- Index de recherche dans les numéros
+-- Description: Index FULLTEXT ngram sur les numéros et références, interrogés en plus de ceux
+-- de V3 quand la saisie contient un nombre : un fragment (« 000042 », « 2024 ») est retrouvé
+-- au milieu d'un numéro (« VT000042 », « VTE2024-0012 »), ce que les préfixes de V3 ne font pas.
+-- Les colonnes doivent rester identiques à celles utilisées dans les requêtes MATCH(...).
+
+ALTER TABLE ecritures_comptables ADD FULLTEXT INDEX ft_ecritures_numeros (numeroEcriture, referencePiece) WITH PARSER ngram;
+ALTER TABLE factures ADD FULLTEXT INDEX ft_factures_numeros (numeroFacture, referenceExterne) WITH PARSER ngram;
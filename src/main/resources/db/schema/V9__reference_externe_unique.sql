@@ -0,0 +1,18 @@
+-- Unicité des références d'import
+-- Description: Une facture importée garde la référence du logiciel de facturation d'origine ; la
+-- contrainte garantit qu'une référence n'est importée qu'une fois par entreprise, même quand deux
+-- lots la vérifient en parallèle. Les doublons déjà présents (imports concurrents antérieurs) perdent
+-- leur référence, seule la première facture importée la conserve.
+-- Elle remplace idx_factures_entreprise_reference, dont elle reprend les colonnes.
+
+UPDATE factures f
+INNER JOIN (SELECT entreprise_id, referenceExterne, MIN(id) AS premiere FROM factures
+            WHERE referenceExterne IS NOT NULL
+            GROUP BY entreprise_id, referenceExterne HAVING COUNT(*) > 1) d
+    ON d.entreprise_id = f.entreprise_id AND d.referenceExterne = f.referenceExterne
+SET f.referenceExterne = NULL
+WHERE f.id <> d.premiere;
+
+ALTER TABLE factures ADD CONSTRAINT uk_factures_entreprise_reference UNIQUE (entreprise_id, referenceExterne);
+
+DROP INDEX idx_factures_entreprise_reference ON factures;
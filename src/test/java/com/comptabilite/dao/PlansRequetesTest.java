@@ -0,0 +1,245 @@
+package com.comptabilite.dao;
+
+import com.comptabilite.util.MigrationsSchema;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Plans d'exécution des requêtes fréquentes des DAO sur une base MySQL migrée : aucune table ne doit
+ * être parcourue en entier (EXPLAIN type ALL ou index).
+ *
+ * Nécessite une base jetable, par exemple :
+ * mvn test -Dtest=PlansRequetesTest -Dtest.db.url=jdbc:mysql://localhost:3306/comptabilite_test
+ *          -Dtest.db.user=... -Dtest.db.password=...
+ */
+@EnabledIfSystemProperty(named = "test.db.url", matches = ".+")
+public class PlansRequetesTest {
+
+    private static final int ENTREPRISES = 10;
+    private static final int COMPTES = 1000;
+    private static final int ECRITURES = 10000;
+    private static final int PARTENAIRES = 5000;
+
+    private static Connection connexion;
+
+    @BeforeAll
+    static void preparerBase() throws SQLException {
+        connexion = DriverManager.getConnection(System.getProperty("test.db.url"),
+            System.getProperty("test.db.user"), System.getProperty("test.db.password"));
+        MigrationsSchema.migrer(connexion, MigrationsSchema.lireMigrations(), () -> {
+            throw new IllegalStateException("La base de test doit être vide ou déjà migrée");
+        });
+
+        try (Statement statement = connexion.createStatement()) {
+            try (ResultSet resultat = statement.executeQuery("SELECT COUNT(*) FROM ecritures_comptables")) {
+                resultat.next();
+                if (resultat.getLong(1) > 0) {
+                    return;
+                }
+            }
+            // Volumes suffisants pour que l'optimiseur préfère les index à un parcours de table
+            statement.execute("SET SESSION cte_max_recursion_depth = 100000");
+            statement.execute("INSERT INTO entreprises (id, active, capitalSocial, date_creation, raisonSociale, formeJuridique) " +
+                "WITH RECURSIVE n(i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < " + ENTREPRISES + ") " +
+                "SELECT i, 1, 10000, NOW(), CONCAT('Entreprise ', i), 'SARL' FROM n");
+            statement.execute("INSERT INTO utilisateurs (id, actif, dateCreation, nomUtilisateur, nom, prenom, email, motDePasse, role) " +
+                "VALUES (1, 1, NOW(), 'plans', 'Plans', 'Test', 'plans@test.local', 'x', 'COMPTABLE')");
+            statement.execute("INSERT INTO exercices (id, date_debut, date_fin, date_creation, entreprise_id, libelle, statut) " +
+                "WITH RECURSIVE n(i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < " + ENTREPRISES + ") " +
+                "SELECT i, '2024-01-01', '2024-12-31', NOW(), i, 'Exercice 2024', 'OUVERT' FROM n");
+            statement.execute("INSERT INTO compte (id, accepte_sous_comptes, actif, auxiliaire, lettrable, date_creation, " +
+                "entreprise_id, numero, libelle, classe_compte, type_compte) " +
+                "WITH RECURSIVE n(i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < " + COMPTES + ") " +
+                "SELECT i, 0, 1, 0, 0, NOW(), 1 + i % " + ENTREPRISES + ", CONCAT('6', LPAD(i, 5, '0')), " +
+                "CONCAT('Compte ', i), 'CLASSE_6', 'CHARGE' FROM n");
+            statement.execute("INSERT INTO ecritures_comptables (id, dateEcriture, date_creation, entreprise_id, exercice_id, " +
+                "utilisateur_id, numeroEcriture, numeroJournal, libelle, statut) " +
+                "WITH RECURSIVE n(i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < " + ECRITURES + ") " +
+                "SELECT i, DATE_ADD('2024-01-01', INTERVAL i % 366 DAY), NOW(), 1 + i % " + ENTREPRISES + ", " +
+                "1 + i % " + ENTREPRISES + ", 1, CONCAT('EC', LPAD(i, 8, '0')), ELT(1 + i % 4, 'AC', 'VT', 'BQ', 'OD'), " +
+                "CONCAT('Écriture ', i), IF(i % 10 = 0, 'BROUILLON', 'VALIDEE') FROM n");
+            statement.execute("INSERT INTO lignes_ecriture (id, montantDebit, montantCredit, compte_id, ecritureComptable_id) " +
+                "WITH RECURSIVE n(i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < " + (2 * ECRITURES) + ") " +
+                "SELECT i, IF(i % 2 = 0, 100, 0), IF(i % 2 = 1, 100, 0), " +
+                "1 + (i % 100) * " + ENTREPRISES + " + ((i + 1) DIV 2) % " + ENTREPRISES + ", (i + 1) DIV 2 FROM n");
+            statement.execute("INSERT INTO factures (id, dateFacture, dateEcheance, montantHT, montantTTC, montantTVA, tauxTVA, " +
+                "date_creation, entreprise_id, numeroFacture, statut, typeFacture) " +
+                "WITH RECURSIVE n(i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < " + ECRITURES + ") " +
+                "SELECT i, DATE_ADD('2024-01-01', INTERVAL i % 366 DAY), DATE_ADD('2024-01-31', INTERVAL i % 366 DAY), " +
+                "100, 120, 20, 20, NOW(), 1 + i % " + ENTREPRISES + ", CONCAT('FA', LPAD(i, 8, '0')), " +
+                "ELT(1 + i % 4, 'BROUILLON', 'ENVOYEE', 'PAYEE', 'EN_RETARD'), 'VENTE' FROM n");
+            // Clients et fournisseurs répartis entre les entreprises (listes déroulantes de la saisie de facture)
+            statement.execute("INSERT INTO clients (id, actif, date_creation, entreprise_id, codeClient, nom, prenom, " +
+                "raisonSociale, statutClient, typeClient) " +
+                "WITH RECURSIVE n(i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < " + PARTENAIRES + ") " +
+                "SELECT i, 1, NOW(), 1 + i % " + ENTREPRISES + ", CONCAT('CLI', LPAD(i, 6, '0')), " +
+                "CONCAT('Client ', i), 'Test', CONCAT('Client ', i), 'ACTIF', 'PARTICULIER' FROM n");
+            statement.execute("INSERT INTO fournisseurs (id, actif, date_creation, entreprise_id, codeFournisseur, nom, prenom, " +
+                "raisonSociale, statutFournisseur, typeFournisseur) " +
+                "WITH RECURSIVE n(i) AS (SELECT 1 UNION ALL SELECT i + 1 FROM n WHERE i < " + PARTENAIRES + ") " +
+                "SELECT i, 1, NOW(), 1 + i % " + ENTREPRISES + ", CONCAT('FRS', LPAD(i, 6, '0')), " +
+                "CONCAT('Fournisseur ', i), NULL, CONCAT('Fournisseur ', i), 'ACTIF', 'ENTREPRISE' FROM n");
+            statement.execute("INSERT INTO solde_periode (compte_id, exercice_id, annee, mois, total_debit, total_credit) " +
+                "SELECT le.compte_id, ec.exercice_id, YEAR(ec.dateEcriture), MONTH(ec.dateEcriture), " +
+                "SUM(le.montantDebit), SUM(le.montantCredit) FROM lignes_ecriture le " +
+                "JOIN ecritures_comptables ec ON le.ecritureComptable_id = ec.id " +
+                "GROUP BY le.compte_id, ec.exercice_id, YEAR(ec.dateEcriture), MONTH(ec.dateEcriture)");
+            statement.execute("ANALYZE TABLE compte, ecritures_comptables, lignes_ecriture, factures, exercices, " +
+                "solde_periode, clients, fournisseurs");
+        }
+    }
+
+    @AfterAll
+    static void fermer() throws SQLException {
+        if (connexion != null) {
+            connexion.close();
+        }
+    }
+
+    /**
+     * Équivalents SQL des requêtes des DAO, dans la forme produite par Hibernate
+     */
+    static Stream<String> requetesFrequentes() {
+        return Stream.of(
+            // LigneEcritureDAO : grand livre d'un compte sur une période
+            "SELECT l.id, l.montantDebit, l.montantCredit, ec.dateEcriture, ec.numeroEcriture " +
+                "FROM lignes_ecriture l JOIN ecritures_comptables ec ON l.ecritureComptable_id = ec.id " +
+                "WHERE l.compte_id = 42 AND ec.dateEcriture BETWEEN '2024-03-01' AND '2024-03-31' " +
+                "AND ec.statut <> 'BROUILLON' ORDER BY ec.dateEcriture, ec.id, l.id",
+            // LigneEcritureDAO : solde d'un compte avant une date
+            "SELECT SUM(l.montantDebit), SUM(l.montantCredit) " +
+                "FROM lignes_ecriture l JOIN ecritures_comptables ec ON l.ecritureComptable_id = ec.id " +
+                "WHERE l.compte_id = 42 AND ec.dateEcriture < '2024-06-01' AND ec.statut <> 'BROUILLON'",
+            // LigneEcritureDAO : mouvements de la période regroupés par compte (balance)
+            "SELECT l.compte_id, SUM(l.montantDebit), SUM(l.montantCredit) " +
+                "FROM lignes_ecriture l JOIN ecritures_comptables ec ON l.ecritureComptable_id = ec.id " +
+                "WHERE ec.entreprise_id = 3 AND ec.dateEcriture BETWEEN '2024-03-01' AND '2024-03-31' " +
+                "AND ec.statut <> 'BROUILLON' GROUP BY l.compte_id",
+            // LigneEcritureDAO : lignes d'une écriture
+            "SELECT * FROM lignes_ecriture l WHERE l.ecritureComptable_id = 1234 ORDER BY l.id",
+            // LigneEcritureDAO : lignes ouvertes d'un compte lettrable, dernier code de lettrage
+            "SELECT l.id, ec.dateEcriture, " +
+                "CASE WHEN ec.numeroJournal = 'AN' THEN l.libelle ELSE ec.referencePiece END, " +
+                "l.montantDebit, l.montantCredit " +
+                "FROM lignes_ecriture l JOIN ecritures_comptables ec ON l.ecritureComptable_id = ec.id " +
+                "WHERE l.compte_id = 42 AND l.codeLettrage IS NULL AND ec.statut = 'VALIDEE'",
+            "SELECT l.codeLettrage FROM lignes_ecriture l WHERE l.compte_id = 42 AND l.codeLettrage IS NOT NULL " +
+                "ORDER BY CHAR_LENGTH(l.codeLettrage) DESC, l.codeLettrage DESC LIMIT 1",
+            // CompteDAO : nombre de mouvements d'un compte
+            "SELECT COUNT(*) FROM lignes_ecriture l WHERE l.compte_id = 42",
+            // EcritureComptableDAO : écritures d'un exercice, plus grand numéro de l'exercice
+            "SELECT * FROM ecritures_comptables e WHERE e.exercice_id = 3 ORDER BY e.dateEcriture DESC LIMIT 50",
+            "SELECT MAX(e.numeroEcriture) FROM ecritures_comptables e WHERE e.exercice_id = 3",
+            // EcritureComptableDAO : page de la liste des écritures (pagination sur clé)
+            "SELECT * FROM ecritures_comptables e WHERE e.entreprise_id = 3 " +
+                "AND (e.dateEcriture < '2024-06-01' OR (e.dateEcriture = '2024-06-01' AND e.id < 5000)) " +
+                "ORDER BY e.dateEcriture DESC, e.id DESC LIMIT 50",
+            // EcritureComptableDAO : écritures d'un journal, liste des journaux
+            "SELECT * FROM ecritures_comptables e WHERE e.entreprise_id = 3 AND e.numeroJournal = 'VT' " +
+                "ORDER BY e.numeroEcriture",
+            "SELECT DISTINCT e.numeroJournal FROM ecritures_comptables e " +
+                "WHERE e.entreprise_id = 3 AND e.numeroJournal IS NOT NULL ORDER BY e.numeroJournal",
+            // FactureDAO : factures en retard
+            "SELECT * FROM factures f WHERE f.entreprise_id = 3 AND f.statut = 'ENVOYEE' " +
+                "AND f.dateEcheance < '2024-06-01' ORDER BY f.dateEcheance",
+            // FactureDAO : balance âgée, encours ouverts par tiers et tranche d'échéance
+            "SELECT f.client_id, f.fournisseur_id, COUNT(*), " +
+                "SUM(CASE WHEN f.dateEcheance IS NULL OR f.dateEcheance >= '2024-06-01' THEN f.montantTTC ELSE 0 END), " +
+                "SUM(CASE WHEN f.dateEcheance < '2024-03-03' THEN f.montantTTC ELSE 0 END), MIN(f.dateEcheance) " +
+                "FROM factures f WHERE f.entreprise_id = 3 AND f.statut IN ('ENVOYEE', 'EN_RETARD') " +
+                "GROUP BY f.client_id, f.fournisseur_id",
+            // FactureDAO : page filtrée par semi-jointure sur l'index ngram des numéros
+            "SELECT * FROM factures f WHERE f.entreprise_id = 3 AND f.id IN (SELECT r.id FROM factures r " +
+                "WHERE r.entreprise_id = 3 " +
+                "AND MATCH(r.numeroFacture, r.referenceExterne) AGAINST ('+\"000042\"' IN BOOLEAN MODE) > 0) " +
+                "ORDER BY f.dateFacture DESC, f.id DESC LIMIT 50",
+            // FactureDAO : page de la liste des factures
+            "SELECT * FROM factures f WHERE f.entreprise_id = 3 ORDER BY f.dateFacture DESC, f.id DESC LIMIT 50",
+            // ExerciceDAO : exercice ouvert de l'entreprise
+            "SELECT * FROM exercices e WHERE e.entreprise_id = 3 AND e.statut = 'OUVERT' " +
+                "AND '2024-06-01' BETWEEN e.date_debut AND e.date_fin",
+            // SoldePeriodeDAO : cumuls de l'exercice par compte, cumuls d'un compte
+            "SELECT s.compte_id, SUM(s.total_debit), SUM(s.total_credit) FROM solde_periode s " +
+                "WHERE s.exercice_id = 3 GROUP BY s.compte_id",
+            "SELECT * FROM solde_periode s WHERE s.compte_id = 42 AND s.exercice_id = 3 ORDER BY s.annee, s.mois",
+            // SoldeClotureDAO : agrégation des mouvements à la clôture, soldes figés d'un exercice clôturé
+            "SELECT c.id, m.exercice_debit, m.chaine_debit, m.periode_debit, c.solde_debit FROM compte c LEFT JOIN (" +
+                "SELECT le.compte_id, SUM(IF(ec.exercice_id = 3, le.montantDebit, 0)) AS exercice_debit, " +
+                "SUM(IF(ec.exercice_id IN (3), le.montantDebit, 0)) AS chaine_debit, " +
+                "SUM(le.montantDebit) AS periode_debit " +
+                "FROM lignes_ecriture le JOIN ecritures_comptables ec ON le.ecritureComptable_id = ec.id " +
+                "WHERE ec.exercice_id IN (3, 4) AND ec.statut <> 'BROUILLON' GROUP BY le.compte_id) m " +
+                "ON m.compte_id = c.id WHERE c.entreprise_id = 3 " +
+                "AND (m.compte_id IS NOT NULL OR COALESCE(c.solde_debit, 0) <> 0)",
+            "SELECT s.compte_id, s.total_debit, s.total_credit, s.cumul_debit, s.cumul_credit " +
+                "FROM solde_cloture s WHERE s.exercice_id = 3",
+            // CompteDAO : plan comptable de l'entreprise
+            "SELECT * FROM compte c WHERE c.entreprise_id = 3 ORDER BY c.numero",
+            // ClientDAO, FournisseurDAO : listes déroulantes de la saisie de facture
+            requeteClients(3),
+            requeteFournisseurs(3));
+    }
+
+    private static String requeteClients(int entrepriseId) {
+        return "SELECT * FROM clients c WHERE c.entreprise_id = " + entrepriseId + " ORDER BY c.nom, c.prenom";
+    }
+
+    private static String requeteFournisseurs(int entrepriseId) {
+        return "SELECT * FROM fournisseurs f WHERE f.entreprise_id = " + entrepriseId + " ORDER BY f.nom";
+    }
+
+    /**
+     * Le chargement des listes de partenaires ne lit que les lignes de l'entreprise, dans l'ordre
+     * de l'index : son coût ne dépend pas du nombre d'entreprises ni de leurs partenaires.
+     */
+    @ParameterizedTest
+    @MethodSource("entreprises")
+    void testPartenairesParEntreprise(int entrepriseId) throws SQLException {
+        long parEntreprise = PARTENAIRES / ENTREPRISES;
+        for (String requete : List.of(requeteClients(entrepriseId), requeteFournisseurs(entrepriseId))) {
+            try (Statement statement = connexion.createStatement();
+                 ResultSet plan = statement.executeQuery("EXPLAIN " + requete)) {
+                assertTrue(plan.next());
+                assertEquals("ref", plan.getString("type"), "Accès par index attendu pour : " + requete);
+                assertTrue(plan.getLong("rows") <= 2 * parEntreprise,
+                    plan.getLong("rows") + " lignes estimées pour : " + requete);
+                String extra = plan.getString("Extra");
+                assertFalse(extra != null && extra.contains("filesort"), "Tri hors index pour : " + requete);
+            }
+        }
+    }
+
+    static Stream<Integer> entreprises() {
+        return Stream.iterate(1, i -> i <= ENTREPRISES, i -> i + 1);
+    }
+
+    @ParameterizedTest
+    @MethodSource("requetesFrequentes")
+    void testSansParcoursComplet(String requete) throws SQLException {
+        List<String> parcours = new ArrayList<>();
+        try (Statement statement = connexion.createStatement();
+             ResultSet plan = statement.executeQuery("EXPLAIN " + requete)) {
+            while (plan.next()) {
+                String type = plan.getString("type");
+                if ("ALL".equals(type) || "index".equals(type)) {
+                    parcours.add(plan.getString("table") + " (" + type + ")");
+                }
+            }
+        }
+        assertTrue(parcours.isEmpty(), "Parcours complet de " + parcours + " pour : " + requete);
+    }
+}
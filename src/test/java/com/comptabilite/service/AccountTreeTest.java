@@ -0,0 +1,87 @@
+package com.comptabilite.service;
+
+import com.comptabilite.dao.LigneEcritureDAO.MouvementCompte;
+import com.comptabilite.model.Compte;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AccountTreeTest {
+
+    private Compte classe4;
+    private Compte clients;
+    private Compte client1;
+    private Compte client2;
+    private Compte banque;
+
+    @BeforeEach
+    void setUp() {
+        classe4 = compte(1L, "4", null, "0", "0");
+        clients = compte(2L, "411", classe4, "999", "999"); // regroupement : solde propre ignoré
+        client1 = compte(3L, "411001", clients, "100", "20");
+        client2 = compte(4L, "411002", clients, "50", "0");
+        banque = compte(5L, "512", null, "300", "120");
+    }
+
+    @Test
+    void testSoldesConsolides() {
+        AccountTree arbre = AccountTree.construire(List.of(client2, banque, classe4, client1, clients));
+
+        assertEquals(new BigDecimal("150"), arbre.getSoldeDebiteurConsolide(2L));
+        assertEquals(new BigDecimal("20"), arbre.getSoldeCrediteurConsolide(2L));
+        assertEquals(new BigDecimal("150"), arbre.getSoldeDebiteurConsolide(1L));
+        assertEquals(new BigDecimal("180"), arbre.getSoldeNetConsolide(5L));
+        assertTrue(arbre.aSousComptes(2L));
+        assertFalse(arbre.aSousComptes(3L));
+
+        // Même résultat que le calcul récursif de l'entité
+        clients.getSousComptes().addAll(List.of(client1, client2));
+        classe4.getSousComptes().add(clients);
+        assertEquals(classe4.getSoldeDebiteurConsolide(), arbre.getSoldeDebiteurConsolide(1L));
+        assertEquals(classe4.getSoldeCrediteurConsolide(), arbre.getSoldeCrediteurConsolide(1L));
+    }
+
+    @Test
+    void testImputationIncrementale() {
+        AccountTree.rafraichir(99L, List.of(classe4, clients, client1, client2, banque));
+
+        AccountTree.imputer(99L, 3L, new BigDecimal("30"), BigDecimal.ZERO);
+        AccountTree.imputer(99L, 5L, BigDecimal.ZERO, new BigDecimal("30"));
+
+        AccountTree arbre = AccountTree.pour(99L);
+        assertEquals(new BigDecimal("130"), arbre.getSoldeDebiteurConsolide(3L));
+        assertEquals(new BigDecimal("180"), arbre.getSoldeDebiteurConsolide(1L));
+        assertEquals(new BigDecimal("150"), arbre.getSoldeCrediteurConsolide(5L));
+
+        AccountTree.invalider(99L);
+    }
+
+    @Test
+    void testConsolidationMouvements() {
+        AccountTree arbre = AccountTree.construire(List.of(classe4, clients, client1, client2, banque));
+
+        Map<Long, MouvementCompte> consolides = arbre.consolider(Map.of(
+            3L, new MouvementCompte(new BigDecimal("10"), new BigDecimal("1")),
+            4L, new MouvementCompte(new BigDecimal("5"), BigDecimal.ZERO),
+            2L, new MouvementCompte(new BigDecimal("1000"), BigDecimal.ZERO)));
+
+        assertEquals(new BigDecimal("15"), consolides.get(1L).totalDebit());
+        assertEquals(new BigDecimal("1"), consolides.get(2L).totalCredit());
+        assertEquals(BigDecimal.ZERO, consolides.get(5L).totalDebit());
+    }
+
+    private Compte compte(Long id, String numero, Compte parent, String debit, String credit) {
+        Compte compte = new Compte();
+        compte.setId(id);
+        compte.setNumeroCompte(numero);
+        compte.setCompteParent(parent);
+        compte.setSoldeDebiteur(new BigDecimal(debit));
+        compte.setSoldeCrediteur(new BigDecimal(credit));
+        return compte;
+    }
+}
@@ -0,0 +1,88 @@
+package com.comptabilite.service;
+
+import com.comptabilite.dao.FactureDAO;
+import com.comptabilite.dao.FactureDAO.EncoursTiers;
+import com.comptabilite.service.BalanceAgeeService.BalanceAgee;
+import com.comptabilite.service.BalanceAgeeService.Instantane;
+import com.comptabilite.service.BalanceAgeeService.Recalcul;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BalanceAgeeServiceTest {
+
+    private static final LocalDate REFERENCE = LocalDate.of(2024, 6, 30);
+
+    /**
+     * Rejoue des encours fixés à l'avance et garde trace des tiers relus
+     */
+    private static final class FactureDAOSimule extends FactureDAO {
+        final List<Collection<Long>> clientsRelus = new ArrayList<>();
+        List<EncoursTiers> encours = List.of();
+
+        @Override
+        public List<EncoursTiers> findBalanceAgee(Long entrepriseId, LocalDate dateReference,
+                                                  Collection<Long> clientIds, Collection<Long> fournisseurIds) {
+            clientsRelus.add(clientIds);
+            return encours;
+        }
+    }
+
+    private static EncoursTiers client(long id, String nonEchu, String retardPlus90) {
+        return new EncoursTiers(id, null, "C" + id, "Client " + id, 1, new BigDecimal(nonEchu),
+            BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, new BigDecimal(retardPlus90), REFERENCE.minusDays(120));
+    }
+
+    private static EncoursTiers fournisseur(long id, String retard30) {
+        return new EncoursTiers(null, id, "F" + id, "Fournisseur " + id, 2, BigDecimal.ZERO,
+            new BigDecimal(retard30), BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, REFERENCE.minusDays(10));
+    }
+
+    @Test
+    void testRecalculPartielDesTiersModifies() {
+        FactureDAOSimule dao = new FactureDAOSimule();
+        Instantane instantane = new Instantane(REFERENCE,
+            List.of(client(1, "100.00", "0.00"), client(2, "50.00", "900.00"), fournisseur(7, "300.00")));
+
+        assertEquals(Recalcul.AUCUN, instantane.actualiser(dao, 1L));
+        assertTrue(dao.clientsRelus.isEmpty());
+
+        // Client 1 soldé, client 2 a reçu une nouvelle facture
+        instantane.marquer(1L, null);
+        instantane.marquer(2L, null);
+        dao.encours = List.of(client(2, "80.00", "900.00"));
+        assertEquals(Recalcul.PARTIEL, instantane.actualiser(dao, 1L));
+        assertEquals(1, dao.clientsRelus.size());
+        assertEquals(2, dao.clientsRelus.get(0).size());
+
+        BalanceAgee balance = instantane.balance(Recalcul.PARTIEL, 0);
+        assertEquals(1, balance.clients().size());
+        assertEquals(new BigDecimal("980.00"), balance.clients().get(0).total());
+        assertEquals(1, balance.fournisseurs().size());
+        assertEquals(new BigDecimal("300.00"), balance.totalFournisseurs().retard30());
+        assertEquals(Recalcul.AUCUN, instantane.actualiser(dao, 1L));
+    }
+
+    @Test
+    void testTotauxEtTri() {
+        Instantane instantane = new Instantane(REFERENCE,
+            List.of(client(1, "100.00", "0.00"), client(2, "50.00", "900.00"), client(3, "400.00", "0.00")));
+
+        BalanceAgee balance = instantane.balance(Recalcul.COMPLET, 0);
+
+        assertEquals(List.of(2L, 3L, 1L), balance.clients().stream().map(EncoursTiers::clientId).toList());
+        EncoursTiers total = balance.totalClients();
+        assertEquals(new BigDecimal("550.00"), total.nonEchu());
+        assertEquals(new BigDecimal("900.00"), total.retardPlus90());
+        assertEquals(new BigDecimal("1450.00"), total.total());
+        assertEquals(3, total.factures());
+        assertTrue(instantane.valide(REFERENCE));
+        assertFalse(instantane.valide(REFERENCE.plusDays(1)));
+    }
+}
@@ -0,0 +1,163 @@
+package com.comptabilite.service;
+
+import com.comptabilite.dao.LigneEcritureDAO.LigneOuverte;
+import com.comptabilite.dao.LigneEcritureDAO.MouvementCompte;
+import com.comptabilite.dao.SoldeClotureDAO.MouvementsCloture;
+import com.comptabilite.dao.SoldeClotureDAO.SoldeFige;
+import com.comptabilite.service.ClotureExerciceService.ANouveaux;
+import com.comptabilite.service.ClotureExerciceService.LigneANouveau;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClotureExerciceServiceTest {
+
+    private static final Map<Long, String> PLAN = Map.of(
+        1L, "CM101000",   // capital
+        2L, "CM131000",   // résultat net : bénéfice
+        3L, "CM139000",   // résultat net : perte
+        4L, "CM411000",   // clients
+        5L, "CM521000",   // banque
+        6L, "CM601000",   // achats
+        7L, "CM701000",   // ventes
+        8L, "CM811000");  // hors activités ordinaires
+
+    private static Map<Long, SoldeFige> soldes(Object... comptesEtMontants) {
+        Map<Long, SoldeFige> soldes = new HashMap<>();
+        for (int i = 0; i < comptesEtMontants.length; i += 3) {
+            Long compteId = (Long) comptesEtMontants[i];
+            MouvementCompte cumul = new MouvementCompte(
+                new BigDecimal((String) comptesEtMontants[i + 1]), new BigDecimal((String) comptesEtMontants[i + 2]));
+            soldes.put(compteId, new SoldeFige(compteId, cumul, cumul));
+        }
+        return soldes;
+    }
+
+    private static MouvementCompte mouvement(String debit, String credit) {
+        return new MouvementCompte(new BigDecimal(debit), new BigDecimal(credit));
+    }
+
+    private static BigDecimal total(ANouveaux aNouveaux) {
+        return aNouveaux.soldes().values().stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Test
+    void testBeneficeReportEtEquilibre() {
+        // Capital 1000, ventes 800 encaissées en banque, achats 300 payés, charge HAO 50
+        Map<Long, SoldeFige> soldes = soldes(
+            1L, "0.00", "1000.00",
+            5L, "1800.00", "350.00",
+            6L, "300.00", "0.00",
+            7L, "0.00", "800.00",
+            8L, "50.00", "0.00");
+
+        ANouveaux aNouveaux = ClotureExerciceService.calculerANouveaux(soldes, PLAN, Map.of(),
+            ClotureExerciceService.compteResultat(PLAN, ClotureExerciceService.COMPTES_BENEFICE),
+            ClotureExerciceService.compteResultat(PLAN, ClotureExerciceService.COMPTES_PERTE));
+
+        assertEquals(new BigDecimal("450.00"), aNouveaux.resultat());
+        assertEquals(List.of(1L, 2L, 5L), List.copyOf(aNouveaux.soldes().keySet()));
+        assertEquals(new BigDecimal("-1000.00"), aNouveaux.soldes().get(1L));
+        assertEquals(new BigDecimal("-450.00"), aNouveaux.soldes().get(2L));
+        assertEquals(new BigDecimal("1450.00"), aNouveaux.soldes().get(5L));
+        assertEquals(0, total(aNouveaux).signum());
+    }
+
+    @Test
+    void testPerteEtPlanFrancais() {
+        Map<Long, String> plan = Map.of(10L, "120000", 11L, "129000", 12L, "512000", 13L, "625000", 14L, "411000");
+        Map<Long, SoldeFige> soldes = soldes(
+            12L, "0.00", "200.00",
+            13L, "200.00", "0.00",
+            14L, "75.00", "75.00");
+
+        ANouveaux aNouveaux = ClotureExerciceService.calculerANouveaux(soldes, plan, Map.of(),
+            ClotureExerciceService.compteResultat(plan, ClotureExerciceService.COMPTES_BENEFICE),
+            ClotureExerciceService.compteResultat(plan, ClotureExerciceService.COMPTES_PERTE));
+
+        assertEquals(new BigDecimal("-200.00"), aNouveaux.resultat());
+        // Compte soldé (411) sans ligne d'à-nouveaux
+        assertEquals(Map.of(11L, new BigDecimal("200.00"), 12L, new BigDecimal("-200.00")), aNouveaux.soldes());
+        assertEquals(0, total(aNouveaux).signum());
+    }
+
+    @Test
+    void testSansCompteDeResultat() {
+        Map<Long, String> plan = Map.of(5L, "CM521000", 7L, "CM701000");
+        Map<Long, SoldeFige> soldes = soldes(5L, "100.00", "0.00", 7L, "0.00", "100.00");
+
+        assertThrows(IllegalStateException.class,
+            () -> ClotureExerciceService.calculerANouveaux(soldes, plan, Map.of(), null, null));
+    }
+
+    @Test
+    void testSoldeSaisiDirectementReporte() {
+        // Capital saisi directement sur le compte, sans écriture
+        SoldeFige capital = ClotureExerciceService.soldeFige(new MouvementsCloture(1L,
+            MouvementCompte.ZERO, MouvementCompte.ZERO, MouvementCompte.ZERO, mouvement("0.00", "1000.00")));
+        // Banque : 1500 encaissés dans l'exercice, 200 dans l'exercice suivant, 1000 saisis directement
+        SoldeFige banque = ClotureExerciceService.soldeFige(new MouvementsCloture(5L,
+            mouvement("1500.00", "0.00"), mouvement("1500.00", "0.00"),
+            mouvement("1700.00", "0.00"), mouvement("2700.00", "0.00")));
+        // Ventes de l'exercice
+        SoldeFige ventes = ClotureExerciceService.soldeFige(new MouvementsCloture(7L,
+            mouvement("0.00", "1500.00"), mouvement("0.00", "1500.00"),
+            mouvement("0.00", "1500.00"), mouvement("0.00", "1500.00")));
+
+        assertEquals(mouvement("0.00", "1000.00"), capital.cumul());
+        assertEquals(mouvement("1500.00", "0.00"), banque.mouvements());
+        assertEquals(mouvement("2500.00", "0.00"), banque.cumul());
+
+        Map<Long, SoldeFige> soldes = Map.of(1L, capital, 5L, banque, 7L, ventes);
+        ANouveaux aNouveaux = ClotureExerciceService.calculerANouveaux(soldes, PLAN, Map.of(),
+            ClotureExerciceService.compteResultat(PLAN, ClotureExerciceService.COMPTES_BENEFICE),
+            ClotureExerciceService.compteResultat(PLAN, ClotureExerciceService.COMPTES_PERTE));
+        assertEquals(new BigDecimal("-1000.00"), aNouveaux.soldes().get(1L));
+        assertEquals(new BigDecimal("2500.00"), aNouveaux.soldes().get(5L));
+        assertEquals(0, total(aNouveaux).signum());
+
+        // Le solde enregistré garde l'exercice suivant et reprend le reste en à-nouveaux
+        Map<Long, MouvementCompte> ecarts = ClotureExerciceService.reportSoldes(soldes.values(), aNouveaux);
+        assertEquals(List.of(2L, 7L), List.copyOf(ecarts.keySet()));
+        assertEquals(0, ecarts.get(2L).totalCredit().compareTo(new BigDecimal("1500")));
+        assertEquals(0, ecarts.get(7L).totalCredit().compareTo(new BigDecimal("-1500")));
+    }
+
+    private static LigneOuverte ouverte(long ligneId, String reference, String debit, String credit) {
+        return new LigneOuverte(ligneId, LocalDate.of(2024, 11, 1), reference,
+            new BigDecimal(debit), new BigDecimal(credit));
+    }
+
+    @Test
+    void testPiecesOuvertesRepriseUneAUne() {
+        // Clients : deux factures ouvertes, un écart de lettrage de 10 passé en perte sur l'exercice
+        Map<Long, SoldeFige> soldes = soldes(
+            4L, "1180.00", "1010.00",
+            5L, "1000.00", "0.00",
+            7L, "0.00", "1170.00");
+        Map<Long, List<LigneOuverte>> ouvertes = Map.of(
+            4L, List.of(ouverte(41L, "FA-0007", "100.00", "0.00"), ouverte(42L, null, "80.00", "0.00")),
+            // Compte soldé dont deux pièces se compensent sans être lettrées
+            5L, List.of(ouverte(51L, "VIR-1", "50.00", "0.00"), ouverte(52L, "VIR-2", "0.00", "50.00")));
+        Map<Long, String> plan = Map.of(2L, "CM131000", 4L, "CM411000", 5L, "CM521000", 7L, "CM701000");
+
+        ANouveaux aNouveaux = ClotureExerciceService.calculerANouveaux(soldes, plan, ouvertes, 2L, null);
+
+        assertEquals(List.of(
+            new LigneANouveau(2L, new BigDecimal("-1170.00"), null),
+            new LigneANouveau(4L, new BigDecimal("100.00"), "FA-0007"),
+            new LigneANouveau(4L, new BigDecimal("80.00"), null),
+            new LigneANouveau(4L, new BigDecimal("-10.00"), null),
+            new LigneANouveau(5L, new BigDecimal("50.00"), "VIR-1"),
+            new LigneANouveau(5L, new BigDecimal("-50.00"), "VIR-2"),
+            new LigneANouveau(5L, new BigDecimal("1000.00"), null)), aNouveaux.lignes());
+        assertEquals(new BigDecimal("170.00"), aNouveaux.soldes().get(4L));
+        assertEquals(0, total(aNouveaux).signum());
+    }
+}
@@ -0,0 +1,75 @@
+package com.comptabilite.service;
+
+import com.comptabilite.service.EcrivainTableau.Colonne;
+import com.comptabilite.service.EcrivainTableau.TypeColonne;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EcrivainTableauTest {
+
+    private static final List<Colonne> COLONNES = List.of(
+        new Colonne("Date", TypeColonne.DATE, 10),
+        new Colonne("Libellé", TypeColonne.TEXTE, 30),
+        new Colonne("Montant", TypeColonne.MONTANT, 12));
+
+    @TempDir
+    Path dossier;
+
+    @Test
+    void testCsv() throws IOException {
+        Path fichier = dossier.resolve("export.csv");
+        try (EcrivainTableau ecrivain = EcrivainTableau.ouvrir(FormatExport.CSV, fichier, "Test", COLONNES)) {
+            ecrivain.ligne(LocalDate.of(2024, 3, 15), "Honoraires; consultation", new BigDecimal("1234.50"));
+            ecrivain.total(null, "Total", new BigDecimal("1234.50"));
+        }
+
+        List<String> lignes = Files.readAllLines(fichier, StandardCharsets.UTF_8);
+        assertEquals("\uFEFFDate;Libellé;Montant", lignes.get(0));
+        assertEquals("15/03/2024;\"Honoraires; consultation\";1234,50", lignes.get(1));
+        assertEquals(";Total;1234,50", lignes.get(2));
+    }
+
+    @Test
+    void testXlsxEnFlux() throws IOException {
+        Path fichier = dossier.resolve("export.xlsx");
+        try (EcrivainTableau ecrivain = EcrivainTableau.ouvrir(FormatExport.XLSX, fichier, "Grand livre", COLONNES)) {
+            for (int i = 1; i <= 1000; i++) {
+                ecrivain.ligne(LocalDate.of(2024, 1, 1), "Ligne " + i, new BigDecimal(i));
+            }
+        }
+
+        try (InputStream entree = Files.newInputStream(fichier); XSSFWorkbook classeur = new XSSFWorkbook(entree)) {
+            Sheet feuille = classeur.getSheet("Grand livre");
+            assertEquals(1000, feuille.getLastRowNum());
+            assertEquals("Ligne 1000", feuille.getRow(1000).getCell(1).getStringCellValue());
+            assertEquals(1000.0, feuille.getRow(1000).getCell(2).getNumericCellValue());
+        }
+    }
+
+    @Test
+    void testPdf() throws IOException {
+        Path fichier = dossier.resolve("export.pdf");
+        try (EcrivainTableau ecrivain = EcrivainTableau.ouvrir(FormatExport.PDF, fichier, "Balance", COLONNES)) {
+            for (int i = 1; i <= 500; i++) {
+                ecrivain.ligne(LocalDate.of(2024, 1, 1), "Écriture " + i, new BigDecimal(i));
+            }
+            assertThrows(IllegalArgumentException.class, () -> ecrivain.ligne("trop", "peu"));
+        }
+
+        byte[] contenu = Files.readAllBytes(fichier);
+        assertEquals("%PDF", new String(contenu, 0, 4, StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,73 @@
+package com.comptabilite.service;
+
+import com.comptabilite.service.LecteurFacturesImport.FactureImport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LecteurFacturesImportTest {
+
+    @TempDir
+    Path dossier;
+
+    @Test
+    void testLectureCsvRegroupeLesLignes() throws IOException {
+        Path fichier = dossier.resolve("factures.csv");
+        Files.writeString(fichier, "﻿reference;type;date;echeance;partenaire;objet;taux_tva;designation;quantite;prix_unitaire\n"
+            + "F1;VENTE;15/03/2024;;CLI001;\"Séjour; chambre 12\";20;Hospitalisation;2;150,50\n"
+            + "F1;VENTE;15/03/2024;;CLI001;\"Séjour; chambre 12\";20;Pharmacie;1;30\n"
+            + "\n"
+            + "F2;ACHAT;2024-03-16;2024-04-16;FRS001;Fournitures;20;Gants;100;0,45\n", StandardCharsets.UTF_8);
+
+        try (LecteurFacturesImport lecteur = LecteurFacturesImport.ouvrir(fichier)) {
+            FactureImport premiere = lecteur.suivante();
+            assertEquals(1, premiere.position());
+            assertEquals("F1", premiere.reference());
+            assertEquals("Séjour; chambre 12", premiere.objet());
+            assertEquals(2, premiere.lignes().size());
+            assertEquals("150,50", premiere.lignes().get(0).prixUnitaire());
+
+            FactureImport seconde = lecteur.suivante();
+            assertEquals(2, seconde.position());
+            assertEquals("FRS001", seconde.partenaire());
+            assertEquals(1, seconde.lignes().size());
+
+            assertNull(lecteur.suivante());
+        }
+    }
+
+    @Test
+    void testLectureJson() throws IOException {
+        Path fichier = dossier.resolve("factures.json");
+        Files.writeString(fichier, "[{\"reference\":\"F1\",\"type\":\"VENTE\",\"date\":\"2024-03-15\",\"partenaire\":\"CLI001\","
+            + "\"tauxTva\":\"20\",\"source\":\"facturation\",\"lignes\":[{\"designation\":\"Consultation\",\"quantite\":\"1\","
+            + "\"prixUnitaire\":\"50\"}]},{\"reference\":\"F2\",\"type\":\"ACHAT\"}]", StandardCharsets.UTF_8);
+
+        try (LecteurFacturesImport lecteur = LecteurFacturesImport.ouvrir(fichier)) {
+            FactureImport premiere = lecteur.suivante();
+            assertEquals("F1", premiere.reference());
+            assertEquals("Consultation", premiere.lignes().get(0).designation());
+
+            // Facture sans lignes : lue quand même, rejetée à la validation
+            FactureImport seconde = lecteur.suivante();
+            assertEquals(2, seconde.position());
+            assertTrue(seconde.lignes().isEmpty());
+
+            assertNull(lecteur.suivante());
+        }
+    }
+
+    @Test
+    void testColonneAbsente() throws IOException {
+        Path fichier = dossier.resolve("incomplet.csv");
+        Files.writeString(fichier, "reference;type;date\nF1;VENTE;15/03/2024\n", StandardCharsets.UTF_8);
+
+        assertThrows(IOException.class, () -> LecteurFacturesImport.ouvrir(fichier));
+    }
+}
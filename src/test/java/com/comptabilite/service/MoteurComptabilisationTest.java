@@ -0,0 +1,125 @@
+package com.comptabilite.service;
+
+import com.comptabilite.model.Compte;
+import com.comptabilite.model.EcritureComptable;
+import com.comptabilite.model.Entreprise;
+import com.comptabilite.model.Facture;
+import com.comptabilite.model.LigneEcriture;
+import com.comptabilite.service.ReglesComptabilisation.Operation;
+import com.comptabilite.service.ReglesComptabilisation.Poste;
+import com.comptabilite.service.ReglesComptabilisation.Referentiel;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoteurComptabilisationTest {
+
+    @Test
+    void testResolutionParReferentiel() {
+        assertEquals(Referentiel.OHADA, Referentiel.pour("Cameroun"));
+        assertEquals(Referentiel.PCG, Referentiel.pour("France"));
+        assertEquals(Referentiel.PCG, Referentiel.pour(null));
+
+        // Sans compte détaillé, le compte de regroupement candidat est retenu
+        MoteurComptabilisation moteur = MoteurComptabilisation.compiler(Referentiel.OHADA, List.of(
+            compte(1L, "CM411000"), compte(2L, "CM706000"), compte(3L, "CM445000"), compte(4L, "CM520000")));
+
+        assertEquals(2L, moteur.getCompte(Poste.VENTES).getId());
+        assertEquals(3L, moteur.getCompte(Poste.TVA_COLLECTEE).getId());
+        assertEquals(4L, moteur.getCompte(Poste.BANQUE).getId());
+        assertNull(moteur.getCompte(Poste.ACHATS));
+    }
+
+    @Test
+    void testEcritureVente() {
+        MoteurComptabilisation moteur = MoteurComptabilisation.compiler(Referentiel.PCG, List.of(
+            compte(1L, "411000"), compte(2L, "707000"), compte(3L, "445710")));
+
+        EcritureComptable ecriture = moteur.construireEcriture(facture("100", "20"), Operation.VENTE,
+            LocalDate.of(2024, 3, 15), null, "VT000001");
+
+        assertEquals("VT", ecriture.getNumeroJournal());
+        assertEquals(EcritureComptable.StatutEcriture.VALIDEE, ecriture.getStatut());
+        assertEquals(3, ecriture.getLignes().size());
+        assertEquals(new BigDecimal("120"), debit(ecriture, 1L));
+        assertEquals(new BigDecimal("100"), credit(ecriture, 2L));
+        assertEquals(new BigDecimal("20"), credit(ecriture, 3L));
+    }
+
+    @Test
+    void testAvoirContrePasseLaVente() {
+        MoteurComptabilisation moteur = MoteurComptabilisation.compiler(Referentiel.PCG, List.of(
+            compte(1L, "411000"), compte(2L, "707000"), compte(3L, "445710"), compte(4L, "512000")));
+        Facture avoir = facture("100", "20");
+        avoir.setTypeFacture(Facture.TypeFacture.AVOIR_VENTE);
+
+        assertEquals(Operation.AVOIR_VENTE, Operation.pour(avoir, false));
+        EcritureComptable ecriture = moteur.construireEcriture(avoir, Operation.pour(avoir, false),
+            LocalDate.of(2024, 3, 20), null, "VT000003");
+
+        assertEquals("VT", ecriture.getNumeroJournal());
+        assertEquals(new BigDecimal("100"), debit(ecriture, 2L));
+        assertEquals(new BigDecimal("20"), debit(ecriture, 3L));
+        assertEquals(new BigDecimal("120"), credit(ecriture, 1L));
+
+        // Remboursement de l'avoir : le client est soldé par la banque
+        EcritureComptable remboursement = moteur.construireEcriture(avoir, Operation.pour(avoir, true),
+            LocalDate.of(2024, 4, 2), null, "BQ000002");
+        assertEquals(new BigDecimal("120"), debit(remboursement, 1L));
+        assertEquals(new BigDecimal("120"), credit(remboursement, 4L));
+    }
+
+    @Test
+    void testLigneDeMontantNulIgnoree() {
+        // Facture exonérée : le compte de TVA n'est ni requis ni mouvementé
+        MoteurComptabilisation moteur = MoteurComptabilisation.compiler(Referentiel.PCG, List.of(
+            compte(1L, "411000"), compte(2L, "707000")));
+        Facture facture = facture("100", "0");
+
+        assertNull(moteur.posteManquant(Operation.VENTE, facture));
+        EcritureComptable ecriture = moteur.construireEcriture(facture, Operation.VENTE,
+            LocalDate.of(2024, 3, 15), null, "VT000002");
+        assertEquals(2, ecriture.getLignes().size());
+
+        assertEquals(Poste.BANQUE, moteur.posteManquant(Operation.ENCAISSEMENT, facture));
+        assertThrows(RuntimeException.class, () -> moteur.construireEcriture(facture, Operation.ENCAISSEMENT,
+            LocalDate.of(2024, 4, 1), null, "BQ000001"));
+    }
+
+    private Compte compte(Long id, String numero) {
+        Compte compte = new Compte();
+        compte.setId(id);
+        compte.setNumeroCompte(numero);
+        return compte;
+    }
+
+    private Facture facture(String ht, String tva) {
+        Facture facture = new Facture();
+        facture.setNumeroFacture("FV-2024-001");
+        facture.setTypeFacture(Facture.TypeFacture.VENTE);
+        facture.setEntreprise(new Entreprise());
+        facture.setMontantHT(new BigDecimal(ht));
+        facture.setMontantTVA(new BigDecimal(tva));
+        facture.setMontantTTC(new BigDecimal(ht).add(new BigDecimal(tva)));
+        return facture;
+    }
+
+    private BigDecimal debit(EcritureComptable ecriture, Long compteId) {
+        return ligne(ecriture, compteId).getMontantDebit();
+    }
+
+    private BigDecimal credit(EcritureComptable ecriture, Long compteId) {
+        return ligne(ecriture, compteId).getMontantCredit();
+    }
+
+    private LigneEcriture ligne(EcritureComptable ecriture, Long compteId) {
+        return ecriture.getLignes().stream()
+            .filter(ligne -> ligne.getCompte().getId().equals(compteId))
+            .findFirst()
+            .orElseThrow();
+    }
+}
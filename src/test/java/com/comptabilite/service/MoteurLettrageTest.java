@@ -0,0 +1,117 @@
+package com.comptabilite.service;
+
+import com.comptabilite.service.MoteurLettrage.Groupe;
+import com.comptabilite.service.MoteurLettrage.Ligne;
+import com.comptabilite.service.MoteurLettrage.Methode;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoteurLettrageTest {
+
+    private static final LocalDate JANVIER = LocalDate.of(2024, 1, 1);
+
+    private static Ligne ligne(long id, int jour, String reference, String montant) {
+        return new Ligne(id, JANVIER.plusDays(jour), reference, new BigDecimal(montant));
+    }
+
+    private static Groupe groupeDe(List<Groupe> groupes, long id) {
+        return groupes.stream().filter(g -> g.lignes().contains(id)).findFirst().orElse(null);
+    }
+
+    @Test
+    void testPasses() {
+        List<Ligne> lignes = List.of(
+            // Facture réglée en deux fois, même pièce
+            ligne(1, 0, "FA-001", "300.00"),
+            ligne(2, 5, "fa-001 ", "-100.00"),
+            ligne(3, 9, "FA-001", "-200.00"),
+            // Montant identique, références différentes : le débit le plus ancien est soldé
+            ligne(4, 1, "FA-002", "80.00"),
+            ligne(5, 2, "FA-003", "80.00"),
+            ligne(6, 20, "VIR-1", "-80.00"),
+            // Un règlement pour deux factures
+            ligne(7, 3, "FA-004", "45.50"),
+            ligne(8, 4, "FA-005", "54.50"),
+            ligne(9, 30, "VIR-2", "-100.00"));
+
+        List<Groupe> groupes = MoteurLettrage.rapprocher(lignes, BigDecimal.ZERO);
+
+        assertEquals(Methode.REFERENCE, groupeDe(groupes, 1).methode());
+        assertEquals(List.of(4L, 6L), groupeDe(groupes, 6).lignes());
+        assertEquals(Methode.MONTANT, groupeDe(groupes, 6).methode());
+        assertNull(groupeDe(groupes, 5));
+        assertEquals(Methode.COMBINAISON, groupeDe(groupes, 9).methode());
+        assertEquals(Set.of(7L, 8L, 9L), new HashSet<>(groupeDe(groupes, 9).lignes()));
+        for (Groupe groupe : groupes) {
+            assertEquals(0, groupe.ecart().signum());
+        }
+    }
+
+    @Test
+    void testToleranceEtCumul() {
+        List<Ligne> lignes = List.of(
+            ligne(1, 0, null, "10.00"),
+            ligne(2, 1, null, "20.00"),
+            ligne(3, 2, null, "-29.99"),
+            ligne(4, 3, null, "5.00"),
+            ligne(5, 4, null, "7.00"),
+            ligne(6, 5, null, "-3.00"),
+            ligne(7, 6, null, "-9.00"));
+
+        assertTrue(MoteurLettrage.rapprocher(lignes.subList(0, 3), BigDecimal.ZERO).isEmpty());
+
+        List<Groupe> groupes = MoteurLettrage.rapprocher(lignes, new BigDecimal("0.01"));
+        Groupe paire = groupeDe(groupes, 3);
+        assertEquals(Methode.COMBINAISON, paire.methode());
+        assertEquals(new BigDecimal("0.01"), paire.ecart());
+        // 5 + 7 - 3 - 9 : aucune paire ni triplet, soldés par leur cumul
+        assertEquals(Methode.FIFO, groupeDe(groupes, 4).methode());
+        assertEquals(List.of(4L, 5L, 6L, 7L), groupeDe(groupes, 4).lignes());
+    }
+
+    @Test
+    void testGrandCompte() {
+        // 100 000 factures et leurs règlements, dans le désordre : le temps doit rester linéaire
+        Random aleatoire = new Random(42);
+        List<Ligne> lignes = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            BigDecimal montant = BigDecimal.valueOf(1000 + aleatoire.nextInt(5_000_000), 2);
+            int jour = aleatoire.nextInt(365);
+            lignes.add(new Ligne(2L * i, JANVIER.plusDays(jour), "FA-" + i, montant));
+            lignes.add(new Ligne(2L * i + 1, JANVIER.plusDays(jour + aleatoire.nextInt(60)), null, montant.negate()));
+        }
+        Collections.shuffle(lignes, aleatoire);
+
+        long debut = System.nanoTime();
+        List<Groupe> groupes = MoteurLettrage.rapprocher(lignes, BigDecimal.ZERO);
+        long duree = (System.nanoTime() - debut) / 1_000_000;
+
+        assertEquals(200_000, groupes.stream().mapToInt(g -> g.lignes().size()).sum());
+        assertTrue(duree < 10_000, "Lettrage de 200 000 lignes en " + duree + " ms");
+    }
+
+    @Test
+    void testCodes() {
+        assertEquals("AAAA", MoteurLettrage.code(1));
+        assertEquals("AAAB", MoteurLettrage.code(2));
+        assertEquals("AABA", MoteurLettrage.code(MoteurLettrage.rang("AAAZ") + 1));
+        // Au-delà de ZZZZ, les codes s'allongent au lieu de s'épuiser
+        assertEquals(456_976, MoteurLettrage.rang("ZZZZ"));
+        assertEquals("BAAAA", MoteurLettrage.code(456_977));
+        assertEquals(456_977, MoteurLettrage.rang("BAAAA"));
+        assertEquals(0, MoteurLettrage.rang(null));
+        assertEquals("ZZZZZZZZZZ", MoteurLettrage.code(MoteurLettrage.rang("ZZZZZZZZZZ")));
+        assertThrows(IllegalStateException.class,
+            () -> MoteurLettrage.code(MoteurLettrage.rang("ZZZZZZZZZZ") + 1));
+    }
+}
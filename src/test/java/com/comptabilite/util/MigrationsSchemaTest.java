@@ -0,0 +1,55 @@
+package com.comptabilite.util;
+
+import com.comptabilite.util.MigrationsSchema.Migration;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MigrationsSchemaTest {
+
+    @Test
+    void testScriptsLivres() {
+        List<Migration> migrations = MigrationsSchema.lireMigrations();
+
+        assertFalse(migrations.isEmpty());
+        for (int i = 0; i < migrations.size(); i++) {
+            assertEquals(i + 1, migrations.get(i).version(), "versions continues à partir de 1");
+            assertFalse(MigrationsSchema.decouper(migrations.get(i).contenu()).isEmpty());
+        }
+        assertEquals("schema_initial", migrations.get(0).description());
+    }
+
+    @Test
+    void testDecoupage() {
+        String script = "-- commentaire; ignoré\n" +
+            "CREATE INDEX idx_a ON t (a);\n" +
+            "/* bloc ; */ INSERT INTO t (libelle) VALUES ('a;b'), ('l''exercice; clos');\n" +
+            "UPDATE t SET libelle = 'x\\';y'\n";
+
+        List<String> instructions = MigrationsSchema.decouper(script);
+
+        assertEquals(3, instructions.size());
+        assertEquals("CREATE INDEX idx_a ON t (a)", instructions.get(0));
+        assertTrue(instructions.get(1).endsWith("('l''exercice; clos')"));
+        assertEquals("UPDATE t SET libelle = 'x\\';y'", instructions.get(2));
+    }
+
+    @Test
+    void testEmpreinte() {
+        Migration unix = new Migration(2, "index", "CREATE INDEX idx_a ON t (a);\n");
+        Migration windows = new Migration(2, "index", "CREATE INDEX idx_a ON t (a);\r\n");
+        Migration modifie = new Migration(2, "index", "CREATE INDEX idx_a ON t (a, b);\n");
+
+        assertEquals(64, unix.empreinte().length());
+        assertEquals(unix.empreinte(), windows.empreinte());
+
+        MigrationsSchema.verifier(List.of(unix), Map.of(2, windows.empreinte()));
+        assertThrows(IllegalStateException.class,
+            () -> MigrationsSchema.verifier(List.of(modifie), Map.of(2, unix.empreinte())));
+        assertThrows(IllegalStateException.class,
+            () -> MigrationsSchema.verifier(List.of(unix), Map.of(2, unix.empreinte(), 3, unix.empreinte())));
+    }
+}